@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Cache for the products of <code>xcodebuild</code> calls, e.g. the <code>.a</code>, <code>.app</code>,
+ * <code>.framework</code> and <code>.dSYM</code> files of a configuration and sdk.
+ * <p>
+ * A product directory is stored as a compressed tar archive, which keeps the symbolic links inside of frameworks and
+ * the executable flags. The key of an entry is computed by the caller from all inputs of the build, see
+ * {@link BuildInputFingerprint}. The cache counts the hits, the misses and the bytes that have been transferred.
+ */
+final class BuildCache
+{
+  private final BuildCacheStore store;
+
+  private int hits, misses, stored;
+
+  private long bytesRestored, bytesStored;
+
+  BuildCache(BuildCacheStore store)
+  {
+    this.store = store;
+  }
+
+  /**
+   * @param location
+   *          a http or https url or a directory.
+   */
+  static BuildCacheStore createStore(String location)
+  {
+    if (location.startsWith("http://") || location.startsWith("https://"))
+      return new HttpBuildCacheStore(location);
+    return new LocalBuildCacheStore(new File(location));
+  }
+
+  BuildCacheStore getStore()
+  {
+    return store;
+  }
+
+  /**
+   * Replaces the content of <code>directory</code> with the entry for the key.
+   * 
+   * @return <code>false</code> in case of a cache miss. The directory is not touched in this case.
+   */
+  boolean restore(String key, File directory) throws IOException
+  {
+    final File archive = File.createTempFile("xcode-build-cache", ".tar.gz");
+
+    try {
+      if (!store.get(key, archive)) {
+        misses++;
+        return false;
+      }
+
+      FileUtils.deleteDirectory(directory);
+      FileUtils.mkdirs(directory);
+
+      try {
+        tar(directory, "-xzf", archive.getAbsolutePath());
+      }
+      catch (IOException e) {
+        // do not leave a partially restored product behind
+        FileUtils.deleteDirectory(directory);
+        throw e;
+      }
+
+      hits++;
+      bytesRestored += archive.length();
+      return true;
+    }
+    finally {
+      archive.delete();
+    }
+  }
+
+  /**
+   * Stores the content of <code>directory</code> as the entry for the key.
+   */
+  void store(String key, File directory) throws IOException
+  {
+    if (!directory.isDirectory())
+      throw new IOException("Product directory '" + directory + "' does not exist.");
+
+    final File archive = File.createTempFile("xcode-build-cache", ".tar.gz");
+
+    try {
+      tar(directory, "-czf", archive.getAbsolutePath(), ".");
+      store.put(key, archive);
+
+      stored++;
+      bytesStored += archive.length();
+    }
+    finally {
+      archive.delete();
+    }
+  }
+
+  int getHits()
+  {
+    return hits;
+  }
+
+  int getMisses()
+  {
+    return misses;
+  }
+
+  long getBytesRestored()
+  {
+    return bytesRestored;
+  }
+
+  int getStored()
+  {
+    return stored;
+  }
+
+  long getBytesStored()
+  {
+    return bytesStored;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Build cache " + store + ": " + hits + " hits, " + misses + " misses, " + bytesRestored
+          + " bytes restored, " + stored + " entries with " + bytesStored + " bytes stored";
+  }
+
+  private static void tar(File directory, String... args) throws IOException
+  {
+    final String[] command = new String[args.length + 1];
+    command[0] = "tar";
+    System.arraycopy(args, 0, command, 1, args.length);
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final PrintStream printStream = new PrintStream(out, true, Charset.defaultCharset().name());
+
+    try {
+      final int exitCode = ProcessServices.getDefault().execute(printStream, directory, command);
+      if (exitCode != 0)
+        throw new IOException("tar failed with exit code " + exitCode + " in '" + directory + "': "
+              + out.toString(Charset.defaultCharset().name()));
+    }
+    finally {
+      IOUtils.closeQuietly(printStream);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Storage of the build cache. Entries are immutable archives addressed by a key that is derived from all inputs of
+ * the build, so that entries can be shared between workspaces and build agents.
+ * 
+ * @see BuildCache
+ */
+interface BuildCacheStore
+{
+  /**
+   * @param target
+   *          receives the content of the entry.
+   * @return <code>false</code> if there is no entry for the key.
+   */
+  boolean get(String key, File target) throws IOException;
+
+  /**
+   * Stores the content of <code>source</code> as the entry for the key. An existing entry is replaced.
+   */
+  void put(String key, File source) throws IOException;
+}
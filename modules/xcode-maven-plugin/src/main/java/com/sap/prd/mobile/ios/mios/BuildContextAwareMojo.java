@@ -263,6 +263,11 @@ public abstract class BuildContextAwareMojo extends AbstractXCodeMojo
     return result;
   }
 
+  protected MavenSession getSession()
+  {
+    return session;
+  }
+
   protected String getProperty(String key)
   {
     String value = session.getUserProperties().getProperty(key);
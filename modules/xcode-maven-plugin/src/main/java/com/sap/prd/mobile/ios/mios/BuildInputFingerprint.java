@@ -0,0 +1,257 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Fingerprint of the inputs of one <code>xcodebuild</code> call. The fingerprint consists of named components, e.g.
+ * the digest of the sources or the Xcode version, so that the reason for a rebuild can be reported.
+ */
+final class BuildInputFingerprint
+{
+  static final String XCODE = "xcode";
+
+  static final String BUILD_ACTIONS = "buildActions";
+
+  static final String OPTIONS = "options";
+
+  static final String SETTINGS = "settings";
+
+  static final String SOURCES = "sources";
+
+  static final String LIBS = "libs";
+
+  static final String HEADERS = "headers";
+
+  static final String XCODE_DEPS = "xcodeDeps";
+
+  private static final String ENCODING = "UTF-8";
+
+  private final Map<String, String> components;
+
+  BuildInputFingerprint(Map<String, String> components)
+  {
+    this.components = Collections.unmodifiableMap(new LinkedHashMap<String, String>(components));
+  }
+
+  Map<String, String> getComponents()
+  {
+    return components;
+  }
+
+  /**
+   * @return the names of the components that differ from <code>previous</code>, all component names if
+   *         <code>previous</code> is <code>null</code>.
+   */
+  List<String> getChangedComponents(BuildInputFingerprint previous)
+  {
+    final List<String> changed = new ArrayList<String>();
+
+    for (Map.Entry<String, String> e : components.entrySet()) {
+      if (previous == null || !e.getValue().equals(previous.components.get(e.getKey())))
+        changed.add(e.getKey());
+    }
+
+    if (previous != null) {
+      for (String name : previous.components.keySet())
+        if (!components.containsKey(name))
+          changed.add(name);
+    }
+    return changed;
+  }
+
+  void store(File file) throws IOException
+  {
+    final Properties properties = new Properties();
+    properties.putAll(components);
+
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    properties.store(content, "Inputs of the last successful xcodebuild call");
+
+    FileUtils.mkdirs(file.getParentFile());
+    FileUtils.writeAtomically(file, content.toByteArray());
+  }
+
+  /**
+   * @return the fingerprint stored in the file or <code>null</code> if there is no such file.
+   */
+  static BuildInputFingerprint load(File file) throws IOException
+  {
+    if (!file.isFile())
+      return null;
+
+    final Properties properties = new Properties();
+    properties.load(new ByteArrayInputStream(org.apache.commons.io.FileUtils.readFileToByteArray(file)));
+
+    final Map<String, String> components = new TreeMap<String, String>();
+    for (String name : properties.stringPropertyNames())
+      components.put(name, properties.getProperty(name));
+
+    return new BuildInputFingerprint(components);
+  }
+
+  @Override
+  public boolean equals(Object o)
+  {
+    return o instanceof BuildInputFingerprint && components.equals(((BuildInputFingerprint) o).components);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return components.hashCode();
+  }
+
+  @Override
+  public String toString()
+  {
+    return components.toString();
+  }
+
+  /**
+   * @return the digest of a map, independent of the order of the entries.
+   */
+  static String digest(Map<String, String> values)
+  {
+    return digest(String.valueOf(values == null ? null : new TreeMap<String, String>(values)));
+  }
+
+  static String digest(Collection<String> values)
+  {
+    return digest(String.valueOf(values));
+  }
+
+  private static String digest(String value)
+  {
+    try {
+      return toHex(newDigest().digest(value.getBytes(ENCODING)));
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param excludes
+   *          files and directories that are skipped.
+   * @return the digest over the relative paths and the contents of all files below <code>directory</code>, "none"
+   *         if the directory does not exist. Symbolic links are followed unless they point to a directory that is
+   *         being digested, e.g. a link to a parent directory.
+   */
+  static String digestDirectory(File directory, Collection<File> excludes) throws IOException
+  {
+    if (!directory.exists())
+      return "none";
+
+    final MessageDigest digest = newDigest();
+    final byte[] buffer = new byte[64 * 1024];
+    digestDirectory(directory.getAbsoluteFile(), "", excludes, new HashSet<File>(), digest, buffer);
+    return toHex(digest.digest());
+  }
+
+  private static void digestDirectory(File directory, String path, Collection<File> excludes, Set<File> ancestors,
+        MessageDigest digest, byte[] buffer) throws IOException
+  {
+    final String[] names = directory.list();
+
+    if (names == null)
+      throw new IOException("Cannot list '" + directory + "'.");
+
+    final File canonicalDirectory = directory.getCanonicalFile();
+    ancestors.add(canonicalDirectory);
+
+    Arrays.sort(names);
+
+    for (String name : names) {
+
+      final File file = new File(directory, name);
+
+      if (excludes.contains(file))
+        continue;
+
+      final String relativePath = path + "/" + name;
+
+      if (file.isDirectory()) {
+        if (ancestors.contains(file.getCanonicalFile())) {
+          // a link back into the directories being digested, following it would never end
+          digest.update((relativePath + "@\n").getBytes(ENCODING));
+          continue;
+        }
+        digest.update((relativePath + "/\n").getBytes(ENCODING));
+        digestDirectory(file, relativePath, excludes, ancestors, digest, buffer);
+      }
+      else {
+        digest.update((relativePath + ":" + file.length() + ":" + (file.canExecute() ? "x" : "-") + "\n")
+          .getBytes(ENCODING));
+
+        final InputStream in = new FileInputStream(file);
+        try {
+          for (int n; (n = in.read(buffer)) != -1;)
+            digest.update(buffer, 0, n);
+        }
+        finally {
+          IOUtils.closeQuietly(in);
+        }
+      }
+    }
+
+    ancestors.remove(canonicalDirectory);
+  }
+
+  private static MessageDigest newDigest()
+  {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] digest)
+  {
+    final StringBuilder sb = new StringBuilder(2 * digest.length);
+    for (byte b : digest)
+      sb.append(String.format("%02x", b & 0xff));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,665 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Evaluates a few frequently used build settings from <code>project.pbxproj</code> and the <code>xcconfig</code>
+ * files of a project without calling <code>xcodebuild</code>.
+ * <p>
+ * The settings are looked up in the same order as <code>xcodebuild</code> does: settings passed on the command line,
+ * the target configuration, the xcconfig file of the target configuration, the project configuration, the xcconfig
+ * file of the project configuration and finally a small set of defaults. <code>$(inherited)</code> refers to the next
+ * level, <code>$(VAR)</code>, <code>${VAR}</code> and modifiers like <code>${VAR:rfc1034identifier}</code> are
+ * expanded. Conditional settings are supported for the <code>sdk</code> and <code>config</code> conditions. An sdk
+ * condition is matched against the sdk with its version, e.g. <code>iphoneos6.1</code>, like <code>xcodebuild</code>
+ * does. If only the name of the sdk is known, e.g. <code>iphoneos</code>, conditions depending on the version cannot
+ * be resolved.
+ * <p>
+ * {@link #evaluate(String)} returns <code>null</code> whenever the value cannot be determined reliably, e.g. for keys
+ * that are not in {@link #SUPPORTED_KEYS}, for references to unknown variables or for settings that depend on the
+ * architecture. The caller is expected to fall back to <code>xcodebuild</code> in that case.
+ */
+final class BuildSettingsEvaluator
+{
+  static final Set<String> SUPPORTED_KEYS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+        IEffectiveBuildSettings.PRODUCT_NAME, IEffectiveBuildSettings.INFOPLIST_FILE, IEffectiveBuildSettings.SRC_ROOT,
+        IEffectiveBuildSettings.BUILT_PRODUCTS_DIR, IEffectiveBuildSettings.CONFIGURATION_BUILD_DIR,
+        IEffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH, IEffectiveBuildSettings.CODE_SIGN_IDENTITY,
+        IEffectiveBuildSettings.GCC_GENERATE_DEBUGGING_SYMBOLS)));
+
+  /**
+   * Settings containing paths that are resolved relative to the project directory if they are relative.
+   */
+  private static final Set<String> ROOT_DIRECTORIES = new HashSet<String>(Arrays.asList("SYMROOT", "OBJROOT",
+        "DSTROOT", "SHARED_PRECOMPS_DIR"));
+
+  private static final Pattern REFERENCE = Pattern
+    .compile("\\$(?:\\(([^()]*)\\)|\\{([^{}]*)\\}|([A-Za-z_][A-Za-z0-9_]*))");
+
+  private static final Pattern CONDITIONAL_KEY = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)((?:\\[[^\\]]*\\])*)");
+
+  private static final Pattern CONDITION = Pattern.compile("\\[\\s*(\\w+)\\s*=\\s*([^\\]]*?)\\s*\\]");
+
+  private static final Pattern XCCONFIG_ASSIGNMENT = Pattern
+    .compile("^\\s*([A-Za-z_][A-Za-z0-9_]*(?:\\[[^\\]]*\\])*)\\s*=(.*)$");
+
+  private static final Pattern XCCONFIG_INCLUDE = Pattern.compile("^\\s*#include(\\??)\\s+\"([^\"]+)\"");
+
+  private static final int MAX_DEPTH = 32;
+
+  /**
+   * Evaluator for projects that cannot be evaluated at all, always returns <code>null</code>.
+   */
+  static final BuildSettingsEvaluator UNAVAILABLE = new BuildSettingsEvaluator();
+
+  /**
+   * Thrown if a value cannot be determined without <code>xcodebuild</code>.
+   */
+  static class UnresolvableException extends Exception
+  {
+    private static final long serialVersionUID = -4521347180471226340L;
+
+    UnresolvableException(String message)
+    {
+      super(message);
+    }
+  }
+
+  /**
+   * A single assignment, optionally restricted by conditions like <code>[sdk=iphoneos*]</code>.
+   */
+  private static final class Assignment
+  {
+    private final Map<String, String> conditions;
+
+    private final String value;
+
+    Assignment(Map<String, String> conditions, String value)
+    {
+      this.conditions = conditions;
+      this.value = value;
+    }
+  }
+
+  /**
+   * The assignments of one level, e.g. of the target configuration.
+   */
+  private static final class Level
+  {
+    private final Map<String, List<Assignment>> assignments = new HashMap<String, List<Assignment>>();
+
+    void put(String key, String value)
+    {
+      final Matcher matcher = CONDITIONAL_KEY.matcher(key.trim());
+
+      if (!matcher.matches())
+        return;
+
+      final Map<String, String> conditions = new LinkedHashMap<String, String>();
+      final Matcher condition = CONDITION.matcher(matcher.group(2));
+
+      while (condition.find())
+        conditions.put(condition.group(1), condition.group(2));
+
+      List<Assignment> list = assignments.get(matcher.group(1));
+
+      if (list == null) {
+        list = new ArrayList<Assignment>(1);
+        assignments.put(matcher.group(1), list);
+      }
+      list.add(new Assignment(conditions, value));
+    }
+  }
+
+  private final List<Level> levels = new ArrayList<Level>();
+
+  private final String sdk;
+
+  private final String configuration;
+
+  private final Map<String, String> cache = new HashMap<String, String>();
+
+  private BuildSettingsEvaluator()
+  {
+    this.sdk = null;
+    this.configuration = null;
+  }
+
+  /**
+   * @param target
+   *          the target, the first target of the project if <code>null</code>.
+   * @throws UnresolvableException
+   *           if the project cannot be evaluated, e.g. because the target or configuration does not exist or an
+   *           xcconfig file cannot be located.
+   */
+  BuildSettingsEvaluator(IXCodeContext context, String target) throws IOException, UnresolvableException
+  {
+    final File rootDirectory = context.getProjectRootDirectory().getAbsoluteFile();
+    final String projectFileName = getProjectFileName(context, rootDirectory);
+    final File projectFile = new File(new File(rootDirectory, projectFileName), "project.pbxproj");
+    final Map<String, Object> document = asMap(PList.read(projectFile).getRoot());
+
+    if (document == null)
+      throw new UnresolvableException("Cannot read '" + projectFile + "'.");
+
+    final Map<String, Object> objects = asMap(document.get("objects"));
+    final Map<String, Object> project = getObject(objects, document.get("rootObject"));
+
+    final String projectDirPath = asString(project.get("projectDirPath"));
+    final File projectDir = projectDirPath == null || projectDirPath.isEmpty() ? rootDirectory : new File(
+          rootDirectory, projectDirPath);
+
+    final Map<String, Object> targetObject = getTarget(objects, project, target);
+    final Map<String, Object> projectConfigurations = getObject(objects, project.get("buildConfigurationList"));
+
+    this.configuration = context.getConfiguration() != null ? context.getConfiguration()
+          : asString(projectConfigurations.get("defaultConfigurationName"));
+
+    final Map<String, Object> projectConfiguration = getConfiguration(objects, projectConfigurations, configuration);
+    final Map<String, Object> targetConfiguration = getConfiguration(objects,
+          getObject(objects, targetObject.get("buildConfigurationList")), configuration);
+
+    final GroupTree groups = new GroupTree(objects, projectDir);
+
+    levels.add(createDefaults(projectDir, projectFileName, asString(targetObject.get("name")), configuration,
+          asString(targetObject.get("productType"))));
+    levels.add(createXcconfigLevel(groups, projectConfiguration));
+    levels.add(createConfigurationLevel(projectConfiguration));
+    levels.add(createXcconfigLevel(groups, targetConfiguration));
+    levels.add(createConfigurationLevel(targetConfiguration));
+
+    final Level commandLine = new Level();
+    for (Map.Entry<String, String> e : context.getSettings().getAllSettings().entrySet())
+      commandLine.put(e.getKey(), e.getValue());
+    levels.add(commandLine);
+
+    this.sdk = context.getSDK() != null ? context.getSDK() : resolveSdkRoot();
+  }
+
+  /**
+   * @return the value of the build setting or <code>null</code> if it cannot be determined without
+   *         <code>xcodebuild</code>.
+   */
+  synchronized String evaluate(String key)
+  {
+    if (levels.isEmpty() || !SUPPORTED_KEYS.contains(key))
+      return null;
+
+    try {
+      return resolve(key, 0);
+    }
+    catch (UnresolvableException e) {
+      return null;
+    }
+  }
+
+  private String resolve(String key, int depth) throws UnresolvableException
+  {
+    if (cache.containsKey(key))
+      return cache.get(key);
+
+    final String value = resolve(key, levels.size() - 1, depth);
+    cache.put(key, value);
+    return value;
+  }
+
+  /**
+   * @return the value of the key on the given level or below.
+   */
+  private String resolve(String key, int level, int depth) throws UnresolvableException
+  {
+    if (depth > MAX_DEPTH)
+      throw new UnresolvableException("Recursion too deep when resolving '" + key + "'.");
+
+    for (int i = level; i >= 0; i--) {
+
+      final String raw = lookup(levels.get(i), key);
+
+      if (raw == null)
+        continue;
+
+      String value = expand(key, raw, i, depth + 1);
+
+      if (ROOT_DIRECTORIES.contains(key) && !value.isEmpty() && !new File(value).isAbsolute())
+        value = FilenameUtils.normalizeNoEndSeparator(resolve("PROJECT_DIR", depth + 1) + "/" + value);
+
+      return value;
+    }
+    throw new UnresolvableException("No value for '" + key + "'.");
+  }
+
+  private String lookup(Level level, String key) throws UnresolvableException
+  {
+    final List<Assignment> assignments = level.assignments.get(key);
+
+    if (assignments == null)
+      return null;
+
+    String unconditional = null;
+    String conditional = null;
+
+    for (Assignment assignment : assignments) {
+      if (assignment.conditions.isEmpty()) {
+        unconditional = assignment.value;
+      }
+      else if (matches(assignment.conditions)) {
+        conditional = assignment.value;
+      }
+    }
+    return conditional != null ? conditional : unconditional;
+  }
+
+  private boolean matches(Map<String, String> conditions) throws UnresolvableException
+  {
+    for (Map.Entry<String, String> condition : conditions.entrySet()) {
+
+      final String actual;
+
+      if ("sdk".equals(condition.getKey())) {
+        if (!matchesSdk(condition.getValue()))
+          return false;
+        continue;
+      }
+      else if ("config".equals(condition.getKey())) {
+        actual = configuration;
+      }
+      else if ("*".equals(condition.getValue())) {
+        continue;
+      }
+      else {
+        throw new UnresolvableException("Condition '" + condition.getKey() + "' not supported.");
+      }
+
+      if (!FilenameUtils.wildcardMatch(actual, condition.getValue()))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param pattern
+   *          the value of an sdk condition, e.g. <code>iphoneos*</code>.
+   */
+  private boolean matchesSdk(String pattern) throws UnresolvableException
+  {
+    if (sdk == null)
+      throw new UnresolvableException("Sdk not known.");
+
+    if (StringUtils.indexOfAny(sdk, "0123456789") >= 0)
+      return FilenameUtils.wildcardMatch(sdk, pattern);
+
+    // only the name of the sdk is known, the version may follow it
+    final int wildcard = StringUtils.indexOfAny(pattern, "*?");
+    final String literal = wildcard < 0 ? pattern : pattern.substring(0, wildcard);
+
+    if (!literal.startsWith(sdk) && !sdk.startsWith(literal))
+      return false;
+
+    if (wildcard >= 0 && sdk.startsWith(literal) && StringUtils.containsOnly(pattern.substring(wildcard), "*"))
+      return true;
+
+    throw new UnresolvableException("Sdk condition '" + pattern + "' depends on the version of the sdk '" + sdk
+          + "'.");
+  }
+
+  private String expand(String key, String raw, int level, int depth) throws UnresolvableException
+  {
+    final Matcher matcher = REFERENCE.matcher(raw);
+    final StringBuffer result = new StringBuffer();
+
+    while (matcher.find()) {
+
+      final String reference = matcher.group(1) != null ? matcher.group(1) : matcher.group(2) != null ? matcher
+        .group(2) : matcher.group(3);
+
+      final int colon = reference.indexOf(':');
+      final String name = colon == -1 ? reference : reference.substring(0, colon);
+
+      String value;
+
+      if ("inherited".equals(name) || name.equals(key)) {
+        value = level == 0 ? "" : resolveOrEmpty(key, level - 1, depth);
+      }
+      else {
+        value = resolve(expand(key, name, level, depth), depth);
+      }
+
+      if (colon != -1)
+        value = applyModifiers(value, reference.substring(colon + 1));
+
+      matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+    }
+    matcher.appendTail(result);
+
+    // "$(inherited) -ObjC" with nothing inherited
+    return result.toString().trim();
+  }
+
+  private String resolveOrEmpty(String key, int level, int depth) throws UnresolvableException
+  {
+    for (int i = level; i >= 0; i--)
+      if (lookup(levels.get(i), key) != null)
+        return resolve(key, level, depth);
+    return "";
+  }
+
+  static String applyModifiers(String value, String modifiers) throws UnresolvableException
+  {
+    for (String modifier : modifiers.split(",")) {
+
+      modifier = modifier.trim();
+
+      if ("rfc1034identifier".equals(modifier)) {
+        value = value.replaceAll("[^A-Za-z0-9.-]", "-");
+      }
+      else if ("identifier".equals(modifier) || "c99extidentifier".equals(modifier)) {
+        value = value.replaceAll("[^A-Za-z0-9_]", "_");
+        if (!value.isEmpty() && Character.isDigit(value.charAt(0)))
+          value = "_" + value;
+      }
+      else if ("lower".equals(modifier)) {
+        value = value.toLowerCase();
+      }
+      else if ("upper".equals(modifier)) {
+        value = value.toUpperCase();
+      }
+      else if ("base".equals(modifier)) {
+        value = FilenameUtils.getBaseName(value);
+      }
+      else if ("file".equals(modifier)) {
+        value = FilenameUtils.getName(value);
+      }
+      else if ("dir".equals(modifier)) {
+        value = FilenameUtils.getFullPath(value);
+      }
+      else if ("suffix".equals(modifier)) {
+        final String extension = FilenameUtils.getExtension(value);
+        value = extension.isEmpty() ? "" : "." + extension;
+      }
+      else if ("standardizepath".equals(modifier)) {
+        value = FilenameUtils.normalizeNoEndSeparator(value);
+      }
+      else {
+        throw new UnresolvableException("Modifier '" + modifier + "' not supported.");
+      }
+    }
+    return value;
+  }
+
+  private String resolveSdkRoot()
+  {
+    try {
+      final String sdkRoot = resolve("SDKROOT", 0);
+      final String name = sdkRoot.endsWith(".sdk") ? FilenameUtils.getBaseName(sdkRoot).toLowerCase() : sdkRoot;
+      return name.isEmpty() ? null : name;
+    }
+    catch (UnresolvableException e) {
+      return null;
+    }
+  }
+
+  private Level createDefaults(File projectDir, String projectFileName, String targetName, String configuration,
+        String productType)
+  {
+    final Level defaults = new Level();
+
+    defaults.put("PROJECT_DIR", projectDir.getPath());
+    defaults.put("SRCROOT", "$(PROJECT_DIR)");
+    defaults.put("SOURCE_ROOT", "$(SRCROOT)");
+    defaults.put("PROJECT_NAME", FilenameUtils.getBaseName(projectFileName));
+    defaults.put("PROJECT", "$(PROJECT_NAME)");
+    defaults.put("PROJECT_FILE_PATH", "$(PROJECT_DIR)/" + projectFileName);
+    defaults.put("TARGET_NAME", targetName);
+    defaults.put("TARGETNAME", "$(TARGET_NAME)");
+    defaults.put("CONFIGURATION", configuration);
+    defaults.put("SYMROOT", "$(PROJECT_DIR)/build");
+    defaults.put("OBJROOT", "$(SYMROOT)");
+    defaults.put("BUILD_DIR", "$(SYMROOT)");
+    defaults.put("BUILD_ROOT", "$(SYMROOT)");
+    defaults.put("CONFIGURATION_BUILD_DIR", "$(BUILD_DIR)/$(CONFIGURATION)$(EFFECTIVE_PLATFORM_NAME)");
+    defaults.put("BUILT_PRODUCTS_DIR", "$(CONFIGURATION_BUILD_DIR)");
+    defaults.put("GCC_GENERATE_DEBUGGING_SYMBOLS", "YES");
+
+    if ("com.apple.product-type.library.static".equals(productType))
+      defaults.put("PUBLIC_HEADERS_FOLDER_PATH", "/usr/local/include");
+
+    // the platform is derived from the sdk once it is known
+    defaults.put("PLATFORM_NAME[sdk=iphoneos*]", "iphoneos");
+    defaults.put("PLATFORM_NAME[sdk=iphonesimulator*]", "iphonesimulator");
+    defaults.put("PLATFORM_NAME[sdk=macosx*]", "macosx");
+    defaults.put("EFFECTIVE_PLATFORM_NAME[sdk=iphoneos*]", "-iphoneos");
+    defaults.put("EFFECTIVE_PLATFORM_NAME[sdk=iphonesimulator*]", "-iphonesimulator");
+    defaults.put("EFFECTIVE_PLATFORM_NAME[sdk=macosx*]", "");
+
+    return defaults;
+  }
+
+  private static Level createConfigurationLevel(Map<String, Object> configuration)
+  {
+    final Level level = new Level();
+    final Map<String, Object> buildSettings = asMap(configuration.get("buildSettings"));
+
+    if (buildSettings != null) {
+      for (Map.Entry<String, Object> e : buildSettings.entrySet())
+        level.put(e.getKey(), toSettingValue(e.getValue()));
+    }
+    return level;
+  }
+
+  private static Level createXcconfigLevel(GroupTree groups, Map<String, Object> configuration) throws IOException,
+        UnresolvableException
+  {
+    final Level level = new Level();
+    final Object reference = configuration.get("baseConfigurationReference");
+
+    if (reference != null)
+      readXcconfig(groups.getFile(asString(reference)), level, 0);
+
+    return level;
+  }
+
+  private static void readXcconfig(File xcconfig, Level level, int depth) throws IOException, UnresolvableException
+  {
+    if (depth > MAX_DEPTH)
+      throw new UnresolvableException("Include depth exceeded in '" + xcconfig + "'.");
+
+    if (!xcconfig.isFile())
+      throw new UnresolvableException("Xcconfig file '" + xcconfig + "' not found.");
+
+    for (Object o : org.apache.commons.io.FileUtils.readLines(xcconfig, "UTF-8")) {
+
+      String line = (String) o;
+
+      final Matcher include = XCCONFIG_INCLUDE.matcher(line);
+
+      if (include.find()) {
+        final File included = new File(include.group(2)).isAbsolute() ? new File(include.group(2)) : new File(
+              xcconfig.getParentFile(), include.group(2));
+        if (included.isFile() || include.group(1).isEmpty())
+          readXcconfig(included, level, depth + 1);
+        continue;
+      }
+
+      final int comment = line.indexOf("//");
+      if (comment != -1)
+        line = line.substring(0, comment);
+
+      final Matcher assignment = XCCONFIG_ASSIGNMENT.matcher(line);
+
+      if (assignment.matches()) {
+        final String value = assignment.group(2).trim();
+        level.put(assignment.group(1), value.endsWith(";") ? value.substring(0, value.length() - 1).trim() : value);
+      }
+    }
+  }
+
+  private static String toSettingValue(Object value)
+  {
+    final List<Object> list = asList(value);
+
+    if (list == null)
+      return String.valueOf(value);
+
+    final StringBuilder sb = new StringBuilder();
+    for (Object element : list) {
+      if (sb.length() > 0)
+        sb.append(' ');
+      sb.append(element);
+    }
+    return sb.toString();
+  }
+
+  private static String getProjectFileName(IXCodeContext context, File rootDirectory) throws UnresolvableException
+  {
+    final String project = context.getOptions().getAllOptions().get(Options.ManagedOption.PROJECT.getOptionName());
+
+    if (project != null)
+      return project;
+
+    final String[] names = rootDirectory.list();
+
+    if (names != null) {
+      for (String name : names)
+        if (name.endsWith(".xcodeproj"))
+          return name;
+    }
+    throw new UnresolvableException("No Xcode project found in '" + rootDirectory + "'.");
+  }
+
+  private static Map<String, Object> getTarget(Map<String, Object> objects, Map<String, Object> project, String name)
+        throws UnresolvableException
+  {
+    final List<Object> targets = asList(project.get("targets"));
+
+    if (targets != null) {
+      for (Object id : targets) {
+        final Map<String, Object> target = getObject(objects, id);
+        if (name == null || name.equals(target.get("name")))
+          return target;
+      }
+    }
+    throw new UnresolvableException("Target '" + name + "' not found.");
+  }
+
+  private static Map<String, Object> getConfiguration(Map<String, Object> objects,
+        Map<String, Object> configurationList, String name) throws UnresolvableException
+  {
+    final List<Object> configurations = asList(configurationList.get("buildConfigurations"));
+
+    if (configurations != null) {
+      for (Object id : configurations) {
+        final Map<String, Object> configuration = getObject(objects, id);
+        if (name != null && name.equals(configuration.get("name")))
+          return configuration;
+      }
+    }
+    throw new UnresolvableException("Configuration '" + name + "' not found.");
+  }
+
+  private static Map<String, Object> getObject(Map<String, Object> objects, Object id) throws UnresolvableException
+  {
+    final Map<String, Object> object = objects == null || id == null ? null : asMap(objects.get(id));
+
+    if (object == null)
+      throw new UnresolvableException("Object '" + id + "' not found in project.");
+
+    return object;
+  }
+
+  private static String asString(Object value)
+  {
+    return value instanceof String ? (String) value : null;
+  }
+
+  private static Map<String, Object> asMap(Object value)
+  {
+    return value instanceof Map ? PList.asDict(value) : null;
+  }
+
+  private static List<Object> asList(Object value)
+  {
+    return value instanceof List ? PList.asArray(value) : null;
+  }
+
+  /**
+   * Resolves file references against the group hierarchy of the project.
+   */
+  private static final class GroupTree
+  {
+    private final Map<String, Object> objects;
+
+    private final File projectDir;
+
+    private final Map<String, String> parents = new HashMap<String, String>();
+
+    GroupTree(Map<String, Object> objects, File projectDir)
+    {
+      this.objects = objects;
+      this.projectDir = projectDir;
+
+      for (Map.Entry<String, Object> e : objects.entrySet()) {
+        final Map<String, Object> object = asMap(e.getValue());
+        final List<Object> children = object == null ? null : asList(object.get("children"));
+        if (children != null) {
+          for (Object child : children)
+            parents.put(String.valueOf(child), e.getKey());
+        }
+      }
+    }
+
+    File getFile(String id) throws UnresolvableException
+    {
+      final Map<String, Object> object = getObject(objects, id);
+      final String path = asString(object.get("path"));
+      final String sourceTree = asString(object.get("sourceTree"));
+
+      if ("<absolute>".equals(sourceTree))
+        return new File(path);
+
+      if ("SOURCE_ROOT".equals(sourceTree))
+        return path == null ? projectDir : new File(projectDir, path);
+
+      if ("<group>".equals(sourceTree)) {
+        final String parent = parents.get(id);
+        final File parentDir = parent == null ? projectDir : getFile(parent);
+        return path == null ? parentDir : new File(parentDir, path);
+      }
+
+      throw new UnresolvableException("Source tree '" + sourceTree + "' not supported.");
+    }
+  }
+}
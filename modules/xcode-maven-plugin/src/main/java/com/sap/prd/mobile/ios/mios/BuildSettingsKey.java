@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Identifies the build settings of an {@link IXCodeContext}. Contains only the parts of the context the output of
+ * <code>xcodebuild -showBuildSettings -alltargets</code> depends on: the project directory, the options apart from
+ * the target and query options like <code>-showBuildSettings</code> itself, and the settings. Build actions and the
+ * output stream are not part of the key, so a context for <code>clean build</code> and a context without build
+ * actions share their build settings.
+ */
+final class BuildSettingsKey
+{
+  private final File projectDirectory;
+
+  private final SortedMap<String, String> options;
+
+  private final SortedMap<String, String> settings;
+
+  private final int hashCode;
+
+  private BuildSettingsKey(File projectDirectory, SortedMap<String, String> options,
+        SortedMap<String, String> settings)
+  {
+    this.projectDirectory = projectDirectory;
+    this.options = Collections.unmodifiableSortedMap(options);
+    this.settings = Collections.unmodifiableSortedMap(settings);
+    this.hashCode = 31 * (31 * projectDirectory.hashCode() + options.hashCode()) + settings.hashCode();
+  }
+
+  static BuildSettingsKey of(IXCodeContext context)
+  {
+    final SortedMap<String, String> options = new TreeMap<String, String>(context.getOptions().getAllOptions());
+
+    for (Options.ManagedOption option : Options.ManagedOption.values()) {
+      if (option.hasEmptyValue())
+        options.remove(option.getOptionName());
+    }
+
+    // the build settings of all targets are retrieved at once
+    options.remove(Options.ManagedOption.TARGET.getOptionName());
+
+    return new BuildSettingsKey(context.getProjectRootDirectory().getAbsoluteFile(), options,
+          new TreeMap<String, String>(context.getSettings().getAllSettings()));
+  }
+
+  File getProjectDirectory()
+  {
+    return projectDirectory;
+  }
+
+  Map<String, String> getOptions()
+  {
+    return options;
+  }
+
+  Map<String, String> getSettings()
+  {
+    return settings;
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return hashCode;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this == obj) return true;
+    if (!(obj instanceof BuildSettingsKey)) return false;
+    final BuildSettingsKey other = (BuildSettingsKey) obj;
+    return hashCode == other.hashCode && projectDirectory.equals(other.projectDirectory)
+          && options.equals(other.options) && settings.equals(other.settings);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "BuildSettingsKey [projectDirectory=" + projectDirectory + ", options=" + options + ", settings="
+          + settings + "]";
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The build settings of all targets of a project for one configuration and sdk, as printed by
+ * <code>xcodebuild -showBuildSettings -alltargets</code>. The targets are kept in the order of the output, the first
+ * target is the default target.
+ * <p>
+ * The build settings are kept as {@link CompactBuildSettings}. All targets are stored as delta to a base, which is
+ * either passed in, e.g. the base of another snapshot of the same project, or the build settings of the first target.
+ */
+final class BuildSettingsSnapshot
+{
+  private final Map<String, CompactBuildSettings> targets;
+
+  private final CompactBuildSettings base;
+
+  BuildSettingsSnapshot(Map<String, Map<String, String>> targets)
+  {
+    this(targets, null);
+  }
+
+  /**
+   * @param base
+   *          the base for the build settings of the targets, the build settings of the first target are used if
+   *          <code>null</code>.
+   */
+  BuildSettingsSnapshot(Map<String, Map<String, String>> targets, CompactBuildSettings base)
+  {
+    final Map<String, CompactBuildSettings> compact = new LinkedHashMap<String, CompactBuildSettings>();
+
+    for (Map.Entry<String, Map<String, String>> target : targets.entrySet()) {
+      if (base == null)
+        base = CompactBuildSettings.of(target.getValue(), null);
+      compact.put(target.getKey(), CompactBuildSettings.of(target.getValue(), base));
+    }
+
+    this.targets = Collections.unmodifiableMap(compact);
+    this.base = base;
+  }
+
+  Set<String> getTargets()
+  {
+    return targets.keySet();
+  }
+
+  /**
+   * @return the name of the first target or <code>null</code> if the snapshot is empty.
+   */
+  String getDefaultTarget()
+  {
+    return targets.isEmpty() ? null : targets.keySet().iterator().next();
+  }
+
+  /**
+   * @return the base the build settings of the targets are stored as delta for, <code>null</code> if the snapshot is
+   *         empty.
+   */
+  CompactBuildSettings getBase()
+  {
+    return base;
+  }
+
+  /**
+   * @param target
+   *          the target, the default target if <code>null</code>.
+   * @return the build settings of the target sorted by name or <code>null</code> if there is no such target.
+   */
+  Map<String, String> getBuildSettings(String target)
+  {
+    final CompactBuildSettings buildSettings = getCompactBuildSettings(target);
+    return buildSettings == null ? null : buildSettings.toMap();
+  }
+
+  CompactBuildSettings getCompactBuildSettings(String target)
+  {
+    return targets.get(target == null ? getDefaultTarget() : target);
+  }
+
+  /**
+   * @param target
+   *          the target, the default target if <code>null</code>.
+   * @throws XCodeException
+   *           if there are no build settings for the target.
+   */
+  String get(String target, String key) throws XCodeException
+  {
+    final CompactBuildSettings buildSettings = getCompactBuildSettings(target);
+
+    if (buildSettings == null)
+      throw new XCodeException("No build settings found for target '" + target + "'. Available targets: "
+            + getTargets() + ".");
+
+    return buildSettings.get(key);
+  }
+
+  /**
+   * Flattens the snapshot into properties, see {@link #fromProperties(Properties)}.
+   */
+  Properties toProperties()
+  {
+    final Properties properties = new Properties();
+    int index = 0;
+
+    for (Map.Entry<String, CompactBuildSettings> target : targets.entrySet()) {
+      properties.setProperty("target." + index, target.getKey());
+      for (Map.Entry<String, String> e : target.getValue().toMap().entrySet())
+        properties.setProperty(index + ":" + e.getKey(), e.getValue());
+      index++;
+    }
+    return properties;
+  }
+
+  static BuildSettingsSnapshot fromProperties(Properties properties)
+  {
+    return fromProperties(properties, null);
+  }
+
+  /**
+   * @param base
+   *          see {@link #BuildSettingsSnapshot(Map, CompactBuildSettings)}.
+   */
+  static BuildSettingsSnapshot fromProperties(Properties properties, CompactBuildSettings base)
+  {
+    final Map<String, Map<String, String>> targets = new LinkedHashMap<String, Map<String, String>>();
+
+    for (int index = 0; properties.containsKey("target." + index); index++) {
+
+      final String prefix = index + ":";
+      final Map<String, String> buildSettings = new LinkedHashMap<String, String>();
+
+      for (String name : properties.stringPropertyNames()) {
+        if (name.startsWith(prefix))
+          buildSettings.put(name.substring(prefix.length()), properties.getProperty(name));
+      }
+      targets.put(properties.getProperty("target." + index), buildSettings);
+    }
+    return new BuildSettingsSnapshot(targets, base);
+  }
+
+  @Override
+  public String toString()
+  {
+    final String ls = System.getProperty("line.separator");
+    final StringBuilder sb = new StringBuilder();
+
+    for (Map.Entry<String, CompactBuildSettings> target : targets.entrySet()) {
+      sb.append(ls).append("Target ").append(target.getKey()).append(":").append(ls);
+      for (Map.Entry<String, String> e : target.getValue().toMap().entrySet())
+        sb.append(e.getKey()).append("=").append(e.getValue()).append(ls);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Splits the output of <code>xcodebuild -showBuildSettings</code> into the sections of the targets while it is
+   * written. Lines that are neither section headers nor build settings are kept for error reporting.
+   */
+  static final class Parser extends OutputStream
+  {
+    private static final Pattern SECTION = Pattern
+      .compile("^Build settings for action \\S+ and target \"?(.+?)\"?:\\s*$");
+
+    private final String encoding;
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+    private final Map<String, Map<String, String>> targets = new LinkedHashMap<String, Map<String, String>>();
+
+    private final StringBuilder otherOutput = new StringBuilder();
+
+    private Map<String, String> current;
+
+    /**
+     * <code>true</code> inside sections that do not belong to a target, e.g. "User defaults from command line:".
+     */
+    private boolean otherSection;
+
+    Parser(String encoding)
+    {
+      this.encoding = encoding;
+    }
+
+    @Override
+    public void write(int b) throws UnsupportedEncodingException
+    {
+      if (b == '\n')
+        endOfLine();
+      else
+        line.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws UnsupportedEncodingException
+    {
+      for (int i = off, end = off + len; i < end; i++)
+        write(b[i]);
+    }
+
+    @Override
+    public void close() throws UnsupportedEncodingException
+    {
+      if (line.size() > 0)
+        endOfLine();
+    }
+
+    private void endOfLine() throws UnsupportedEncodingException
+    {
+      String text = line.toString(encoding);
+      line.reset();
+
+      if (text.endsWith("\r"))
+        text = text.substring(0, text.length() - 1);
+
+      final Matcher section = SECTION.matcher(text);
+
+      if (section.matches()) {
+        current = new LinkedHashMap<String, String>();
+        targets.put(section.group(1), current);
+        otherSection = false;
+        return;
+      }
+
+      final int separator = text.indexOf(" = ");
+
+      if (separator > 0 && Character.isWhitespace(text.charAt(0))) {
+        if (otherSection)
+          return;
+        if (current == null) {
+          // no section header, e.g. for older versions of xcodebuild
+          current = new LinkedHashMap<String, String>();
+          targets.put("", current);
+        }
+        current.put(text.substring(0, separator).trim(), text.substring(separator + 3));
+        return;
+      }
+
+      if (text.trim().length() == 0)
+        return;
+
+      if (text.endsWith(":") && !Character.isWhitespace(text.charAt(0))) {
+        current = null;
+        otherSection = true;
+      }
+
+      otherOutput.append(text).append(System.getProperty("line.separator"));
+    }
+
+    BuildSettingsSnapshot getSnapshot()
+    {
+      return getSnapshot(null);
+    }
+
+    /**
+     * @param base
+     *          see {@link BuildSettingsSnapshot#BuildSettingsSnapshot(Map, CompactBuildSettings)}.
+     */
+    BuildSettingsSnapshot getSnapshot(CompactBuildSettings base)
+    {
+      return new BuildSettingsSnapshot(targets, base);
+    }
+
+    /**
+     * @return the lines that have not been recognized as build settings, e.g. warnings and error messages.
+     */
+    String getOtherOutput()
+    {
+      return otherOutput.toString();
+    }
+  }
+}
@@ -0,0 +1,585 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timing of the build steps of one <code>xcodebuild</code> call, derived from the {@link XCodeBuildEvent}s. A step
+ * lasts from its line in the output to the line of the next step, the last step ends with the call.
+ * <p>
+ * The report contains the wall time, the time per step type, e.g. <code>CompileC</code> or <code>Ld</code>, and the
+ * time of every compile unit and link step. It is stored as JSON for tools and comparisons with later builds and as
+ * a text summary listing the slowest steps.
+ */
+final class BuildTimingReport implements XCodeBuildEventListener
+{
+  /**
+   * The number of compile units and link steps listed in the summary.
+   */
+  static final int SLOWEST = 20;
+
+  /**
+   * A step is reported as regression if it takes this factor longer than before ...
+   */
+  static final double REGRESSION_FACTOR = 1.25;
+
+  /**
+   * ... and at least this amount of milliseconds.
+   */
+  static final long MIN_REGRESSION_MILLIS = 500;
+
+  private final String name;
+
+  private final long startTime;
+
+  private long wallTime;
+
+  private final Map<String, Step> stepTypes = new LinkedHashMap<String, Step>();
+
+  private final List<Step> compileUnits = new ArrayList<Step>();
+
+  private final List<Step> linkSteps = new ArrayList<Step>();
+
+  private final List<String> regressions = new ArrayList<String>();
+
+  private XCodeBuildEvent current;
+
+  /**
+   * @param name
+   *          the name of the build, e.g. <code>Release-iphoneos</code>.
+   * @param startTime
+   *          the start time of the <code>xcodebuild</code> call, see {@link System#nanoTime()}.
+   */
+  BuildTimingReport(String name, long startTime)
+  {
+    this.name = name;
+    this.startTime = startTime;
+  }
+
+  private BuildTimingReport(String name, long wallTime, List<Step> stepTypes, List<Step> compileUnits,
+        List<Step> linkSteps)
+  {
+    this(name, 0);
+    this.wallTime = wallTime;
+    for (Step step : stepTypes)
+      this.stepTypes.put(step.name, step);
+    this.compileUnits.addAll(compileUnits);
+    this.linkSteps.addAll(linkSteps);
+  }
+
+  @Override
+  public void onEvent(XCodeBuildEvent event)
+  {
+    if (event.getType().isStep()) {
+      end(event.getTime());
+      current = event;
+    }
+  }
+
+  /**
+   * Ends the last step.
+   * 
+   * @param endTime
+   *          the end time of the <code>xcodebuild</code> call, see {@link System#nanoTime()}.
+   */
+  void finish(long endTime)
+  {
+    end(endTime);
+    wallTime = toMillis(endTime - startTime);
+  }
+
+  private void end(long time)
+  {
+    if (current == null)
+      return;
+
+    final long millis = toMillis(time - current.getTime());
+    final String stepName = current.getName();
+
+    Step stepType = stepTypes.get(stepName);
+    if (stepType == null) {
+      stepType = new Step(stepName, 0, 0);
+      stepTypes.put(stepName, stepType);
+    }
+    stepType.count++;
+    stepType.millis += millis;
+
+    switch (current.getType()) {
+    case COMPILE:
+      compileUnits.add(new Step(getLabel(current, 4), 1, millis));
+      break;
+    case LINK:
+    case LIBTOOL:
+      linkSteps.add(new Step(stepName + " " + getLabel(current, 3), 1, millis));
+      break;
+    default:
+      break;
+    }
+    current = null;
+  }
+
+  /**
+   * @return the subject of the event followed by the architecture, e.g. <code>MyLibrary/Foo.m [armv7]</code>.
+   */
+  private static String getLabel(XCodeBuildEvent event, int architectureIndex)
+  {
+    final String architecture = XCodeBuildEvent.getToken(event.getLine(), architectureIndex);
+    return event.getSubject() + (architecture == null ? "" : " [" + architecture + "]");
+  }
+
+  private static long toMillis(long nanos)
+  {
+    return Math.max(0, nanos / 1000000);
+  }
+
+  String getName()
+  {
+    return name;
+  }
+
+  long getWallTime()
+  {
+    return wallTime;
+  }
+
+  /**
+   * @return the step types, the slowest first.
+   */
+  List<Step> getStepTypes()
+  {
+    return sorted(stepTypes.values());
+  }
+
+  /**
+   * @return the compile units, the slowest first.
+   */
+  List<Step> getCompileUnits()
+  {
+    return sorted(compileUnits);
+  }
+
+  /**
+   * @return the link steps, the slowest first.
+   */
+  List<Step> getLinkSteps()
+  {
+    return sorted(linkSteps);
+  }
+
+  List<String> getRegressions()
+  {
+    return Collections.unmodifiableList(regressions);
+  }
+
+  /**
+   * Compares the wall time, the step types, the compile units and the link steps with the report of a previous
+   * build.
+   * 
+   * @return the regressions, also contained in the stored report.
+   */
+  List<String> compare(BuildTimingReport previous)
+  {
+    regressions.clear();
+
+    if (previous != null) {
+      compare("Wall time", wallTime, previous.wallTime);
+      compare("", stepTypes.values(), previous.stepTypes.values());
+      compare("CompileC ", compileUnits, previous.compileUnits);
+      compare("", linkSteps, previous.linkSteps);
+    }
+    return getRegressions();
+  }
+
+  private void compare(String prefix, Iterable<Step> steps, Iterable<Step> previousSteps)
+  {
+    final Map<String, Step> previous = new LinkedHashMap<String, Step>();
+    for (Step step : previousSteps)
+      previous.put(step.name, step);
+
+    for (Step step : sorted(steps)) {
+      final Step before = previous.get(step.name);
+      if (before != null)
+        compare(prefix + step.name, step.millis, before.millis);
+    }
+  }
+
+  private void compare(String label, long millis, long previousMillis)
+  {
+    if (millis - previousMillis >= MIN_REGRESSION_MILLIS && millis > previousMillis * REGRESSION_FACTOR)
+      regressions.add(String.format(Locale.ENGLISH, "%s: %s -> %s (%+.0f%%)", label, formatSeconds(previousMillis),
+            formatSeconds(millis), previousMillis == 0 ? 100.0 : 100.0 * (millis - previousMillis) / previousMillis));
+  }
+
+  private static List<Step> sorted(Iterable<Step> steps)
+  {
+    final List<Step> result = new ArrayList<Step>();
+    for (Step step : steps)
+      result.add(step);
+
+    Collections.sort(result, new Comparator<Step>() {
+      @Override
+      public int compare(Step s1, Step s2)
+      {
+        return s1.millis == s2.millis ? 0 : s1.millis > s2.millis ? -1 : 1;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return the human readable summary.
+   */
+  String toText()
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Build timing of ").append(name).append(": wall time ").append(formatSeconds(wallTime)).append('\n');
+
+    sb.append("\nTime per step type:\n");
+    for (Step step : getStepTypes())
+      sb.append(String.format(Locale.ENGLISH, "%10s %6d  %s%n", formatSeconds(step.millis), step.count, step.name));
+
+    appendSlowest(sb, "compile units", getCompileUnits());
+    appendSlowest(sb, "link steps", getLinkSteps());
+
+    if (!regressions.isEmpty()) {
+      sb.append("\nRegressions compared to the previous build:\n");
+      for (String regression : regressions)
+        sb.append("  ").append(regression).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static void appendSlowest(StringBuilder sb, String title, List<Step> steps)
+  {
+    if (steps.isEmpty())
+      return;
+
+    sb.append("\nSlowest ").append(title).append(":\n");
+    for (Step step : steps.subList(0, Math.min(SLOWEST, steps.size())))
+      sb.append(String.format(Locale.ENGLISH, "%10s  %s%n", formatSeconds(step.millis), step.name));
+  }
+
+  private static String formatSeconds(long millis)
+  {
+    return String.format(Locale.ENGLISH, "%.2f s", millis / 1000.0);
+  }
+
+  String toJson()
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("{\n  \"name\": ").append(Json.quote(name)).append(",\n  \"wallTimeMillis\": ").append(wallTime);
+    appendJson(sb, "stepTypes", getStepTypes(), true);
+    appendJson(sb, "compileUnits", getCompileUnits(), false);
+    appendJson(sb, "linkSteps", getLinkSteps(), false);
+
+    sb.append(",\n  \"regressions\": [");
+    for (int i = 0; i < regressions.size(); i++)
+      sb.append(i == 0 ? "\n    " : ",\n    ").append(Json.quote(regressions.get(i)));
+    sb.append(regressions.isEmpty() ? "]" : "\n  ]").append("\n}\n");
+    return sb.toString();
+  }
+
+  private static void appendJson(StringBuilder sb, String key, List<Step> steps, boolean withCount)
+  {
+    sb.append(",\n  ").append(Json.quote(key)).append(": [");
+    for (int i = 0; i < steps.size(); i++) {
+      final Step step = steps.get(i);
+      sb.append(i == 0 ? "\n    " : ",\n    ").append("{\"name\": ").append(Json.quote(step.name));
+      if (withCount)
+        sb.append(", \"count\": ").append(step.count);
+      sb.append(", \"millis\": ").append(step.millis).append('}');
+    }
+    sb.append(steps.isEmpty() ? "]" : "\n  ]");
+  }
+
+  /**
+   * Writes the report as JSON and as text file.
+   */
+  void store(File jsonFile, File textFile) throws IOException
+  {
+    FileUtils.writeAtomically(jsonFile, toJson().getBytes("UTF-8"));
+    FileUtils.writeAtomically(textFile, toText().getBytes("UTF-8"));
+  }
+
+  /**
+   * @return the report stored in the JSON file, <code>null</code> if there is no such file.
+   */
+  static BuildTimingReport load(File jsonFile) throws IOException
+  {
+    if (!jsonFile.isFile())
+      return null;
+
+    final Object json = Json.parse(org.apache.commons.io.FileUtils.readFileToString(jsonFile, "UTF-8"));
+
+    if (!(json instanceof Map))
+      throw new IOException("Invalid timing report '" + jsonFile + "'.");
+
+    final Map<?, ?> report = (Map<?, ?>) json;
+    return new BuildTimingReport(String.valueOf(report.get("name")), toLong(report.get("wallTimeMillis")),
+          toSteps(report.get("stepTypes")), toSteps(report.get("compileUnits")), toSteps(report.get("linkSteps")));
+  }
+
+  private static List<Step> toSteps(Object json)
+  {
+    final List<Step> steps = new ArrayList<Step>();
+
+    if (json instanceof List) {
+      for (Object o : (List<?>) json) {
+        if (o instanceof Map) {
+          final Map<?, ?> step = (Map<?, ?>) o;
+          steps.add(new Step(String.valueOf(step.get("name")), (int) toLong(step.get("count")),
+                toLong(step.get("millis"))));
+        }
+      }
+    }
+    return steps;
+  }
+
+  private static long toLong(Object json)
+  {
+    return json instanceof Number ? ((Number) json).longValue() : 0;
+  }
+
+  static final class Step
+  {
+    private final String name;
+
+    private int count;
+
+    private long millis;
+
+    Step(String name, int count, long millis)
+    {
+      this.name = name;
+      this.count = count;
+      this.millis = millis;
+    }
+
+    String getName()
+    {
+      return name;
+    }
+
+    int getCount()
+    {
+      return count;
+    }
+
+    long getMillis()
+    {
+      return millis;
+    }
+
+    @Override
+    public String toString()
+    {
+      return name + ": " + millis + " ms";
+    }
+  }
+
+  /**
+   * Minimal JSON support for the reports: objects, arrays, strings, integral numbers, booleans and null.
+   */
+  static final class Json
+  {
+    private final String text;
+
+    private int pos;
+
+    private Json(String text)
+    {
+      this.text = text;
+    }
+
+    static String quote(String s)
+    {
+      final StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+      for (int i = 0; i < s.length(); i++) {
+        final char c = s.charAt(i);
+        if (c == '"' || c == '\\')
+          sb.append('\\').append(c);
+        else if (c < 0x20)
+          sb.append(String.format("\\u%04x", (int) c));
+        else
+          sb.append(c);
+      }
+      return sb.append('"').toString();
+    }
+
+    static Object parse(String text) throws IOException
+    {
+      final Json json = new Json(text);
+      final Object value = json.readValue();
+      json.skipWhitespace();
+      if (json.pos != text.length())
+        throw json.error("end of input expected");
+      return value;
+    }
+
+    private Object readValue() throws IOException
+    {
+      skipWhitespace();
+      if (pos >= text.length())
+        throw error("value expected");
+
+      final char c = text.charAt(pos);
+
+      if (c == '{') {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        pos++;
+        if (!consume('}')) {
+          do {
+            skipWhitespace();
+            if (pos >= text.length() || text.charAt(pos) != '"')
+              throw error("key expected");
+            final String key = readString();
+            if (!consume(':'))
+              throw error("':' expected");
+            map.put(key, readValue());
+          }
+          while (consume(','));
+          if (!consume('}'))
+            throw error("'}' expected");
+        }
+        return map;
+      }
+
+      if (c == '[') {
+        final List<Object> list = new ArrayList<Object>();
+        pos++;
+        if (!consume(']')) {
+          do {
+            list.add(readValue());
+          }
+          while (consume(','));
+          if (!consume(']'))
+            throw error("']' expected");
+        }
+        return list;
+      }
+
+      if (c == '"')
+        return readString();
+
+      if (c == '-' || (c >= '0' && c <= '9')) {
+        final int start = pos++;
+        while (pos < text.length() && "0123456789.eE+-".indexOf(text.charAt(pos)) >= 0)
+          pos++;
+        final String number = text.substring(start, pos);
+        try {
+          return number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0 ? (Object) Long
+            .valueOf(number) : (Object) Double.valueOf(number);
+        }
+        catch (NumberFormatException e) {
+          throw error("invalid number '" + number + "'");
+        }
+      }
+
+      for (String literal : new String[] { "true", "false", "null" }) {
+        if (text.startsWith(literal, pos)) {
+          pos += literal.length();
+          return literal.equals("null") ? null : Boolean.valueOf(literal);
+        }
+      }
+      throw error("unexpected character '" + c + "'");
+    }
+
+    private String readString() throws IOException
+    {
+      final StringBuilder sb = new StringBuilder();
+      pos++;
+
+      while (pos < text.length()) {
+        final char c = text.charAt(pos++);
+        if (c == '"')
+          return sb.toString();
+        if (c != '\\') {
+          sb.append(c);
+          continue;
+        }
+        if (pos >= text.length())
+          break;
+
+        final char escaped = text.charAt(pos++);
+        switch (escaped) {
+        case 'n':
+          sb.append('\n');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'u':
+          if (pos + 4 > text.length())
+            throw error("invalid escape sequence");
+          try {
+            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+          }
+          catch (NumberFormatException e) {
+            throw error("invalid escape sequence");
+          }
+          pos += 4;
+          break;
+        default:
+          sb.append(escaped);
+        }
+      }
+      throw error("unterminated string");
+    }
+
+    private boolean consume(char c)
+    {
+      skipWhitespace();
+      if (pos < text.length() && text.charAt(pos) == c) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void skipWhitespace()
+    {
+      while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+        pos++;
+    }
+
+    private IOException error(String message)
+    {
+      return new IOException("Invalid JSON at position " + pos + ": " + message + ".");
+    }
+  }
+}
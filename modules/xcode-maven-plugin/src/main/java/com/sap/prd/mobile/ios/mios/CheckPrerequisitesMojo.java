@@ -51,7 +51,8 @@ public class CheckPrerequisitesMojo extends AbstractXCodeMojo
     try {
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
       PrintStream out = new PrintStream(bos, true, Charset.defaultCharset().name());
-      int exitCode = Forker.forkProcess(out, new File("."), new String[] { "xcodebuild", "-version" });
+      int exitCode = ProcessServices.getDefault().execute(out, new File("."),
+            new String[] { "xcodebuild", "-version" });
       if (exitCode == 0) {
         String output = bos.toString(Charset.defaultCharset().name());
         DefaultArtifactVersion version = getVersion(output);
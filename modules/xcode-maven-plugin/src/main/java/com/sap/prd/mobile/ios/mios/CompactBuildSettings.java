@@ -0,0 +1,232 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable and memory efficient map of build settings.
+ * <p>
+ * The names of the build settings are interned in a table shared by all instances, an instance only holds the sorted
+ * ids of its keys and a flat array with the values. An instance can be a delta on top of a base instance, e.g. the
+ * build settings of the first target of a project. It then contains only the entries that differ from the base.
+ * Build settings of different targets, configurations and sdks of a project usually share most of their entries.
+ */
+final class CompactBuildSettings
+{
+  /**
+   * Values up to this length are shared between all instances, e.g. "YES", "NO" or "arm64".
+   */
+  private static final int MAX_SHARED_VALUE_LENGTH = 32;
+
+  private static final int MAX_SHARED_VALUES = 4096;
+
+  private static final ConcurrentMap<String, Integer> keyIds = new ConcurrentHashMap<String, Integer>();
+
+  private static final ConcurrentMap<String, String> sharedValues = new ConcurrentHashMap<String, String>();
+
+  private static String[] keyNames = new String[1024];
+
+  /**
+   * Marks an entry of the base that does not exist in the delta. Compared by identity.
+   */
+  private static final String REMOVED = new String("<removed>");
+
+  private final CompactBuildSettings base;
+
+  private final int[] keys;
+
+  private final String[] values;
+
+  private final int size;
+
+  private CompactBuildSettings(CompactBuildSettings base, int[] keys, String[] values, int size)
+  {
+    this.base = base;
+    this.keys = keys;
+    this.values = values;
+    this.size = size;
+  }
+
+  /**
+   * @param base
+   *          the instance the result is a delta for, <code>null</code> for an instance that contains all entries.
+   */
+  static CompactBuildSettings of(Map<String, String> buildSettings, CompactBuildSettings base)
+  {
+    if (base != null && base.base != null)
+      base = base.base;
+
+    final int[] ids = new int[buildSettings.size() + (base == null ? 0 : base.keys.length)];
+    int count = 0;
+
+    for (String key : buildSettings.keySet())
+      ids[count++] = id(key);
+
+    if (base != null) {
+      for (int id : base.keys) {
+        if (!buildSettings.containsKey(keyName(id)))
+          ids[count++] = id;
+      }
+    }
+
+    Arrays.sort(ids, 0, count);
+
+    final String[] values = new String[count];
+    int stored = 0;
+
+    for (int i = 0; i < count; i++) {
+
+      final String key = keyName(ids[i]);
+      final String value = buildSettings.get(key);
+
+      if (base != null) {
+        final String baseValue = base.get(ids[i]);
+        if (value == null ? baseValue == null : value.equals(baseValue))
+          continue;
+      }
+
+      ids[stored] = ids[i];
+      values[stored] = value == null ? REMOVED : share(value);
+      stored++;
+    }
+
+    return new CompactBuildSettings(base, Arrays.copyOf(ids, stored), Arrays.copyOf(values, stored),
+          buildSettings.size());
+  }
+
+  String get(String key)
+  {
+    final Integer id = keyIds.get(key);
+    return id == null ? null : get(id.intValue());
+  }
+
+  private String get(int id)
+  {
+    final int index = Arrays.binarySearch(keys, id);
+
+    if (index >= 0)
+      return values[index] == REMOVED ? null : values[index];
+
+    return base == null ? null : base.get(id);
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * @return the number of entries stored in this instance, for a delta without the entries taken from the base.
+   */
+  int getStoredEntries()
+  {
+    return keys.length;
+  }
+
+  CompactBuildSettings getBase()
+  {
+    return base;
+  }
+
+  /**
+   * @return the build settings sorted by name.
+   */
+  Map<String, String> toMap()
+  {
+    final Map<String, String> result = new TreeMap<String, String>();
+
+    if (base != null)
+      result.putAll(base.toMap());
+
+    for (int i = 0; i < keys.length; i++) {
+      if (values[i] == REMOVED)
+        result.remove(keyName(keys[i]));
+      else
+        result.put(keyName(keys[i]), values[i]);
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public String toString()
+  {
+    return toMap().toString();
+  }
+
+  static int getKeyTableSize()
+  {
+    return keyIds.size();
+  }
+
+  private static int id(String key)
+  {
+    final Integer id = keyIds.get(key);
+
+    if (id != null)
+      return id.intValue();
+
+    synchronized (keyIds) {
+
+      final Integer existing = keyIds.get(key);
+
+      if (existing != null)
+        return existing.intValue();
+
+      final int next = keyIds.size();
+
+      if (next == keyNames.length)
+        keyNames = Arrays.copyOf(keyNames, next * 2);
+
+      keyNames[next] = key;
+      keyIds.put(key, next);
+      return next;
+    }
+  }
+
+  private static String keyName(int id)
+  {
+    synchronized (keyIds) {
+      return keyNames[id];
+    }
+  }
+
+  private static String share(String value)
+  {
+    if (value.length() > MAX_SHARED_VALUE_LENGTH)
+      return value;
+
+    final String shared = sharedValues.get(value);
+
+    if (shared != null)
+      return shared;
+
+    if (sharedValues.size() >= MAX_SHARED_VALUES)
+      return value;
+
+    final String existing = sharedValues.putIfAbsent(value, value);
+    return existing == null ? value : existing;
+  }
+}
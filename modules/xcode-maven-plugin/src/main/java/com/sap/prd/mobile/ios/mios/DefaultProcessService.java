@@ -0,0 +1,326 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * {@link ProcessService} based on {@link ProcessBuilder}.
+ * <p>
+ * The number of concurrent processes is limited per tool, the tool is the name of the executable, e.g.
+ * <code>xcodebuild</code> or <code>lipo</code>, or the first command of a script executed by a shell, e.g.
+ * <code>codesign</code> for <code>bash -c "codesign ..."</code>. Callers exceeding the limit wait. If a timeout is
+ * configured for a tool, a watchdog kills its processes that run longer. Only the forked process itself is killed:
+ * for a shell executing a script that is the shell, the commands started by the script keep running. The standard
+ * output and the error output are pumped by separate threads, so a process never blocks on a full pipe.
+ * <p>
+ * Limits and timeouts are configured with system properties, e.g.
+ * <code>-Dxcode.process.xcodebuild.maxParallel=2</code> and <code>-Dxcode.process.xcodebuild.timeout=3600</code>
+ * (seconds, 0 for no timeout, which is the default). Properties for the tool <code>default</code> apply to all tools
+ * without an own setting.
+ */
+final class DefaultProcessService implements ProcessService
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  static final String PROPERTY_PREFIX = "xcode.process.";
+
+  static final String DEFAULT_TOOL = "default";
+
+  /**
+   * Time in milliseconds to wait for the output of a process after it has been killed. Child processes of a killed
+   * process may keep the pipes open.
+   */
+  private static final long PUMP_TIMEOUT = 10000;
+
+  private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(newThreadFactory(
+        "process-watchdog"));
+
+  private static final ExecutorService PUMPS = Executors.newCachedThreadPool(newThreadFactory("process-output"));
+
+  private final Properties properties;
+
+  private final ConcurrentMap<String, Semaphore> semaphores = new ConcurrentHashMap<String, Semaphore>();
+
+  private final ProcessCensus census = new ProcessCensus();
+
+  /**
+   * @param properties
+   *          the limits and timeouts, see class comment.
+   */
+  DefaultProcessService(Properties properties)
+  {
+    this.properties = properties;
+  }
+
+  @Override
+  public ProcessCensus getCensus()
+  {
+    return census;
+  }
+
+  /**
+   * @return the maximum number of concurrent processes of the tool.
+   */
+  int getMaxParallel(String tool)
+  {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    return (int) Math.max(1, getLong(tool, "maxParallel", "xcodebuild".equals(tool) ? processors : 4 * processors));
+  }
+
+  /**
+   * @return the timeout of the tool in milliseconds, 0 if there is no timeout.
+   */
+  long getTimeout(String tool)
+  {
+    return 1000 * Math.max(0, getLong(tool, "timeout", 0));
+  }
+
+  private long getLong(String tool, String name, long defaultValue)
+  {
+    String value = properties.getProperty(PROPERTY_PREFIX + tool + "." + name);
+    if (value == null)
+      value = properties.getProperty(PROPERTY_PREFIX + DEFAULT_TOOL + "." + name);
+    if (value == null)
+      return defaultValue;
+
+    try {
+      return Long.parseLong(value.trim());
+    }
+    catch (NumberFormatException e) {
+      LOGGER.warning("Invalid value '" + value + "' for " + name + " of " + tool + ", using " + defaultValue + ".");
+      return defaultValue;
+    }
+  }
+
+  private Semaphore getSemaphore(String tool)
+  {
+    Semaphore semaphore = semaphores.get(tool);
+    if (semaphore == null) {
+      final Semaphore created = new Semaphore(getMaxParallel(tool), true);
+      semaphore = semaphores.putIfAbsent(tool, created);
+      if (semaphore == null)
+        semaphore = created;
+    }
+    return semaphore;
+  }
+
+  @Override
+  public int execute(PrintStream out, File directory, String... command) throws IOException
+  {
+    return execute(out, out, directory, command);
+  }
+
+  @Override
+  public int execute(PrintStream out, PrintStream err, File directory, final String... command) throws IOException
+  {
+    if (out == null || err == null)
+      throw new IllegalArgumentException("Print stream for the output was null.");
+    if (command == null || command.length == 0)
+      throw new IllegalArgumentException("No command provided.");
+    // empty arguments are valid, e.g. an empty option value
+    for (String arg : command)
+      if (arg == null)
+        throw new IllegalArgumentException("Invalid argument in command " + Arrays.asList(command) + ".");
+
+    final String tool = ProcessCensus.Fork.getTool(Arrays.asList(command));
+    final Semaphore semaphore = getSemaphore(tool);
+
+    try {
+      semaphore.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a free slot for " + tool + ".");
+    }
+
+    final long start = System.currentTimeMillis();
+    final AtomicLong bytes = new AtomicLong();
+    final AtomicBoolean killed = new AtomicBoolean();
+    int exitCode = -1;
+
+    try {
+      final Process process = new ProcessBuilder(command).directory(directory).start();
+      final long timeout = getTimeout(tool);
+
+      ScheduledFuture<?> watchdog = null;
+
+      try {
+        process.getOutputStream().close();
+
+        final Future<Void> stdout = PUMPS.submit(new Pump(process.getInputStream(), out, bytes));
+        final Future<Void> stderr = PUMPS.submit(new Pump(process.getErrorStream(), err, bytes));
+
+        if (timeout > 0) {
+          watchdog = WATCHDOG.schedule(new Runnable() {
+            @Override
+            public void run()
+            {
+              killed.set(true);
+              process.destroy();
+              LOGGER.warning("Killed " + Arrays.asList(command) + " after a timeout of " + timeout / 1000 + " s.");
+            }
+          }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+          exitCode = process.waitFor();
+        }
+        catch (InterruptedException e) {
+          process.destroy();
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for " + Arrays.asList(command) + ".");
+        }
+
+        join(stdout, process, killed.get());
+        join(stderr, process, killed.get());
+
+        if (killed.get())
+          throw new IOException("Process " + Arrays.asList(command) + " has been killed after a timeout of "
+                + timeout / 1000 + " s.");
+
+        return exitCode;
+      }
+      finally {
+        if (watchdog != null)
+          watchdog.cancel(false);
+        IOUtils.closeQuietly(process.getInputStream());
+        IOUtils.closeQuietly(process.getErrorStream());
+      }
+    }
+    finally {
+      semaphore.release();
+      census.record(new ProcessCensus.Fork(Arrays.asList(command), directory, System.currentTimeMillis() - start,
+            killed.get() ? -1 : exitCode, bytes.get(), killed.get()));
+    }
+  }
+
+  /**
+   * Waits until the output has been pumped. If the process has been killed the wait is limited since child processes
+   * may keep the pipe open.
+   */
+  private static void join(Future<Void> pump, Process process, boolean killed) throws IOException
+  {
+    try {
+      if (killed) {
+        try {
+          pump.get(PUMP_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+          IOUtils.closeQuietly(process.getInputStream());
+          IOUtils.closeQuietly(process.getErrorStream());
+          pump.cancel(true);
+        }
+      }
+      else {
+        pump.get();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading the process output.");
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IOException("Cannot read the process output: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  private static ThreadFactory newThreadFactory(final String name)
+  {
+    return new ThreadFactory() {
+      private final AtomicInteger count = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        final Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
+  /**
+   * Copies the output of a process into a print stream.
+   */
+  private static final class Pump implements Callable<Void>
+  {
+    private final InputStream in;
+
+    private final PrintStream out;
+
+    private final AtomicLong bytes;
+
+    Pump(InputStream in, PrintStream out, AtomicLong bytes)
+    {
+      this.in = in;
+      this.out = out;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public Void call() throws IOException
+    {
+      final byte[] buffer = new byte[8 * 1024];
+
+      for (int n; (n = in.read(buffer)) != -1;) {
+        bytes.addAndGet(n);
+
+        // standard output and error output may go to the same stream
+        synchronized (out) {
+          out.write(buffer, 0, n);
+          out.flush();
+        }
+
+        if (out.checkError())
+          throw new IOException("Cannot write the process output.");
+      }
+      return null;
+    }
+  }
+}
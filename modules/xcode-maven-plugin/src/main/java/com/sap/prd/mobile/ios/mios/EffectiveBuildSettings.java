@@ -20,16 +20,30 @@ package com.sap.prd.mobile.ios.mios;
  * #L%
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
@@ -40,7 +54,77 @@ public class EffectiveBuildSettings implements IEffectiveBuildSettings
 
   private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
 
-  private final static Map<IXCodeContext, Properties> buildSettings = new HashMap<IXCodeContext, Properties>();
+  /**
+   * Upper bound for the number of cached build settings. Relevant for long running JVMs, e.g. with the Maven daemon or
+   * inside an IDE, that build many projects.
+   */
+  static final int MAX_ENTRIES = 128;
+
+  /**
+   * System property that disables the in-process evaluation of build settings if set to <code>false</code>. All build
+   * settings are then retrieved from <code>xcodebuild</code>.
+   */
+  static final String EVALUATE = "xcode.buildSettings.evaluate";
+
+  private final static ConcurrentMap<List<Object>, BuildSettingsEvaluator> evaluators =
+        new ConcurrentHashMap<List<Object>, BuildSettingsEvaluator>();
+
+  /**
+   * The keys of the evaluators in the order they have been added, used for eviction.
+   */
+  private final static Queue<List<Object>> evaluatorInsertionOrder = new ConcurrentLinkedQueue<List<Object>>();
+
+  /**
+   * One base per project directory. The build settings of all configurations, sdks and targets of a project are
+   * stored as delta to this base.
+   */
+  private final static ConcurrentMap<File, CompactBuildSettings> bases =
+        new ConcurrentHashMap<File, CompactBuildSettings>();
+
+  /**
+   * The project directories of the bases in the order they have been added, used for eviction.
+   */
+  private final static Queue<File> baseInsertionOrder = new ConcurrentLinkedQueue<File>();
+
+  private final static ConcurrentMap<BuildSettingsKey, Future<BuildSettingsSnapshot>> buildSettings =
+        new ConcurrentHashMap<BuildSettingsKey, Future<BuildSettingsSnapshot>>();
+
+  /**
+   * The keys in the order they have been added to the cache, used for eviction.
+   */
+  private final static Queue<BuildSettingsKey> insertionOrder = new ConcurrentLinkedQueue<BuildSettingsKey>();
+
+  /**
+   * Computes the build settings for a context. Removes itself from the cache if the computation fails so that the
+   * next lookup tries again.
+   */
+  private static class BuildSettingsTask extends FutureTask<BuildSettingsSnapshot>
+  {
+    private final BuildSettingsKey key;
+
+    BuildSettingsTask(final BuildSettingsKey key, final IXCodeContext context)
+    {
+      super(new Callable<BuildSettingsSnapshot>() {
+        @Override
+        public BuildSettingsSnapshot call() throws XCodeException
+        {
+          return loadBuildSettings(context);
+        }
+      });
+      this.key = key;
+    }
+
+    @Override
+    protected void done()
+    {
+      try {
+        get();
+      }
+      catch (Exception e) {
+        buildSettings.remove(key, this);
+      }
+    }
+  }
 
   @Override
   public String getBuildSettingByKey(IXCodeContext context, String key)
@@ -54,47 +138,302 @@ public class EffectiveBuildSettings implements IEffectiveBuildSettings
     }
   }
 
+  /**
+   * @return the build setting for the target denoted by the context, for the default target if the context does not
+   *         denote a target.
+   */
   public static String getBuildSetting(IXCodeContext context, String key) throws XCodeException
   {
-    String buildSetting = getBuildSettings(context).getProperty(key);
-    LOGGER.finer("Build settings for context '" + context + "'. Key: '" + key + "' resolved to: " + buildSetting);
+    final String target = context.getOptions().getAllOptions().get(Options.ManagedOption.TARGET.getOptionName());
+    return getBuildSetting(context, target, key);
+  }
+
+  /**
+   * @param target
+   *          the target, the default target of the project if <code>null</code>.
+   * @return the build setting for the target. Frequently used build settings are evaluated from the project files
+   *         unless the build settings have already been retrieved from <code>xcodebuild</code>. Otherwise the build
+   *         settings of all targets are retrieved at once.
+   */
+  public static String getBuildSetting(IXCodeContext context, String target, String key) throws XCodeException
+  {
+    final BuildSettingsKey settingsKey = BuildSettingsKey.of(context);
+    final Future<BuildSettingsSnapshot> future = buildSettings.get(settingsKey);
+
+    if ((future == null || !future.isDone()) && BuildSettingsEvaluator.SUPPORTED_KEYS.contains(key)
+          && !"false".equalsIgnoreCase(System.getProperty(EVALUATE))) {
+
+      final String evaluated = getEvaluator(settingsKey, context, target).evaluate(key);
+
+      if (evaluated != null) {
+        if (LOGGER.isLoggable(Level.FINER))
+          LOGGER.finer("Build settings for context '" + context + "' and target '" + target + "'. Key: '" + key
+              + "' evaluated to: " + evaluated);
+        return evaluated;
+      }
+    }
+
+    String buildSetting = getBuildSettings(context).get(target, key);
+    if (LOGGER.isLoggable(Level.FINER))
+      LOGGER.finer("Build settings for context '" + context + "' and target '" + target + "'. Key: '" + key
+          + "' resolved to: " + buildSetting);
     return buildSetting;
   }
 
-  private static synchronized Properties getBuildSettings(final IXCodeContext context)
-        throws XCodeException
+  private static BuildSettingsEvaluator getEvaluator(BuildSettingsKey settingsKey, IXCodeContext context,
+        String target)
   {
+    final List<Object> key = Arrays.<Object> asList(settingsKey, target);
+    BuildSettingsEvaluator evaluator = evaluators.get(key);
 
-    Properties _buildSettings = buildSettings.get(context);
+    if (evaluator == null) {
+      try {
+        evaluator = new BuildSettingsEvaluator(context, target);
+      }
+      catch (BuildSettingsEvaluator.UnresolvableException e) {
+        LOGGER.fine("Build settings cannot be evaluated without xcodebuild: " + e.getMessage());
+        evaluator = BuildSettingsEvaluator.UNAVAILABLE;
+      }
+      catch (IOException e) {
+        LOGGER.fine("Build settings cannot be evaluated without xcodebuild: " + e.getMessage());
+        evaluator = BuildSettingsEvaluator.UNAVAILABLE;
+      }
 
-    if (_buildSettings == null) {
-      _buildSettings = extractBuildSettings(context);
-      buildSettings.put(context, _buildSettings);
-      LOGGER.info("Build settings for context: " + context + " loaded:" + toString(_buildSettings));
+      final BuildSettingsEvaluator existing = evaluators.putIfAbsent(key, evaluator);
+      if (existing != null) {
+        evaluator = existing;
+      }
+      else {
+        evaluatorInsertionOrder.add(key);
+        evictEvaluators();
+      }
     }
-    else {
+    return evaluator;
+  }
+
+  /**
+   * Removes the oldest evaluators while there are more than {@link #MAX_ENTRIES} evaluators. Evaluators handed out
+   * before stay usable, they are only not found by later lookups.
+   */
+  private static void evictEvaluators()
+  {
+    while (evaluators.size() > MAX_ENTRIES) {
+
+      final List<Object> key = evaluatorInsertionOrder.poll();
+
+      if (key == null)
+        break;
+
+      evaluators.remove(key);
+    }
+  }
+
+  static BuildSettingsSnapshot getBuildSettings(final IXCodeContext context)
+        throws XCodeException
+  {
+    final BuildSettingsKey key = BuildSettingsKey.of(context);
+    Future<BuildSettingsSnapshot> future = buildSettings.get(key);
+
+    if (future == null) {
+      final BuildSettingsTask task = new BuildSettingsTask(key, context);
+      future = add(key, task);
+      if (future == task)
+        task.run();
+    }
+    else if (LOGGER.isLoggable(Level.FINER)) {
       LOGGER.finer("Build settings for key: '" + context + " found in cache.");
     }
 
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new XCodeException("Interrupted while waiting for the build settings for configuration "
+            + context.getConfiguration() + " and sdk " + context.getSDK() + ".", e);
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof XCodeException)
+        throw (XCodeException) e.getCause();
+      throw new XCodeException("Cannot obtain build settings for configuration " + context.getConfiguration()
+            + " and sdk " + context.getSDK() + ": " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  /**
+   * Starts the computation of the build settings for all contexts that are not yet in the cache. The computations run
+   * in background on at most <code>threads</code> threads. Lookups for these contexts wait for the running
+   * computation instead of starting their own one.
+   */
+  static void prefetch(Collection<? extends IXCodeContext> contexts, int threads)
+  {
+    if (contexts.isEmpty())
+      return;
+
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, contexts.size())),
+          new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+              final Thread thread = new Thread(r, "xcode-build-settings-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+    try {
+      for (IXCodeContext context : contexts) {
+        final BuildSettingsKey key = BuildSettingsKey.of(context);
+        if (buildSettings.containsKey(key))
+          continue;
+        final BuildSettingsTask task = new BuildSettingsTask(key, context);
+        if (add(key, task) == task)
+          executor.execute(task);
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Adds the task unless there is already a computation for the key.
+   * 
+   * @return the future that is in the cache after the call, <code>task</code> if it has been added.
+   */
+  private static Future<BuildSettingsSnapshot> add(BuildSettingsKey key, BuildSettingsTask task)
+  {
+    final Future<BuildSettingsSnapshot> existing = buildSettings.putIfAbsent(key, task);
+
+    if (existing != null)
+      return existing;
+
+    insertionOrder.add(key);
+    evict();
+    return task;
+  }
+
+  /**
+   * Removes the oldest completed entries while the cache contains more than {@link #MAX_ENTRIES} entries. Running
+   * computations are never evicted.
+   */
+  private static void evict()
+  {
+    for (int i = insertionOrder.size(); i > 0 && buildSettings.size() > MAX_ENTRIES; i--) {
+
+      final BuildSettingsKey key = insertionOrder.poll();
+
+      if (key == null)
+        break;
+
+      final Future<BuildSettingsSnapshot> future = buildSettings.get(key);
+
+      if (future == null)
+        continue;
+
+      if (future.isDone()) {
+        buildSettings.remove(key, future);
+        if (LOGGER.isLoggable(Level.FINER))
+          LOGGER.finer("Build settings for key '" + key + "' evicted from cache.");
+      }
+      else {
+        insertionOrder.add(key);
+      }
+    }
+  }
+
+  static int getCacheSize()
+  {
+    return buildSettings.size();
+  }
+
+  /**
+   * Takes the build settings from the persistent cache if the project, the Xcode version and the options and settings
+   * did not change since they have been stored. Otherwise <code>xcodebuild</code> is called and the result is stored.
+   */
+  private static BuildSettingsSnapshot loadBuildSettings(final IXCodeContext context) throws XCodeException
+  {
+    final File projectDirectory = context.getProjectRootDirectory().getAbsoluteFile();
+    final CompactBuildSettings base = bases.get(projectDirectory);
+    final PersistentBuildSettingsCache cache = PersistentBuildSettingsCache.getDefault();
+    String fingerprint = null;
+
+    if (cache != null) {
+      try {
+        fingerprint = PersistentBuildSettingsCache.fingerprint(context);
+        final Properties cached = cache.get(fingerprint);
+        if (cached != null) {
+          LOGGER.info("Build settings for context: " + context + " loaded from '" + cache.getDirectory() + "'.");
+          return register(projectDirectory, BuildSettingsSnapshot.fromProperties(cached, base));
+        }
+      }
+      catch (IOException e) {
+        LOGGER.warning("Cannot compute fingerprint of the Xcode project: " + e.getMessage()
+              + ". Build settings will not be cached.");
+      }
+    }
+
+    final BuildSettingsSnapshot _buildSettings = register(projectDirectory, extractBuildSettings(context, base));
+    LOGGER.info("Build settings for context: " + context + " loaded for targets " + _buildSettings.getTargets()
+          + ".");
+    if (LOGGER.isLoggable(Level.FINEST))
+      LOGGER.finest("Build settings for context: " + context + ":" + _buildSettings);
+
+    if (fingerprint != null) {
+      try {
+        cache.put(fingerprint, _buildSettings.toProperties());
+      }
+      catch (IOException e) {
+        LOGGER.warning("Cannot store build settings in '" + cache.getDirectory() + "': " + e.getMessage());
+      }
+    }
+
     return _buildSettings;
   }
 
-  private static String toString(Properties buildSettings)
+  /**
+   * Remembers the base of the snapshot for further snapshots of the same project.
+   */
+  private static BuildSettingsSnapshot register(File projectDirectory, BuildSettingsSnapshot snapshot)
+  {
+    if (snapshot.getBase() != null && bases.putIfAbsent(projectDirectory, snapshot.getBase()) == null) {
+      baseInsertionOrder.add(projectDirectory);
+      evictBases();
+    }
+    return snapshot;
+  }
+
+  /**
+   * Removes the oldest bases while there are more than {@link #MAX_ENTRIES} bases. Snapshots keep their base, later
+   * snapshots of the project get a new one.
+   */
+  private static void evictBases()
   {
-    String ls = System.getProperty("line.separator");
-    StringBuilder sb = new StringBuilder(ls);
+    while (bases.size() > MAX_ENTRIES) {
 
-    for (Map.Entry<?, ?> e : buildSettings.entrySet()) {
-      sb.append(e.getKey()).append("=").append(e.getValue()).append(ls);
+      final File projectDirectory = baseInsertionOrder.poll();
+
+      if (projectDirectory == null)
+        break;
+
+      bases.remove(projectDirectory);
     }
-    return sb.toString();
   }
 
-  private static Properties extractBuildSettings(final IXCodeContext context) throws XCodeException
+  /**
+   * Calls <code>xcodebuild -showBuildSettings -alltargets</code> once for the configuration and sdk of the context and
+   * splits the output into the sections of the targets while it is read.
+   */
+  private static BuildSettingsSnapshot extractBuildSettings(final IXCodeContext context,
+        final CompactBuildSettings base) throws XCodeException
   {
     List<String> buildActions = Collections.emptyList();
     IOptions options = context.getOptions();
     Map<String, String> managedOptions = new HashMap<String, String>(options.getManagedOptions());
+    managedOptions.remove(Options.ManagedOption.TARGET.getOptionName());
+    managedOptions.put(Options.ManagedOption.ALLTARGETS.getOptionName(), null);
     managedOptions.put(Options.ManagedOption.SHOWBUILDSETTINGS.getOptionName(), null);
 
     XCodeContext showBuildSettingsContext = new XCodeContext(buildActions, context.getProjectRootDirectory(),
@@ -102,27 +441,24 @@ public class EffectiveBuildSettings implements IEffectiveBuildSettings
             .getManagedSettings()), new Options(options.getUserOptions(), managedOptions));
 
     final CommandLineBuilder cmdLineBuilder = new CommandLineBuilder(showBuildSettingsContext);
+    final String encoding = Charset.defaultCharset().name();
+    final BuildSettingsSnapshot.Parser parser = new BuildSettingsSnapshot.Parser(encoding);
     PrintStream out = null;
-    ByteArrayOutputStream os = null;
     try {
-      os = new ByteArrayOutputStream();
-      out = new PrintStream(os, true, Charset.defaultCharset().name());
+      out = new PrintStream(parser, true, encoding);
 
-      final int returnValue = Forker.forkProcess(out, context.getProjectRootDirectory(),
+      final int returnValue = ProcessServices.getDefault().execute(out, context.getProjectRootDirectory(),
             cmdLineBuilder.createBuildCall());
 
+      out.flush();
+      parser.close();
+
       if (returnValue != 0) {
-        if (out != null)
-          out.flush();
         throw new XCodeException("Could not execute xcodebuild -showBuildSettings command for configuration "
-              + context.getConfiguration() + " and sdk " + context.getSDK() + ": " + new String(os.toByteArray(), Charset.defaultCharset().name()));
+              + context.getConfiguration() + " and sdk " + context.getSDK() + ": " + parser.getOtherOutput());
       }
 
-      out.flush();
-      Properties prop = new Properties();
-      prop.load(new ByteArrayInputStream(os.toByteArray()));
-      return prop;
-
+      return parser.getSnapshot(base);
     }
     catch (IOException ex) {
       throw new XCodeException("Cannot extract build properties: " + ex.getMessage(), ex);
@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Marks a directory that has been extracted from an archive, so that the extraction can be skipped as long as the
+ * archive does not change. The markers are kept in a separate directory below the build directory, e.g.
+ * <code>target/.extraction-markers/headers/Release-iphoneos/com.sap.ondevice/MyLib.extracted</code> for
+ * <code>target/headers/Release-iphoneos/com.sap.ondevice/MyLib</code>, so that they are neither part of the
+ * extracted content nor of the folders that are packaged or referenced by Xcode projects. A marker contains
+ * <ul>
+ * <li>the version of the extraction ({@link #VERSION}), to be incremented if the extraction changes,</li>
+ * <li>the path, size, modification time and SHA-1 checksum of the archive and</li>
+ * <li>a digest over the relative paths, types and sizes of the extracted files.</li>
+ * </ul>
+ * The checksum of the archive is computed only if its size or modification time changed, e.g. if a snapshot has been
+ * downloaded again. The digest of the extracted files detects partial extractions and files that have been removed
+ * or truncated later on without reading the files.
+ * <p>
+ * Usage: {@link #getFile(File, File)}, {@link #isUpToDate(File, File, File)}, if not {@link #invalidate(File)},
+ * extract and {@link #write(File, File, File)}.
+ */
+final class ExtractionMarker
+{
+  /**
+   * Increment if the extraction changes, e.g. because more or other files are extracted.
+   */
+  static final int VERSION = 1;
+
+  static final String SUFFIX = ".extracted";
+
+  static final String DIRECTORY = ".extraction-markers";
+
+  private static final String ENCODING = "ISO-8859-1";
+
+  private static final String KEY_VERSION = "version", KEY_ARCHIVE = "archive", KEY_SIZE = "archive.size",
+        KEY_LAST_MODIFIED = "archive.lastModified", KEY_SHA1 = "archive.sha1", KEY_CONTENT = "content";
+
+  private ExtractionMarker()
+  {
+  }
+
+  /**
+   * @return the marker of a directory below the build directory.
+   */
+  static File getFile(File buildDirectory, File directory)
+  {
+    final File base = buildDirectory.getAbsoluteFile();
+    final File absolute = directory.getAbsoluteFile();
+
+    final String relativePath = FileUtils.isChild(base, absolute) ? FileUtils.getRelativePath(absolute.getPath(),
+          base.getPath(), File.separator) : absolute.getPath();
+
+    return new File(new File(base, DIRECTORY), relativePath + SUFFIX);
+  }
+
+  /**
+   * @return <code>true</code> if <code>directory</code> has been extracted completely from <code>archive</code> or
+   *         from an archive with the same checksum, by the current {@link #VERSION}.
+   */
+  static boolean isUpToDate(File archive, File directory, File file) throws IOException
+  {
+
+    if (!file.isFile() || !directory.isDirectory() || !archive.isFile())
+      return false;
+
+    final Properties marker = new Properties();
+    final InputStream in = new FileInputStream(file);
+    try {
+      marker.load(in);
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+
+    if (!String.valueOf(VERSION).equals(marker.getProperty(KEY_VERSION)))
+      return false;
+
+    final boolean sameFile = archive.getAbsolutePath().equals(marker.getProperty(KEY_ARCHIVE))
+          && String.valueOf(archive.length()).equals(marker.getProperty(KEY_SIZE))
+          && String.valueOf(archive.lastModified()).equals(marker.getProperty(KEY_LAST_MODIFIED));
+
+    if (!sameFile && !sha1(archive).equals(marker.getProperty(KEY_SHA1)))
+      return false;
+
+    return digestContent(directory).equals(marker.getProperty(KEY_CONTENT));
+  }
+
+  /**
+   * Removes the marker. To be called before the extraction starts, so that an interrupted extraction is detected.
+   */
+  static void invalidate(File file) throws IOException
+  {
+    if (file.exists() && !file.delete())
+      throw new IOException("Cannot delete '" + file + "'.");
+  }
+
+  /**
+   * Writes the marker. To be called after the extraction succeeded.
+   */
+  static void write(File archive, File directory, File file) throws IOException
+  {
+    write(archive, sha1(archive), directory, file);
+  }
+
+  /**
+   * Writes the marker with the checksum of the archive computed beforehand by {@link #sha1(File)}.
+   */
+  static void write(File archive, String sha1, File directory, File file) throws IOException
+  {
+    final Properties marker = new Properties();
+    marker.setProperty(KEY_VERSION, String.valueOf(VERSION));
+    marker.setProperty(KEY_ARCHIVE, archive.getAbsolutePath());
+    marker.setProperty(KEY_SIZE, String.valueOf(archive.length()));
+    marker.setProperty(KEY_LAST_MODIFIED, String.valueOf(archive.lastModified()));
+    marker.setProperty(KEY_SHA1, sha1);
+    marker.setProperty(KEY_CONTENT, digestContent(directory));
+
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    marker.store(content, null);
+    FileUtils.writeAtomically(file, content.toByteArray());
+  }
+
+  static String sha1(File file) throws IOException
+  {
+    final MessageDigest digest = newDigest();
+    final byte[] buffer = new byte[64 * 1024];
+    final InputStream in = new FileInputStream(file);
+
+    try {
+      for (int n; (n = in.read(buffer)) != -1;)
+        digest.update(buffer, 0, n);
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return a digest over the relative paths, the types and the sizes of the files below the directory. Symbolic
+   *         links are not followed.
+   */
+  static String digestContent(File directory) throws IOException
+  {
+    final MessageDigest digest = newDigest();
+    digestContent(directory.getCanonicalFile(), "", digest);
+    return toHex(digest.digest());
+  }
+
+  private static void digestContent(File directory, String path, MessageDigest digest) throws IOException
+  {
+    final String[] names = directory.list();
+
+    if (names == null)
+      throw new IOException("Cannot list '" + directory + "'.");
+
+    Arrays.sort(names);
+
+    for (String name : names) {
+
+      final File file = new File(directory, name);
+      final String relativePath = path + "/" + name;
+
+      // the parent is canonical, so the file is a link if its canonical file differs
+      if (!file.getCanonicalFile().equals(file))
+        digest.update((relativePath + "@\n").getBytes(ENCODING));
+      else if (file.isDirectory()) {
+        digest.update((relativePath + "/\n").getBytes(ENCODING));
+        digestContent(file, relativePath, digest);
+      }
+      else
+        digest.update((relativePath + ":" + file.length() + "\n").getBytes(ENCODING));
+    }
+  }
+
+  private static MessageDigest newDigest()
+  {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] digest)
+  {
+    final StringBuilder sb = new StringBuilder(2 * digest.length);
+    for (byte b : digest)
+      sb.append(String.format("%02x", b & 0xff));
+    return sb.toString();
+  }
+}
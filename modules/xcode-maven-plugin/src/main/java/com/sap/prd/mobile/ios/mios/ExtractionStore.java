@@ -0,0 +1,460 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Store for extracted dependency archives (headers, bundles, frameworks) that is shared by all modules and builds.
+ * The entries are keyed by the checksum of the archive and the kind of extraction, so an archive is extracted once
+ * even if it is used by several modules or if the archives of several configurations and sdks have the same content.
+ * The locations of the {@link FolderLayout} are symbolic links into the store.
+ * <p>
+ * An entry is extracted into a temporary directory and renamed when the extraction is complete. Entries are locked
+ * during the extraction, also against other processes. Each entry used by a build is marked as in use by a shared
+ * file lock that is held until the end of the build, see {@link #releaseAll()}. If the store grows beyond its maximum
+ * size the least recently used entries are deleted, except entries that are in use by any build. The store is located
+ * in <code>~/.m2/xcode-maven-plugin/extraction-store</code> by default.
+ */
+final class ExtractionStore
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  private static final String LOCK_FILE = ".lock";
+
+  /**
+   * Locked shared by all builds using the entry, locked exclusively for the deletion of the entry.
+   */
+  private static final String USE_FILE = ".use";
+
+  private static final String INFO_FILE = ".entry.properties";
+
+  private static final String CONTENT = "content";
+
+  private static final String TMP_PREFIX = ".tmp-";
+
+  /**
+   * File locks are held by the JVM, so threads of the same JVM are serialized per entry in addition.
+   */
+  private static final ConcurrentMap<String, Object> MONITORS = new ConcurrentHashMap<String, Object>();
+
+  /**
+   * The shared locks on the entries used by this JVM. Overlapping file locks are not possible within a JVM, so there
+   * is one lock per entry for all modules built by this JVM.
+   */
+  private static final Map<File, FileLock> IN_USE = new HashMap<File, FileLock>();
+
+  /**
+   * Extracts an archive into an empty directory.
+   */
+  interface Extractor
+  {
+    void extract(File archive, File directory) throws IOException;
+  }
+
+  private final File directory;
+
+  private final long maxSize;
+
+  private final AtomicInteger reused = new AtomicInteger(), extracted = new AtomicInteger();
+
+  /**
+   * @param maxSize
+   *          the maximum size of all entries in bytes.
+   */
+  ExtractionStore(File directory, long maxSize)
+  {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  static File getDefaultDirectory()
+  {
+    return new File(new File(System.getProperty("user.home"), ".m2"), "xcode-maven-plugin/extraction-store");
+  }
+
+  File getDirectory()
+  {
+    return directory;
+  }
+
+  static String getKey(String checksum, String type)
+  {
+    return checksum + "-" + type + "-" + ExtractionMarker.VERSION;
+  }
+
+  /**
+   * @param checksum
+   *          the SHA-1 checksum of the archive.
+   * @param type
+   *          the kind of extraction, e.g. <code>tar</code>, part of the key.
+   * @return the directory containing the extracted archive. The archive is extracted if there is no entry yet.
+   */
+  File get(File archive, String checksum, String type, Extractor extractor) throws IOException
+  {
+    final String key = getKey(checksum, type);
+    final File entry = new File(directory, key);
+    final File content = new File(entry, CONTENT);
+
+    synchronized (getMonitor(key)) {
+
+      FileUtils.mkdirs(entry);
+      final RandomAccessFile lockFile = new RandomAccessFile(new File(entry, LOCK_FILE), "rw");
+
+      try {
+        // waits while another process extracts the same archive
+        final FileLock lock = lockFile.getChannel().lock();
+
+        try {
+          if (content.isDirectory()) {
+            reused.incrementAndGet();
+          }
+          else {
+            extract(archive, type, extractor, entry, content);
+            extracted.incrementAndGet();
+          }
+
+          if (!new File(entry, INFO_FILE).setLastModified(System.currentTimeMillis()))
+            LOGGER.fine("Cannot update the last usage of entry '" + entry + "'.");
+
+          // while the entry is locked, so that it cannot be deleted in between
+          markInUse(entry);
+        }
+        finally {
+          lock.release();
+        }
+      }
+      finally {
+        lockFile.close();
+      }
+    }
+    return content;
+  }
+
+  private static void extract(File archive, String type, Extractor extractor, File entry, File content)
+        throws IOException
+  {
+    // left over by an interrupted extraction
+    final File[] children = entry.listFiles();
+    if (children != null)
+      for (File child : children)
+        if (child.getName().startsWith(TMP_PREFIX))
+          FileUtils.deleteDirectory(child);
+
+    final File tmp = new File(entry, TMP_PREFIX + System.nanoTime());
+    FileUtils.mkdirs(tmp);
+
+    try {
+      extractor.extract(archive, tmp);
+
+      if (!tmp.renameTo(content))
+        throw new IOException("Cannot rename '" + tmp + "' to '" + content + "'.");
+    }
+    finally {
+      if (tmp.exists())
+        FileUtils.deleteDirectory(tmp);
+    }
+
+    final Properties info = new Properties();
+    info.setProperty("archive", archive.getAbsolutePath());
+    info.setProperty("type", type);
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    info.store(bytes, null);
+    FileUtils.writeAtomically(new File(entry, INFO_FILE), bytes.toByteArray());
+
+    LOGGER.info("Extracted '" + archive + "' into '" + content + "'.");
+  }
+
+  /**
+   * Locks the entry shared until {@link #releaseAll()} is called or the JVM exits.
+   */
+  private static void markInUse(File entry) throws IOException
+  {
+    final File key = entry.getCanonicalFile();
+
+    synchronized (IN_USE) {
+      if (IN_USE.containsKey(key))
+        return;
+
+      // the channel stays open, closing it releases the lock
+      final FileChannel channel = new RandomAccessFile(new File(key, USE_FILE), "rw").getChannel();
+      try {
+        IN_USE.put(key, channel.lock(0, Long.MAX_VALUE, true));
+      }
+      catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+  }
+
+  private static boolean isInUse(File entry) throws IOException
+  {
+    synchronized (IN_USE) {
+      return IN_USE.containsKey(entry.getCanonicalFile());
+    }
+  }
+
+  /**
+   * Releases the shared locks of all entries used by this JVM, so that other builds may delete them. Called at the
+   * end of the build, see {@link XCodePrepareMojo}, since a JVM may run several builds, e.g. a build daemon or an
+   * IDE. The locks are released anyway when the JVM exits.
+   */
+  static void releaseAll() throws IOException
+  {
+    synchronized (IN_USE) {
+      IOException failure = null;
+
+      for (FileLock lock : IN_USE.values()) {
+        try {
+          // closing the channel releases the lock
+          lock.channel().close();
+        }
+        catch (IOException e) {
+          failure = e;
+        }
+      }
+      IN_USE.clear();
+
+      if (failure != null)
+        throw failure;
+    }
+  }
+
+  private static Object getMonitor(String key)
+  {
+    final Object monitor = new Object();
+    final Object existing = MONITORS.putIfAbsent(key, monitor);
+    return existing == null ? monitor : existing;
+  }
+
+  /**
+   * Replaces <code>location</code> by a symbolic link to <code>content</code>.
+   */
+  static void link(File content, File location) throws IOException
+  {
+    delete(location);
+    FileUtils.createSymbolicLink(content, location);
+  }
+
+  /**
+   * Deletes a file or a directory. Symbolic links are deleted, not the files they point to.
+   */
+  static void delete(File location) throws IOException
+  {
+    if (isSymbolicLink(location)) {
+      if (!location.delete())
+        throw new IOException("Cannot delete symbolic link '" + location + "'.");
+    }
+    else if (location.isDirectory()) {
+      FileUtils.deleteDirectory(location);
+    }
+    else if (location.exists() && !location.delete()) {
+      throw new IOException("Cannot delete '" + location + "'.");
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the file is a symbolic link, also if the link is dangling.
+   */
+  static boolean isSymbolicLink(File file) throws IOException
+  {
+    final File absolute = file.getAbsoluteFile();
+    final File parent = absolute.getParentFile();
+
+    if (parent == null || !parent.exists())
+      return false;
+
+    final File candidate = new File(parent.getCanonicalFile(), absolute.getName());
+
+    if (!candidate.getCanonicalFile().equals(candidate.getAbsoluteFile()))
+      return true;
+
+    // a dangling link does not exist but is listed
+    if (candidate.exists())
+      return false;
+
+    final String[] names = parent.list();
+    return names != null && Arrays.asList(names).contains(absolute.getName());
+  }
+
+  /**
+   * Deletes the least recently used entries that are not in use until the size of the store does not exceed the
+   * maximum size.
+   * 
+   * @return the number of deleted entries.
+   */
+  int evict() throws IOException
+  {
+    final File[] entryDirectories = directory.listFiles();
+
+    if (entryDirectories == null)
+      return 0;
+
+    final List<File> entries = new ArrayList<File>();
+    long size = 0;
+
+    for (File entry : entryDirectories) {
+      if (entry.isDirectory()) {
+        entries.add(entry);
+        size += org.apache.commons.io.FileUtils.sizeOfDirectory(entry);
+      }
+    }
+
+    if (size <= maxSize)
+      return 0;
+
+    Collections.sort(entries, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2)
+      {
+        final long l1 = getLastUsed(f1), l2 = getLastUsed(f2);
+        return l1 < l2 ? -1 : l1 == l2 ? 0 : 1;
+      }
+    });
+
+    int deleted = 0;
+
+    for (File entry : entries) {
+
+      if (size <= maxSize)
+        break;
+
+      // serialized with get(), closing a file releases all locks of this JVM on the file
+      synchronized (getMonitor(entry.getName())) {
+
+        if (isInUse(entry) || !new File(entry, CONTENT).exists())
+          continue;
+
+        final long entrySize = deleteEntry(entry);
+
+        if (entrySize >= 0) {
+          size -= entrySize;
+          deleted++;
+        }
+      }
+    }
+
+    if (size > maxSize)
+      LOGGER.info("Extraction store '" + directory + "' exceeds its maximum size by " + (size - maxSize) / 1024
+            / 1024 + " MB, the remaining entries are in use.");
+
+    return deleted;
+  }
+
+  /**
+   * Deletes the content of the entry unless it is extracted or in use by another process. The lock files are kept,
+   * other processes may wait for them.
+   * 
+   * @return the size of the deleted entry, -1 if it is in use.
+   */
+  private static long deleteEntry(File entry) throws IOException
+  {
+    final RandomAccessFile lockFile = new RandomAccessFile(new File(entry, LOCK_FILE), "rw");
+
+    try {
+      final FileLock lock = tryLock(lockFile.getChannel());
+
+      if (lock == null)
+        return -1;
+
+      try {
+        final RandomAccessFile useFile = new RandomAccessFile(new File(entry, USE_FILE), "rw");
+
+        try {
+          final FileLock use = tryLock(useFile.getChannel());
+
+          if (use == null)
+            return -1;
+
+          try {
+            final long entrySize = org.apache.commons.io.FileUtils.sizeOfDirectory(entry);
+            LOGGER.info("Deleting least recently used entry '" + entry + "' (" + entrySize / 1024 / 1024 + " MB).");
+
+            final File[] children = entry.listFiles();
+            if (children != null)
+              for (File child : children)
+                if (!child.getName().equals(LOCK_FILE) && !child.getName().equals(USE_FILE))
+                  delete(child);
+
+            return entrySize;
+          }
+          finally {
+            use.release();
+          }
+        }
+        finally {
+          useFile.close();
+        }
+      }
+      finally {
+        lock.release();
+      }
+    }
+    finally {
+      lockFile.close();
+    }
+  }
+
+  /**
+   * @return the exclusive lock, <code>null</code> if the file is locked by another process or by this JVM.
+   */
+  private static FileLock tryLock(FileChannel channel) throws IOException
+  {
+    try {
+      return channel.tryLock();
+    }
+    catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  private static long getLastUsed(File entry)
+  {
+    return new File(entry, INFO_FILE).lastModified();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Extraction store '" + directory + "': " + reused + " extractions reused, " + extracted
+          + " archives extracted";
+  }
+}
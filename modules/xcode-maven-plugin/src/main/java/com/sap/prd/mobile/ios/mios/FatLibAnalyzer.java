@@ -114,7 +114,7 @@ class FatLibAnalyzer
     ByteArrayOutputStream byteOs = new ByteArrayOutputStream();
     PrintStream ps = new PrintStream(byteOs, true, defaultCharSet);
     try {
-      Forker.forkProcess(ps, null, "lipo", "-detailed_info", fatLib.getAbsolutePath());
+      ProcessServices.getDefault().execute(ps, null, "lipo", "-detailed_info", fatLib.getAbsolutePath());
 
       return new String(byteOs.toByteArray(), defaultCharSet);
     }
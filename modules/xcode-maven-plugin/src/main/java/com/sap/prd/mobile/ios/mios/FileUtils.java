@@ -21,7 +21,9 @@ package com.sap.prd.mobile.ios.mios;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -233,7 +235,8 @@ public class FileUtils
 
     PrintStream printStream = new PrintStream(new ByteArrayOutputStream(), true, Charset.defaultCharset().name());
     try {
-      int result = Forker.forkProcess(printStream, file.getParentFile(), "test", "-L", file.getName());
+      int result = ProcessServices.getDefault().execute(printStream, file.getParentFile(), "test", "-L",
+            file.getName());
       return result == 0;
     }
     finally {
@@ -248,7 +251,7 @@ public class FileUtils
 
     mkdirs(target.getParentFile());
 
-    int returnValue = Forker.forkProcess(System.out, null, "ln", "-sf", source.getAbsolutePath(),
+    int returnValue = ProcessServices.getDefault().execute(System.out, null, "ln", "-sf", source.getAbsolutePath(),
           target.getAbsolutePath());
     if (returnValue != 0) {
       throw new RuntimeException("Cannot create symbolic link from '" + source + "' to '" + target + "'. Return value:"
@@ -310,6 +313,34 @@ public class FileUtils
     }
   }
   
+  /**
+   * Writes <code>content</code> to a temporary file next to <code>target</code> and renames it afterwards, so that
+   * readers never see a partially written file.
+   */
+  static void writeAtomically(final File target, final byte[] content) throws IOException
+  {
+    final File parent = target.getAbsoluteFile().getParentFile();
+    mkdirs(parent);
+
+    final File tmp = File.createTempFile("." + target.getName(), ".tmp", parent);
+    OutputStream os = null;
+
+    try {
+      os = new FileOutputStream(tmp);
+      os.write(content);
+      os.close();
+      os = null;
+
+      if (!tmp.renameTo(target) && !(target.delete() && tmp.renameTo(target)))
+        throw new IOException("Cannot rename '" + tmp + "' to '" + target + "'.");
+    }
+    finally {
+      IOUtils.closeQuietly(os);
+      if (tmp.exists())
+        tmp.delete();
+    }
+  }
+
   static String getCanonicalPath(File f) throws IORuntimeException
   {
     try {
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * {@link BuildCacheStore} on a HTTP server. An entry is read with <code>GET &lt;url&gt;/&lt;key&gt;</code> and
+ * written with <code>PUT &lt;url&gt;/&lt;key&gt;</code>. A response with status 404 to a <code>GET</code> is a
+ * cache miss, all other responses except 2xx are errors.
+ */
+final class HttpBuildCacheStore implements BuildCacheStore
+{
+  private final String url;
+
+  private final HttpClient httpClient = new DefaultHttpClient();
+
+  HttpBuildCacheStore(String url)
+  {
+    this.url = url.endsWith("/") ? url : url + "/";
+  }
+
+  @Override
+  public boolean get(String key, File target) throws IOException
+  {
+    final HttpGet get = new HttpGet(url + key);
+    final HttpResponse response = httpClient.execute(get);
+    final HttpEntity entity = response.getEntity();
+
+    try {
+      final int status = response.getStatusLine().getStatusCode();
+
+      if (status == HttpStatus.SC_NOT_FOUND)
+        return false;
+
+      if (status / 100 != 2 || entity == null)
+        throw new IOException("Cannot get '" + get.getURI() + "': " + response.getStatusLine());
+
+      final InputStream in = entity.getContent();
+      OutputStream out = null;
+      try {
+        out = new FileOutputStream(target);
+        IOUtils.copy(in, out);
+      }
+      finally {
+        IOUtils.closeQuietly(out);
+        IOUtils.closeQuietly(in);
+      }
+      return true;
+    }
+    finally {
+      EntityUtils.consume(entity);
+    }
+  }
+
+  @Override
+  public void put(String key, File source) throws IOException
+  {
+    final HttpPut put = new HttpPut(url + key);
+    put.setEntity(new FileEntity(source, ContentType.APPLICATION_OCTET_STREAM));
+
+    final HttpResponse response = httpClient.execute(put);
+
+    try {
+      if (response.getStatusLine().getStatusCode() / 100 != 2)
+        throw new IOException("Cannot put '" + put.getURI() + "': " + response.getStatusLine());
+    }
+    finally {
+      EntityUtils.consume(response.getEntity());
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return url;
+  }
+}
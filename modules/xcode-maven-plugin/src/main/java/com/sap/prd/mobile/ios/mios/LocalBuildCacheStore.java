@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link BuildCacheStore} in a local or mounted directory. The entries are distributed over sub directories named
+ * after the first two characters of the key. Entries are written to a temporary file and renamed afterwards so that
+ * concurrent builds never read a partially written entry.
+ */
+final class LocalBuildCacheStore implements BuildCacheStore
+{
+  private final File directory;
+
+  LocalBuildCacheStore(File directory)
+  {
+    this.directory = directory;
+  }
+
+  File getDirectory()
+  {
+    return directory;
+  }
+
+  File getFile(String key)
+  {
+    return new File(new File(directory, key.length() > 2 ? key.substring(0, 2) : key), key);
+  }
+
+  @Override
+  public boolean get(String key, File target) throws IOException
+  {
+    final File file = getFile(key);
+
+    if (!file.isFile())
+      return false;
+
+    org.apache.commons.io.FileUtils.copyFile(file, target);
+
+    // the time of the last access allows a cleanup of entries that are not used anymore
+    file.setLastModified(System.currentTimeMillis());
+    return true;
+  }
+
+  @Override
+  public void put(String key, File source) throws IOException
+  {
+    final File file = getFile(key);
+    FileUtils.mkdirs(file.getParentFile());
+
+    final File tmp = File.createTempFile("." + key, ".tmp", file.getParentFile());
+
+    try {
+      org.apache.commons.io.FileUtils.copyFile(source, tmp);
+
+      if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+        throw new IOException("Cannot rename '" + tmp + "' to '" + file + "'.");
+    }
+    finally {
+      if (tmp.exists())
+        tmp.delete();
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return directory.toString();
+  }
+}
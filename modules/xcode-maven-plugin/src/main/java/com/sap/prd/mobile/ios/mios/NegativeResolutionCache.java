@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+
+/**
+ * Remembers side artifacts that do not exist in the remote repositories, e.g. the thin libraries of libraries that
+ * ship only fat libraries, so that they are not looked up again in every build.
+ * <p>
+ * There is one file per absent side artifact, its location follows the repository layout below a directory per set
+ * of remote repositories, e.g. <code>3f2a9c1e/com/sap/ondevice/lib/1.0/Release-iphoneos.headers.tar.absent</code>.
+ * An artifact that is absent in some repositories may exist in others, so entries recorded with other repositories
+ * are not taken into account. The modification time of the file is the time of the failed lookup. Entries for
+ * released versions never expire since released versions do not change. Entries for snapshot versions expire after
+ * the time to live.
+ */
+final class NegativeResolutionCache
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  static final String SUFFIX = ".absent";
+
+  private final File directory;
+
+  private final long ttlMillis;
+
+  private final AtomicInteger hits = new AtomicInteger(), recorded = new AtomicInteger();
+
+  /**
+   * @param ttlMillis
+   *          the time to live of entries for snapshot versions. Snapshot versions are not cached if not positive.
+   */
+  NegativeResolutionCache(File directory, long ttlMillis)
+  {
+    this.directory = directory;
+    this.ttlMillis = ttlMillis;
+  }
+
+  static File getDefaultDirectory()
+  {
+    return new File(new File(System.getProperty("user.home"), ".m2"), "xcode-maven-plugin/absent-artifacts");
+  }
+
+  File getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * @return <code>true</code> if the artifact has been recorded as absent and the entry has not expired. The lookup
+   *         in the remote repositories is counted as avoided in this case.
+   */
+  boolean isAbsent(Artifact artifact, List<RemoteRepository> repositories)
+  {
+    if (artifact.isSnapshot() && ttlMillis <= 0)
+      return false;
+
+    final File file = getFile(artifact, repositories);
+    final long recordedAt = file.lastModified();
+
+    if (recordedAt == 0)
+      return false;
+
+    if (artifact.isSnapshot() && System.currentTimeMillis() - recordedAt >= ttlMillis)
+      return false;
+
+    hits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Records that the artifact does not exist in the remote repositories. Failures are logged only, the cache is an
+   * optimization.
+   */
+  void recordAbsent(Artifact artifact, List<RemoteRepository> repositories)
+  {
+    if (artifact.isSnapshot() && ttlMillis <= 0)
+      return;
+
+    final File file = getFile(artifact, repositories);
+
+    try {
+      FileUtils.writeAtomically(file, (artifact.toString() + "\n").getBytes("UTF-8"));
+      recorded.incrementAndGet();
+    }
+    catch (IOException e) {
+      LOGGER.warning("Cannot record the absence of " + artifact + " in '" + file + "': " + e.getMessage());
+    }
+  }
+
+  /**
+   * Removes the entry of an artifact that has been found.
+   */
+  void remove(Artifact artifact, List<RemoteRepository> repositories)
+  {
+    final File file = getFile(artifact, repositories);
+
+    if (file.exists() && !file.delete())
+      LOGGER.warning("Cannot delete '" + file + "'.");
+  }
+
+  File getFile(Artifact artifact, List<RemoteRepository> repositories)
+  {
+    final String classifier = artifact.getClassifier() == null || artifact.getClassifier().isEmpty() ? "" : artifact
+      .getClassifier() + ".";
+
+    return new File(new File(new File(new File(new File(directory, getKey(repositories)), artifact.getGroupId()
+      .replace('.', File.separatorChar)), artifact.getArtifactId()), artifact.getBaseVersion()), classifier
+          + artifact.getExtension() + SUFFIX);
+  }
+
+  /**
+   * @return a short digest over the ids and urls of the repositories, independent of their order.
+   */
+  static String getKey(List<RemoteRepository> repositories)
+  {
+    final List<String> entries = new ArrayList<String>();
+    if (repositories != null)
+      for (RemoteRepository repository : repositories)
+        entries.add(repository.getId() + "=" + repository.getUrl());
+    Collections.sort(entries);
+
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      for (String entry : entries)
+        digest.update((entry + "\n").getBytes("UTF-8"));
+
+      final StringBuilder key = new StringBuilder();
+      for (byte b : digest.digest()) {
+        key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        if (key.length() == 8)
+          break;
+      }
+      return key.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the number of lookups of absent artifacts that have been avoided.
+   */
+  int getHits()
+  {
+    return hits.get();
+  }
+
+  /**
+   * @return the number of absent artifacts that have been recorded.
+   */
+  int getRecorded()
+  {
+    return recorded.get();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Cache of absent side artifacts '" + directory + "': " + hits + " remote lookups avoided, " + recorded
+          + " absent side artifacts recorded";
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Pool of directories for the intermediate build files of Xcode (<code>OBJROOT</code>) that survive the Maven build.
+ * Since the checkout directory is recreated for each build, this is the precondition for incremental compilation.
+ * <p>
+ * There is one slot per groupId, artifactId, configuration and sdk. A slot is locked while it is in use, also
+ * against other processes. Slots are invalidated when the Xcode version changes. If the pool grows beyond its
+ * maximum size the least recently used slots are deleted. The pool is located in
+ * <code>~/.m2/xcode-maven-plugin/objroot-pool</code> by default.
+ */
+final class ObjRootPool
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  private static final String LOCK_FILE = ".lock";
+
+  private static final String INFO_FILE = ".slot.properties";
+
+  private static final String XCODE_VERSION = "xcode";
+
+  private final File directory;
+
+  private final long maxSize;
+
+  /**
+   * @param maxSize
+   *          the maximum size of all slots in bytes.
+   */
+  ObjRootPool(File directory, long maxSize)
+  {
+    this.directory = directory;
+    this.maxSize = maxSize;
+  }
+
+  static File getDefaultDirectory()
+  {
+    return new File(new File(System.getProperty("user.home"), ".m2"), "xcode-maven-plugin/objroot-pool");
+  }
+
+  File getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * A locked slot of the pool. Must be closed after the build.
+   */
+  static final class Slot
+  {
+    private final File directory;
+
+    private final RandomAccessFile lockFile;
+
+    private final FileLock lock;
+
+    private Slot(File directory, RandomAccessFile lockFile, FileLock lock)
+    {
+      this.directory = directory;
+      this.lockFile = lockFile;
+      this.lock = lock;
+    }
+
+    /**
+     * @return the directory for <code>OBJROOT</code>.
+     */
+    File getObjRoot()
+    {
+      return new File(directory, "objroot");
+    }
+
+    /**
+     * @return the directory for <code>SHARED_PRECOMPS_DIR</code>.
+     */
+    File getSharedPrecompsDir()
+    {
+      return new File(directory, "precomps");
+    }
+
+    File getDirectory()
+    {
+      return directory;
+    }
+
+    /**
+     * Releases the lock and marks the slot as used.
+     */
+    void close()
+    {
+      if (!new File(directory, INFO_FILE).setLastModified(System.currentTimeMillis()))
+        LOGGER.fine("Cannot update the last usage of slot '" + directory + "'.");
+      release(lockFile, lock);
+    }
+  }
+
+  /**
+   * @param sdk
+   *          the sdk, <code>null</code> for builds that are not bound to a sdk.
+   * @return the locked slot or <code>null</code> if the slot is in use by another build.
+   */
+  Slot acquire(String groupId, String artifactId, String configuration, String sdk, String xcodeVersion)
+        throws IOException
+  {
+    final File slotDirectory = new File(directory, getSlotName(groupId, artifactId, configuration, sdk));
+    FileUtils.mkdirs(slotDirectory);
+
+    final RandomAccessFile lockFile = new RandomAccessFile(new File(slotDirectory, LOCK_FILE), "rw");
+    final FileLock lock = tryLock(lockFile.getChannel());
+
+    if (lock == null) {
+      close(lockFile);
+      return null;
+    }
+
+    try {
+      final File infoFile = new File(slotDirectory, INFO_FILE);
+      final Properties info = new Properties();
+
+      if (infoFile.isFile())
+        info.load(new ByteArrayInputStream(org.apache.commons.io.FileUtils.readFileToByteArray(infoFile)));
+
+      if (!xcodeVersion.equals(info.getProperty(XCODE_VERSION))) {
+
+        if (info.containsKey(XCODE_VERSION))
+          LOGGER.info("Xcode version changed from '" + info.getProperty(XCODE_VERSION) + "' to '" + xcodeVersion
+                + "', slot '" + slotDirectory + "' invalidated.");
+
+        clear(slotDirectory);
+        info.setProperty(XCODE_VERSION, xcodeVersion);
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        info.store(content, null);
+        FileUtils.writeAtomically(infoFile, content.toByteArray());
+      }
+
+      return new Slot(slotDirectory, lockFile, lock);
+    }
+    catch (IOException e) {
+      release(lockFile, lock);
+      throw e;
+    }
+    catch (RuntimeException e) {
+      release(lockFile, lock);
+      throw e;
+    }
+  }
+
+  /**
+   * Deletes the least recently used slots that are not in use until the size of the pool does not exceed the maximum
+   * size.
+   * 
+   * @return the number of deleted slots.
+   */
+  int evict() throws IOException
+  {
+    final File[] slotDirectories = directory.listFiles();
+
+    if (slotDirectories == null)
+      return 0;
+
+    final List<File> slots = new ArrayList<File>();
+    long size = 0;
+
+    for (File slot : slotDirectories) {
+      if (slot.isDirectory()) {
+        slots.add(slot);
+        size += org.apache.commons.io.FileUtils.sizeOfDirectory(slot);
+      }
+    }
+
+    if (size <= maxSize)
+      return 0;
+
+    Collections.sort(slots, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2)
+      {
+        final long l1 = getLastUsed(f1), l2 = getLastUsed(f2);
+        return l1 < l2 ? -1 : l1 == l2 ? 0 : 1;
+      }
+    });
+
+    int deleted = 0;
+
+    for (File slot : slots) {
+
+      if (size <= maxSize)
+        break;
+
+      final RandomAccessFile lockFile = new RandomAccessFile(new File(slot, LOCK_FILE), "rw");
+      final FileLock lock = tryLock(lockFile.getChannel());
+
+      if (lock == null) {
+        close(lockFile);
+        continue;
+      }
+
+      try {
+        final long slotSize = org.apache.commons.io.FileUtils.sizeOfDirectory(slot);
+        LOGGER.info("Deleting least recently used slot '" + slot + "' (" + slotSize / 1024 / 1024 + " MB).");
+        clear(slot);
+        new File(slot, INFO_FILE).delete();
+        size -= slotSize;
+        deleted++;
+      }
+      finally {
+        release(lockFile, lock);
+        new File(slot, LOCK_FILE).delete();
+        slot.delete();
+      }
+    }
+    return deleted;
+  }
+
+  private static long getLastUsed(File slot)
+  {
+    return new File(slot, INFO_FILE).lastModified();
+  }
+
+  /**
+   * Deletes the content of a slot except the lock and info files.
+   */
+  private static void clear(File slotDirectory) throws IOException
+  {
+    final File[] children = slotDirectory.listFiles();
+
+    if (children == null)
+      return;
+
+    for (File child : children) {
+      if (!child.getName().equals(LOCK_FILE) && !child.getName().equals(INFO_FILE))
+        org.apache.commons.io.FileUtils.forceDelete(child);
+    }
+  }
+
+  static String getSlotName(String groupId, String artifactId, String configuration, String sdk)
+  {
+    final String name = groupId + "_" + artifactId + "_" + configuration + (sdk == null ? "" : "-" + sdk);
+    return name.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  /**
+   * @return the lock or <code>null</code> if the file is locked by another process or thread.
+   */
+  private static FileLock tryLock(FileChannel channel) throws IOException
+  {
+    try {
+      return channel.tryLock();
+    }
+    catch (OverlappingFileLockException e) {
+      // locked by this JVM
+      return null;
+    }
+  }
+
+  private static void release(RandomAccessFile file, FileLock lock)
+  {
+    try {
+      lock.release();
+    }
+    catch (IOException e) {
+      LOGGER.fine("Cannot release lock: " + e.getMessage());
+    }
+    close(file);
+  }
+
+  private static void close(RandomAccessFile file)
+  {
+    try {
+      file.close();
+    }
+    catch (IOException e) {
+      LOGGER.fine("Cannot close '" + file + "': " + e.getMessage());
+    }
+  }
+}
@@ -30,8 +30,8 @@ final class Options implements IOptions
   {
     PROJECT(true, false), CONFIGURATION(false, false), SDK(false, false), TARGET(false, false), SHOWBUILDSETTINGS(
           "showBuildSettings", false, true),
-    DRY_RUN("dry-run", false, true), SHOWSDKS(false, true), VERSION(false, true), LIST(false, true), USAGE(false, true), HELP(
-          false, true), LICENSE(false, true);
+    ALLTARGETS(false, true), DRY_RUN("dry-run", false, true), SHOWSDKS(false, true), VERSION(false, true), LIST(
+          false, true), USAGE(false, true), HELP(false, true), LICENSE(false, true);
 
     static ManagedOption forName(String name)
     {
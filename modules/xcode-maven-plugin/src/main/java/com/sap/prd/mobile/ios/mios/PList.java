@@ -0,0 +1,548 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * In-memory representation of a property list together with the format it has been read from.
+ * <p>
+ * Values are represented as {@link String}, {@link Long} (or {@link BigInteger} for 128 bit integers), {@link Double},
+ * {@link Boolean}, {@link Date}, <code>byte[]</code>, {@link List} (array) and {@link Map} (dict). Dictionaries keep
+ * their insertion order.
+ * <p>
+ * Entries are addressed by key paths as understood by PlistBuddy: the path components are separated by colons, dict
+ * entries are addressed by their key and array entries by their index, e.g. <code>dependencies:0:coordinates</code>.
+ * A leading colon is optional.
+ */
+final class PList
+{
+  enum Format
+  {
+    XML, BINARY, OPENSTEP;
+  }
+
+  private final Object root;
+
+  private final Format format;
+
+  PList()
+  {
+    this(new LinkedHashMap<String, Object>(), Format.XML);
+  }
+
+  PList(Object root, Format format)
+  {
+    if (root == null)
+      throw new NullPointerException("Root object of a plist must not be null.");
+
+    if (format == null)
+      throw new NullPointerException("Format of a plist must not be null.");
+
+    this.root = root;
+    this.format = format;
+  }
+
+  static PList read(File file) throws IOException
+  {
+    if (!file.exists())
+      throw new FileNotFoundException("The Plist " + file.getAbsolutePath() + " does not exist.");
+
+    try {
+      return parse(org.apache.commons.io.FileUtils.readFileToByteArray(file));
+    }
+    catch (PListFormatException e) {
+      throw new PListFormatException("Cannot parse plist '" + file + "': " + e.getMessage(), e);
+    }
+  }
+
+  static PList parse(byte[] content) throws PListFormatException
+  {
+    final Format format = detectFormat(content);
+
+    switch (format) {
+    case BINARY:
+      return new PList(new PListBinaryParser(content).parse(), format);
+    case XML:
+      return new PList(new PListXmlParser().parse(content), format);
+    default:
+      return new PList(new PListOpenStepParser(content).parse(), format);
+    }
+  }
+
+  /**
+   * Detects the format by looking at the first non whitespace bytes. Everything that is neither a binary nor an XML
+   * plist is considered to be an OpenStep plist.
+   */
+  static Format detectFormat(byte[] content)
+  {
+    if (startsWith(content, 0, PListBinaryParser.MAGIC))
+      return Format.BINARY;
+
+    int index = startsWith(content, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+
+    while (index < content.length && Character.isWhitespace((char) content[index]))
+      index++;
+
+    return (index < content.length && content[index] == '<' && !isHexData(content, index + 1)) ? Format.XML
+          : Format.OPENSTEP;
+  }
+
+  private static final byte[] UTF8_BOM = new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+  private static boolean startsWith(byte[] content, int offset, byte[] prefix)
+  {
+    if (content.length - offset < prefix.length)
+      return false;
+
+    for (int i = 0; i < prefix.length; i++)
+      if (content[offset + i] != prefix[i])
+        return false;
+
+    return true;
+  }
+
+  /**
+   * An OpenStep plist consisting of a single data object starts with '&lt;' followed by hex digits.
+   */
+  private static boolean isHexData(byte[] content, int index)
+  {
+    for (int i = index; i < content.length; i++) {
+      final char c = (char) content[i];
+      if (c == '>')
+        return true;
+      if (Character.digit(c, 16) < 0 && !Character.isWhitespace(c))
+        return false;
+    }
+    return false;
+  }
+
+  Object getRoot()
+  {
+    return root;
+  }
+
+  Format getFormat()
+  {
+    return format;
+  }
+
+  /**
+   * @return the value denoted by <code>keyPath</code> or <code>null</code> if there is no such entry.
+   */
+  Object get(String keyPath)
+  {
+    Object current = root;
+
+    for (String component : splitKeyPath(keyPath)) {
+      current = getChild(current, component);
+      if (current == null)
+        return null;
+    }
+
+    return current;
+  }
+
+  boolean contains(String keyPath)
+  {
+    return get(keyPath) != null;
+  }
+
+  /**
+   * Replaces the value of an existing entry.
+   * 
+   * @throws IllegalStateException
+   *           if there is no entry for <code>keyPath</code>.
+   */
+  void set(String keyPath, Object value)
+  {
+    final String[] path = splitKeyPath(keyPath);
+
+    if (path.length == 0)
+      throw new IllegalStateException("Cannot replace the root entry of a plist.");
+
+    final Object parent = getParent(path, keyPath, false);
+    final String name = path[path.length - 1];
+
+    if (getChild(parent, name) == null)
+      throw new IllegalStateException("Set: Entry, \":" + keyPath + "\", Does Not Exist");
+
+    if (parent instanceof Map) {
+      asDict(parent).put(name, value);
+    }
+    else {
+      asArray(parent).set(Integer.parseInt(name), value);
+    }
+  }
+
+  /**
+   * Replaces the value of an existing entry. The new value is given as string and converted to the type of the
+   * current value, like PlistBuddy's <code>Set</code> command does.
+   * 
+   * @throws IllegalStateException
+   *           if there is no entry for <code>keyPath</code> or if the entry is an array or a dict.
+   */
+  void setFromString(String keyPath, String value)
+  {
+    final Object current = get(keyPath);
+
+    if (current == null)
+      throw new IllegalStateException("Set: Entry, \":" + keyPath + "\", Does Not Exist");
+
+    set(keyPath, createValue(getType(current), value));
+  }
+
+  /**
+   * Adds a new entry. Missing intermediate entries are created as dicts. If the parent is an array the value is
+   * inserted at the given index or appended if the index is beyond the end of the array.
+   * 
+   * @throws IllegalStateException
+   *           if the entry already exists or if the parent entry is neither an array nor a dict.
+   */
+  void add(String keyPath, Object value)
+  {
+    final String[] path = splitKeyPath(keyPath);
+
+    if (path.length == 0)
+      throw new IllegalStateException("Add: Entry, \":" + keyPath + "\", Already Exists");
+
+    final Object parent = getParent(path, keyPath, true);
+    final String name = path[path.length - 1];
+
+    if (parent instanceof Map) {
+
+      final Map<String, Object> dict = asDict(parent);
+
+      if (dict.containsKey(name))
+        throw new IllegalStateException("Add: Entry, \":" + keyPath + "\", Already Exists");
+
+      dict.put(name, value);
+    }
+    else {
+
+      final List<Object> array = asArray(parent);
+      final int index = parseIndex(name);
+
+      if (index < 0)
+        throw new IllegalStateException("Add: Invalid array index \"" + name + "\" in \":" + keyPath + "\"");
+
+      array.add(Math.min(index, array.size()), value);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the entry existed and has been removed.
+   */
+  boolean remove(String keyPath)
+  {
+    final String[] path = splitKeyPath(keyPath);
+
+    if (path.length == 0)
+      return false;
+
+    final Object parent;
+
+    try {
+      parent = getParent(path, keyPath, false);
+    }
+    catch (IllegalStateException e) {
+      return false;
+    }
+
+    final String name = path[path.length - 1];
+
+    if (getChild(parent, name) == null)
+      return false;
+
+    if (parent instanceof Map) {
+      asDict(parent).remove(name);
+    }
+    else {
+      asArray(parent).remove(Integer.parseInt(name));
+    }
+    return true;
+  }
+
+  byte[] toByteArray(Format format)
+  {
+    switch (format) {
+    case XML:
+      return new PListXmlWriter().write(root);
+    case BINARY:
+      return new PListBinaryWriter().write(root);
+    default:
+      return new PListOpenStepWriter().write(root);
+    }
+  }
+
+  /**
+   * Writes the plist atomically, i.e. the target file is replaced only after the new content has been written
+   * completely.
+   */
+  void write(File file, Format format) throws IOException
+  {
+    FileUtils.writeAtomically(file, toByteArray(format));
+  }
+
+  private Object getParent(String[] path, String keyPath, boolean createMissing)
+  {
+    Object current = root;
+
+    for (int i = 0; i < path.length - 1; i++) {
+
+      Object child = getChild(current, path[i]);
+
+      if (child == null) {
+
+        if (!createMissing || !(current instanceof Map))
+          throw new IllegalStateException("Entry, \":" + keyPath + "\", Does Not Exist");
+
+        child = new LinkedHashMap<String, Object>();
+        asDict(current).put(path[i], child);
+      }
+      current = child;
+    }
+
+    if (!(current instanceof Map) && !(current instanceof List))
+      throw new IllegalStateException("Entry, \":" + keyPath + "\", Does Not Exist (parent is not a container)");
+
+    return current;
+  }
+
+  private static Object getChild(Object container, String name)
+  {
+    if (container instanceof Map)
+      return asDict(container).get(name);
+
+    if (container instanceof List) {
+      final List<Object> array = asArray(container);
+      final int index = parseIndex(name);
+      return index >= 0 && index < array.size() ? array.get(index) : null;
+    }
+
+    return null;
+  }
+
+  private static int parseIndex(String name)
+  {
+    if (name.length() == 0 || name.length() > 9)
+      return -1;
+
+    for (int i = 0; i < name.length(); i++)
+      if (name.charAt(i) < '0' || name.charAt(i) > '9')
+        return -1;
+
+    return Integer.parseInt(name);
+  }
+
+  static String[] splitKeyPath(String keyPath)
+  {
+    final String path = keyPath.startsWith(":") ? keyPath.substring(1) : keyPath;
+    return path.length() == 0 ? new String[0] : path.split(":", -1);
+  }
+
+  @SuppressWarnings("unchecked")
+  static Map<String, Object> asDict(Object value)
+  {
+    return (Map<String, Object>) value;
+  }
+
+  @SuppressWarnings("unchecked")
+  static List<Object> asArray(Object value)
+  {
+    return (List<Object>) value;
+  }
+
+  /**
+   * @return the PlistBuddy type name of <code>value</code>, one of <code>string</code>, <code>integer</code>,
+   *         <code>real</code>, <code>bool</code>, <code>date</code>, <code>data</code>, <code>array</code> or
+   *         <code>dict</code>.
+   */
+  static String getType(Object value)
+  {
+    if (value instanceof String)
+      return "string";
+    if (value instanceof Long || value instanceof BigInteger)
+      return "integer";
+    if (value instanceof Double)
+      return "real";
+    if (value instanceof Boolean)
+      return "bool";
+    if (value instanceof Date)
+      return "date";
+    if (value instanceof byte[])
+      return "data";
+    if (value instanceof List)
+      return "array";
+    if (value instanceof Map)
+      return "dict";
+
+    throw new IllegalArgumentException("Unsupported plist value: " + value);
+  }
+
+  /**
+   * Creates a value from its PlistBuddy type name and its string representation.
+   */
+  static Object createValue(String type, String value)
+  {
+    final String _value = value == null ? "" : value;
+
+    if ("string".equals(type))
+      return _value;
+
+    if ("dict".equals(type))
+      return new LinkedHashMap<String, Object>();
+
+    if ("array".equals(type))
+      return new ArrayList<Object>();
+
+    if ("bool".equals(type))
+      return Boolean.valueOf(_value.equalsIgnoreCase("true") || _value.equalsIgnoreCase("yes")
+            || _value.equals("1"));
+
+    if ("data".equals(type))
+      return toBytes(_value);
+
+    try {
+
+      if ("integer".equals(type)) {
+        final String trimmed = _value.trim();
+        return trimmed.length() == 0 ? Long.valueOf(0) : Long.valueOf(trimmed);
+      }
+
+      if ("real".equals(type)) {
+        final String trimmed = _value.trim();
+        return trimmed.length() == 0 ? Double.valueOf(0) : Double.valueOf(trimmed);
+      }
+
+      if ("date".equals(type))
+        return _value.trim().length() == 0 ? new Date() : parseDate(_value.trim());
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalStateException("Invalid " + type + " value: '" + value + "'.", e);
+    }
+
+    throw new IllegalStateException("Unrecognized Type: " + type);
+  }
+
+  private static Date parseDate(String value)
+  {
+    for (SimpleDateFormat format : new SimpleDateFormat[] { newIso8601DateFormat(), newPrintDateFormat() }) {
+      try {
+        return format.parse(value);
+      }
+      catch (ParseException e) {
+        // try the next format
+      }
+    }
+    throw new IllegalStateException("Invalid date value: '" + value + "'.");
+  }
+
+  static SimpleDateFormat newIso8601DateFormat()
+  {
+    final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format;
+  }
+
+  private static SimpleDateFormat newPrintDateFormat()
+  {
+    return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+  }
+
+  private static byte[] toBytes(String value)
+  {
+    try {
+      return value.getBytes("UTF-8");
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Renders a value the way PlistBuddy's <code>Print</code> command does.
+   */
+  static String toPrintString(Object value)
+  {
+    final StringBuilder sb = new StringBuilder();
+    appendPrintString(sb, value, 0);
+    return sb.toString();
+  }
+
+  private static void appendPrintString(StringBuilder sb, Object value, int depth)
+  {
+    if (value instanceof Map) {
+      sb.append("Dict {\n");
+      for (Map.Entry<String, Object> entry : asDict(value).entrySet()) {
+        indent(sb, depth + 1).append(entry.getKey()).append(" = ");
+        appendPrintString(sb, entry.getValue(), depth + 1);
+        sb.append('\n');
+      }
+      indent(sb, depth).append('}');
+    }
+    else if (value instanceof List) {
+      sb.append("Array {\n");
+      for (Object element : asArray(value)) {
+        indent(sb, depth + 1);
+        appendPrintString(sb, element, depth + 1);
+        sb.append('\n');
+      }
+      indent(sb, depth).append('}');
+    }
+    else if (value instanceof Double) {
+      sb.append(String.format(Locale.US, "%f", value));
+    }
+    else if (value instanceof Date) {
+      sb.append(newPrintDateFormat().format((Date) value));
+    }
+    else if (value instanceof byte[]) {
+      try {
+        sb.append(new String((byte[]) value, "UTF-8"));
+      }
+      catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    else {
+      sb.append(value);
+    }
+  }
+
+  private static StringBuilder indent(StringBuilder sb, int depth)
+  {
+    for (int i = 0; i < depth; i++)
+      sb.append("    ");
+    return sb;
+  }
+}
@@ -19,31 +19,40 @@
  */
 package com.sap.prd.mobile.ios.mios;
 
-import static org.apache.commons.io.IOUtils.closeQuietly;
-
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringReader;
-import java.nio.charset.Charset;
-import java.util.Scanner;
-
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
 
+/**
+ * Reads and modifies plist files. Keys are given as PlistBuddy key paths, e.g. <code>coordinates:groupId</code> or
+ * <code>dependencies:0</code>.
+ * <p>
+ * The files are processed in-process by {@link PList}, which handles XML, binary and OpenStep plists. Modified files
+ * are always written as XML plists. PlistBuddy is only used if the system property {@value #USE_PLIST_BUDDY} is set to
+ * <code>true</code> or if a file cannot be parsed by the in-process engine and PlistBuddy is available.
+ * <p>
+ * {@link #getStringValue(String)} decodes only the requested entry of binary and XML plists. It also reads the plist
+ * embedded in provisioning profiles. Values read are kept in the {@link PListValueCache}.
+ * <p>
+ * Each modifying method reads and writes the whole file. Use {@link #edit()} in order to apply several modifications
+ * at once.
+ */
 public class PListAccessor
 {
   public static final String KEY_BUNDLE_IDENTIFIER = "CFBundleIdentifier";
   public static final String KEY_BUNDLE_VERSION = "CFBundleVersion";
   public static final String KEY_BUNDLE_SHORT_VERSION_STRING = "CFBundleShortVersionString";
 
+  static final String USE_PLIST_BUDDY = "xcode.plist.usePlistBuddy";
+
   private final File plist;
 
+  private final PlistBuddyAccessor plistBuddy;
+
   public PListAccessor(File file)
   {
     plist = file;
+    plistBuddy = new PlistBuddyAccessor(file);
   }
 
   public File getPlistFile()
@@ -58,315 +67,157 @@ public class PListAccessor
       throw new FileNotFoundException("The Plist " + plist.getAbsolutePath() + " does not exist.");
     }
 
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -c \"Print :" + key + "\" \"" + plist.getAbsolutePath() + "\"";
-
-      System.out.println("[INFO] PlistBuddy Print command is: '" + command + "'.");
+    final PListValueCache cache = PListValueCache.getInstance();
+    final PListValueCache.Lookup lookup = cache.get(plist, key);
 
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
+    if (lookup.isCached())
+      return lookup.getValue();
 
-      int exitValue = p.exitValue();
+    final String value = readStringValue(key);
+    cache.put(lookup, key, value);
+    return value;
+  }
 
-      if (exitValue == 0)
-      {
-        InputStream is = p.getInputStream();
-        try {
-          return new Scanner(is, Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        finally {
-          closeQuietly(is);
-        }
-      }
+  private String readStringValue(String key) throws IOException
+  {
+    if (!Boolean.getBoolean(USE_PLIST_BUDDY)) {
+      try {
+        final byte[] header = PListMappedReader.readHeader(plist);
 
-      String errorMessage = "<n/a>";
+        if (PListMappedReader.isSupported(header))
+          return toPrintString(PListMappedReader.getValue(plist, key));
 
-      try {
-        errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
+        if (PList.detectFormat(header) == PList.Format.XML)
+          return toPrintString(PListXmlKeyReader.getValue(plist, key));
       }
-      catch (Exception ex) {
-        System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-              + ex);
+      catch (PListFormatException e) {
+        // handled below, by the full parser or by PlistBuddy
       }
+    }
 
-      if (errorMessage.contains(":" + key + "\", Does Not Exist")) {
-        // ugly string parsing above, but no other known way ...
-        return null;
-      }
+    final PList document = load();
 
-      throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ")
-            + "\" command failed. Error message is: " + errorMessage + ". Return code was: '" + exitValue + "'.");
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+    if (document == null)
+      return plistBuddy.getStringValue(key);
+
+    return toPrintString(document.get(key));
   }
 
-  public void updateStringValue(String key, String value) throws IOException
+  private static String toPrintString(Object value)
   {
-    if (!plist.exists())
-    {
-      throw new FileNotFoundException("Plist file '" + plist + "' not found.");
-    }
+    return value == null ? null : PList.toPrintString(value);
+  }
 
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Set :" + key + " " + value + "\" \"" + plist.getAbsolutePath()
-            + "\"";
-      System.out.println("[INFO] PlistBuddy Set command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
-      int exitValue = p.exitValue();
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+  public void updateStringValue(String key, String value) throws IOException
+  {
+    edit().updateStringValue(key, value).commit();
   }
 
   public void addStringValue(String key, String value) throws IOException
   {
-    if (!plist.exists())
-    {
-      throw new FileNotFoundException("Plist file '" + plist + "' not found.");
-    }
-
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Add :" + key + " string " + value + "\" \""
-            + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
-      int exitValue = p.exitValue();
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+    edit().addStringValue(key, value).commit();
   }
 
   public void addStringValueToDict(String key, String value, String dictKey) throws IOException
   {
-    if (!plist.exists())
-    {
-      throw new FileNotFoundException("Plist file '" + plist + "' not found.");
-    }
-
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Add :" + dictKey + ":" + key + " string " + value + "\" \""
-            + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
-      int exitValue = p.exitValue();
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+    edit().addStringValue(dictKey + ":" + key, value).commit();
   }
 
   public void addElement(String key, String type) throws IOException
   {
-    if (!plist.exists())
-    {
-      throw new FileNotFoundException("Plist file '" + plist + "' not found.");
-    }
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Add :" + key + " " + type + "  " + "\" \""
-            + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
-      int exitValue = p.exitValue();
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+    edit().addElement(key, type).commit();
   }
 
   public void addDictToArray(String dict, String array) throws IOException
+  {
+    edit().addDict(array + ":" + dict).commit();
+  }
+
+  /**
+   * Starts an edit session on the existing plist file. The file is read once and written once when the session is
+   * committed.
+   */
+  public PListEdit edit() throws IOException
   {
     if (!plist.exists())
     {
       throw new FileNotFoundException("Plist file '" + plist + "' not found.");
     }
 
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Add :" + array + ":" + dict + " dict " + "\" \""
-            + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-      Process p = Runtime.getRuntime().exec(args);
-      p.waitFor();
-      int exitValue = p.exitValue();
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
-    }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
-    }
+    return new PListEdit(this, load(), false);
   }
 
+  /**
+   * Starts an edit session on an empty dict. When the session is committed an existing file is replaced.
+   */
+  public PListEdit editNewPlist()
+  {
+    return new PListEdit(this, Boolean.getBoolean(USE_PLIST_BUDDY) ? null : new PList(), true);
+  }
+
+  /**
+   * Writes the plist as XML plist. If the file does not exist an empty dict is written.
+   */
   public void createPlist() throws IOException
   {
+    final PList document = plist.exists() ? load() : new PList();
 
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -x -c \"Save \" \"" + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-
-      Process p = Runtime.getRuntime().exec(args);
-
-      p.waitFor();
-
-      int exitValue = p.exitValue();
-
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
+    try {
+      if (document == null)
+        plistBuddy.createPlist();
+      else
+        document.write(plist, PList.Format.XML);
     }
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
+    finally {
+      PListValueCache.getInstance().invalidate(plist);
     }
   }
 
+  /**
+   * @return the first line of the value as printed by PlistBuddy.
+   * @throws IllegalStateException
+   *           if there is no entry for <code>key</code>.
+   */
   public String printValue(String key) throws IOException
   {
+    final PList document = plist.exists() ? load() : new PList();
 
-    try
-    {
-      String command = "/usr/libexec/PlistBuddy -c \"Print :" + key + "\" \"" + plist.getAbsolutePath() + "\"";
-      System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
-      String[] args = new String[] { "bash", "-c", command };
-
-      Process p = Runtime.getRuntime().exec(args);
-
-      InputStream is = p.getInputStream();
-      p.waitFor();
-      int exitValue = p.exitValue();
-
-      if (exitValue != 0)
-      {
-        String errorMessage = "n/a";
-        try {
-          errorMessage = new Scanner(p.getErrorStream(), Charset.defaultCharset().name()).useDelimiter("\\Z").next();
-        }
-        catch (Exception ex) {
-          System.out.println("[ERROR] Exception caught during retrieving error message of command '" + command + "': "
-                + ex);
-        }
-        throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
-              + errorMessage + ". Exit code was: " + exitValue);
-      }
+    if (document == null)
+      return plistBuddy.printValue(key);
 
-      byte[] buff = new byte[64];
-      StringBuilder sb = new StringBuilder();
-      for (int i = 0; (i = is.read(buff)) != -1;) {
-        sb.append(new String(buff, 0, i, Charset.defaultCharset().name()));
-      }
-      BufferedReader reader = new BufferedReader(new StringReader(sb.toString()));
+    final Object value = document.get(key);
 
-      try {
-        return reader.readLine();
-      }
-      finally {
-        IOUtils.closeQuietly(reader);
-      }
+    if (value == null)
+      throw new IllegalStateException("Print: Entry, \":" + key + "\", Does Not Exist in '" + plist + "'.");
+
+    final String printed = PList.toPrintString(value);
+    final int endOfLine = printed.indexOf('\n');
+    return endOfLine == -1 ? printed : printed.substring(0, endOfLine);
+  }
+
+  PlistBuddyAccessor getPlistBuddy()
+  {
+    return plistBuddy;
+  }
+
+  /**
+   * @return the parsed plist or <code>null</code> if the file has to be handled by PlistBuddy.
+   */
+  private PList load() throws IOException
+  {
+    if (Boolean.getBoolean(USE_PLIST_BUDDY))
+      return null;
+
+    try {
+      return PList.read(plist);
     }
+    catch (PListFormatException e) {
 
-    catch (InterruptedException e)
-    {
-      throw new RuntimeException(e);
+      if (!PlistBuddyAccessor.isAvailable())
+        throw e;
+
+      System.out.println("[WARNING] " + e.getMessage() + " Falling back to PlistBuddy.");
+      return null;
     }
   }
-
 }
@@ -0,0 +1,364 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses binary plists (<code>bplist00</code>). UIDs and sets (keyed archiver content) are not supported, in this
+ * case a {@link PListFormatException} is thrown.
+ * <p>
+ * Objects are decoded on demand using the offset table of the plist. {@link #parse()} decodes the whole object tree,
+ * {@link #get(String)} decodes only the objects on the given key path, which makes it suitable for memory mapped
+ * files.
+ */
+class PListBinaryParser
+{
+  static final byte[] MAGIC = new byte[] { 'b', 'p', 'l', 'i', 's', 't', '0', '0' };
+
+  /**
+   * Seconds between 1970-01-01 and 2001-01-01, the reference date of binary plists.
+   */
+  static final long EPOCH_OFFSET_SECONDS = 978307200L;
+
+  private static final int TRAILER_SIZE = 32;
+
+  private static final int MAX_DEPTH = 512;
+
+  private final ByteBuffer data;
+
+  private final int length;
+
+  private int offsetIntSize;
+
+  private int objectRefSize;
+
+  private long numObjects;
+
+  private long topObject;
+
+  private long offsetTableOffset;
+
+  PListBinaryParser(byte[] data)
+  {
+    this(ByteBuffer.wrap(data));
+  }
+
+  /**
+   * @param data
+   *          the plist, starting at position 0. The buffer is accessed with absolute reads only.
+   */
+  PListBinaryParser(ByteBuffer data)
+  {
+    this.data = data;
+    this.length = data.limit();
+  }
+
+  Object parse() throws PListFormatException
+  {
+    readTrailer();
+    return readObject(topObject, 0);
+  }
+
+  /**
+   * @return the value denoted by the PlistBuddy key path or <code>null</code> if there is no such entry. Only the
+   *         objects on the key path are decoded.
+   */
+  Object get(String keyPath) throws PListFormatException
+  {
+    readTrailer();
+
+    long ref = topObject;
+
+    for (String component : PList.splitKeyPath(keyPath)) {
+      ref = getChildRef(ref, component);
+      if (ref == -1)
+        return null;
+    }
+
+    return readObject(ref, 0);
+  }
+
+  private void readTrailer() throws PListFormatException
+  {
+    if (length < MAGIC.length + TRAILER_SIZE)
+      throw new PListFormatException("Binary plist is truncated.");
+
+    for (int i = 0; i < MAGIC.length; i++)
+      if (data.get(i) != MAGIC[i])
+        throw new PListFormatException("Not a binary plist.");
+
+    final int trailer = length - TRAILER_SIZE;
+    offsetIntSize = data.get(trailer + 6) & 0xFF;
+    objectRefSize = data.get(trailer + 7) & 0xFF;
+    numObjects = readUnsigned(trailer + 8, 8);
+    topObject = readUnsigned(trailer + 16, 8);
+    offsetTableOffset = readUnsigned(trailer + 24, 8);
+
+    if (offsetIntSize < 1 || offsetIntSize > 8 || objectRefSize < 1 || objectRefSize > 8 || numObjects < 1
+          || topObject >= numObjects || offsetTableOffset < MAGIC.length
+          || offsetTableOffset + numObjects * offsetIntSize > trailer)
+      throw new PListFormatException("Binary plist has an invalid trailer.");
+  }
+
+  private int getOffset(long ref) throws PListFormatException
+  {
+    if (ref < 0 || ref >= numObjects)
+      throw new PListFormatException("Invalid object reference " + ref + ".");
+
+    final long offset = readUnsigned((int) (offsetTableOffset + ref * offsetIntSize), offsetIntSize);
+
+    if (offset < MAGIC.length || offset >= offsetTableOffset)
+      throw new PListFormatException("Binary plist has an invalid object offset.");
+
+    return (int) offset;
+  }
+
+  /**
+   * @return the reference of the child or -1 if there is no such child.
+   */
+  private long getChildRef(long ref, String name) throws PListFormatException
+  {
+    final int offset = getOffset(ref);
+    final int marker = data.get(offset) & 0xFF;
+    final int type = marker >> 4;
+
+    if (type == 0xD) {
+      final int[] count = readCount(offset, marker & 0x0F);
+      checkRange(count[1], 2 * count[0] * objectRefSize);
+      for (int i = 0; i < count[0]; i++) {
+        if (isString(readUnsigned(count[1] + i * objectRefSize, objectRefSize), name))
+          return readUnsigned(count[1] + (count[0] + i) * objectRefSize, objectRefSize);
+      }
+      return -1;
+    }
+
+    if (type == 0xA) {
+      final int[] count = readCount(offset, marker & 0x0F);
+      final int index = parseIndex(name);
+      if (index < 0 || index >= count[0])
+        return -1;
+      return readUnsigned(checkRange(count[1] + index * objectRefSize, objectRefSize), objectRefSize);
+    }
+
+    return -1;
+  }
+
+  /**
+   * Compares a string object with <code>expected</code> without decoding strings of a different length.
+   */
+  private boolean isString(long ref, String expected) throws PListFormatException
+  {
+    final int offset = getOffset(ref);
+    final int marker = data.get(offset) & 0xFF;
+    final int type = marker >> 4;
+
+    if (type != 0x5 && type != 0x6)
+      return expected.equals(readObject(ref, 0));
+
+    final int[] count = readCount(offset, marker & 0x0F);
+
+    if (count[0] != expected.length())
+      return false;
+
+    if (type == 0x5) {
+      checkRange(count[1], count[0]);
+      for (int i = 0; i < count[0]; i++)
+        if ((data.get(count[1] + i) & 0xFF) != expected.charAt(i))
+          return false;
+    }
+    else {
+      checkRange(count[1], count[0] * 2);
+      for (int i = 0; i < count[0]; i++)
+        if (data.getChar(count[1] + 2 * i) != expected.charAt(i))
+          return false;
+    }
+    return true;
+  }
+
+  private static int parseIndex(String name)
+  {
+    try {
+      return Integer.parseInt(name);
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private Object readObject(long ref, int depth) throws PListFormatException
+  {
+    if (depth > MAX_DEPTH)
+      throw new PListFormatException("Binary plist is nested too deeply.");
+
+    final int offset = getOffset(ref);
+    final int marker = data.get(offset) & 0xFF;
+    final int type = marker >> 4;
+    final int info = marker & 0x0F;
+
+    switch (type) {
+    case 0x0:
+      if (marker == 0x08)
+        return Boolean.FALSE;
+      if (marker == 0x09)
+        return Boolean.TRUE;
+      break;
+    case 0x1:
+      return readInteger(offset + 1, 1 << info);
+    case 0x2:
+      if (info == 2)
+        return Double.valueOf(Float.intBitsToFloat((int) readUnsigned(offset + 1, 4)));
+      if (info == 3)
+        return Double.valueOf(Double.longBitsToDouble(readUnsigned(offset + 1, 8)));
+      break;
+    case 0x3:
+      if (info == 3) {
+        final double seconds = Double.longBitsToDouble(readUnsigned(offset + 1, 8));
+        return new Date(Math.round((seconds + EPOCH_OFFSET_SECONDS) * 1000));
+      }
+      break;
+    case 0x4: {
+      final int[] count = readCount(offset, info);
+      return readBytes(count[1], count[0]);
+    }
+    case 0x5: {
+      final int[] count = readCount(offset, info);
+      checkRange(count[1], count[0]);
+      final char[] chars = new char[count[0]];
+      for (int i = 0; i < chars.length; i++)
+        chars[i] = (char) (data.get(count[1] + i) & 0xFF);
+      return new String(chars);
+    }
+    case 0x6: {
+      final int[] count = readCount(offset, info);
+      checkRange(count[1], count[0] * 2);
+      final char[] chars = new char[count[0]];
+      for (int i = 0; i < chars.length; i++)
+        chars[i] = data.getChar(count[1] + 2 * i);
+      return new String(chars);
+    }
+    case 0x7: {
+      final int[] count = readCount(offset, info);
+      try {
+        return new String(readBytes(count[1], count[0]), "UTF-8");
+      }
+      catch (UnsupportedEncodingException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    case 0xA: {
+      final int[] count = readCount(offset, info);
+      checkRange(count[1], count[0] * objectRefSize);
+      final List<Object> array = new ArrayList<Object>(count[0]);
+      for (int i = 0; i < count[0]; i++)
+        array.add(readObject(readUnsigned(count[1] + i * objectRefSize, objectRefSize), depth + 1));
+      return array;
+    }
+    case 0xD: {
+      final int[] count = readCount(offset, info);
+      checkRange(count[1], 2 * count[0] * objectRefSize);
+      final Map<String, Object> dict = new LinkedHashMap<String, Object>();
+      for (int i = 0; i < count[0]; i++) {
+        final Object key = readObject(readUnsigned(count[1] + i * objectRefSize, objectRefSize), depth + 1);
+        if (!(key instanceof String))
+          throw new PListFormatException("Dictionary key is not a string: " + key);
+        dict.put((String) key,
+              readObject(readUnsigned(count[1] + (count[0] + i) * objectRefSize, objectRefSize), depth + 1));
+      }
+      return dict;
+    }
+    default:
+      break;
+    }
+
+    throw new PListFormatException("Unsupported object type 0x" + Integer.toHexString(marker) + " at offset "
+          + offset + ".");
+  }
+
+  /**
+   * @return the number of elements and the offset of the first element.
+   */
+  private int[] readCount(int offset, int info) throws PListFormatException
+  {
+    if (info != 0x0F)
+      return new int[] { info, offset + 1 };
+
+    final int intMarker = data.get(checkRange(offset + 1, 1)) & 0xFF;
+
+    if ((intMarker >> 4) != 0x1)
+      throw new PListFormatException("Invalid count at offset " + offset + ".");
+
+    final int size = 1 << (intMarker & 0x0F);
+    final Object count = readInteger(offset + 2, size);
+
+    if (!(count instanceof Long) || ((Long) count).longValue() < 0
+          || ((Long) count).longValue() > Integer.MAX_VALUE)
+      throw new PListFormatException("Invalid count at offset " + offset + ".");
+
+    return new int[] { ((Long) count).intValue(), offset + 2 + size };
+  }
+
+  private Object readInteger(int offset, int size) throws PListFormatException
+  {
+    if (size == 16) {
+      final BigInteger value = new BigInteger(readBytes(offset, 16));
+      return value.bitLength() < 64 ? (Object) Long.valueOf(value.longValue()) : value;
+    }
+
+    if (size > 8)
+      throw new PListFormatException("Unsupported integer size " + size + ".");
+
+    // integers with less than eight bytes are unsigned, eight byte integers are signed.
+    return Long.valueOf(readUnsigned(offset, size));
+  }
+
+  private byte[] readBytes(int offset, int count) throws PListFormatException
+  {
+    checkRange(offset, count);
+    final byte[] bytes = new byte[count];
+    final ByteBuffer buffer = data.duplicate();
+    buffer.position(offset);
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private long readUnsigned(int offset, int size) throws PListFormatException
+  {
+    checkRange(offset, size);
+    long value = 0;
+    for (int i = 0; i < size; i++)
+      value = (value << 8) | (data.get(offset + i) & 0xFF);
+    return value;
+  }
+
+  private int checkRange(int offset, int count) throws PListFormatException
+  {
+    if (offset < 0 || count < 0 || (long) offset + count > length)
+      throw new PListFormatException("Binary plist is truncated at offset " + offset + ".");
+    return offset;
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes binary plists (<code>bplist00</code>). Equal strings, numbers, booleans, dates and data objects are written
+ * only once and shared by all arrays and dicts referencing them.
+ */
+class PListBinaryWriter
+{
+  /**
+   * Wraps a byte array so that it can be used as key for uniquing data objects.
+   */
+  private static final class DataKey
+  {
+    private final byte[] data;
+
+    DataKey(byte[] data)
+    {
+      this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      return o instanceof DataKey && Arrays.equals(data, ((DataKey) o).data);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Arrays.hashCode(data);
+    }
+  }
+
+  private final List<Object> objects = new ArrayList<Object>();
+
+  private final Map<Object, Integer> uniquedObjects = new HashMap<Object, Integer>();
+
+  private final Map<Object, int[]> containerRefs = new IdentityHashMap<Object, int[]>();
+
+  private int objectRefSize;
+
+  byte[] write(Object root)
+  {
+    flatten(root);
+
+    objectRefSize = getNumberOfBytes(objects.size());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(PListBinaryParser.MAGIC, 0, PListBinaryParser.MAGIC.length);
+
+    final long[] offsets = new long[objects.size()];
+
+    for (int i = 0; i < objects.size(); i++) {
+      offsets[i] = out.size();
+      writeObject(out, objects.get(i));
+    }
+
+    final long offsetTableOffset = out.size();
+    final int offsetIntSize = getNumberOfBytes(offsetTableOffset);
+
+    for (long offset : offsets)
+      writeUnsigned(out, offset, offsetIntSize);
+
+    // trailer: 5 unused bytes, sort version, offset int size, object ref size, number of objects, top object,
+    // offset table offset
+    out.write(new byte[6], 0, 6);
+    out.write(offsetIntSize);
+    out.write(objectRefSize);
+    writeUnsigned(out, objects.size(), 8);
+    writeUnsigned(out, 0, 8);
+    writeUnsigned(out, offsetTableOffset, 8);
+
+    return out.toByteArray();
+  }
+
+  /**
+   * Assigns object references in depth first order, the root object gets reference 0.
+   */
+  private int flatten(Object value)
+  {
+    if (value instanceof Map) {
+
+      final int ref = add(value);
+      final Map<String, Object> dict = PList.asDict(value);
+      final int[] refs = new int[dict.size() * 2];
+      int i = 0;
+
+      for (String key : dict.keySet())
+        refs[i++] = flatten(key);
+
+      for (Object element : dict.values())
+        refs[i++] = flatten(element);
+
+      containerRefs.put(value, refs);
+      return ref;
+    }
+
+    if (value instanceof List) {
+
+      final int ref = add(value);
+      final List<Object> array = PList.asArray(value);
+      final int[] refs = new int[array.size()];
+
+      for (int i = 0; i < refs.length; i++)
+        refs[i] = flatten(array.get(i));
+
+      containerRefs.put(value, refs);
+      return ref;
+    }
+
+    final Object key = value instanceof byte[] ? new DataKey((byte[]) value) : value;
+    final Integer ref = uniquedObjects.get(key);
+
+    if (ref != null)
+      return ref.intValue();
+
+    final int newRef = add(value);
+    uniquedObjects.put(key, Integer.valueOf(newRef));
+    return newRef;
+  }
+
+  private int add(Object value)
+  {
+    objects.add(value);
+    return objects.size() - 1;
+  }
+
+  private void writeObject(ByteArrayOutputStream out, Object value)
+  {
+    if (value instanceof Boolean) {
+      out.write(((Boolean) value).booleanValue() ? 0x09 : 0x08);
+    }
+    else if (value instanceof Long) {
+      writeInteger(out, ((Long) value).longValue());
+    }
+    else if (value instanceof BigInteger) {
+      out.write(0x14);
+      final byte[] bytes = ((BigInteger) value).toByteArray();
+      if (bytes.length > 16)
+        throw new IllegalArgumentException("Integer too large for a binary plist: " + value);
+      final byte fill = (byte) (((BigInteger) value).signum() < 0 ? 0xFF : 0x00);
+      for (int i = bytes.length; i < 16; i++)
+        out.write(fill);
+      out.write(bytes, 0, bytes.length);
+    }
+    else if (value instanceof Double) {
+      out.write(0x23);
+      writeUnsigned(out, Double.doubleToRawLongBits(((Double) value).doubleValue()), 8);
+    }
+    else if (value instanceof Date) {
+      out.write(0x33);
+      final double seconds = ((Date) value).getTime() / 1000.0 - PListBinaryParser.EPOCH_OFFSET_SECONDS;
+      writeUnsigned(out, Double.doubleToRawLongBits(seconds), 8);
+    }
+    else if (value instanceof byte[]) {
+      final byte[] data = (byte[]) value;
+      writeMarker(out, 0x4, data.length);
+      out.write(data, 0, data.length);
+    }
+    else if (value instanceof String) {
+      writeString(out, (String) value);
+    }
+    else if (value instanceof List || value instanceof Map) {
+      final int[] refs = containerRefs.get(value);
+      if (value instanceof List)
+        writeMarker(out, 0xA, refs.length);
+      else
+        writeMarker(out, 0xD, refs.length / 2);
+      for (int ref : refs)
+        writeUnsigned(out, ref, objectRefSize);
+    }
+    else {
+      throw new IllegalArgumentException("Unsupported plist value: " + value);
+    }
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value)
+  {
+    boolean ascii = true;
+
+    for (int i = 0; i < value.length() && ascii; i++)
+      ascii = value.charAt(i) < 0x80;
+
+    if (ascii) {
+      writeMarker(out, 0x5, value.length());
+      for (int i = 0; i < value.length(); i++)
+        out.write(value.charAt(i));
+    }
+    else {
+      writeMarker(out, 0x6, value.length());
+      for (int i = 0; i < value.length(); i++) {
+        out.write(value.charAt(i) >> 8);
+        out.write(value.charAt(i));
+      }
+    }
+  }
+
+  private static void writeMarker(ByteArrayOutputStream out, int type, int count)
+  {
+    if (count < 0x0F) {
+      out.write((type << 4) | count);
+    }
+    else {
+      out.write((type << 4) | 0x0F);
+      writeInteger(out, count);
+    }
+  }
+
+  /**
+   * Non negative integers are written with the minimum number of bytes, negative integers always need eight bytes.
+   */
+  private static void writeInteger(ByteArrayOutputStream out, long value)
+  {
+    final int size = value < 0 ? 8 : getNumberOfBytes(value);
+    final int exponent = size == 1 ? 0 : size == 2 ? 1 : size == 4 ? 2 : 3;
+    out.write(0x10 | exponent);
+    writeUnsigned(out, value, size);
+  }
+
+  /**
+   * @return 1, 2, 4 or 8, the number of bytes needed for the non negative <code>value</code>.
+   */
+  private static int getNumberOfBytes(long value)
+  {
+    if (value < 0x100L)
+      return 1;
+    if (value < 0x10000L)
+      return 2;
+    if (value < 0x100000000L)
+      return 4;
+    return 8;
+  }
+
+  private static void writeUnsigned(ByteArrayOutputStream out, long value, int size)
+  {
+    for (int i = size - 1; i >= 0; i--)
+      out.write((int) (value >> (8 * i)));
+  }
+}
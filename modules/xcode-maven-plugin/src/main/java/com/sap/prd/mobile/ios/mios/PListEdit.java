@@ -0,0 +1,255 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Edit session on a plist file, obtained by {@link PListAccessor#edit()} or {@link PListAccessor#editNewPlist()}. The
+ * file is loaded once, all mutations are applied in memory and the file is written once by {@link #commit()}. Nothing
+ * is written if the session is not committed.
+ * <p>
+ * Keys are PlistBuddy key paths. Mutations fail immediately (with an {@link IllegalStateException}) in the same cases
+ * the corresponding PlistBuddy command fails. If the file is handled by PlistBuddy (see {@link PListAccessor}) all
+ * mutations are sent to PlistBuddy in a single call on commit, and reads return the state of the file before the
+ * session.
+ */
+public final class PListEdit
+{
+  /**
+   * A single typed modification of a plist entry.
+   */
+  static final class Mutation
+  {
+    enum Kind
+    {
+      ADD, SET, DELETE;
+    }
+
+    private final Kind kind;
+
+    private final String key;
+
+    private final String type;
+
+    private final String value;
+
+    Mutation(Kind kind, String key, String type, String value)
+    {
+      this.kind = kind;
+      this.key = key;
+      this.type = type;
+      this.value = value;
+    }
+
+    Kind getKind()
+    {
+      return kind;
+    }
+
+    String getKey()
+    {
+      return key;
+    }
+
+    String getType()
+    {
+      return type;
+    }
+
+    String getValue()
+    {
+      return value;
+    }
+
+    void applyTo(PList document)
+    {
+      switch (kind) {
+      case ADD:
+        document.add(key, PList.createValue(type, value));
+        break;
+      case SET:
+        document.setFromString(key, value);
+        break;
+      default:
+        if (!document.remove(key))
+          throw new IllegalStateException("Delete: Entry, \":" + key + "\", Does Not Exist");
+      }
+    }
+
+    String toPlistBuddyCommand()
+    {
+      switch (kind) {
+      case ADD:
+        return "Add :" + key + " " + type + (value == null ? "" : " " + value);
+      case SET:
+        return "Set :" + key + " " + value;
+      default:
+        return "Delete :" + key;
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      return toPlistBuddyCommand();
+    }
+  }
+
+  private final PListAccessor accessor;
+
+  private final PList document;
+
+  private final boolean newPlist;
+
+  private final List<Mutation> mutations = new ArrayList<Mutation>();
+
+  private boolean committed = false;
+
+  /**
+   * @param document
+   *          the loaded document or <code>null</code> if the file is handled by PlistBuddy.
+   */
+  PListEdit(PListAccessor accessor, PList document, boolean newPlist)
+  {
+    this.accessor = accessor;
+    this.document = document;
+    this.newPlist = newPlist;
+  }
+
+  /**
+   * @return the value as printed by PlistBuddy or <code>null</code> if there is no entry for <code>key</code>. Pending
+   *         mutations of this session are taken into account.
+   */
+  public String getStringValue(String key) throws IOException
+  {
+    if (document == null)
+      return newPlist ? null : accessor.getPlistBuddy().getStringValue(key);
+
+    final Object value = document.get(key);
+    return value == null ? null : PList.toPrintString(value);
+  }
+
+  public PListEdit addStringValue(String key, String value)
+  {
+    return apply(new Mutation(Mutation.Kind.ADD, key, "string", value));
+  }
+
+  /**
+   * Adds an entry of the given PlistBuddy type, e.g. <code>integer</code> or <code>dict</code>, with an empty value
+   * like PlistBuddy's <code>Add</code> command without a value does.
+   */
+  public PListEdit addElement(String key, String type)
+  {
+    return apply(new Mutation(Mutation.Kind.ADD, key, type, null));
+  }
+
+  public PListEdit addDict(String key)
+  {
+    return apply(new Mutation(Mutation.Kind.ADD, key, "dict", null));
+  }
+
+  public PListEdit addArray(String key)
+  {
+    return apply(new Mutation(Mutation.Kind.ADD, key, "array", null));
+  }
+
+  /**
+   * Sets the value of an existing entry. The value is converted to the type of the current value.
+   */
+  public PListEdit updateStringValue(String key, String value)
+  {
+    return apply(new Mutation(Mutation.Kind.SET, key, null, value));
+  }
+
+  public PListEdit remove(String key)
+  {
+    return apply(new Mutation(Mutation.Kind.DELETE, key, null, null));
+  }
+
+  List<Mutation> getMutations()
+  {
+    return Collections.unmodifiableList(mutations);
+  }
+
+  PListAccessor getAccessor()
+  {
+    return accessor;
+  }
+
+  /**
+   * Writes the plist as XML plist. A session can be committed only once.
+   */
+  public void commit() throws IOException
+  {
+    commit(PList.Format.XML);
+  }
+
+  /**
+   * Writes the plist in the given format. PlistBuddy supports only XML and binary plists.
+   */
+  void commit(PList.Format format) throws IOException
+  {
+    if (committed)
+      throw new IllegalStateException("Edit session for '" + accessor.getPlistFile() + "' has already been committed.");
+
+    committed = true;
+
+    try {
+      write(format);
+    }
+    finally {
+      PListValueCache.getInstance().invalidate(accessor.getPlistFile());
+    }
+  }
+
+  private void write(PList.Format format) throws IOException
+  {
+    if (document != null) {
+      document.write(accessor.getPlistFile(), format);
+      return;
+    }
+
+    final List<String> commands = new ArrayList<String>(mutations.size() + 1);
+
+    if (newPlist)
+      commands.add("Clear dict");
+
+    for (Mutation mutation : mutations)
+      commands.add(mutation.toPlistBuddyCommand());
+
+    accessor.getPlistBuddy().execute(commands, format != PList.Format.BINARY);
+  }
+
+  private PListEdit apply(Mutation mutation)
+  {
+    if (committed)
+      throw new IllegalStateException("Edit session for '" + accessor.getPlistFile() + "' has already been committed.");
+
+    if (document != null)
+      mutation.applyTo(document);
+
+    mutations.add(mutation);
+    return this;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the content of a plist file cannot be parsed or uses a feature the in-process plist engine does not
+ * support.
+ */
+class PListFormatException extends IOException
+{
+  private static final long serialVersionUID = 4725307813853961203L;
+
+  PListFormatException(String message)
+  {
+    super(message);
+  }
+
+  PListFormatException(String message, Throwable cause)
+  {
+    super(message, cause);
+  }
+}
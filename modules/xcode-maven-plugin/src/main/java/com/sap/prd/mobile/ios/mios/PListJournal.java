@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Collects changes of plist entries from several mojos and writes each affected plist exactly once when
+ * {@link #flush()} is called. Inside the <code>xcode-app</code> lifecycle the journal of a project is flushed by the
+ * <code>flush-plist-changes</code> goal right before <code>xcodebuild</code> is called.
+ * <p>
+ * Reads through the journal see the values that have been queued so far. Queuing a value for a key that differs from
+ * a value queued by another goal for the same key of the same file is reported as conflict.
+ */
+final class PListJournal
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  private static final String CONTEXT_KEY = PListJournal.class.getName();
+
+  /**
+   * A queued or written change of a single plist entry.
+   */
+  static final class Change
+  {
+    private final String key;
+
+    private final String value;
+
+    private final String origin;
+
+    private final String oldValue;
+
+    Change(String key, String value, String origin, String oldValue)
+    {
+      this.key = key;
+      this.value = value;
+      this.origin = origin;
+      this.oldValue = oldValue;
+    }
+
+    String getKey()
+    {
+      return key;
+    }
+
+    String getValue()
+    {
+      return value;
+    }
+
+    String getOrigin()
+    {
+      return origin;
+    }
+
+    /**
+     * @return the value in the file before the change has been written, <code>null</code> if the entry did not exist
+     *         or if the change has not been written yet.
+     */
+    String getOldValue()
+    {
+      return oldValue;
+    }
+
+    @Override
+    public String toString()
+    {
+      return key + ": " + (oldValue == null ? "<none>" : "'" + oldValue + "'") + " -> '" + value + "' (" + origin
+            + ")";
+    }
+  }
+
+  private final Map<File, Map<String, Change>> changes = new LinkedHashMap<File, Map<String, Change>>();
+
+  /**
+   * @return the journal of the project. The journal is created on first access and kept in the project context so
+   *         that it is shared by all goals executed for this project.
+   */
+  static synchronized PListJournal getJournal(MavenProject project)
+  {
+    PListJournal journal = (PListJournal) project.getContextValue(CONTEXT_KEY);
+
+    if (journal == null) {
+      journal = new PListJournal();
+      project.setContextValue(CONTEXT_KEY, journal);
+    }
+    return journal;
+  }
+
+  /**
+   * @return the queued value or the value contained in the file if there is no change queued for that key.
+   */
+  synchronized String getStringValue(File plist, String key) throws IOException
+  {
+    final Map<String, Change> pending = changes.get(canonical(plist));
+
+    if (pending != null && pending.containsKey(key))
+      return pending.get(key).getValue();
+
+    return new PListAccessor(plist).getStringValue(key);
+  }
+
+  /**
+   * Queues a new value for a string entry. The entry is created on {@link #flush()} if it does not exist.
+   * 
+   * @param origin
+   *          denotes the caller, typically the goal name. Used for conflict detection and for reporting.
+   * @throws XCodeException
+   *           if another origin has already queued a different value for that key.
+   */
+  synchronized void setStringValue(File plist, String key, String value, String origin) throws XCodeException
+  {
+    final File file = canonical(plist);
+    Map<String, Change> pending = changes.get(file);
+
+    if (pending == null) {
+      pending = new LinkedHashMap<String, Change>();
+      changes.put(file, pending);
+    }
+
+    final Change queued = pending.get(key);
+
+    if (queued != null && !queued.getOrigin().equals(origin) && !queued.getValue().equals(value))
+      throw new XCodeException("Conflicting changes of '" + key + "' in plist file '" + file + "': '"
+            + queued.getOrigin() + "' sets '" + queued.getValue() + "', '" + origin + "' sets '" + value + "'.");
+
+    pending.put(key, new Change(key, value, origin, null));
+  }
+
+  synchronized boolean isEmpty()
+  {
+    return changes.isEmpty();
+  }
+
+  /**
+   * Writes all queued changes. Each file is written at most once, entries that already contain the queued value are
+   * not touched. The journal is empty afterwards.
+   * 
+   * @return the changes that have been written, per file.
+   */
+  synchronized Map<File, List<Change>> flush() throws XCodeException
+  {
+    final Map<File, List<Change>> written = new LinkedHashMap<File, List<Change>>();
+
+    try {
+      for (Map.Entry<File, Map<String, Change>> e : changes.entrySet()) {
+
+        final List<Change> diff = write(e.getKey(), e.getValue().values());
+
+        if (diff.isEmpty()) {
+          LOGGER.info("PList file '" + e.getKey() + "' is already up-to-date.");
+          continue;
+        }
+
+        written.put(e.getKey(), diff);
+
+        final StringBuilder sb = new StringBuilder("PList file '").append(e.getKey()).append("' updated:");
+        for (Change change : diff)
+          sb.append(System.getProperty("line.separator")).append("  ").append(change);
+        LOGGER.info(sb.toString());
+      }
+    }
+    catch (IOException ex) {
+      throw new XCodeException("Cannot write plist changes: " + ex.getMessage(), ex);
+    }
+    finally {
+      changes.clear();
+    }
+
+    return Collections.unmodifiableMap(written);
+  }
+
+  private static List<Change> write(File plist, Iterable<Change> pending) throws IOException, XCodeException
+  {
+    final PListEdit edit = new PListAccessor(plist).edit();
+    final List<Change> diff = new ArrayList<Change>();
+
+    for (Change change : pending) {
+
+      final String oldValue = edit.getStringValue(change.getKey());
+
+      if (change.getValue().equals(oldValue))
+        continue;
+
+      if (oldValue == null)
+        edit.addStringValue(change.getKey(), change.getValue());
+      else
+        edit.updateStringValue(change.getKey(), change.getValue());
+
+      diff.add(new Change(change.getKey(), change.getValue(), change.getOrigin(), oldValue));
+    }
+
+    if (!diff.isEmpty()) {
+      ensureWritable(plist);
+      edit.commit();
+    }
+
+    return diff;
+  }
+
+  private static void ensureWritable(File plist) throws XCodeException
+  {
+    if (!plist.canWrite()) {
+      if (!plist.setWritable(true, true))
+        throw new XCodeException("Could not make plist file '" + plist + "' writable.");
+
+      LOGGER.info("Made PList file '" + plist + "' writable.");
+    }
+  }
+
+  private static File canonical(File file)
+  {
+    try {
+      return file.getCanonicalFile();
+    }
+    catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+}
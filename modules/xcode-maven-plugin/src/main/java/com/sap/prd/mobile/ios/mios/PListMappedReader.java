@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only access to single entries of plist files without building the whole object tree. Binary plists are
+ * memory mapped and only the objects on the requested key path are decoded. For provisioning profiles
+ * (<code>embedded.mobileprovision</code>, a signed CMS message) the embedded XML plist is located inside the mapped
+ * file and only this part is parsed.
+ */
+final class PListMappedReader
+{
+  /**
+   * Smaller files are read into the heap since mapping them is more expensive than reading them.
+   */
+  static final int MAP_THRESHOLD = 16 * 1024;
+
+  static final int HEADER_SIZE = 64;
+
+  private static final byte[] XML_START = new byte[] { '<', '?', 'x', 'm', 'l' };
+
+  private static final byte[] PLIST_END = new byte[] { '<', '/', 'p', 'l', 'i', 's', 't', '>' };
+
+  /**
+   * DER encoded CMS messages start with a SEQUENCE tag.
+   */
+  private static final byte DER_SEQUENCE = 0x30;
+
+  private PListMappedReader()
+  {
+  }
+
+  /**
+   * @return up to the first {@value #HEADER_SIZE} bytes of the file.
+   */
+  static byte[] readHeader(File file) throws IOException
+  {
+    final byte[] header = new byte[(int) Math.min(file.length(), HEADER_SIZE)];
+    RandomAccessFile raf = null;
+
+    try {
+      raf = new RandomAccessFile(file, "r");
+      raf.readFully(header);
+      return header;
+    }
+    finally {
+      closeQuietly(raf);
+    }
+  }
+
+  /**
+   * @param header
+   *          the first bytes of a file, see {@link #readHeader(File)}.
+   * @return <code>true</code> if the file is a binary plist or a provisioning profile, i.e. a file that can be handled
+   *         by {@link #getValue(File, String)}.
+   */
+  static boolean isSupported(byte[] header)
+  {
+    return header.length > 0
+          && (header[0] == DER_SEQUENCE || startsWith(ByteBuffer.wrap(header), 0, PListBinaryParser.MAGIC));
+  }
+
+  /**
+   * @return the value denoted by the PlistBuddy key path or <code>null</code> if there is no such entry.
+   */
+  static Object getValue(File file, String keyPath) throws IOException
+  {
+    final ByteBuffer content = map(file);
+
+    if (startsWith(content, 0, PListBinaryParser.MAGIC))
+      return new PListBinaryParser(content).get(keyPath);
+
+    if (content.limit() > 0 && content.get(0) == DER_SEQUENCE)
+      return new PList(new PListXmlParser().parse(getEmbeddedXmlPlist(content)), PList.Format.XML).get(keyPath);
+
+    return PList.parse(toByteArray(content, 0, content.limit())).get(keyPath);
+  }
+
+  /**
+   * @return the XML plist contained in a CMS message like a provisioning profile.
+   */
+  static byte[] getEmbeddedXmlPlist(ByteBuffer content) throws PListFormatException
+  {
+    final int start = indexOf(content, XML_START, 0);
+    final int end = start == -1 ? -1 : indexOf(content, PLIST_END, start);
+
+    if (end == -1)
+      throw new PListFormatException("No embedded XML plist found.");
+
+    return toByteArray(content, start, end + PLIST_END.length);
+  }
+
+  static ByteBuffer map(File file) throws IOException
+  {
+    if (!file.exists())
+      throw new FileNotFoundException("The Plist " + file.getAbsolutePath() + " does not exist.");
+
+    if (file.length() < MAP_THRESHOLD)
+      return ByteBuffer.wrap(org.apache.commons.io.FileUtils.readFileToByteArray(file));
+
+    RandomAccessFile raf = null;
+
+    try {
+      raf = new RandomAccessFile(file, "r");
+      return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+    }
+    finally {
+      // the mapping stays valid after the channel has been closed.
+      closeQuietly(raf);
+    }
+  }
+
+  private static void closeQuietly(RandomAccessFile raf)
+  {
+    try {
+      if (raf != null)
+        raf.close();
+    }
+    catch (IOException e) {
+      // ignore
+    }
+  }
+
+  private static boolean startsWith(ByteBuffer content, int offset, byte[] prefix)
+  {
+    if (content.limit() - offset < prefix.length)
+      return false;
+
+    for (int i = 0; i < prefix.length; i++)
+      if (content.get(offset + i) != prefix[i])
+        return false;
+
+    return true;
+  }
+
+  private static int indexOf(ByteBuffer content, byte[] pattern, int from)
+  {
+    for (int i = from, last = content.limit() - pattern.length; i <= last; i++)
+      if (content.get(i) == pattern[0] && startsWith(content, i, pattern))
+        return i;
+
+    return -1;
+  }
+
+  private static byte[] toByteArray(ByteBuffer content, int start, int end)
+  {
+    final byte[] bytes = new byte[end - start];
+    final ByteBuffer buffer = content.duplicate();
+    buffer.position(start);
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,362 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses OpenStep (old style ASCII) plists as used e.g. by <code>project.pbxproj</code> files and strings files.
+ * OpenStep plists know only strings, data, arrays and dicts, all scalar values are returned as strings. A file
+ * containing only <code>key = value;</code> pairs without enclosing braces is parsed as a dict.
+ */
+class PListOpenStepParser
+{
+  private final String text;
+
+  private int pos;
+
+  PListOpenStepParser(byte[] content)
+  {
+    this(decode(content));
+  }
+
+  PListOpenStepParser(String text)
+  {
+    this.text = text;
+  }
+
+  private static String decode(byte[] content)
+  {
+    try {
+      final int offset = content.length >= 3 && content[0] == (byte) 0xEF && content[1] == (byte) 0xBB
+            && content[2] == (byte) 0xBF ? 3 : 0;
+      return new String(content, offset, content.length - offset, "UTF-8");
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  Object parse() throws PListFormatException
+  {
+    pos = 0;
+    skipWhitespaceAndComments();
+
+    if (pos >= text.length())
+      return new LinkedHashMap<String, Object>();
+
+    final Object result;
+
+    if (isStringsFile()) {
+      result = readDictEntries(-1);
+    }
+    else {
+      result = readValue();
+      skipWhitespaceAndComments();
+    }
+
+    if (pos < text.length())
+      throw error("Unexpected content after the root object");
+
+    return result;
+  }
+
+  private boolean isStringsFile() throws PListFormatException
+  {
+    final char c = text.charAt(pos);
+
+    if (c == '{' || c == '(' || c == '<')
+      return false;
+
+    final int start = pos;
+    try {
+      readString();
+      skipWhitespaceAndComments();
+      return pos < text.length() && text.charAt(pos) == '=';
+    }
+    finally {
+      pos = start;
+    }
+  }
+
+  private Object readValue() throws PListFormatException
+  {
+    if (pos >= text.length())
+      throw error("Unexpected end of plist");
+
+    final char c = text.charAt(pos);
+
+    if (c == '{') {
+      pos++;
+      return readDictEntries('}');
+    }
+    if (c == '(') {
+      pos++;
+      return readArray();
+    }
+    if (c == '<') {
+      pos++;
+      return readData();
+    }
+    return readString();
+  }
+
+  /**
+   * @param terminator
+   *          the closing character or -1 if the dict ends at the end of the text.
+   */
+  private Map<String, Object> readDictEntries(int terminator) throws PListFormatException
+  {
+    final Map<String, Object> dict = new LinkedHashMap<String, Object>();
+
+    while (true) {
+
+      skipWhitespaceAndComments();
+
+      if (pos >= text.length()) {
+        if (terminator == -1)
+          return dict;
+        throw error("Unterminated dict");
+      }
+
+      if (text.charAt(pos) == terminator) {
+        pos++;
+        return dict;
+      }
+
+      final String key = readString();
+      skipWhitespaceAndComments();
+      expect('=');
+      skipWhitespaceAndComments();
+      final Object value = readValue();
+      skipWhitespaceAndComments();
+      expect(';');
+
+      dict.put(key, value);
+    }
+  }
+
+  private List<Object> readArray() throws PListFormatException
+  {
+    final List<Object> array = new ArrayList<Object>();
+
+    while (true) {
+
+      skipWhitespaceAndComments();
+
+      if (pos >= text.length())
+        throw error("Unterminated array");
+
+      if (text.charAt(pos) == ')') {
+        pos++;
+        return array;
+      }
+
+      array.add(readValue());
+      skipWhitespaceAndComments();
+
+      if (pos < text.length() && text.charAt(pos) == ',') {
+        pos++;
+      }
+      else if (pos >= text.length() || text.charAt(pos) != ')') {
+        throw error("Expected ',' or ')' in array");
+      }
+    }
+  }
+
+  private byte[] readData() throws PListFormatException
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int high = -1;
+
+    while (true) {
+
+      if (pos >= text.length())
+        throw error("Unterminated data");
+
+      final char c = text.charAt(pos++);
+
+      if (c == '>') {
+        if (high != -1)
+          throw error("Odd number of hex digits in data");
+        return bytes.toByteArray();
+      }
+
+      if (Character.isWhitespace(c))
+        continue;
+
+      final int digit = Character.digit(c, 16);
+
+      if (digit < 0)
+        throw error("Invalid character '" + c + "' in data");
+
+      if (high == -1) {
+        high = digit;
+      }
+      else {
+        bytes.write((high << 4) | digit);
+        high = -1;
+      }
+    }
+  }
+
+  private String readString() throws PListFormatException
+  {
+    if (pos >= text.length())
+      throw error("Unexpected end of plist");
+
+    final char c = text.charAt(pos);
+
+    if (c == '"' || c == '\'') {
+      pos++;
+      return readQuotedString(c);
+    }
+
+    final int start = pos;
+
+    while (pos < text.length() && isUnquotedStringCharacter(text.charAt(pos)))
+      pos++;
+
+    if (start == pos)
+      throw error("Unexpected character '" + c + "'");
+
+    return text.substring(start, pos);
+  }
+
+  static boolean isUnquotedStringCharacter(char c)
+  {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '$'
+          || c == '/' || c == ':' || c == '.' || c == '-';
+  }
+
+  private String readQuotedString(char quote) throws PListFormatException
+  {
+    final StringBuilder sb = new StringBuilder();
+
+    while (true) {
+
+      if (pos >= text.length())
+        throw error("Unterminated string");
+
+      final char c = text.charAt(pos++);
+
+      if (c == quote)
+        return sb.toString();
+
+      if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+
+      if (pos >= text.length())
+        throw error("Unterminated string");
+
+      final char escaped = text.charAt(pos++);
+
+      switch (escaped) {
+      case 'a':
+        sb.append('\u0007');
+        break;
+      case 'b':
+        sb.append('\b');
+        break;
+      case 'f':
+        sb.append('\f');
+        break;
+      case 'n':
+        sb.append('\n');
+        break;
+      case 'r':
+        sb.append('\r');
+        break;
+      case 't':
+        sb.append('\t');
+        break;
+      case 'v':
+        sb.append('\u000B');
+        break;
+      case 'U':
+      case 'u':
+        sb.append((char) readDigits(16, 4));
+        break;
+      default:
+        if (escaped >= '0' && escaped <= '7') {
+          pos--;
+          sb.append((char) readDigits(8, 3));
+        }
+        else {
+          sb.append(escaped);
+        }
+      }
+    }
+  }
+
+  private int readDigits(int radix, int maxDigits)
+  {
+    int value = 0;
+    for (int i = 0; i < maxDigits && pos < text.length() && Character.digit(text.charAt(pos), radix) >= 0; i++)
+      value = value * radix + Character.digit(text.charAt(pos++), radix);
+    return value;
+  }
+
+  private void skipWhitespaceAndComments()
+  {
+    while (pos < text.length()) {
+
+      final char c = text.charAt(pos);
+
+      if (Character.isWhitespace(c)) {
+        pos++;
+      }
+      else if (text.startsWith("//", pos)) {
+        final int end = text.indexOf('\n', pos);
+        pos = end == -1 ? text.length() : end + 1;
+      }
+      else if (text.startsWith("/*", pos)) {
+        final int end = text.indexOf("*/", pos + 2);
+        pos = end == -1 ? text.length() : end + 2;
+      }
+      else {
+        return;
+      }
+    }
+  }
+
+  private void expect(char c) throws PListFormatException
+  {
+    if (pos >= text.length() || text.charAt(pos) != c)
+      throw error("Expected '" + c + "'");
+    pos++;
+  }
+
+  private PListFormatException error(String message)
+  {
+    int line = 1;
+    for (int i = 0; i < pos && i < text.length(); i++)
+      if (text.charAt(i) == '\n')
+        line++;
+    return new PListFormatException(message + " in line " + line + ".");
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes OpenStep plists. Since the OpenStep format knows only strings, data, arrays and dicts, numbers, booleans and
+ * dates are written as strings. Dictionary entries keep their order.
+ */
+class PListOpenStepWriter
+{
+  byte[] write(Object root)
+  {
+    final StringBuilder sb = new StringBuilder();
+    append(sb, root, 0);
+    sb.append('\n');
+
+    try {
+      return sb.toString().getBytes("UTF-8");
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void append(StringBuilder sb, Object value, int indent)
+  {
+    if (value instanceof Map) {
+      sb.append("{\n");
+      for (Map.Entry<String, Object> entry : PList.asDict(value).entrySet()) {
+        appendIndents(sb, indent + 1);
+        appendString(sb, entry.getKey());
+        sb.append(" = ");
+        append(sb, entry.getValue(), indent + 1);
+        sb.append(";\n");
+      }
+      appendIndents(sb, indent).append('}');
+    }
+    else if (value instanceof List) {
+      sb.append("(\n");
+      for (Object element : PList.asArray(value)) {
+        appendIndents(sb, indent + 1);
+        append(sb, element, indent + 1);
+        sb.append(",\n");
+      }
+      appendIndents(sb, indent).append(')');
+    }
+    else if (value instanceof byte[]) {
+      final byte[] data = (byte[]) value;
+      sb.append('<');
+      for (int i = 0; i < data.length; i++) {
+        if (i > 0 && i % 4 == 0)
+          sb.append(' ');
+        sb.append(Character.forDigit((data[i] >> 4) & 0x0F, 16)).append(Character.forDigit(data[i] & 0x0F, 16));
+      }
+      sb.append('>');
+    }
+    else if (value instanceof Boolean) {
+      sb.append(((Boolean) value).booleanValue() ? "YES" : "NO");
+    }
+    else if (value instanceof Double) {
+      appendString(sb, PListXmlWriter.formatReal(((Double) value).doubleValue()));
+    }
+    else if (value instanceof Date) {
+      appendString(sb, PList.newIso8601DateFormat().format((Date) value));
+    }
+    else {
+      appendString(sb, String.valueOf(value));
+    }
+  }
+
+  private static StringBuilder appendIndents(StringBuilder sb, int indent)
+  {
+    for (int i = 0; i < indent; i++)
+      sb.append('\t');
+    return sb;
+  }
+
+  private static void appendString(StringBuilder sb, String value)
+  {
+    boolean quote = value.length() == 0;
+
+    for (int i = 0; i < value.length() && !quote; i++)
+      quote = !PListOpenStepParser.isUnquotedStringCharacter(value.charAt(i));
+
+    if (!quote) {
+      sb.append(value);
+      return;
+    }
+
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      case '\t':
+        sb.append("\\t");
+        break;
+      case '\r':
+        sb.append("\\r");
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+}
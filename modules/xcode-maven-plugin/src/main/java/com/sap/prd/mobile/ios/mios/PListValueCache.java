@@ -0,0 +1,198 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches values read by {@link PListAccessor#getStringValue(String)}. The cache lives as long as the plugin class
+ * realm, i.e. it is shared by all mojos of all modules of a reactor build.
+ * <p>
+ * Entries are keyed by the canonical path of the plist file and are valid only as long as the size and the last
+ * modification time of the file do not change. {@link PListAccessor} invalidates the entries of a file whenever it
+ * writes to that file.
+ */
+final class PListValueCache
+{
+  static final int MAX_FILES = 256;
+
+  private static final PListValueCache INSTANCE = new PListValueCache();
+
+  /**
+   * Cached marker for keys that are not contained in the plist.
+   */
+  private static final String MISSING = new String("<missing>");
+
+  private static final class Entry
+  {
+    final long size;
+
+    final long lastModified;
+
+    final Map<String, String> values = new HashMap<String, String>();
+
+    Entry(long size, long lastModified)
+    {
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+  }
+
+  private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = -3296183473066812364L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+    {
+      return size() > MAX_FILES;
+    }
+  };
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  static PListValueCache getInstance()
+  {
+    return INSTANCE;
+  }
+
+  /**
+   * Result of a cache lookup. Remembers the state of the file at lookup time, so that a value read afterwards is not
+   * associated with a newer version of the file.
+   */
+  static final class Lookup
+  {
+    private final String path;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final boolean cached;
+
+    private final String value;
+
+    Lookup(String path, long size, long lastModified, boolean cached, String value)
+    {
+      this.path = path;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.cached = cached;
+      this.value = value;
+    }
+
+    boolean isCached()
+    {
+      return cached;
+    }
+
+    /**
+     * @return the cached value, <code>null</code> if the plist does not contain the key.
+     */
+    String getValue()
+    {
+      return value;
+    }
+  }
+
+  Lookup get(File plist, String key)
+  {
+    final String path = FileUtils.getCanonicalPath(plist);
+    final long size = plist.length();
+    final long lastModified = plist.lastModified();
+
+    synchronized (entries) {
+
+      final Entry entry = entries.get(path);
+
+      if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+        final String value = entry.values.get(key);
+        if (value != null) {
+          hits.incrementAndGet();
+          return new Lookup(path, size, lastModified, true, value == MISSING ? null : value);
+        }
+      }
+    }
+
+    misses.incrementAndGet();
+    return new Lookup(path, size, lastModified, false, null);
+  }
+
+  /**
+   * @param lookup
+   *          the lookup that preceded reading the value from the file.
+   * @param value
+   *          the value read from the file, <code>null</code> if the file does not contain the key.
+   */
+  void put(Lookup lookup, String key, String value)
+  {
+    synchronized (entries) {
+
+      Entry entry = entries.get(lookup.path);
+
+      if (entry == null || entry.size != lookup.size || entry.lastModified != lookup.lastModified) {
+        entry = new Entry(lookup.size, lookup.lastModified);
+        entries.put(lookup.path, entry);
+      }
+
+      entry.values.put(key, value == null ? MISSING : value);
+    }
+  }
+
+  void invalidate(File plist)
+  {
+    final String path = FileUtils.getCanonicalPath(plist);
+
+    synchronized (entries) {
+      entries.remove(path);
+    }
+  }
+
+  void clear()
+  {
+    synchronized (entries) {
+      entries.clear();
+    }
+    hits.set(0);
+    misses.set(0);
+  }
+
+  long getHits()
+  {
+    return hits.get();
+  }
+
+  long getMisses()
+  {
+    return misses.get();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PList value cache: " + getHits() + " hits, " + getMisses() + " misses";
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Looks up single entries of XML plists by streaming through the document. Values that are not on the requested key
+ * path are skipped without being decoded, keys are compared on the character buffer of the parser and reading stops
+ * as soon as the entry has been found.
+ */
+final class PListXmlKeyReader
+{
+  /**
+   * Most Info.plist files fit into a buffer of this size.
+   */
+  static final int BUFFER_SIZE = 8 * 1024;
+
+  private PListXmlKeyReader()
+  {
+  }
+
+  /**
+   * @return the value denoted by the PlistBuddy key path or <code>null</code> if there is no such entry.
+   */
+  static Object getValue(File plist, String keyPath) throws IOException
+  {
+    final InputStream is = new BufferedInputStream(new FileInputStream(plist), (int) Math.max(1,
+          Math.min(plist.length(), BUFFER_SIZE)));
+
+    try {
+      return getValue(is, keyPath);
+    }
+    catch (PListFormatException e) {
+      throw new PListFormatException("Cannot parse plist '" + plist + "': " + e.getMessage(), e);
+    }
+    finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  static Object getValue(InputStream is, String keyPath) throws PListFormatException
+  {
+    try {
+      final XMLStreamReader reader = PListXmlParser.createReader(is);
+
+      try {
+        if (PListXmlParser.nextTag(reader) != XMLStreamConstants.START_ELEMENT)
+          return null;
+
+        if ("plist".equals(reader.getLocalName()) && PListXmlParser.nextTag(reader) != XMLStreamConstants.START_ELEMENT)
+          return null;
+
+        for (String component : PList.splitKeyPath(keyPath)) {
+          if (!moveToChild(reader, component))
+            return null;
+        }
+
+        return PListXmlParser.readValue(reader);
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException e) {
+      throw new PListFormatException("Invalid XML plist: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Moves the reader from the start element of a container to the start element of the child value.
+   * 
+   * @return <code>false</code> if the container does not have such a child.
+   */
+  private static boolean moveToChild(XMLStreamReader reader, String name) throws XMLStreamException
+  {
+    final String container = reader.getLocalName();
+
+    if ("dict".equals(container)) {
+
+      while (PListXmlParser.nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+
+        if (!"key".equals(reader.getLocalName()))
+          throw new XMLStreamException("Expected <key> inside <dict> but found <" + reader.getLocalName() + ">.",
+                reader.getLocation());
+
+        final boolean matches = isKey(reader, name);
+
+        if (PListXmlParser.nextTag(reader) != XMLStreamConstants.START_ELEMENT)
+          throw new XMLStreamException("Missing value for a key.", reader.getLocation());
+
+        if (matches)
+          return true;
+
+        skipElement(reader);
+      }
+      return false;
+    }
+
+    if ("array".equals(container)) {
+
+      final int index = parseIndex(name);
+
+      for (int i = 0; PListXmlParser.nextTag(reader) == XMLStreamConstants.START_ELEMENT; i++) {
+        if (i == index)
+          return true;
+        skipElement(reader);
+      }
+      return false;
+    }
+
+    return false;
+  }
+
+  /**
+   * Compares the content of the current <code>key</code> element with <code>name</code> and moves the reader to the
+   * end element.
+   */
+  private static boolean isKey(XMLStreamReader reader, String name) throws XMLStreamException
+  {
+    int position = 0;
+    boolean matches = true;
+
+    for (int event = reader.next(); event != XMLStreamConstants.END_ELEMENT; event = reader.next()) {
+
+      if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+            || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+
+        if (!matches)
+          continue;
+
+        final int length = reader.getTextLength();
+
+        if (position + length > name.length()) {
+          matches = false;
+          continue;
+        }
+
+        final char[] text = reader.getTextCharacters();
+        final int start = reader.getTextStart();
+
+        for (int i = 0; i < length && matches; i++)
+          matches = text[start + i] == name.charAt(position + i);
+
+        position += length;
+      }
+      else if (event != XMLStreamConstants.COMMENT && event != XMLStreamConstants.PROCESSING_INSTRUCTION) {
+        throw new XMLStreamException("Unexpected content inside <key>.", reader.getLocation());
+      }
+    }
+
+    return matches && position == name.length();
+  }
+
+  /**
+   * Skips the current element including all children without decoding text.
+   */
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException
+  {
+    for (int depth = 1; depth > 0;) {
+      final int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT)
+        depth++;
+      else if (event == XMLStreamConstants.END_ELEMENT)
+        depth--;
+      else if (event == XMLStreamConstants.END_DOCUMENT)
+        throw new XMLStreamException("Unexpected end of document.", reader.getLocation());
+    }
+  }
+
+  private static int parseIndex(String name)
+  {
+    try {
+      return Integer.parseInt(name);
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses XML plists. The document type declaration is not evaluated, hence no network access happens while parsing.
+ */
+class PListXmlParser
+{
+  private static final XMLInputFactory FACTORY = createFactory();
+
+  private static XMLInputFactory createFactory()
+  {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    return factory;
+  }
+
+  static XMLStreamReader createReader(byte[] content) throws XMLStreamException
+  {
+    return createReader(new ByteArrayInputStream(content));
+  }
+
+  static XMLStreamReader createReader(InputStream is) throws XMLStreamException
+  {
+    synchronized (FACTORY) {
+      return FACTORY.createXMLStreamReader(is);
+    }
+  }
+
+  Object parse(byte[] content) throws PListFormatException
+  {
+    try {
+      final XMLStreamReader reader = createReader(content);
+
+      try {
+        nextTag(reader);
+
+        if ("plist".equals(reader.getLocalName())) {
+
+          if (nextTag(reader) == XMLStreamConstants.END_ELEMENT)
+            throw new PListFormatException("Empty plist.");
+
+          final Object root = readValue(reader);
+          nextTag(reader);
+          return root;
+        }
+
+        return readValue(reader);
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException e) {
+      throw new PListFormatException("Invalid XML plist: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Like {@link XMLStreamReader#nextTag()}, but skips the document type declaration as well.
+   */
+  static int nextTag(XMLStreamReader reader) throws XMLStreamException
+  {
+    while (true) {
+      final int event = reader.next();
+      switch (event) {
+      case XMLStreamConstants.START_ELEMENT:
+      case XMLStreamConstants.END_ELEMENT:
+        return event;
+      case XMLStreamConstants.DTD:
+      case XMLStreamConstants.COMMENT:
+      case XMLStreamConstants.PROCESSING_INSTRUCTION:
+      case XMLStreamConstants.SPACE:
+        break;
+      case XMLStreamConstants.CHARACTERS:
+        if (!reader.isWhiteSpace())
+          throw new XMLStreamException("Unexpected text '" + reader.getText().trim() + "'.", reader.getLocation());
+        break;
+      default:
+        throw new XMLStreamException("Unexpected end of document.", reader.getLocation());
+      }
+    }
+  }
+
+  /**
+   * Reads the value starting at the current start element. Afterwards the reader is positioned at the corresponding
+   * end element.
+   */
+  static Object readValue(XMLStreamReader reader) throws XMLStreamException, PListFormatException
+  {
+    final String name = reader.getLocalName();
+
+    if ("dict".equals(name)) {
+
+      final Map<String, Object> dict = new LinkedHashMap<String, Object>();
+
+      while (nextTag(reader) == XMLStreamConstants.START_ELEMENT) {
+
+        if (!"key".equals(reader.getLocalName()))
+          throw new PListFormatException("Expected <key> inside <dict> but found <" + reader.getLocalName() + ">.");
+
+        final String key = reader.getElementText();
+
+        if (nextTag(reader) != XMLStreamConstants.START_ELEMENT)
+          throw new PListFormatException("Missing value for key '" + key + "'.");
+
+        dict.put(key, readValue(reader));
+      }
+      return dict;
+    }
+
+    if ("array".equals(name)) {
+
+      final List<Object> array = new ArrayList<Object>();
+
+      while (nextTag(reader) == XMLStreamConstants.START_ELEMENT)
+        array.add(readValue(reader));
+
+      return array;
+    }
+
+    if ("true".equals(name) || "false".equals(name)) {
+      nextTag(reader);
+      return Boolean.valueOf("true".equals(name));
+    }
+
+    final String text = reader.getElementText();
+
+    if ("string".equals(name))
+      return text;
+
+    if ("integer".equals(name))
+      return parseInteger(text.trim());
+
+    if ("real".equals(name))
+      return parseReal(text.trim());
+
+    if ("date".equals(name)) {
+      try {
+        return PList.newIso8601DateFormat().parse(text.trim());
+      }
+      catch (ParseException e) {
+        throw new PListFormatException("Invalid date: '" + text + "'.", e);
+      }
+    }
+
+    if ("data".equals(name))
+      return decodeBase64(text);
+
+    throw new PListFormatException("Unknown plist element <" + name + ">.");
+  }
+
+  private static Object parseInteger(String text) throws PListFormatException
+  {
+    try {
+
+      if (text.startsWith("0x") || text.startsWith("0X"))
+        return Long.valueOf(Long.parseLong(text.substring(2), 16));
+
+      final BigInteger value = new BigInteger(text.startsWith("+") ? text.substring(1) : text);
+
+      return value.bitLength() < 64 ? (Object) Long.valueOf(value.longValue()) : value;
+    }
+    catch (NumberFormatException e) {
+      throw new PListFormatException("Invalid integer: '" + text + "'.", e);
+    }
+  }
+
+  private static Double parseReal(String text) throws PListFormatException
+  {
+    final String lowerCase = text.toLowerCase();
+
+    if (lowerCase.equals("nan"))
+      return Double.NaN;
+    if (lowerCase.equals("inf") || lowerCase.equals("infinity") || lowerCase.equals("+inf")
+          || lowerCase.equals("+infinity"))
+      return Double.POSITIVE_INFINITY;
+    if (lowerCase.equals("-inf") || lowerCase.equals("-infinity"))
+      return Double.NEGATIVE_INFINITY;
+
+    try {
+      return Double.valueOf(text);
+    }
+    catch (NumberFormatException e) {
+      throw new PListFormatException("Invalid real: '" + text + "'.", e);
+    }
+  }
+
+  static byte[] decodeBase64(String text) throws PListFormatException
+  {
+    final byte[] result = new byte[text.length() * 3 / 4 + 3];
+    int length = 0, buffer = 0, bits = 0;
+
+    for (int i = 0; i < text.length(); i++) {
+
+      final char c = text.charAt(i);
+      final int value;
+
+      if (c >= 'A' && c <= 'Z')
+        value = c - 'A';
+      else if (c >= 'a' && c <= 'z')
+        value = c - 'a' + 26;
+      else if (c >= '0' && c <= '9')
+        value = c - '0' + 52;
+      else if (c == '+')
+        value = 62;
+      else if (c == '/')
+        value = 63;
+      else if (c == '=')
+        break;
+      else if (Character.isWhitespace(c))
+        continue;
+      else
+        throw new PListFormatException("Invalid character '" + c + "' inside <data>.");
+
+      buffer = ((buffer << 6) | value) & 0xFFFFFF;
+      bits += 6;
+
+      if (bits >= 8) {
+        bits -= 8;
+        result[length++] = (byte) (buffer >> bits);
+      }
+    }
+
+    final byte[] data = new byte[length];
+    System.arraycopy(result, 0, data, 0, length);
+    return data;
+  }
+}
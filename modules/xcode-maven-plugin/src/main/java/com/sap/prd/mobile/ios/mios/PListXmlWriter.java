@@ -0,0 +1,227 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes XML plists byte for byte the way CoreFoundation (and therefore PlistBuddy and Xcode) does: tab indentation,
+ * dictionary keys sorted, empty containers as <code>&lt;dict/&gt;</code> and <code>&lt;array/&gt;</code>, reals
+ * formatted like <code>%.17g</code> and data wrapped into indented base64 lines.
+ */
+class PListXmlWriter
+{
+  static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n"
+        + "<plist version=\"1.0\">\n";
+
+  static final String FOOTER = "</plist>\n";
+
+  private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+    .toCharArray();
+
+  private final SimpleDateFormat dateFormat = PList.newIso8601DateFormat();
+
+  byte[] write(Object root)
+  {
+    final StringBuilder sb = new StringBuilder(HEADER);
+    append(sb, root, 0);
+    sb.append(FOOTER);
+
+    try {
+      return sb.toString().getBytes("UTF-8");
+    }
+    catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private void append(StringBuilder sb, Object value, int indent)
+  {
+    if (value instanceof String) {
+      appendIndents(sb, indent).append("<string>");
+      appendEscaped(sb, (String) value).append("</string>\n");
+    }
+    else if (value instanceof Map) {
+
+      final Map<String, Object> dict = PList.asDict(value);
+
+      if (dict.isEmpty()) {
+        appendIndents(sb, indent).append("<dict/>\n");
+        return;
+      }
+
+      final List<String> keys = new ArrayList<String>(dict.keySet());
+      Collections.sort(keys);
+
+      appendIndents(sb, indent).append("<dict>\n");
+      for (String key : keys) {
+        appendIndents(sb, indent + 1).append("<key>");
+        appendEscaped(sb, key).append("</key>\n");
+        append(sb, dict.get(key), indent + 1);
+      }
+      appendIndents(sb, indent).append("</dict>\n");
+    }
+    else if (value instanceof List) {
+
+      final List<Object> array = PList.asArray(value);
+
+      if (array.isEmpty()) {
+        appendIndents(sb, indent).append("<array/>\n");
+        return;
+      }
+
+      appendIndents(sb, indent).append("<array>\n");
+      for (Object element : array)
+        append(sb, element, indent + 1);
+      appendIndents(sb, indent).append("</array>\n");
+    }
+    else if (value instanceof Boolean) {
+      appendIndents(sb, indent).append(((Boolean) value).booleanValue() ? "<true/>\n" : "<false/>\n");
+    }
+    else if (value instanceof Long || value instanceof BigInteger) {
+      appendIndents(sb, indent).append("<integer>").append(value).append("</integer>\n");
+    }
+    else if (value instanceof Double) {
+      appendIndents(sb, indent).append("<real>").append(formatReal(((Double) value).doubleValue()))
+        .append("</real>\n");
+    }
+    else if (value instanceof Date) {
+      appendIndents(sb, indent).append("<date>").append(dateFormat.format((Date) value)).append("</date>\n");
+    }
+    else if (value instanceof byte[]) {
+      appendIndents(sb, indent).append("<data>\n");
+      appendBase64(sb, (byte[]) value, indent);
+      appendIndents(sb, indent).append("</data>\n");
+    }
+    else {
+      throw new IllegalArgumentException("Unsupported plist value: " + value);
+    }
+  }
+
+  private static StringBuilder appendIndents(StringBuilder sb, int indent)
+  {
+    for (int i = 0; i < indent; i++)
+      sb.append('\t');
+    return sb;
+  }
+
+  private static StringBuilder appendEscaped(StringBuilder sb, String value)
+  {
+    for (int i = 0, length = value.length(); i < length; i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+      case '<':
+        sb.append("&lt;");
+        break;
+      case '>':
+        sb.append("&gt;");
+        break;
+      case '&':
+        sb.append("&amp;");
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+    return sb;
+  }
+
+  /**
+   * CoreFoundation caps the indentation of data lines at eight tabs and fills each line up to 76 columns, counting a
+   * tab as eight columns.
+   */
+  private static void appendBase64(StringBuilder sb, byte[] data, int indent)
+  {
+    final int lineIndent = Math.min(indent, 8);
+    final int maxLineLength = 76 - lineIndent * 8;
+
+    final String encoded = encodeBase64(data);
+
+    for (int offset = 0; offset < encoded.length(); offset += maxLineLength) {
+      appendIndents(sb, lineIndent);
+      sb.append(encoded, offset, Math.min(offset + maxLineLength, encoded.length())).append('\n');
+    }
+  }
+
+  static String encodeBase64(byte[] data)
+  {
+    final StringBuilder sb = new StringBuilder((data.length + 2) / 3 * 4);
+
+    for (int i = 0; i < data.length; i += 3) {
+
+      final int remaining = data.length - i;
+      final int b = ((data[i] & 0xFF) << 16) | (remaining > 1 ? (data[i + 1] & 0xFF) << 8 : 0)
+            | (remaining > 2 ? data[i + 2] & 0xFF : 0);
+
+      sb.append(BASE64[(b >> 18) & 0x3F]).append(BASE64[(b >> 12) & 0x3F]);
+      sb.append(remaining > 1 ? BASE64[(b >> 6) & 0x3F] : '=');
+      sb.append(remaining > 2 ? BASE64[b & 0x3F] : '=');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Formats a double like the C format <code>%.17g</code> which is used by CoreFoundation.
+   */
+  static String formatReal(double value)
+  {
+    if (Double.isNaN(value))
+      return "nan";
+    if (Double.isInfinite(value))
+      return value > 0 ? "+infinity" : "-infinity";
+    if (value == 0)
+      return (1 / value) < 0 ? "-0" : "0";
+
+    final BigDecimal rounded = new BigDecimal(value).round(new MathContext(17, RoundingMode.HALF_EVEN));
+    final int exponent = rounded.precision() - rounded.scale() - 1;
+
+    if (exponent >= -4 && exponent < 17)
+      return rounded.stripTrailingZeros().toPlainString();
+
+    final String digits = rounded.unscaledValue().abs().toString().replaceFirst("0+$", "");
+    final StringBuilder sb = new StringBuilder();
+
+    if (rounded.signum() < 0)
+      sb.append('-');
+
+    sb.append(digits.charAt(0));
+    if (digits.length() > 1)
+      sb.append('.').append(digits, 1, digits.length());
+
+    sb.append(exponent < 0 ? "e-" : "e+");
+    final int absExponent = Math.abs(exponent);
+    if (absExponent < 10)
+      sb.append('0');
+    sb.append(absExponent);
+
+    return sb.toString();
+  }
+}
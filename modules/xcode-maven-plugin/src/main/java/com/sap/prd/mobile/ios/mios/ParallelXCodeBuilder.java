@@ -0,0 +1,370 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Executes several <code>xcodebuild</code> calls, e.g. one per configuration and sdk, in parallel.
+ * <p>
+ * Each call gets its own output directory that is used for <code>SYMROOT</code>, <code>OBJROOT</code>,
+ * <code>DSTROOT</code> and <code>SHARED_PRECOMPS_DIR</code> unless they point to another directory already. So the
+ * calls cannot interfere, neither with their products nor with their intermediate files. The output directories
+ * have the same layout as the default build directory. After all calls succeeded they are merged into the build
+ * directory, see {@link XCodeBuildLayout#getBuildDir(File)}, so that the result cannot be distinguished from a
+ * sequential build.
+ * <p>
+ * The output of each call is written into its own log file. The log files are copied to the output stream of the
+ * context in the order of the contexts when all calls are finished. The first failing call cancels all other calls.
+ */
+class ParallelXCodeBuilder
+{
+  private static final Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  /**
+   * Directory below the project root directory containing the output directories of the calls while they are
+   * running.
+   */
+  static final String JOBS_DIRECTORY = ".xcodebuild-jobs";
+
+  private final int threads;
+
+  private final File logDirectory;
+
+  private final XCodeBuildScheduler scheduler;
+
+  private final String module;
+
+  private final int jobs;
+
+  /**
+   * @param logDirectory
+   *          directory for the log files of the calls.
+   */
+  ParallelXCodeBuilder(int threads, File logDirectory)
+  {
+    this(threads, logDirectory, XCodeBuildScheduler.getDefault(), "", 0);
+  }
+
+  /**
+   * @param module
+   *          the name of the module for the summary of the scheduler.
+   * @param jobs
+   *          the number of CPU slots requested from the scheduler for each call unless the <code>jobs</code> option
+   *          is configured, 0 for an equal share of the budget for each thread.
+   */
+  ParallelXCodeBuilder(int threads, File logDirectory, XCodeBuildScheduler scheduler, String module, int jobs)
+  {
+    this.threads = threads;
+    this.logDirectory = logDirectory;
+    this.scheduler = scheduler;
+    this.module = module;
+    this.jobs = jobs;
+  }
+
+  void build(List<XCodeContext> contexts) throws IOException, XCodeException
+  {
+    if (contexts.isEmpty())
+      return;
+
+    final List<Job> jobs = new ArrayList<Job>(contexts.size());
+
+    for (XCodeContext context : contexts)
+      jobs.add(new Job(context));
+
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, jobs.size())),
+          new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+              final Thread thread = new Thread(r, "xcodebuild-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+    try {
+      final CompletionService<Job> completionService = new ExecutorCompletionService<Job>(executor);
+
+      for (Job job : jobs)
+        completionService.submit(job, job);
+
+      for (int i = 0; i < jobs.size(); i++) {
+
+        final Job job;
+
+        try {
+          job = completionService.take().get();
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          cancel(jobs);
+          throw new XCodeException("Interrupted while waiting for xcodebuild.", e);
+        }
+        catch (ExecutionException e) {
+          // the job itself does not throw
+          cancel(jobs);
+          throw new XCodeException("xcodebuild failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (job.failure != null) {
+          cancel(jobs);
+          dumpLog(job);
+          if (job.failure instanceof XCodeException)
+            throw (XCodeException) job.failure;
+          throw new XCodeException("Could not execute xcodebuild for " + job.name + ": " + job.failure.getMessage(),
+                job.failure);
+        }
+      }
+
+      for (Job job : jobs) {
+        dumpLog(job);
+        merge(job.outputDirectory, XCodeBuildLayout.getBuildDir(job.context.getProjectRootDirectory()));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+      for (Job job : jobs) {
+        try {
+          org.apache.commons.io.FileUtils.deleteDirectory(job.outputDirectory);
+        }
+        catch (IOException e) {
+          LOGGER.warning("Cannot delete '" + job.outputDirectory + "': " + e.getMessage());
+        }
+      }
+      for (Job job : jobs) {
+        final String[] remaining = job.outputDirectory.getParentFile().list();
+        if (remaining != null && remaining.length == 0)
+          job.outputDirectory.getParentFile().delete();
+      }
+    }
+  }
+
+  /**
+   * @return the command line for the context.
+   */
+  List<String> createCommand(XCodeContext context)
+  {
+    return Arrays.asList(new CommandLineBuilder(context).createBuildCall());
+  }
+
+  File getLogFile(XCodeContext context)
+  {
+    return new File(logDirectory, getName(context) + ".log");
+  }
+
+  private static String getName(XCodeContext context)
+  {
+    return context.getSDK() == null ? context.getConfiguration() : context.getConfiguration() + "-"
+          + context.getSDK();
+  }
+
+  private static void cancel(List<Job> jobs)
+  {
+    for (Job job : jobs)
+      job.cancel();
+  }
+
+  private void dumpLog(Job job) throws IOException
+  {
+    if (!job.logFile.isFile())
+      return;
+
+    final InputStream in = new FileInputStream(job.logFile);
+    try {
+      job.context.getOut().println("xcodebuild output for " + job.name + " (" + job.logFile + "):");
+      IOUtils.copy(in, job.context.getOut());
+      job.context.getOut().flush();
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Moves all files from <code>source</code> into <code>target</code>. Existing files are overwritten.
+   */
+  static void merge(File source, File target) throws IOException
+  {
+    final File[] children = source.listFiles();
+
+    if (children == null)
+      return;
+
+    if (!target.isDirectory() && !target.mkdirs())
+      throw new IOException("Cannot create directory '" + target + "'.");
+
+    for (File child : children) {
+
+      final File destination = new File(target, child.getName());
+
+      if (child.isDirectory() && destination.isDirectory()) {
+        merge(child, destination);
+        continue;
+      }
+
+      if (destination.exists() || isSymbolicLink(destination))
+        org.apache.commons.io.FileUtils.forceDelete(destination);
+
+      if (!child.renameTo(destination)) {
+        if (child.isDirectory())
+          org.apache.commons.io.FileUtils.copyDirectory(child, destination);
+        else
+          org.apache.commons.io.FileUtils.copyFile(child, destination);
+      }
+    }
+  }
+
+  private static boolean isSymbolicLink(File file) throws IOException
+  {
+    final File canonicalParent = file.getParentFile().getCanonicalFile();
+    final File candidate = new File(canonicalParent, file.getName());
+    return !candidate.getCanonicalFile().equals(candidate.getAbsoluteFile());
+  }
+
+  /**
+   * One <code>xcodebuild</code> call.
+   */
+  private final class Job implements Runnable
+  {
+    private final String name;
+
+    private final XCodeContext context;
+
+    private final File outputDirectory;
+
+    private final File logFile;
+
+    private Thread runner;
+
+    private volatile boolean cancelled;
+
+    private Exception failure;
+
+    Job(XCodeContext original)
+    {
+      this.name = getName(original);
+      this.outputDirectory = new File(new File(original.getProjectRootDirectory(), JOBS_DIRECTORY), name)
+        .getAbsoluteFile();
+      this.logFile = getLogFile(original);
+
+      final Map<String, String> managedSettings = new HashMap<String, String>(original.getSettings()
+        .getManagedSettings());
+
+      // output directories that have been redirected already, e.g. into a pool, are kept
+      for (Settings.ManagedSetting setting : Settings.ManagedSetting.values()) {
+        if (setting.isRequired() && setting.getDefaultValue().equals(managedSettings.get(setting.name())))
+          managedSettings.put(setting.name(), outputDirectory.getPath());
+      }
+
+      this.context = new XCodeContext(original.getBuildActions(), original.getProjectRootDirectory(),
+            original.getOut(), new Settings(original.getSettings().getUserSettings(), managedSettings),
+            original.getOptions());
+    }
+
+    @Override
+    public void run()
+    {
+      PrintStream log = null;
+
+      try {
+        org.apache.commons.io.FileUtils.deleteDirectory(outputDirectory);
+        if (!outputDirectory.mkdirs())
+          throw new IOException("Cannot create directory '" + outputDirectory + "'.");
+
+        if (!logDirectory.isDirectory() && !logDirectory.mkdirs())
+          throw new IOException("Cannot create directory '" + logDirectory + "'.");
+
+        log = new PrintStream(new FileOutputStream(logFile), false, Charset.defaultCharset().name());
+
+        synchronized (this) {
+          if (cancelled)
+            return;
+          runner = Thread.currentThread();
+        }
+
+        // waiting for slots and the process are interrupted by cancel()
+        final int configuredJobs = XCodeBuildScheduler.getConfiguredJobs(context);
+        final XCodeBuildScheduler.Lease lease = scheduler.acquire(module, configuredJobs > 0 ? configuredJobs
+              : jobs > 0 ? jobs : scheduler.getShare(threads));
+        final int returnValue;
+
+        try {
+          final List<String> command = createCommand(configuredJobs > 0 ? context : XCodeBuildScheduler.withJobs(
+                context, lease.getJobs()));
+          LOGGER.info("Executing xcode command for " + name + ": '" + command + "'.");
+
+          returnValue = ProcessServices.getDefault().execute(log, context.getProjectRootDirectory(),
+                command.toArray(new String[command.size()]));
+        }
+        finally {
+          lease.close();
+        }
+
+        if (returnValue != 0 && !cancelled)
+          failure = new XCodeException("Could not execute xcodebuild for configuration "
+                + context.getConfiguration() + " and sdk " + context.getSDK() + ", see '" + logFile + "'.");
+      }
+      catch (IOException e) {
+        if (!cancelled)
+          failure = e;
+      }
+      finally {
+        synchronized (this) {
+          runner = null;
+          // the interrupt of a cancel() must not affect the next job of the thread
+          Thread.interrupted();
+        }
+        IOUtils.closeQuietly(log);
+      }
+    }
+
+    synchronized void cancel()
+    {
+      cancelled = true;
+      if (runner != null)
+        runner.interrupt();
+    }
+  }
+}
@@ -0,0 +1,358 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Keeps the output of <code>xcodebuild -showBuildSettings</code> on disk so that it survives the Maven invocation.
+ * Entries are stored under a fingerprint of everything the build settings depend on: the
+ * <code>project.pbxproj</code>, the <code>xcconfig</code> files of the project including the files they include, the
+ * Xcode version, the project directory and the options and settings passed to <code>xcodebuild</code>.
+ * <p>
+ * Files are written atomically and carry a checksum. Corrupt files are discarded. The cache is located in
+ * <code>~/.m2/xcode-maven-plugin/build-settings</code> unless the system property {@value #DIRECTORY} denotes
+ * another directory. It can be disabled by setting the system property {@value #SKIP} to <code>true</code>.
+ */
+final class PersistentBuildSettingsCache
+{
+  static final String DIRECTORY = "xcode.buildSettingsCache.directory";
+
+  static final String SKIP = "xcode.buildSettingsCache.skip";
+
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  /**
+   * Part of the fingerprint, increment if the way build settings are obtained changes.
+   */
+  private static final int VERSION = 2;
+
+  private static final String CHECKSUM_PREFIX = "#sha1=";
+
+  private static final String ENCODING = "ISO-8859-1";
+
+  private static final Pattern XCCONFIG_REFERENCE = Pattern
+    .compile("\"([^\"]*\\.xcconfig)\"|([\\w./$-]+\\.xcconfig)");
+
+  private static final Pattern XCCONFIG_INCLUDE = Pattern.compile("^\\s*#include\\??\\s+\"([^\"]+)\"",
+        Pattern.MULTILINE);
+
+  private static String xcodeVersion;
+
+  private final File directory;
+
+  PersistentBuildSettingsCache(File directory)
+  {
+    this.directory = directory;
+  }
+
+  /**
+   * @return the cache configured by system properties or <code>null</code> if the cache is disabled.
+   */
+  static PersistentBuildSettingsCache getDefault()
+  {
+    if (Boolean.getBoolean(SKIP))
+      return null;
+
+    final String directory = System.getProperty(DIRECTORY);
+
+    return new PersistentBuildSettingsCache(directory != null ? new File(directory) : new File(new File(
+          System.getProperty("user.home"), ".m2"), "xcode-maven-plugin/build-settings"));
+  }
+
+  File getDirectory()
+  {
+    return directory;
+  }
+
+  /**
+   * @return the cached build settings or <code>null</code> if there is no valid entry for the fingerprint.
+   */
+  Properties get(String fingerprint)
+  {
+    final File file = getFile(fingerprint);
+
+    if (!file.isFile())
+      return null;
+
+    try {
+      final byte[] content = org.apache.commons.io.FileUtils.readFileToByteArray(file);
+      final int newLine = indexOf(content, (byte) '\n');
+
+      if (newLine > 0) {
+
+        final String header = new String(content, 0, newLine, ENCODING);
+        final byte[] payload = new byte[content.length - newLine - 1];
+        System.arraycopy(content, newLine + 1, payload, 0, payload.length);
+
+        if (header.equals(CHECKSUM_PREFIX + sha1(payload))) {
+          final Properties properties = new Properties();
+          properties.load(new ByteArrayInputStream(payload));
+          return properties;
+        }
+      }
+      LOGGER.warning("Discarding corrupt build settings cache file '" + file + "'.");
+    }
+    catch (IOException e) {
+      LOGGER.warning("Cannot read build settings cache file '" + file + "': " + e.getMessage());
+    }
+
+    if (!file.delete())
+      LOGGER.warning("Cannot delete build settings cache file '" + file + "'.");
+
+    return null;
+  }
+
+  void put(String fingerprint, Properties buildSettings) throws IOException
+  {
+    final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    buildSettings.store(payload, null);
+
+    final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    content.write((CHECKSUM_PREFIX + sha1(payload.toByteArray()) + "\n").getBytes(ENCODING));
+    payload.writeTo(content);
+
+    FileUtils.mkdirs(directory);
+    FileUtils.writeAtomically(getFile(fingerprint), content.toByteArray());
+  }
+
+  private File getFile(String fingerprint)
+  {
+    return new File(directory, fingerprint + ".properties");
+  }
+
+  /**
+   * @return a hash over all inputs the build settings for the context depend on.
+   */
+  static String fingerprint(IXCodeContext context) throws IOException
+  {
+    final ByteArrayOutputStream os = new ByteArrayOutputStream();
+    final PrintStream out = new PrintStream(os, false, "UTF-8");
+    final File root = context.getProjectRootDirectory().getCanonicalFile();
+
+    out.println("version=" + VERSION);
+    out.println("xcode=" + getXcodeVersion());
+    out.println("dir=" + root);
+
+    final BuildSettingsKey key = BuildSettingsKey.of(context);
+    print(out, "options", key.getOptions());
+    print(out, "settings", key.getSettings());
+
+    final TreeSet<File> xcconfigs = new TreeSet<File>();
+    collectXcconfigFiles(root, xcconfigs);
+
+    for (File pbxproj : getProjectFiles(root, context.getOptions().getAllOptions())) {
+      final byte[] content = org.apache.commons.io.FileUtils.readFileToByteArray(pbxproj);
+      out.println("pbxproj=" + pbxproj + ":" + sha1(content));
+      collectReferences(root, new String(content, "UTF-8"), XCCONFIG_REFERENCE, xcconfigs);
+    }
+
+    for (File xcconfig : resolveIncludes(xcconfigs))
+      out.println("xcconfig=" + xcconfig + ":" + sha1(org.apache.commons.io.FileUtils.readFileToByteArray(xcconfig)));
+
+    out.close();
+    return sha1(os.toByteArray());
+  }
+
+  private static void print(PrintStream out, String name, Map<String, String> values)
+  {
+    out.println(name + "=" + (values == null ? "" : new TreeMap<String, String>(values)));
+  }
+
+  private static TreeSet<File> getProjectFiles(File root, Map<String, String> options)
+  {
+    final TreeSet<File> result = new TreeSet<File>();
+    final String project = options.get(Options.ManagedOption.PROJECT.getOptionName());
+
+    if (project != null) {
+      result.add(new File(new File(root, project), "project.pbxproj"));
+    }
+    else {
+      final File[] files = root.listFiles();
+      if (files != null) {
+        for (File file : files)
+          if (file.getName().endsWith(".xcodeproj"))
+            result.add(new File(file, "project.pbxproj"));
+      }
+    }
+
+    for (Iterator<File> it = result.iterator(); it.hasNext();)
+      if (!it.next().isFile())
+        it.remove();
+
+    return result;
+  }
+
+  /**
+   * Collects the xcconfig files below the project directory. Build output and hidden directories are skipped.
+   */
+  private static void collectXcconfigFiles(File dir, TreeSet<File> result)
+  {
+    final File[] files = dir.listFiles();
+
+    if (files == null)
+      return;
+
+    for (File file : files) {
+      if (file.isDirectory()) {
+        if (!file.getName().startsWith(".") && !file.getName().equals("build")
+              && !file.getName().equals("DerivedData"))
+          collectXcconfigFiles(file, result);
+      }
+      else if (file.getName().endsWith(".xcconfig")) {
+        result.add(file);
+      }
+    }
+  }
+
+  /**
+   * Adds the files denoted by the references if they can be resolved relative to <code>baseDir</code>.
+   */
+  private static void collectReferences(File baseDir, String content, Pattern pattern, TreeSet<File> result)
+        throws IOException
+  {
+    final Matcher matcher = pattern.matcher(content);
+
+    while (matcher.find()) {
+      final String path = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+      final File file = new File(path).isAbsolute() ? new File(path) : new File(baseDir, path);
+      if (file.isFile())
+        result.add(file.getCanonicalFile());
+    }
+  }
+
+  private static TreeSet<File> resolveIncludes(TreeSet<File> xcconfigs) throws IOException
+  {
+    final TreeSet<File> result = new TreeSet<File>();
+    final Deque<File> queue = new ArrayDeque<File>();
+
+    for (File xcconfig : xcconfigs)
+      queue.add(xcconfig.getCanonicalFile());
+
+    while (!queue.isEmpty()) {
+      final File xcconfig = queue.remove();
+
+      if (!result.add(xcconfig))
+        continue;
+
+      final TreeSet<File> included = new TreeSet<File>();
+      collectReferences(xcconfig.getParentFile(), org.apache.commons.io.FileUtils.readFileToString(xcconfig, "UTF-8"),
+            XCCONFIG_INCLUDE, included);
+      queue.addAll(included);
+    }
+    return result;
+  }
+
+  /**
+   * @return the version and build number of the selected Xcode. The version is read from the
+   *         <code>version.plist</code> of the Xcode installation. If that file cannot be found
+   *         <code>xcodebuild -version</code> is called once per JVM.
+   */
+  static synchronized String getXcodeVersion()
+  {
+    if (xcodeVersion == null) {
+      final File developerDir = getDeveloperDir();
+      final File versionPlist = new File(developerDir.getParentFile(), "version.plist");
+
+      try {
+        if (versionPlist.isFile()) {
+          final PListAccessor accessor = new PListAccessor(versionPlist);
+          xcodeVersion = developerDir + ":" + accessor.getStringValue("CFBundleShortVersionString") + ":"
+                + accessor.getStringValue("ProductBuildVersion");
+        }
+        else {
+          final ByteArrayOutputStream os = new ByteArrayOutputStream();
+          final PrintStream out = new PrintStream(os, true, ENCODING);
+          try {
+            final int returnValue = ProcessServices.getDefault().execute(out, null, "xcodebuild", "-version");
+            xcodeVersion = returnValue == 0 ? os.toString(ENCODING).trim() : "unknown";
+          }
+          finally {
+            IOUtils.closeQuietly(out);
+          }
+        }
+      }
+      catch (IOException e) {
+        LOGGER.fine("Cannot determine Xcode version: " + e.getMessage());
+        xcodeVersion = "unknown";
+      }
+    }
+    return xcodeVersion;
+  }
+
+  private static File getDeveloperDir()
+  {
+    final String developerDir = System.getenv("DEVELOPER_DIR");
+
+    if (developerDir != null && !developerDir.trim().isEmpty())
+      return new File(developerDir);
+
+    try {
+      final File link = new File("/var/db/xcode_select_link");
+      if (link.exists())
+        return link.getCanonicalFile();
+    }
+    catch (IOException e) {
+      // handled below
+    }
+    return new File("/Applications/Xcode.app/Contents/Developer");
+  }
+
+  private static int indexOf(byte[] content, byte b)
+  {
+    for (int i = 0; i < content.length; i++)
+      if (content[i] == b)
+        return i;
+    return -1;
+  }
+
+  static String sha1(byte[] content)
+  {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-1").digest(content);
+      final StringBuilder sb = new StringBuilder(2 * digest.length);
+      for (byte b : digest)
+        sb.append(String.format("%02x", b & 0xff));
+      return sb.toString();
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Accesses plist files by forking <code>/usr/libexec/PlistBuddy</code>. Only used by {@link PListAccessor} as a
+ * fallback for files the in-process engine is not able to handle, or when the fallback has been requested
+ * explicitly.
+ */
+class PlistBuddyAccessor
+{
+  static final String PLIST_BUDDY = "/usr/libexec/PlistBuddy";
+
+  private final File plist;
+
+  PlistBuddyAccessor(File file)
+  {
+    plist = file;
+  }
+
+  static boolean isAvailable()
+  {
+    return new File(PLIST_BUDDY).canExecute();
+  }
+
+  String getStringValue(String key) throws IOException
+  {
+    if (!plist.exists())
+    {
+      throw new FileNotFoundException("The Plist " + plist.getAbsolutePath() + " does not exist.");
+    }
+
+    String command = "/usr/libexec/PlistBuddy -c \"Print :" + key + "\" \"" + plist.getAbsolutePath() + "\"";
+
+    System.out.println("[INFO] PlistBuddy Print command is: '" + command + "'.");
+
+    String[] args = new String[] { "bash", "-c", command };
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    int exitValue = execute(args, out, err);
+
+    if (exitValue == 0)
+    {
+      return StringUtils.chomp(toString(out));
+    }
+
+    String errorMessage = StringUtils.chomp(toString(err));
+
+    if (errorMessage.contains(":" + key + "\", Does Not Exist")) {
+      // ugly string parsing above, but no other known way ...
+      return null;
+    }
+
+    throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ")
+          + "\" command failed. Error message is: " + errorMessage + ". Return code was: '" + exitValue + "'.");
+  }
+
+  /**
+   * Executes all <code>commands</code> in a single PlistBuddy call.
+   * 
+   * @param xml
+   *          if <code>true</code> the plist is written as XML plist, otherwise in the format of the existing file or
+   *          as binary plist for new files.
+   */
+  void execute(List<String> commands, boolean xml) throws IOException
+  {
+    if (commands.isEmpty())
+      return;
+
+    final StringBuilder command = new StringBuilder(PLIST_BUDDY).append(xml ? " -x" : "");
+    for (String c : commands)
+      command.append(" -c \"").append(escape(c)).append("\"");
+    command.append(" \"").append(escape(plist.getAbsolutePath())).append("\"");
+
+    System.out.println("[INFO] PlistBuddy command is: '" + command + "'.");
+    String[] args = new String[] { "bash", "-c", command.toString() };
+    executeAndCheck(args);
+  }
+
+  /**
+   * Escapes the characters that have a special meaning inside double quotes for bash.
+   */
+  private static String escape(String s)
+  {
+    return s.replaceAll("([\"\\\\$`])", "\\\\$1");
+  }
+
+  void createPlist() throws IOException
+  {
+    String command = "/usr/libexec/PlistBuddy -x -c \"Save \" \"" + plist.getAbsolutePath() + "\"";
+    System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
+    String[] args = new String[] { "bash", "-c", command };
+    executeAndCheck(args);
+  }
+
+  String printValue(String key) throws IOException
+  {
+    String command = "/usr/libexec/PlistBuddy -c \"Print :" + key + "\" \"" + plist.getAbsolutePath() + "\"";
+    System.out.println("[INFO] PlistBuddy Add command is: '" + command + "'.");
+    String[] args = new String[] { "bash", "-c", command };
+
+    BufferedReader reader = new BufferedReader(new StringReader(executeAndCheck(args)));
+
+    try {
+      return reader.readLine();
+    }
+    finally {
+      IOUtils.closeQuietly(reader);
+    }
+  }
+
+  /**
+   * @return the standard output of the command.
+   * @throws IllegalStateException
+   *           if the command fails.
+   */
+  private static String executeAndCheck(String[] args) throws IOException
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    int exitValue = execute(args, out, err);
+
+    if (exitValue != 0)
+    {
+      throw new IllegalStateException("Execution of \"" + StringUtils.join(args, " ") + "\" command failed: "
+            + StringUtils.chomp(toString(err)) + ". Exit code was: " + exitValue);
+    }
+    return toString(out);
+  }
+
+  private static int execute(String[] args, ByteArrayOutputStream out, ByteArrayOutputStream err) throws IOException
+  {
+    final String encoding = Charset.defaultCharset().name();
+    final PrintStream outStream = new PrintStream(out, true, encoding);
+    final PrintStream errStream = new PrintStream(err, true, encoding);
+
+    try {
+      return ProcessServices.getDefault().execute(outStream, errStream, null, args);
+    }
+    finally {
+      closeQuietly(outStream);
+      closeQuietly(errStream);
+    }
+  }
+
+  private static String toString(ByteArrayOutputStream out) throws IOException
+  {
+    return out.toString(Charset.defaultCharset().name());
+  }
+}
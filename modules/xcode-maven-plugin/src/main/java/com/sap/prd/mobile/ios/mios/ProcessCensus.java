@@ -0,0 +1,265 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Records the processes forked by a {@link ProcessService}: command, duration, exit code and the number of bytes
+ * written to the output. The census is reported and reset at the end of the build, see {@link ProcessCensusMojo}.
+ */
+final class ProcessCensus
+{
+  /**
+   * The number of forks that are kept in order to report the slowest ones. Forks beyond this number are only counted
+   * per tool.
+   */
+  static final int MAX_FORKS = 10000;
+
+  static final int SLOWEST = 10;
+
+  private final List<Fork> forks = new ArrayList<Fork>();
+
+  private final Map<String, Totals> tools = new TreeMap<String, Totals>();
+
+  synchronized void record(Fork fork)
+  {
+    if (forks.size() < MAX_FORKS)
+      forks.add(fork);
+
+    Totals tool = tools.get(fork.tool);
+    if (tool == null) {
+      tool = new Totals(fork.tool);
+      tools.put(fork.tool, tool);
+    }
+    tool.count++;
+    tool.durationMillis += fork.durationMillis;
+    tool.maxDurationMillis = Math.max(tool.maxDurationMillis, fork.durationMillis);
+    tool.bytesOutput += fork.bytesOutput;
+    if (fork.exitCode != 0)
+      tool.failures++;
+    if (fork.timedOut)
+      tool.timeouts++;
+  }
+
+  /**
+   * @return the recorded forks, at most {@value #MAX_FORKS}.
+   */
+  synchronized List<Fork> getForks()
+  {
+    return new ArrayList<Fork>(forks);
+  }
+
+  /**
+   * @return the number of forks per tool.
+   */
+  synchronized int getCount(String tool)
+  {
+    final Totals totals = tools.get(tool);
+    return totals == null ? 0 : totals.count;
+  }
+
+  synchronized void reset()
+  {
+    forks.clear();
+    tools.clear();
+  }
+
+  /**
+   * @return the totals per tool and the slowest forks.
+   */
+  synchronized String getSummary()
+  {
+    int count = 0, failures = 0, timeouts = 0;
+    long durationMillis = 0, bytesOutput = 0;
+
+    for (Totals tool : tools.values()) {
+      count += tool.count;
+      failures += tool.failures;
+      timeouts += tool.timeouts;
+      durationMillis += tool.durationMillis;
+      bytesOutput += tool.bytesOutput;
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.ENGLISH,
+          "Forked processes: %d, %.2f s, %d failed, %d killed after timeout, %d bytes output%n", count,
+          durationMillis / 1000.0, failures, timeouts, bytesOutput));
+
+    if (count == 0)
+      return sb.toString();
+
+    sb.append(String.format(Locale.ENGLISH, "%n%-24s %7s %10s %10s %7s %7s %12s%n", "tool", "count", "total", "max",
+          "failed", "killed", "output"));
+    for (Totals tool : tools.values())
+      sb.append(String.format(Locale.ENGLISH, "%-24s %7d %8.2f s %8.2f s %7d %7d %12d%n", tool.tool, tool.count,
+            tool.durationMillis / 1000.0, tool.maxDurationMillis / 1000.0, tool.failures, tool.timeouts,
+            tool.bytesOutput));
+
+    final List<Fork> slowest = new ArrayList<Fork>(forks);
+    Collections.sort(slowest, new Comparator<Fork>() {
+      @Override
+      public int compare(Fork f1, Fork f2)
+      {
+        return f1.durationMillis == f2.durationMillis ? 0 : f1.durationMillis > f2.durationMillis ? -1 : 1;
+      }
+    });
+
+    sb.append("\nSlowest processes:\n");
+    for (Fork fork : slowest.subList(0, Math.min(SLOWEST, slowest.size())))
+      sb.append(String.format(Locale.ENGLISH, "%8.2f s  exit %3d  %s%n", fork.durationMillis / 1000.0,
+            fork.exitCode, fork.getCommandLine()));
+
+    return sb.toString();
+  }
+
+  /**
+   * One forked process.
+   */
+  static final class Fork
+  {
+    private static final Set<String> SHELLS = new HashSet<String>(Arrays.asList("sh", "bash", "zsh", "ksh", "dash"));
+
+    private final List<String> command;
+
+    private final File directory;
+
+    private final String tool;
+
+    private final long durationMillis;
+
+    private final int exitCode;
+
+    private final long bytesOutput;
+
+    private final boolean timedOut;
+
+    /**
+     * @param exitCode
+     *          the exit code, -1 if the process could not be started or has been killed.
+     */
+    Fork(List<String> command, File directory, long durationMillis, int exitCode, long bytesOutput, boolean timedOut)
+    {
+      this.command = Collections.unmodifiableList(new ArrayList<String>(command));
+      this.directory = directory;
+      this.tool = getTool(command);
+      this.durationMillis = durationMillis;
+      this.exitCode = exitCode;
+      this.bytesOutput = bytesOutput;
+      this.timedOut = timedOut;
+    }
+
+    /**
+     * @return the name of the executable, e.g. <code>xcodebuild</code> for <code>/usr/bin/xcodebuild</code>. For a
+     *         shell executing a script with <code>-c</code> the name of the first command of the script, e.g.
+     *         <code>PlistBuddy</code> for <code>bash -c "/usr/libexec/PlistBuddy -c ..."</code>.
+     */
+    static String getTool(List<String> command)
+    {
+      if (command.isEmpty())
+        return "";
+
+      final String executable = new File(command.get(0)).getName();
+
+      if (SHELLS.contains(executable)) {
+        final int script = command.indexOf("-c") + 1;
+        if (script > 0 && script < command.size()) {
+          final String[] words = StringUtils.split(command.get(script), " \t\r\n;|&<>()\"'");
+          if (words != null && words.length > 0)
+            return new File(words[0]).getName();
+        }
+      }
+      return executable;
+    }
+
+    List<String> getCommand()
+    {
+      return command;
+    }
+
+    String getCommandLine()
+    {
+      return StringUtils.join(command, " ");
+    }
+
+    File getDirectory()
+    {
+      return directory;
+    }
+
+    String getTool()
+    {
+      return tool;
+    }
+
+    long getDurationMillis()
+    {
+      return durationMillis;
+    }
+
+    int getExitCode()
+    {
+      return exitCode;
+    }
+
+    long getBytesOutput()
+    {
+      return bytesOutput;
+    }
+
+    boolean isTimedOut()
+    {
+      return timedOut;
+    }
+
+    @Override
+    public String toString()
+    {
+      return getCommandLine() + ": exit code " + exitCode + ", " + durationMillis + " ms, " + bytesOutput
+            + " bytes output" + (timedOut ? ", killed after timeout" : "");
+    }
+  }
+
+  private static final class Totals
+  {
+    private final String tool;
+
+    private int count, failures, timeouts;
+
+    private long durationMillis, maxDurationMillis, bytesOutput;
+
+    Totals(String tool)
+    {
+      this.tool = tool;
+    }
+  }
+}
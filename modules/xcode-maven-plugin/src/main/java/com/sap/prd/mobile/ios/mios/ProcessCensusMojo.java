@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Reports the external processes that have been forked by the plugin during the build, see {@link ProcessCensus}, at
+ * the end of the build, i.e. after the last phase of the last project, see {@link SessionEndHook}. The census is
+ * reset after the report. The report also contains the time the <code>xcodebuild</code> calls waited for and held
+ * CPU slots, see {@link XCodeBuildScheduler}. The report is logged and written to
+ * <code>target/process-census.txt</code> of the top level project.
+ * 
+ * @goal process-census
+ * @since 1.14.1
+ */
+public class ProcessCensusMojo extends AbstractXCodeMojo
+{
+  /**
+   * @parameter default-value="${session}"
+   * @required
+   * @readonly
+   */
+  private MavenSession session;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException
+  {
+    final MavenProject topLevelProject = session.getTopLevelProject() == null ? project : session
+      .getTopLevelProject();
+    final File file = new File(topLevelProject.getBuild().getDirectory(), "process-census.txt");
+    final Log log = getLog();
+
+    SessionEndHook.register(session, "process-census", new Runnable() {
+      @Override
+      public void run()
+      {
+        report(file, log);
+      }
+    });
+  }
+
+  private static void report(File file, Log log)
+  {
+    final ProcessCensus census = ProcessServices.getDefault().getCensus();
+    final String summary = census.getSummary() + String.format("%n") + XCodeBuildScheduler.getDefault().getSummary();
+    census.reset();
+
+    for (String line : summary.split("\r?\n"))
+      log.info(line);
+
+    try {
+      FileUtils.writeAtomically(file, summary.getBytes("UTF-8"));
+    }
+    catch (IOException e) {
+      log.warn("Cannot write the process census '" + file + "': " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Executes external processes, e.g. <code>xcodebuild</code>, <code>lipo</code> or <code>PlistBuddy</code>. All
+ * processes forked by the plugin are started through this interface, see {@link ProcessServices#getDefault()}, so that
+ * the number of concurrent processes and their run time can be limited and each fork is recorded in the
+ * {@link ProcessCensus}.
+ */
+interface ProcessService
+{
+  /**
+   * Executes the command and waits for its termination. The standard output and the error output are written to
+   * <code>out</code>.
+   * 
+   * @param directory
+   *          the working directory, the current directory if <code>null</code>.
+   * @return the exit code.
+   * @throws IOException
+   *           if the process cannot be started, the output cannot be written, the process has been killed because
+   *           it exceeded its timeout or the calling thread has been interrupted. The process is killed in the
+   *           latter case.
+   */
+  int execute(PrintStream out, File directory, String... command) throws IOException;
+
+  /**
+   * Same as {@link #execute(PrintStream, File, String...)}, but the error output is written to <code>err</code>.
+   */
+  int execute(PrintStream out, PrintStream err, File directory, String... command) throws IOException;
+
+  ProcessCensus getCensus();
+}
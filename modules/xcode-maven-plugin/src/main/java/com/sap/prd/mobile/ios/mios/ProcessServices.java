@@ -0,0 +1,52 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+/**
+ * Provides the {@link ProcessService} used by the plugin.
+ */
+final class ProcessServices
+{
+  private static volatile ProcessService service = new DefaultProcessService(System.getProperties());
+
+  private ProcessServices()
+  {
+  }
+
+  static ProcessService getDefault()
+  {
+    return service;
+  }
+
+  /**
+   * Replaces the process service, e.g. by a stub in tests.
+   * 
+   * @return the previous process service.
+   */
+  static ProcessService setDefault(ProcessService processService)
+  {
+    if (processService == null)
+      throw new IllegalArgumentException("Process service was null.");
+
+    final ProcessService previous = service;
+    service = processService;
+    return previous;
+  }
+}
@@ -73,7 +73,7 @@ public class ScriptRunner
       IOUtils.closeQuietly(os);
     }
 
-    Forker.forkProcess(System.out, null, "chmod", "755", scriptFile.getCanonicalPath());
+    ProcessServices.getDefault().execute(System.out, null, "chmod", "755", scriptFile.getCanonicalPath());
     return scriptFile;
   }
 
@@ -89,6 +89,6 @@ public class ScriptRunner
     System.arraycopy(args, 0, _args, 1, args.length);
     _args[0] = scriptFile.getCanonicalPath();
 
-    return Forker.forkProcess(out, null, _args);
+    return ProcessServices.getDefault().execute(out, null, _args);
   }
 }
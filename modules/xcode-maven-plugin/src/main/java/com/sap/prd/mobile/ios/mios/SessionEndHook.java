@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Runs tasks at the end of a Maven session, i.e. after the last phase of the last project of the build. The hook
+ * wraps the {@link ExecutionListener} of the session and passes all events on to it. Unlike a shutdown hook it also
+ * runs at the end of each build in a long-lived JVM, e.g. a build daemon or an IDE.
+ */
+final class SessionEndHook implements ExecutionListener
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  private final ExecutionListener delegate;
+
+  private final Map<String, Runnable> tasks = new LinkedHashMap<String, Runnable>();
+
+  private SessionEndHook(ExecutionListener delegate)
+  {
+    this.delegate = delegate == null ? new AbstractExecutionListener() : delegate;
+  }
+
+  /**
+   * Registers a task for the end of the session. Only the first task registered under a name is run, so a mojo
+   * executed for each project can register its task every time.
+   * 
+   * @param name
+   *          the name of the task.
+   */
+  static void register(MavenSession session, String name, Runnable task)
+  {
+    final MavenExecutionRequest request = session.getRequest();
+
+    synchronized (request) {
+      final ExecutionListener listener = request.getExecutionListener();
+      final SessionEndHook hook;
+
+      if (listener instanceof SessionEndHook) {
+        hook = (SessionEndHook) listener;
+      }
+      else {
+        hook = new SessionEndHook(listener);
+        request.setExecutionListener(hook);
+      }
+
+      synchronized (hook.tasks) {
+        if (!hook.tasks.containsKey(name))
+          hook.tasks.put(name, task);
+      }
+    }
+  }
+
+  @Override
+  public void sessionEnded(ExecutionEvent event)
+  {
+    final List<Runnable> tasks;
+    synchronized (this.tasks) {
+      tasks = new ArrayList<Runnable>(this.tasks.values());
+      this.tasks.clear();
+    }
+
+    for (Runnable task : tasks) {
+      try {
+        task.run();
+      }
+      catch (RuntimeException e) {
+        LOGGER.warning("Cannot complete task at the end of the build: " + e.getMessage());
+      }
+    }
+
+    delegate.sessionEnded(event);
+  }
+
+  @Override
+  public void projectDiscoveryStarted(ExecutionEvent event)
+  {
+    delegate.projectDiscoveryStarted(event);
+  }
+
+  @Override
+  public void sessionStarted(ExecutionEvent event)
+  {
+    delegate.sessionStarted(event);
+  }
+
+  @Override
+  public void projectSkipped(ExecutionEvent event)
+  {
+    delegate.projectSkipped(event);
+  }
+
+  @Override
+  public void projectStarted(ExecutionEvent event)
+  {
+    delegate.projectStarted(event);
+  }
+
+  @Override
+  public void projectSucceeded(ExecutionEvent event)
+  {
+    delegate.projectSucceeded(event);
+  }
+
+  @Override
+  public void projectFailed(ExecutionEvent event)
+  {
+    delegate.projectFailed(event);
+  }
+
+  @Override
+  public void mojoSkipped(ExecutionEvent event)
+  {
+    delegate.mojoSkipped(event);
+  }
+
+  @Override
+  public void mojoStarted(ExecutionEvent event)
+  {
+    delegate.mojoStarted(event);
+  }
+
+  @Override
+  public void mojoSucceeded(ExecutionEvent event)
+  {
+    delegate.mojoSucceeded(event);
+  }
+
+  @Override
+  public void mojoFailed(ExecutionEvent event)
+  {
+    delegate.mojoFailed(event);
+  }
+
+  @Override
+  public void forkStarted(ExecutionEvent event)
+  {
+    delegate.forkStarted(event);
+  }
+
+  @Override
+  public void forkSucceeded(ExecutionEvent event)
+  {
+    delegate.forkSucceeded(event);
+  }
+
+  @Override
+  public void forkFailed(ExecutionEvent event)
+  {
+    delegate.forkFailed(event);
+  }
+
+  @Override
+  public void forkedProjectStarted(ExecutionEvent event)
+  {
+    delegate.forkedProjectStarted(event);
+  }
+
+  @Override
+  public void forkedProjectSucceeded(ExecutionEvent event)
+  {
+    delegate.forkedProjectSucceeded(event);
+  }
+
+  @Override
+  public void forkedProjectFailed(ExecutionEvent event)
+  {
+    delegate.forkedProjectFailed(event);
+  }
+}
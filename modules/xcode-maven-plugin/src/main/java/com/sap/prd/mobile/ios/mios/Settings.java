@@ -123,7 +123,11 @@ final class Settings implements ISettings
 
         _managedSettings.put(e.getKey(), e.getValue());
       }
-      _managedSettings.putAll(REQUIRED);
+      // the output directories may be redirected, e.g. for parallel builds
+      for (Map.Entry<String, String> e : REQUIRED.entrySet()) {
+        if (!_managedSettings.containsKey(e.getKey()))
+          _managedSettings.put(e.getKey(), e.getValue());
+      }
       this.managedSettings = Collections.unmodifiableMap(new HashMap<String, String>(_managedSettings));
     }
   }
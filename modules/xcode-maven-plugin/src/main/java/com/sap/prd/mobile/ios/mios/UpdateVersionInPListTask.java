@@ -28,6 +28,7 @@ abstract class UpdateVersionInPListTask
 {
   protected File plistFile;
   protected String version;
+  protected PListJournal journal;
   protected final static Logger LOGGER;
   
   static {
@@ -47,6 +48,15 @@ abstract class UpdateVersionInPListTask
     return this;
   }
 
+  /**
+   * Changes are queued in the given journal instead of being written immediately.
+   */
+  final UpdateVersionInPListTask setJournal(PListJournal journal)
+  {
+    this.journal = journal;
+    return this;
+  }
+
   void execute() throws XCodeException
   {
 
@@ -68,30 +78,25 @@ abstract class UpdateVersionInPListTask
 
   protected void updateProperty(File plistFile, String key, String newValue) throws XCodeException
   {
+    final PListJournal journal = this.journal == null ? new PListJournal() : this.journal;
 
     try {
 
-      final PListAccessor infoPlistAccessor = new PListAccessor(plistFile);
-
-      final String oldValue = infoPlistAccessor.getStringValue(key);
+      final String oldValue = journal.getStringValue(plistFile, key);
 
-      if (oldValue == null) {
-
-        infoPlistAccessor.addStringValue(key, newValue);
-        LOGGER.info(key + " was not present in PList '" + infoPlistAccessor.getPlistFile()
-              + ". Entry has been added with value '" + newValue + "'.");
-        return;
-
-      }
-      else if (oldValue.equals(newValue)) {
-        LOGGER.info(key + " in PList '" + infoPlistAccessor.getPlistFile() + "' file is already up-to-date (" + oldValue
+      if (newValue.equals(oldValue)) {
+        LOGGER.info(key + " in PList '" + plistFile + "' file is already up-to-date (" + oldValue
               + "). No update needed.");
         return;
       }
 
-      infoPlistAccessor.updateStringValue(key, newValue);
-      LOGGER.info("PList file '" + infoPlistAccessor.getPlistFile() + "' updated: Set " + key + " from old value "
-            + oldValue + " to new value '" + version + "'.");
+      journal.setStringValue(plistFile, key, newValue, XCodeChangeVersionInPListMojo.GOAL);
+
+      if (this.journal == null)
+        journal.flush();
+      else
+        LOGGER.fine("Queued update of " + key + " in PList '" + plistFile + "' from old value '" + oldValue
+              + "' to new value '" + newValue + "'.");
     }
     catch (IOException e) {
       throw new XCodeException(e.getMessage(), e);
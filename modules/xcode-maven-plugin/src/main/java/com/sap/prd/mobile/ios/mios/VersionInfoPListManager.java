@@ -43,6 +43,14 @@ public class VersionInfoPListManager
         final File syncInfoFile, List<Dependency> dependencies, File file, boolean hideConfidentialInformation)
         throws MojoExecutionException
   {
+    createVersionInfoPlistFile(groupId, artifactId, version, syncInfoFile, dependencies, file,
+          hideConfidentialInformation, PList.Format.XML);
+  }
+
+  void createVersionInfoPlistFile(final String groupId, final String artifactId, final String version,
+        final File syncInfoFile, List<Dependency> dependencies, File file, boolean hideConfidentialInformation,
+        PList.Format format) throws MojoExecutionException
+  {
 
     InputStream is = null;
     
@@ -55,7 +63,7 @@ public class VersionInfoPListManager
       versionInfo.load(is);
 
       createVersionInfoPlistFile(groupId, artifactId, version, versionInfo, dependencies, file,
-            hideConfidentialInformation);
+            hideConfidentialInformation, format);
 
     }
     catch (IOException e) {
@@ -66,26 +74,26 @@ public class VersionInfoPListManager
   }
 
   private void createVersionInfoPlistFile(final String groupId, final String artifactId, final String version,
-        Properties versionInfo, List<Dependency> dependencies, File file, boolean hideConfidentialInformation)
-        throws MojoExecutionException
+        Properties versionInfo, List<Dependency> dependencies, File file, boolean hideConfidentialInformation,
+        PList.Format format) throws MojoExecutionException
   {
     try {
 
       final String connectionString = SCMUtil.getConnectionString(versionInfo, hideConfidentialInformation);
       final String revision = SCMUtil.getRevision(versionInfo);
-      PListAccessor plistAccessor = new PListAccessor(file);
-      plistAccessor.createPlist();
+      final PListEdit plist = new PListAccessor(file).editNewPlist();
 
-      plistAccessor.addElement("coordinates", "dict");
-      plistAccessor.addStringValueToDict(GROUP_ID, groupId, "coordinates");
-      plistAccessor.addStringValueToDict(ARTIFACT_ID, artifactId, "coordinates");
-      plistAccessor.addStringValueToDict(VERSION, version, "coordinates");
+      plist.addDict("coordinates");
+      plist.addStringValue("coordinates:" + GROUP_ID, groupId);
+      plist.addStringValue("coordinates:" + ARTIFACT_ID, artifactId);
+      plist.addStringValue("coordinates:" + VERSION, version);
 
-      plistAccessor.addElement("scm", "dict");
-      plistAccessor.addStringValueToDict("connection", connectionString, "scm");
-      plistAccessor.addStringValueToDict("revision", revision, "scm");
-      addDependencyToPlist(dependencies, plistAccessor, "dependencies:", hideConfidentialInformation);
+      plist.addDict("scm");
+      plist.addStringValue("scm:connection", connectionString);
+      plist.addStringValue("scm:revision", revision);
+      addDependencyToPlist(dependencies, plist, "dependencies:", hideConfidentialInformation);
 
+      plist.commit(format);
     }
 
     catch (IOException e) {
@@ -96,25 +104,30 @@ public class VersionInfoPListManager
   void addDependencyToPlist(List<Dependency> dependencies, PListAccessor plistAccessor, String path,
         boolean hideConfidentialInformation) throws IOException
   {
+    final PListEdit plist = plistAccessor.edit();
+    addDependencyToPlist(dependencies, plist, path, hideConfidentialInformation);
+    plist.commit();
+  }
+
+  private void addDependencyToPlist(List<Dependency> dependencies, PListEdit plist, String path,
+        boolean hideConfidentialInformation)
+  {
 
     for (int i = 0; i < dependencies.size(); i++) {
 
       String _path = path + i;
       Dependency dep = dependencies.get(i);
 
-      plistAccessor.addDictToArray("coordinates", _path);
-      plistAccessor.addStringValueToDict(GROUP_ID, dep.getCoordinates().getGroupId(), _path
-            + ":coordinates");
-      plistAccessor.addStringValueToDict(ARTIFACT_ID, dep.getCoordinates().getArtifactId(), _path
-            + ":coordinates");
-      plistAccessor.addStringValueToDict(VERSION, dep.getCoordinates().getVersion(), _path
-            + ":coordinates");
+      plist.addDict(_path + ":coordinates");
+      plist.addStringValue(_path + ":coordinates:" + GROUP_ID, dep.getCoordinates().getGroupId());
+      plist.addStringValue(_path + ":coordinates:" + ARTIFACT_ID, dep.getCoordinates().getArtifactId());
+      plist.addStringValue(_path + ":coordinates:" + VERSION, dep.getCoordinates().getVersion());
 
-      plistAccessor.addDictToArray("scm", _path);
+      plist.addDict(_path + ":scm");
       String port = getScmPort(dep, hideConfidentialInformation);
-      plistAccessor.addStringValueToDict("connection", port, _path + ":scm");
-      plistAccessor.addStringValueToDict("revision", dep.getScm().getRevision(), _path + ":scm");
-      addDependencyToPlist(dep.getDependencies(), plistAccessor, _path + ":dependencies:", hideConfidentialInformation);
+      plist.addStringValue(_path + ":scm:connection", port);
+      plist.addStringValue(_path + ":scm:revision", dep.getScm().getRevision());
+      addDependencyToPlist(dep.getDependencies(), plist, _path + ":dependencies:", hideConfidentialInformation);
 
     }
   }
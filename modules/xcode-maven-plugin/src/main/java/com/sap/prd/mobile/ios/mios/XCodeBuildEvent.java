@@ -0,0 +1,246 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+/**
+ * Event parsed from a line of the <code>xcodebuild</code> output, e.g. the compilation of a source file or a compiler
+ * warning.
+ * 
+ * @see XCodeBuildOutputPipeline
+ */
+final class XCodeBuildEvent
+{
+  enum Type
+  {
+    COMPILE("CompileC"), LINK("Ld"), LIBTOOL("Libtool"), CODESIGN("CodeSign"), STEP("step"), WARNING("warning"),
+    ERROR("error");
+
+    private final String name;
+
+    private Type(String name)
+    {
+      this.name = name;
+    }
+
+    /**
+     * @return the name of the build step or the severity as it appears in the output.
+     */
+    String getName()
+    {
+      return name;
+    }
+
+    /**
+     * @return <code>true</code> for the build steps, <code>false</code> for warnings and errors.
+     */
+    boolean isStep()
+    {
+      return this != WARNING && this != ERROR;
+    }
+  }
+
+  private static final String[] MESSAGE_MARKERS = { ": warning: ", ": error: ", ": fatal error: " };
+
+  private static final Type[] MESSAGE_TYPES = { Type.WARNING, Type.ERROR, Type.ERROR };
+
+  private final Type type;
+
+  private final String subject;
+
+  private final String message;
+
+  private final String line;
+
+  private final long time;
+
+  XCodeBuildEvent(Type type, String subject, String message, String line, long time)
+  {
+    this.type = type;
+    this.subject = subject;
+    this.message = message;
+    this.line = line;
+    this.time = time;
+  }
+
+  Type getType()
+  {
+    return type;
+  }
+
+  /**
+   * @return the name of the build step as it appears in the output, e.g. <code>CompileC</code> or
+   *         <code>ProcessPCH</code>, the severity for warnings and errors.
+   */
+  String getName()
+  {
+    return type == Type.STEP ? getToken(line, 0) : type.getName();
+  }
+
+  /**
+   * @return the time the line has been received in nanoseconds, see {@link System#nanoTime()}.
+   */
+  long getTime()
+  {
+    return time;
+  }
+
+  /**
+   * @return the file the event refers to: the source file for {@link Type#COMPILE}, the product for the other build
+   *         steps and the location, e.g. <code>Foo.m:12:5</code>, for warnings and errors. <code>null</code> if the
+   *         output does not contain a file.
+   */
+  String getSubject()
+  {
+    return subject;
+  }
+
+  /**
+   * @return the message of a warning or an error, <code>null</code> for the build steps.
+   */
+  String getMessage()
+  {
+    return message;
+  }
+
+  /**
+   * @return the line of the output the event has been parsed from.
+   */
+  String getLine()
+  {
+    return line;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getName() + " " + (subject == null ? "" : subject) + (message == null ? "" : ": " + message);
+  }
+
+  /**
+   * Parses a line of the <code>xcodebuild</code> output. Lines that do not start with a build step or contain a
+   * message marker are rejected by comparing a few characters, without allocations.
+   * <p>
+   * Build steps other than the ones with a dedicated type are recognized by a line starting with a capitalized word
+   * followed by a blank, e.g. <code>ProcessPCH</code> or <code>CpResource</code>. They are reported as
+   * {@link Type#STEP}.
+   * 
+   * @param time
+   *          the time the line has been received, see {@link #getTime()}.
+   * @return the event or <code>null</code> if the line does not describe an event.
+   */
+  static XCodeBuildEvent parse(String line, long time)
+  {
+    if (line.length() == 0)
+      return null;
+
+    switch (line.charAt(0)) {
+    case 'C':
+      if (line.startsWith("CompileC "))
+        return new XCodeBuildEvent(Type.COMPILE, getToken(line, 2), null, line, time);
+      if (line.startsWith("CodeSign "))
+        return new XCodeBuildEvent(Type.CODESIGN, getToken(line, 1), null, line, time);
+      break;
+    case 'L':
+      if (line.startsWith("Ld "))
+        return new XCodeBuildEvent(Type.LINK, getToken(line, 1), null, line, time);
+      if (line.startsWith("Libtool "))
+        return new XCodeBuildEvent(Type.LIBTOOL, getToken(line, 1), null, line, time);
+      break;
+    case 'w':
+      if (line.startsWith("warning: "))
+        return new XCodeBuildEvent(Type.WARNING, null, line.substring("warning: ".length()), line, time);
+      break;
+    case 'e':
+      if (line.startsWith("error: "))
+        return new XCodeBuildEvent(Type.ERROR, null, line.substring("error: ".length()), line, time);
+      break;
+    case ' ':
+    case '\t':
+      // build step details and source code excerpts of compiler messages
+      return null;
+    default:
+      break;
+    }
+
+    for (int i = 0; i < MESSAGE_MARKERS.length; i++) {
+      final int index = line.indexOf(MESSAGE_MARKERS[i]);
+      if (index > 0)
+        return new XCodeBuildEvent(MESSAGE_TYPES[i], line.substring(0, index), line.substring(index
+              + MESSAGE_MARKERS[i].length()), line, time);
+    }
+
+    if (isStep(line))
+      return new XCodeBuildEvent(Type.STEP, getToken(line, 1), null, line, time);
+
+    return null;
+  }
+
+  static XCodeBuildEvent parse(String line)
+  {
+    return parse(line, System.nanoTime());
+  }
+
+  /**
+   * @return <code>true</code> if the line starts with a capitalized word of at least three letters that is followed
+   *         by a blank and the line does not end with a colon, which is the case for headings.
+   */
+  private static boolean isStep(String line)
+  {
+    final char first = line.charAt(0);
+    if (first < 'A' || first > 'Z' || line.charAt(line.length() - 1) == ':')
+      return false;
+
+    int i = 1;
+    while (i < line.length() && Character.isLetter(line.charAt(i)))
+      i++;
+
+    return i >= 3 && i < line.length() && line.charAt(i) == ' ';
+  }
+
+  /**
+   * @return the token with the given index, tokens are separated by blanks, blanks escaped by a backslash are part of
+   *         the token. <code>null</code> if there are not enough tokens.
+   */
+  static String getToken(String line, int index)
+  {
+    int start = 0;
+
+    for (int i = 0; i < index; i++) {
+      start = skipToken(line, start);
+      while (start < line.length() && line.charAt(start) == ' ')
+        start++;
+    }
+
+    if (start >= line.length())
+      return null;
+
+    final int end = skipToken(line, start);
+    final String token = line.substring(start, end);
+    return token.indexOf('\\') < 0 ? token : token.replace("\\ ", " ");
+  }
+
+  private static int skipToken(String line, int start)
+  {
+    int i = start;
+    while (i < line.length() && line.charAt(i) != ' ')
+      i += line.charAt(i) == '\\' ? 2 : 1;
+    return Math.min(i, line.length());
+  }
+}
@@ -63,4 +63,27 @@ class XCodeBuildLayout
       throw new IllegalStateException("baseDirectory was null");
     return new File(baseDirectory, "build");
   }
+
+  /**
+   * @param sdk
+   *          the sdk, <code>null</code> for builds that are not bound to a sdk, e.g. for frameworks.
+   * @return the file containing the fingerprint of the inputs of the last successful build.
+   */
+  static File getFingerprintFile(final File baseDirectory, final String configuration, final String sdk)
+  {
+    return new File(getBuildDir(baseDirectory), (sdk == null ? configuration : configuration + "-" + sdk)
+          + ".inputs");
+  }
+
+  /**
+   * @param extension
+   *          <code>json</code> or <code>txt</code>.
+   * @return the file containing the timing report of the last build.
+   */
+  static File getTimingReportFile(final File baseDirectory, final String configuration, final String sdk,
+        final String extension)
+  {
+    return new File(getBuildDir(baseDirectory), (sdk == null ? configuration : configuration + "-" + sdk)
+          + ".timing." + extension);
+  }
 }
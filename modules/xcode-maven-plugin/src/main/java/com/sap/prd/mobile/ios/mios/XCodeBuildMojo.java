@@ -19,8 +19,20 @@
  */
 package com.sap.prd.mobile.ios.mios;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
@@ -34,33 +46,181 @@ import org.apache.maven.plugin.MojoFailureException;
 public class XCodeBuildMojo extends BuildContextAwareMojo
 {
 
+  /**
+   * The number of <code>xcodebuild</code> calls for the configurations and sdks that are executed in parallel. With
+   * more than one thread each call builds into its own output directory; the results are moved into the build
+   * directory when all calls succeeded. The output of the calls is written to
+   * <code>target/xcodebuild-logs</code> and printed when the calls are finished.
+   * 
+   * @parameter expression="${xcode.buildThreads}" default-value="1"
+   * @since 1.14.1
+   */
+  private int buildThreads;
+
+  /**
+   * If set to <code>true</code> the <code>xcodebuild</code> call for a configuration and sdk is skipped when its
+   * inputs did not change since the last successful call and its products still exist. The inputs are the checkout
+   * sources, the extracted libraries and headers of the dependencies, the options, settings and build actions and
+   * the Xcode version. A fingerprint of the inputs is stored next to the products, e.g.
+   * <code>build/Release-iphoneos.inputs</code>.
+   * 
+   * @parameter expression="${xcode.upToDateCheck}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean upToDateCheck;
+
+  /**
+   * If set to <code>true</code> the intermediate build files (<code>OBJROOT</code>) and the precompiled headers are
+   * kept in a pool outside of the target directory, one slot per groupId, artifactId, configuration and sdk. Xcode
+   * can then compile incrementally across builds. <code>clean</code> is omitted from the default build actions in
+   * this case.
+   * 
+   * @parameter expression="${xcode.objrootPool}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean useObjRootPool;
+
+  /**
+   * The directory of the pool, <code>~/.m2/xcode-maven-plugin/objroot-pool</code> if not specified.
+   * 
+   * @parameter expression="${xcode.objrootPool.directory}"
+   * @since 1.14.1
+   */
+  private File objRootPoolDirectory;
+
+  /**
+   * The maximum size of the pool in megabytes. The least recently used slots are deleted if the pool grows beyond
+   * this size.
+   * 
+   * @parameter expression="${xcode.objrootPool.maxSize}" default-value="20480"
+   * @since 1.14.1
+   */
+  private long objRootPoolMaxSize;
+
+  /**
+   * Location of a cache for the products of the <code>xcodebuild</code> calls, either a directory, e.g. on a share
+   * that is mounted on all build agents, or a http(s) url of a server that supports <code>GET</code> and
+   * <code>PUT</code>. The key of an entry is computed from the sources, the dependencies, the options and settings
+   * and the Xcode version. In case of a cache hit the products are restored into the build directory instead of
+   * calling <code>xcodebuild</code>. No cache is used if not specified.
+   * 
+   * @parameter expression="${xcode.buildCache}"
+   * @since 1.14.1
+   */
+  private String buildCache;
+
+  /**
+   * If set to <code>false</code> the products of the <code>xcodebuild</code> calls are not written to the build
+   * cache, e.g. for builds on developer machines that should only profit from the products built by the central
+   * builds.
+   * 
+   * @parameter expression="${xcode.buildCache.push}" default-value="true"
+   * @since 1.14.1
+   */
+  private boolean buildCachePush;
+
+  /**
+   * If set to <code>true</code> only the build steps (<code>CompileC</code>, <code>Ld</code>, <code>Libtool</code>,
+   * <code>CodeSign</code>), the warnings, the errors and the result of the <code>xcodebuild</code> calls are logged.
+   * The complete output is always written to <code>target/xcodebuild-logs</code>.
+   * 
+   * @parameter expression="${xcode.condensedLog}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean condensedLog;
+
+  /**
+   * If set to <code>true</code> a report about the time spent in the build steps is written for each
+   * <code>xcodebuild</code> call, e.g. <code>build/Release-iphoneos.timing.json</code> and
+   * <code>build/Release-iphoneos.timing.txt</code>. The report lists the time per step type and the slowest compile
+   * units and link steps. Steps that became significantly slower since the previous build are reported as warnings.
+   * Not available for parallel builds, see <code>buildThreads</code>.
+   * 
+   * @parameter expression="${xcode.timingReport}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean timingReport;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException
   {
+    // changes queued by goals that have been executed outside of the lifecycle
+    XCodeFlushPListChangesMojo.flush(PListJournal.getJournal(project));
 
     try {
-      XCodeManager xcodeMgr = new XCodeManager();
+      final List<XCodeContext> contexts = new ArrayList<XCodeContext>();
 
       if (PackagingType.getByMavenType(packaging) == PackagingType.FRAMEWORK) {
         // we do not provide a sdk for frameworks as the target should assure that all required sdks are built
         for (String configuration : getConfigurations()) {
-          XCodeContext ctx = getXCodeContext(XCodeContext.SourceCodeLocation.WORKING_COPY, configuration,
-                null);
-          getLog().info(ctx.toString());
-          xcodeMgr.callXcodeBuild(ctx);
+          contexts.add(getXCodeContext(XCodeContext.SourceCodeLocation.WORKING_COPY, configuration, null));
         }
       }
       else {
         for (String configuration : getConfigurations()) {
           for (final String sdk : getSDKs()) {
-            // we do not provide a sdk for frameworks as the target should assure that all required sdks are built
-            XCodeContext ctx = getXCodeContext(XCodeContext.SourceCodeLocation.WORKING_COPY, configuration, sdk);
-            getLog().info(ctx.toString());
+            contexts.add(getXCodeContext(XCodeContext.SourceCodeLocation.WORKING_COPY, configuration, sdk));
+          }
+        }
+      }
+
+      final Map<XCodeContext, BuildInputFingerprint> fingerprints =
+            new LinkedHashMap<XCodeContext, BuildInputFingerprint>();
+      final Map<File, String> digests = new HashMap<File, String>();
+
+      if (upToDateCheck) {
+        contexts.retainAll(getOutdatedContexts(contexts, fingerprints, digests));
+        if (contexts.isEmpty()) {
+          getLog().info("All xcodebuild calls skipped, the products are up to date.");
+          return;
+        }
+      }
+
+      final BuildCache cache = buildCache == null || buildCache.trim().isEmpty() ? null : new BuildCache(
+            BuildCache.createStore(buildCache.trim()));
+      final Map<XCodeContext, String> cacheKeys = new HashMap<XCodeContext, String>();
 
-            xcodeMgr.callXcodeBuild(ctx);
+      if (cache != null) {
+        contexts.removeAll(restoreFromCache(cache, contexts, fingerprints, digests, cacheKeys));
+        if (contexts.isEmpty()) {
+          getLog().info(cache.toString());
+          return;
+        }
+      }
+
+      if (useObjRootPool) {
+        final ObjRootPool pool = new ObjRootPool(objRootPoolDirectory != null ? objRootPoolDirectory
+              : ObjRootPool.getDefaultDirectory(), objRootPoolMaxSize * 1024 * 1024);
+        final List<ObjRootPool.Slot> slots = new ArrayList<ObjRootPool.Slot>();
+
+        try {
+          build(acquireSlots(pool, contexts, slots));
+        }
+        finally {
+          for (ObjRootPool.Slot slot : slots)
+            slot.close();
+          try {
+            pool.evict();
+          }
+          catch (IOException e) {
+            getLog().warn("Cannot evict slots from '" + pool.getDirectory() + "': " + e.getMessage());
           }
         }
       }
+      else {
+        build(contexts);
+      }
+
+      for (Map.Entry<XCodeContext, BuildInputFingerprint> e : fingerprints.entrySet()) {
+        if (contexts.contains(e.getKey()))
+          e.getValue().store(getFingerprintFile(e.getKey()));
+      }
+
+      if (cache != null) {
+        if (buildCachePush)
+          storeInCache(cache, contexts, cacheKeys);
+        getLog().info(cache.toString());
+      }
     }
     catch (IOException ex) {
       throw new MojoExecutionException("XCodeBuild failed due to " + ex.getMessage(), ex);
@@ -69,4 +229,371 @@ public class XCodeBuildMojo extends BuildContextAwareMojo
       throw new MojoExecutionException("XCodeBuild failed due to " + ex.getMessage(), ex);
     }
   }
+
+  /**
+   * @param fingerprints
+   *          receives the fingerprints of the inputs of the contexts that need to be built.
+   * @return the contexts that need to be built.
+   */
+  private List<XCodeContext> getOutdatedContexts(List<XCodeContext> contexts,
+        Map<XCodeContext, BuildInputFingerprint> fingerprints, Map<File, String> digests)
+        throws MojoExecutionException, XCodeException
+  {
+    final List<XCodeContext> outdated = new ArrayList<XCodeContext>();
+
+    for (XCodeContext ctx : contexts) {
+
+      final String name = getName(ctx);
+      final File fingerprintFile = getFingerprintFile(ctx);
+
+      try {
+        final BuildInputFingerprint fingerprint = getFingerprint(ctx, digests);
+        final BuildInputFingerprint previous = BuildInputFingerprint.load(fingerprintFile);
+
+        if (previous == null) {
+          getLog().info("Build required for " + name + ": no inputs of a previous build found in '" + fingerprintFile
+                + "'.");
+        }
+        else if (!fingerprint.equals(previous)) {
+          getLog().info("Build required for " + name + ": changed inputs " + fingerprint.getChangedComponents(previous)
+                + " compared to '" + fingerprintFile + "'.");
+        }
+        else {
+          final File product = getExpectedProduct(ctx);
+
+          if (product.exists()) {
+            getLog().info("Build of " + name + " skipped: inputs unchanged since the build recorded in '"
+                  + fingerprintFile + "', product '" + product + "' exists.");
+            continue;
+          }
+          getLog().info("Build required for " + name + ": inputs unchanged but product '" + product + "' missing.");
+        }
+
+        // a failed build must not leave a valid fingerprint behind
+        if (fingerprintFile.exists() && !fingerprintFile.delete())
+          throw new IOException("Cannot delete '" + fingerprintFile + "'.");
+
+        fingerprints.put(ctx, fingerprint);
+      }
+      catch (IOException e) {
+        getLog().warn("Cannot check whether the build of " + name + " is up to date: " + e.getMessage());
+      }
+
+      outdated.add(ctx);
+    }
+    return outdated;
+  }
+
+  /**
+   * @param fingerprints
+   *          the fingerprints of the inputs of the contexts, receives the fingerprints of the contexts that are not
+   *          contained yet.
+   * @param cacheKeys
+   *          receives the keys of the cache entries of the contexts.
+   * @return the contexts whose products have been restored from the cache.
+   */
+  private List<XCodeContext> restoreFromCache(BuildCache cache, List<XCodeContext> contexts,
+        Map<XCodeContext, BuildInputFingerprint> fingerprints, Map<File, String> digests,
+        Map<XCodeContext, String> cacheKeys) throws MojoExecutionException, XCodeException
+  {
+    final List<XCodeContext> restored = new ArrayList<XCodeContext>();
+
+    for (XCodeContext ctx : contexts) {
+
+      final String name = getName(ctx);
+
+      try {
+        BuildInputFingerprint fingerprint = fingerprints.get(ctx);
+        if (fingerprint == null) {
+          fingerprint = getFingerprint(ctx, digests);
+          fingerprints.put(ctx, fingerprint);
+        }
+
+        final String key = getCacheKey(ctx, fingerprint);
+        cacheKeys.put(ctx, key);
+
+        final File productDirectory = getProductDirectory(ctx);
+
+        if (cache.restore(key, productDirectory)) {
+          getLog().info("Products of " + name + " restored from build cache entry " + key + " into '"
+                + productDirectory + "'.");
+          fingerprint.store(getFingerprintFile(ctx));
+          restored.add(ctx);
+        }
+        else {
+          getLog().info("No build cache entry " + key + " found for " + name + ".");
+        }
+      }
+      catch (IOException e) {
+        getLog().warn("Cannot restore the products of " + name + " from the build cache " + cache.getStore() + ": "
+              + e.getMessage());
+      }
+    }
+    return restored;
+  }
+
+  private void storeInCache(BuildCache cache, List<XCodeContext> contexts, Map<XCodeContext, String> cacheKeys)
+        throws MojoExecutionException, XCodeException
+  {
+    for (XCodeContext ctx : contexts) {
+
+      final String key = cacheKeys.get(ctx);
+      if (key == null)
+        continue;
+
+      try {
+        cache.store(key, getProductDirectory(ctx));
+        getLog().info("Products of " + getName(ctx) + " stored as build cache entry " + key + ".");
+      }
+      catch (IOException e) {
+        getLog().warn("Cannot store the products of " + getName(ctx) + " in the build cache " + cache.getStore()
+              + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return the key of the cache entry, derived from the inputs of the build and the coordinates of the project.
+   */
+  private String getCacheKey(XCodeContext ctx, BuildInputFingerprint fingerprint)
+  {
+    final Map<String, String> components = new LinkedHashMap<String, String>(fingerprint.getComponents());
+    components.put("project", project.getGroupId() + ":" + project.getArtifactId() + ":" + packaging);
+    components.put("configuration", ctx.getConfiguration());
+    components.put("sdk", String.valueOf(ctx.getSDK()));
+    return BuildInputFingerprint.digest(components);
+  }
+
+  /**
+   * @return the directory containing the products of the build, e.g. <code>build/Release-iphoneos</code>.
+   */
+  private File getProductDirectory(XCodeContext ctx) throws MojoExecutionException, XCodeException
+  {
+    if (PackagingType.getByMavenType(packaging) == PackagingType.FRAMEWORK)
+      return getExpectedProduct(ctx).getParentFile();
+    return XCodeBuildLayout.getAppFolder(getXCodeCompileDirectory(), ctx.getConfiguration(), ctx.getSDK());
+  }
+
+  private BuildInputFingerprint getFingerprint(XCodeContext ctx, Map<File, String> digests) throws IOException
+  {
+    final File buildDirectory = new File(project.getBuild().getDirectory());
+
+    // the build directory and the copies of the dependencies are not part of the sources
+    final List<File> excludes = Arrays.asList(
+          XCodeBuildLayout.getBuildDir(getXCodeCompileDirectory()).getAbsoluteFile(),
+          new File(getXCodeCompileDirectory(), ParallelXCodeBuilder.JOBS_DIRECTORY).getAbsoluteFile(),
+          new File(getCheckoutDirectory(), FileUtils.getDelta(project.getBasedir(), buildDirectory)).getAbsoluteFile());
+
+    final Map<String, String> components = new LinkedHashMap<String, String>();
+    components.put(BuildInputFingerprint.XCODE, PersistentBuildSettingsCache.getXcodeVersion());
+    components.put(BuildInputFingerprint.BUILD_ACTIONS, BuildInputFingerprint.digest(ctx.getBuildActions()));
+    components.put(BuildInputFingerprint.OPTIONS, BuildInputFingerprint.digest(ctx.getOptions().getAllOptions()));
+    components.put(BuildInputFingerprint.SETTINGS, BuildInputFingerprint.digest(ctx.getSettings().getAllSettings()));
+    components.put(BuildInputFingerprint.SOURCES, digestDirectory(getCheckoutDirectory(), excludes, digests));
+
+    if (ctx.getSDK() == null) {
+      components.put(BuildInputFingerprint.LIBS,
+            digestDirectory(new File(buildDirectory, FolderLayout.LIBS_DIR_NAME), excludes, digests));
+      components.put(BuildInputFingerprint.HEADERS,
+            digestDirectory(new File(buildDirectory, FolderLayout.HEADERS_DIR_NAME), excludes, digests));
+    }
+    else {
+      components.put(BuildInputFingerprint.LIBS, digestDirectory(
+            FolderLayout.getFolderForExtractedLibs(project, ctx.getConfiguration(), ctx.getSDK()), excludes, digests));
+      components.put(BuildInputFingerprint.HEADERS, digestDirectory(
+            FolderLayout.getFolderForExtractedHeaders(project, ctx.getConfiguration(), ctx.getSDK()), excludes,
+            digests));
+    }
+
+    components.put(BuildInputFingerprint.XCODE_DEPS,
+          digestDirectory(new File(buildDirectory, FolderLayout.XCODE_DEPS_TARGET_FOLDER), excludes, digests));
+
+    return new BuildInputFingerprint(components);
+  }
+
+  private static String digestDirectory(File directory, List<File> excludes, Map<File, String> digests)
+        throws IOException
+  {
+    String digest = digests.get(directory);
+    if (digest == null) {
+      digest = BuildInputFingerprint.digestDirectory(directory, excludes);
+      digests.put(directory, digest);
+    }
+    return digest;
+  }
+
+  private File getExpectedProduct(XCodeContext ctx) throws MojoExecutionException, XCodeException
+  {
+    final String productName = getProductName(ctx.getConfiguration(), ctx.getSDK());
+
+    switch (PackagingType.getByMavenType(packaging)) {
+    case LIB:
+      return XCodeBuildLayout.getBinary(XCodeBuildLayout.getBuildDir(getXCodeCompileDirectory()),
+            ctx.getConfiguration(), ctx.getSDK(), productName);
+    case FRAMEWORK:
+      return new File(EffectiveBuildSettings.getBuildSetting(ctx, EffectiveBuildSettings.BUILT_PRODUCTS_DIR),
+            productName + ".framework");
+    default:
+      return new File(XCodeBuildLayout.getAppFolder(getXCodeCompileDirectory(), ctx.getConfiguration(),
+            ctx.getSDK()), productName + ".app");
+    }
+  }
+
+  private File getFingerprintFile(XCodeContext ctx)
+  {
+    return XCodeBuildLayout.getFingerprintFile(getXCodeCompileDirectory(), ctx.getConfiguration(), ctx.getSDK());
+  }
+
+  private static String getName(XCodeContext ctx)
+  {
+    return ctx.getSDK() == null ? ctx.getConfiguration() : ctx.getConfiguration() + "-" + ctx.getSDK();
+  }
+
+  private void build(List<XCodeContext> contexts) throws IOException, XCodeException
+  {
+    // the modules built in parallel by the reactor share the CPU budget with the calls of this module
+    final XCodeBuildScheduler scheduler = XCodeBuildScheduler.getDefault();
+    final String module = project.getGroupId() + ":" + project.getArtifactId();
+    final int reactorThreads = XCodeBuildScheduler.getReactorThreads(getSession().getRequest().getThreadCount(),
+          getSession().getRequest().isPerCoreThreadCount());
+    final long waitMillis = scheduler.getWaitMillis(module), runMillis = scheduler.getRunMillis(module);
+
+    try {
+      if (buildThreads > 1 && contexts.size() > 1) {
+        for (XCodeContext ctx : contexts)
+          getLog().info(ctx.toString());
+        getLog().info("Executing " + contexts.size() + " xcodebuild calls with " + buildThreads + " threads.");
+        new ParallelXCodeBuilder(buildThreads, new File(project.getBuild().getDirectory(), "xcodebuild-logs"),
+              scheduler, module, scheduler.getShare(reactorThreads * Math.min(buildThreads, contexts.size())))
+          .build(contexts);
+      }
+      else {
+        XCodeManager xcodeMgr = new XCodeManager(scheduler, module, scheduler.getShare(reactorThreads));
+        for (XCodeContext ctx : contexts) {
+          getLog().info(ctx.toString());
+          callXcodeBuild(xcodeMgr, ctx);
+        }
+      }
+    }
+    finally {
+      getLog().info(String.format(Locale.ENGLISH, "xcodebuild calls of %s waited %.2f s for CPU slots and ran %.2f s"
+            + " (budget %d slots, %d reactor threads).",
+            module, (scheduler.getWaitMillis(module) - waitMillis) / 1000.0,
+            (scheduler.getRunMillis(module) - runMillis) / 1000.0, scheduler.getBudget(), reactorThreads));
+    }
+  }
+
+  private void callXcodeBuild(XCodeManager xcodeMgr, XCodeContext ctx) throws IOException, XCodeException
+  {
+    final File rawLogFile = XCodeBuildOutputPipeline.getRawLogFile(new File(project.getBuild().getDirectory(),
+          "xcodebuild-logs"), ctx);
+    OutputStream rawLog = null;
+
+    try {
+      // written before the output is queued for the log, so nothing gets lost if the log does not keep up
+      FileUtils.mkdirs(rawLogFile.getParentFile());
+      rawLog = new BufferedOutputStream(new FileOutputStream(rawLogFile));
+
+      final XCodeBuildOutputPipeline pipeline = new XCodeBuildOutputPipeline(ctx.getOut(), rawLog, condensedLog,
+            XCodeBuildOutputPipeline.DEFAULT_CAPACITY);
+
+      final BuildTimingReport report = timingReport ? new BuildTimingReport(getName(ctx), System.nanoTime()) : null;
+      if (report != null)
+        pipeline.addListener(report);
+
+      try {
+        xcodeMgr.callXcodeBuild(ctx, pipeline);
+      }
+      finally {
+        getLog().info("xcodebuild " + getName(ctx) + ": " + pipeline.getSummary() + ". Complete output: '"
+              + rawLogFile + "'.");
+
+        if (pipeline.getSkippedBytes() > 0)
+          getLog().warn(pipeline.getSkippedBytes() + " bytes of the output of xcodebuild " + getName(ctx)
+                + " have not been parsed because the log did not keep up. The event counts"
+                + (report != null ? " and the timing report" : "") + " are incomplete, the complete output is in '"
+                + rawLogFile + "'.");
+
+        if (report != null) {
+          report.finish(System.nanoTime());
+          storeTimingReport(ctx, report);
+        }
+      }
+    }
+    finally {
+      IOUtils.closeQuietly(rawLog);
+    }
+  }
+
+  private void storeTimingReport(XCodeContext ctx, BuildTimingReport report)
+  {
+    final File jsonFile = XCodeBuildLayout.getTimingReportFile(getXCodeCompileDirectory(), ctx.getConfiguration(),
+          ctx.getSDK(), "json");
+    final File textFile = XCodeBuildLayout.getTimingReportFile(getXCodeCompileDirectory(), ctx.getConfiguration(),
+          ctx.getSDK(), "txt");
+
+    try {
+      BuildTimingReport previous = null;
+      try {
+        previous = BuildTimingReport.load(jsonFile);
+      }
+      catch (IOException e) {
+        getLog().warn("Cannot read the timing report of the previous build '" + jsonFile + "': " + e.getMessage());
+      }
+
+      for (String regression : report.compare(previous))
+        getLog().warn("Build step of " + getName(ctx) + " slower than in the previous build: " + regression);
+
+      report.store(jsonFile, textFile);
+
+      final List<BuildTimingReport.Step> compileUnits = report.getCompileUnits();
+      getLog().info("Build timing of " + getName(ctx) + ": " + report.getWallTime() + " ms"
+            + (compileUnits.isEmpty() ? "" : ", slowest compile unit " + compileUnits.get(0))
+            + ", see '" + textFile + "'.");
+    }
+    catch (IOException e) {
+      getLog().warn("Cannot write the timing report '" + jsonFile + "': " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param slots
+   *          receives the acquired slots.
+   * @return the contexts with <code>OBJROOT</code> and <code>SHARED_PRECOMPS_DIR</code> pointing to the slots of the
+   *         pool. Contexts whose slot is in use by another build are returned unchanged.
+   */
+  private List<XCodeContext> acquireSlots(ObjRootPool pool, List<XCodeContext> contexts, List<ObjRootPool.Slot> slots)
+        throws IOException
+  {
+    final List<XCodeContext> result = new ArrayList<XCodeContext>(contexts.size());
+
+    for (XCodeContext ctx : contexts) {
+
+      final ObjRootPool.Slot slot = pool.acquire(project.getGroupId(), project.getArtifactId(),
+            ctx.getConfiguration(), ctx.getSDK(), PersistentBuildSettingsCache.getXcodeVersion());
+
+      if (slot == null) {
+        getLog().info("Slot for " + getName(ctx) + " in '" + pool.getDirectory()
+              + "' is used by another build, building from scratch.");
+        result.add(ctx);
+        continue;
+      }
+
+      slots.add(slot);
+      getLog().info("Using intermediate build files from '" + slot.getDirectory() + "' for " + getName(ctx) + ".");
+
+      final Map<String, String> managedSettings = new HashMap<String, String>(ctx.getSettings().getManagedSettings());
+      managedSettings.put(Settings.ManagedSetting.OBJROOT.name(), slot.getObjRoot().getAbsolutePath());
+      managedSettings.put(Settings.ManagedSetting.SHARED_PRECOMPS_DIR.name(), slot.getSharedPrecompsDir()
+        .getAbsolutePath());
+
+      // a clean would remove the intermediate build files
+      final List<String> actions = (buildActions == null || buildActions.isEmpty()) ? Arrays.asList("build") : ctx
+        .getBuildActions();
+
+      result.add(new XCodeContext(actions, ctx.getProjectRootDirectory(), ctx.getOut(), new Settings(ctx
+        .getSettings().getUserSettings(), managedSettings), ctx.getOptions()));
+    }
+    return result;
+  }
 }
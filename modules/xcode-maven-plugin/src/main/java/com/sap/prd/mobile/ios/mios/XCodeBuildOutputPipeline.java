@@ -0,0 +1,384 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Asynchronous pipeline between the output of <code>xcodebuild</code> and the log.
+ * <p>
+ * The bytes written to the pipeline are copied into buffers that are handed over to a consumer thread through a
+ * bounded queue. All bytes are written to the raw log on the writing thread before they are queued, so the complete
+ * output is always preserved. Writing never waits for the consumer: if the queue is full the bytes are not parsed
+ * and not logged, a note about the skipped output is logged instead, so that a slow log can never block the
+ * <code>xcodebuild</code> process. The skipped output is contained in the raw log only, and its events are not passed
+ * to the listeners, see {@link #getSkippedBytes()}. Lines that have been skipped in part are dropped as a whole.
+ * <p>
+ * The consumer splits the output into lines, parses them into {@link XCodeBuildEvent}s and passes the events to the
+ * {@link XCodeBuildEventListener}s. The time of an event is the time its line has been written to the pipeline. In
+ * condensed mode only the main build steps, warnings, errors and the result of the build are logged, otherwise every
+ * line. Buffers are recycled and lines are decoded into strings once, so the
+ * allocations per line are low.
+ */
+final class XCodeBuildOutputPipeline extends OutputStream
+{
+  static final int DEFAULT_CAPACITY = 1024;
+
+  private static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final PrintStream log;
+
+  private final OutputStream raw;
+
+  private final boolean condensed;
+
+  private final BlockingQueue<Chunk> queue;
+
+  private final BlockingQueue<Chunk> free;
+
+  private final List<XCodeBuildEventListener> listeners = new CopyOnWriteArrayList<XCodeBuildEventListener>();
+
+  private final int[] eventCounts = new int[XCodeBuildEvent.Type.values().length];
+
+  private final Thread consumer;
+
+  private volatile Throwable failure;
+
+  // producer state
+  private long skipped, totalSkipped;
+
+  private boolean skippedEndsLine;
+
+  private boolean closed;
+
+  // consumer state
+  private byte[] line = new byte[256];
+
+  private int lineLength;
+
+  private long lineTime;
+
+  private boolean skipToNextLine;
+
+  private long lineCount;
+
+  /**
+   * @param log
+   *          receives the lines of the output.
+   * @param raw
+   *          receives the complete output, including the output skipped by the consumer. May be <code>null</code> if
+   *          skipped output may be lost.
+   * @param condensed
+   *          if <code>true</code> only the lines describing events and the result of the build are logged.
+   * @param capacity
+   *          the maximum number of buffers that are waiting for the consumer.
+   */
+  XCodeBuildOutputPipeline(PrintStream log, OutputStream raw, boolean condensed, int capacity)
+  {
+    this.log = log;
+    this.raw = raw;
+    this.condensed = condensed;
+    this.queue = new ArrayBlockingQueue<Chunk>(capacity);
+    this.free = new ArrayBlockingQueue<Chunk>(capacity + 1);
+    this.consumer = new Thread(new Runnable() {
+      @Override
+      public void run()
+      {
+        consume();
+      }
+    }, "xcodebuild-output");
+    this.consumer.setDaemon(true);
+  }
+
+  void addListener(XCodeBuildEventListener listener)
+  {
+    listeners.add(listener);
+  }
+
+  /**
+   * Starts the consumer thread. Must be called before the first byte is written.
+   */
+  XCodeBuildOutputPipeline start()
+  {
+    consumer.start();
+    return this;
+  }
+
+  @Override
+  public void write(int b) throws IOException
+  {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException
+  {
+    if (closed)
+      throw new IOException("Pipeline closed.");
+
+    if (raw != null)
+      raw.write(b, off, len);
+
+    while (len > 0) {
+      final int n = Math.min(len, BUFFER_SIZE);
+
+      Chunk chunk = free.poll();
+      if (chunk == null)
+        chunk = new Chunk(new byte[BUFFER_SIZE]);
+
+      System.arraycopy(b, off, chunk.data, 0, n);
+      chunk.length = n;
+      chunk.time = System.nanoTime();
+      chunk.skippedBefore = skipped;
+      chunk.skippedEndsLine = skippedEndsLine;
+
+      if (queue.offer(chunk)) {
+        skipped = 0;
+      }
+      else {
+        skipped += n;
+        totalSkipped += n;
+        skippedEndsLine = b[off + n - 1] == '\n';
+        free.offer(chunk);
+      }
+
+      off += n;
+      len -= n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    if (raw != null)
+      raw.flush();
+  }
+
+  /**
+   * Waits until the consumer has processed all output and flushes the log. The raw log is not closed.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    if (closed)
+      return;
+    closed = true;
+
+    flush();
+
+    try {
+      if (consumer.isAlive()) {
+        // an empty chunk marks the end, it carries the output skipped at the end
+        final Chunk end = new Chunk(new byte[0]);
+        end.skippedBefore = skipped;
+        end.skippedEndsLine = skippedEndsLine;
+        queue.put(end);
+        consumer.join();
+      }
+      else if (skipped > 0) {
+        logSkipped(skipped);
+      }
+      skipped = 0;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for the xcodebuild output to be processed.");
+    }
+
+    log.flush();
+
+    if (failure != null) {
+      final IOException e = new IOException("Cannot process xcodebuild output: " + failure.getMessage());
+      e.initCause(failure);
+      throw e;
+    }
+  }
+
+  /**
+   * @return the number of lines processed by the consumer. Valid after {@link #close()}.
+   */
+  long getLineCount()
+  {
+    return lineCount;
+  }
+
+  /**
+   * @return the number of bytes that have not been parsed and logged because the consumer did not keep up with the
+   *         output. The events of these bytes are missing in the event counts and have not been passed to the
+   *         listeners.
+   */
+  long getSkippedBytes()
+  {
+    return totalSkipped;
+  }
+
+  /**
+   * @return the number of events of the given type. Valid after {@link #close()}.
+   */
+  int getEventCount(XCodeBuildEvent.Type type)
+  {
+    return eventCounts[type.ordinal()];
+  }
+
+  /**
+   * @return a summary of the events, e.g. <code>12 CompileC, 1 Libtool, 2 warnings, 0 errors</code>.
+   */
+  String getSummary()
+  {
+    return getEventCount(XCodeBuildEvent.Type.COMPILE) + " CompileC, " + getEventCount(XCodeBuildEvent.Type.LINK)
+          + " Ld, " + getEventCount(XCodeBuildEvent.Type.LIBTOOL) + " Libtool, "
+          + getEventCount(XCodeBuildEvent.Type.CODESIGN) + " CodeSign, "
+          + getEventCount(XCodeBuildEvent.Type.WARNING) + " warnings, " + getEventCount(XCodeBuildEvent.Type.ERROR)
+          + " errors";
+  }
+
+  /**
+   * @return the file for the raw output of the build of the given context.
+   */
+  static File getRawLogFile(File logDirectory, XCodeContext ctx)
+  {
+    return new File(logDirectory, ctx.getConfiguration() + (ctx.getSDK() == null ? "" : "-" + ctx.getSDK())
+          + ".log");
+  }
+
+  private void consume()
+  {
+    try {
+      for (;;) {
+        final Chunk chunk = queue.take();
+
+        if (chunk.skippedBefore > 0) {
+          // the rest of the current line has been skipped, it is contained in the raw log only
+          lineLength = 0;
+          logSkipped(chunk.skippedBefore);
+          // if the skipped output ends within a line the chunk starts within that line
+          skipToNextLine = !chunk.skippedEndsLine;
+        }
+
+        if (chunk.length == 0)
+          break;
+
+        process(chunk.data, chunk.length, chunk.time);
+        free.offer(chunk);
+      }
+      if (lineLength > 0)
+        endLine();
+    }
+    catch (InterruptedException e) {
+      failure = e;
+    }
+    catch (RuntimeException e) {
+      failure = e;
+      // keep the producer from running into a full queue
+      queue.clear();
+    }
+  }
+
+  /**
+   * @param time
+   *          the time the data has been received, which is the time of the lines starting within the data.
+   */
+  private void process(byte[] data, int length, long time)
+  {
+    for (int i = 0; i < length; i++) {
+      final byte b = data[i];
+
+      if (b == '\n') {
+        if (skipToNextLine)
+          skipToNextLine = false;
+        else
+          endLine();
+      }
+      else if (!skipToNextLine) {
+        if (lineLength == 0)
+          lineTime = time;
+        if (lineLength == line.length)
+          line = Arrays.copyOf(line, 2 * line.length);
+        line[lineLength++] = b;
+      }
+    }
+  }
+
+  private void endLine()
+  {
+    int length = lineLength;
+    if (length > 0 && line[length - 1] == '\r')
+      length--;
+
+    final String text = new String(line, 0, length, UTF_8);
+    lineLength = 0;
+    lineCount++;
+
+    final XCodeBuildEvent event = XCodeBuildEvent.parse(text, lineTime);
+
+    if (event != null) {
+      eventCounts[event.getType().ordinal()]++;
+      for (XCodeBuildEventListener listener : listeners)
+        listener.onEvent(event);
+    }
+
+    if (!condensed) {
+      log.println(text);
+    }
+    else if (event != null && event.getType() != XCodeBuildEvent.Type.STEP) {
+      log.println(!event.getType().isStep() || event.getSubject() == null ? text : event.getName() + " "
+            + event.getSubject());
+    }
+    else if (text.startsWith("** ") || text.startsWith("=== ")) {
+      // the targets and the result of the build
+      log.println(text);
+    }
+  }
+
+  private void logSkipped(long bytes)
+  {
+    log.println("[... " + bytes + " bytes of the xcodebuild output skipped, the log did not keep up."
+          + " See the complete output in the raw log ...]");
+  }
+
+  private static final class Chunk
+  {
+    final byte[] data;
+
+    int length;
+
+    long skippedBefore;
+
+    boolean skippedEndsLine;
+
+    long time;
+
+    Chunk(byte[] data)
+    {
+      this.data = data;
+    }
+  }
+}
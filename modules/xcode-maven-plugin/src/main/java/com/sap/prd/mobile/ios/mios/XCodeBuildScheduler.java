@@ -0,0 +1,332 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+
+/**
+ * Distributes a CPU budget across all <code>xcodebuild</code> calls of the reactor. Without coordination each
+ * <code>xcodebuild</code> call uses as many jobs as there are cores, so parallel module builds (<code>mvn -T</code>)
+ * or parallel configurations (<code>xcode.buildThreads</code>) oversubscribe the machine.
+ * <p>
+ * A call acquires a {@link Lease} for a number of job slots before it starts and passes the number of slots as
+ * <code>-jobs</code> to <code>xcodebuild</code>. Calls that do not fit into the remaining budget wait in the order
+ * of their arrival. The plugin classes are shared by all modules of the reactor, so there is one scheduler per
+ * reactor, see {@link #getDefault()}.
+ * <p>
+ * The budget is the number of available processors unless configured with the system property
+ * <code>-Dxcode.cpuBudget</code>.
+ */
+final class XCodeBuildScheduler
+{
+  private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  static final String BUDGET_PROPERTY = "xcode.cpuBudget";
+
+  /**
+   * The <code>xcodebuild</code> option for the number of concurrent build operations.
+   */
+  static final String JOBS_OPTION = "jobs";
+
+  private static final XCodeBuildScheduler DEFAULT = new XCodeBuildScheduler(getBudget(System.getProperties()));
+
+  private final int budget;
+
+  private int free;
+
+  private final LinkedList<Lease> queue = new LinkedList<Lease>();
+
+  private final Map<String, Usage> usages = new TreeMap<String, Usage>();
+
+  /**
+   * @param budget
+   *          the number of job slots that can be used at the same time.
+   */
+  XCodeBuildScheduler(int budget)
+  {
+    if (budget < 1)
+      throw new IllegalArgumentException("Invalid CPU budget: " + budget + ".");
+
+    this.budget = budget;
+    this.free = budget;
+  }
+
+  /**
+   * @return the scheduler of the reactor.
+   */
+  static XCodeBuildScheduler getDefault()
+  {
+    return DEFAULT;
+  }
+
+  static int getBudget(Properties properties)
+  {
+    final int processors = Runtime.getRuntime().availableProcessors();
+    final String value = properties.getProperty(BUDGET_PROPERTY);
+
+    if (value == null)
+      return processors;
+
+    try {
+      final int budget = Integer.parseInt(value.trim());
+      if (budget > 0)
+        return budget;
+    }
+    catch (NumberFormatException e) {
+      // handled below
+    }
+
+    LOGGER.warning("Invalid value '" + value + "' for " + BUDGET_PROPERTY + ", using " + processors + ".");
+    return processors;
+  }
+
+  /**
+   * @param threadCount
+   *          the thread count of the reactor as specified with <code>mvn -T</code>, e.g. <code>4</code> or
+   *          <code>1.5C</code>, <code>null</code> for a sequential build.
+   * @return the number of modules that are built in parallel.
+   */
+  static int getReactorThreads(String threadCount, boolean perCore)
+  {
+    if (threadCount == null || threadCount.trim().isEmpty())
+      return 1;
+
+    final String value = threadCount.trim().replace("C", "");
+
+    try {
+      final float threads = Float.parseFloat(value);
+      return Math.max(1, (int) (perCore || threadCount.contains("C") ? threads
+            * Runtime.getRuntime().availableProcessors() : threads));
+    }
+    catch (NumberFormatException e) {
+      return 1;
+    }
+  }
+
+  int getBudget()
+  {
+    return budget;
+  }
+
+  /**
+   * @param concurrentCalls
+   *          the number of <code>xcodebuild</code> calls that are expected to run at the same time.
+   * @return the number of job slots a call gets if the budget is shared equally.
+   */
+  int getShare(int concurrentCalls)
+  {
+    return Math.max(1, budget / Math.max(1, concurrentCalls));
+  }
+
+  /**
+   * @return the number of jobs configured by the user for the context with the <code>jobs</code> option, 0 if not
+   *         configured.
+   */
+  static int getConfiguredJobs(XCodeContext ctx)
+  {
+    final String value = ctx.getOptions().getUserOptions().get(JOBS_OPTION);
+
+    if (value == null)
+      return 0;
+
+    try {
+      return Math.max(0, Integer.parseInt(value.trim()));
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * @return a copy of the context with the <code>jobs</code> option.
+   */
+  static XCodeContext withJobs(XCodeContext ctx, int jobs)
+  {
+    final Map<String, String> userOptions = new HashMap<String, String>(ctx.getOptions().getUserOptions());
+    userOptions.put(JOBS_OPTION, Integer.toString(jobs));
+
+    return new XCodeContext(ctx.getBuildActions(), ctx.getProjectRootDirectory(), ctx.getOut(), ctx.getSettings(),
+          new Options(userOptions, ctx.getOptions().getManagedOptions()));
+  }
+
+  /**
+   * Waits until the job slots are available. Calls are served in the order of their arrival. The number of slots is
+   * limited to the budget.
+   * 
+   * @param module
+   *          the name of the module the call belongs to, for the summary.
+   * @throws InterruptedIOException
+   *           if the thread has been interrupted while waiting.
+   */
+  synchronized Lease acquire(String module, int jobs) throws InterruptedIOException
+  {
+    final Lease lease = new Lease(module, Math.max(1, Math.min(budget, jobs)), System.currentTimeMillis());
+    queue.add(lease);
+
+    if (queue.getFirst() != lease || free < lease.jobs)
+      LOGGER.info("Waiting for " + lease.jobs + " of " + budget + " CPU slots for xcodebuild of " + module + ", "
+            + (budget - free) + " in use, " + (queue.size() - 1) + " calls waiting before.");
+
+    try {
+      while (queue.getFirst() != lease || free < lease.jobs)
+        wait();
+    }
+    catch (InterruptedException e) {
+      queue.remove(lease);
+      notifyAll();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for CPU slots for xcodebuild of " + module + ".");
+    }
+
+    queue.removeFirst();
+    free -= lease.jobs;
+    lease.granted = System.currentTimeMillis();
+
+    // the next call may fit into the remaining budget
+    notifyAll();
+    return lease;
+  }
+
+  private synchronized void release(Lease lease)
+  {
+    if (lease.released)
+      return;
+
+    lease.released = true;
+    free += lease.jobs;
+
+    Usage usage = usages.get(lease.module);
+    if (usage == null) {
+      usage = new Usage();
+      usages.put(lease.module, usage);
+    }
+    usage.calls++;
+    usage.jobs += lease.jobs;
+    usage.waitMillis += lease.getWaitMillis();
+    usage.runMillis += System.currentTimeMillis() - lease.granted;
+
+    notifyAll();
+  }
+
+  /**
+   * @return the number of slots that are not in use.
+   */
+  synchronized int getFree()
+  {
+    return free;
+  }
+
+  /**
+   * @return the time in milliseconds the calls of the module waited for slots, in total.
+   */
+  synchronized long getWaitMillis(String module)
+  {
+    final Usage usage = usages.get(module);
+    return usage == null ? 0 : usage.waitMillis;
+  }
+
+  /**
+   * @return the time in milliseconds the calls of the module held slots, in total.
+   */
+  synchronized long getRunMillis(String module)
+  {
+    final Usage usage = usages.get(module);
+    return usage == null ? 0 : usage.runMillis;
+  }
+
+  /**
+   * @return the wait and run times of the finished calls per module.
+   */
+  synchronized String getSummary()
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.ENGLISH, "xcodebuild CPU budget: %d slots%n", budget));
+
+    if (usages.isEmpty())
+      return sb.toString();
+
+    sb.append(String.format(Locale.ENGLISH, "%n%-40s %7s %7s %10s %10s%n", "module", "calls", "jobs", "wait", "run"));
+    for (Map.Entry<String, Usage> e : usages.entrySet()) {
+      final Usage usage = e.getValue();
+      sb.append(String.format(Locale.ENGLISH, "%-40s %7d %7.1f %8.2f s %8.2f s%n", e.getKey(), usage.calls,
+            (double) usage.jobs / usage.calls, usage.waitMillis / 1000.0, usage.runMillis / 1000.0));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Job slots held by one <code>xcodebuild</code> call. The slots are returned with {@link #close()}.
+   */
+  final class Lease
+  {
+    private final String module;
+
+    private final int jobs;
+
+    private final long requested;
+
+    private long granted;
+
+    private boolean released;
+
+    private Lease(String module, int jobs, long requested)
+    {
+      this.module = module;
+      this.jobs = jobs;
+      this.requested = requested;
+    }
+
+    /**
+     * @return the number of job slots, to be passed as <code>-jobs</code> to <code>xcodebuild</code>.
+     */
+    int getJobs()
+    {
+      return jobs;
+    }
+
+    long getWaitMillis()
+    {
+      return granted - requested;
+    }
+
+    /**
+     * Returns the slots. Subsequent calls have no effect.
+     */
+    void close()
+    {
+      release(this);
+    }
+  }
+
+  private static final class Usage
+  {
+    private int calls, jobs;
+
+    private long waitMillis, runMillis;
+  }
+}
@@ -31,13 +31,15 @@ import org.apache.maven.plugin.MojoFailureException;
 
 /**
  * Appends a suffix to the appId. No actions are taken if the suffix is not specified or the suffix
- * has zero length.
+ * has zero length. The change is queued in the plist journal of the project and written by the
+ * <code>flush-plist-changes</code> goal.
  * 
  * @goal change-app-id
  * 
  */
 public class XCodeChangeAppIDMojo extends BuildContextAwareMojo
 {
+  static final String GOAL = "change-app-id";
 
   private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
   /**
@@ -69,13 +71,12 @@ public class XCodeChangeAppIDMojo extends BuildContextAwareMojo
         catch (XCodeException e) {
           throw new MojoExecutionException(e.getMessage(), e);
         }
-        PListAccessor infoPlistAccessor = new PListAccessor(infoPlistFile);
         if (alreadyUpdatedPlists.contains(infoPlistFile)) {
           LOGGER.finer("PList file '" + infoPlistFile.getName()
                 + "' was already updated for another configuration. This file will be skipped.");
         }
         else {
-          changeAppId(infoPlistAccessor, appIdSuffix);
+          changeAppId(PListJournal.getJournal(project), infoPlistFile, appIdSuffix);
           alreadyUpdatedPlists.add(infoPlistFile);
         }
       }
@@ -84,31 +85,31 @@ public class XCodeChangeAppIDMojo extends BuildContextAwareMojo
 
   static void changeAppId(PListAccessor infoPlistAccessor, String appIdSuffix) throws MojoExecutionException
   {
-    ensurePListFileIsWritable(infoPlistAccessor.getPlistFile());
+    final PListJournal journal = new PListJournal();
+    changeAppId(journal, infoPlistAccessor.getPlistFile(), appIdSuffix);
+
     try {
-      appendAppIdSuffix(infoPlistAccessor, appIdSuffix);
+      journal.flush();
     }
-    catch (IOException e) {
+    catch (XCodeException e) {
       throw new MojoExecutionException(e.getMessage(), e);
     }
   }
 
-  private static void ensurePListFileIsWritable(File pListFile) throws MojoExecutionException
+  static void changeAppId(PListJournal journal, File infoPlistFile, String appIdSuffix)
+        throws MojoExecutionException
   {
-    if (!pListFile.canWrite()) {
-      if (!pListFile.setWritable(true, true))
-        throw new MojoExecutionException("Could not make plist file '" + pListFile + "' writable.");
-
-      LOGGER.info("Made PList file '" + pListFile + "' writable.");
+    try {
+      String newAppId = journal.getStringValue(infoPlistFile, PListAccessor.KEY_BUNDLE_IDENTIFIER) + "." + appIdSuffix;
+      journal.setStringValue(infoPlistFile, PListAccessor.KEY_BUNDLE_IDENTIFIER, newAppId, GOAL);
+      LOGGER.info("PList file '" + infoPlistFile + "': AppId will be set to '" + newAppId + "'.");
+    }
+    catch (IOException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+    catch (XCodeException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
     }
-  }
-
-  private static void appendAppIdSuffix(PListAccessor infoPlistAccessor, String appIdSuffix)
-        throws IOException
-  {
-    String newAppId = infoPlistAccessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER) + "." + appIdSuffix;
-    infoPlistAccessor.updateStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER, newAppId);
-    LOGGER.info("PList file '" + infoPlistAccessor.getPlistFile() + "' updated: Set AppId to '" + newAppId + "'.");
   }
 
 }
@@ -37,11 +37,16 @@ import org.apache.maven.plugin.MojoFailureException;
  * For CFBundleShortVersion the same strategy as described for CFBundleVersion applies. Additionally
  * the version is truncated so that it consists of three numbers separated by two dots.
  * 
+ * The changes are queued in the plist journal of the project and written by the
+ * <code>flush-plist-changes</code> goal.
+ * 
  * @goal change-versions-in-plist
  * @since 1.7.0
  */
 public class XCodeChangeVersionInPListMojo extends BuildContextAwareMojo
 {
+  static final String GOAL = "change-versions-in-plist";
+
   /**
    * If this parameter is set to <code>true</code> no version will be transferred into the Xcode
    * project.
@@ -81,11 +86,9 @@ public class XCodeChangeVersionInPListMojo extends BuildContextAwareMojo
 
           try {
 
-            ensurePListFileIsWritable(infoPlistFile);
-
             for (UpdateVersionInPListTask updateVersionInPListTask : updateTasks) {
               updateVersionInPListTask.setPListFile(infoPlistFile).setVersion(project.getVersion())
-                .execute();
+                .setJournal(PListJournal.getJournal(project)).execute();
             }
 
             alreadyUpdatedPlists.add(infoPlistFile);
@@ -98,14 +101,4 @@ public class XCodeChangeVersionInPListMojo extends BuildContextAwareMojo
       }
     }
   }
-
-  private void ensurePListFileIsWritable(File pListFile) throws XCodeException
-  {
-    if (!pListFile.canWrite()) {
-      if (!pListFile.setWritable(true, true))
-        throw new XCodeException("Could not make plist file '" + pListFile + "' writable.");
-
-      getLog().info("Made PList file '" + pListFile + "' writable.");
-    }
-  }
 }
@@ -42,6 +42,15 @@ public class XCodeCopySourcesMojo extends AbstractXCodeMojo
    */
   private boolean useSymbolicLinks;
 
+  /**
+   * If set to <code>true</code> the products of the last build are kept for the up-to-date check of the
+   * <code>xcodebuild</code> goal.
+   * 
+   * @parameter expression="${xcode.upToDateCheck}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean upToDateCheck;
+
   private boolean useSymbolicLinks()
   {
     return useSymbolicLinks;
@@ -73,8 +82,18 @@ public class XCodeCopySourcesMojo extends AbstractXCodeMojo
     final File copyOfXcodeDepsDir = getCanonicalFile(new File(checkoutDirectory,
           buildDirPath + "/" + FolderLayout.XCODE_DEPS_TARGET_FOLDER));
 
+    // if the up-to-date check is enabled the products of the last build are kept for the xcodebuild goal
+    final File xcodeBuildDir = XCodeBuildLayout.getBuildDir(getXCodeCompileDirectory());
+    final File preservedXcodeBuildDir = new File(project.getBuild().getDirectory(), "xcode-build.preserved");
+
     try {
 
+      if (preservedXcodeBuildDir.exists())
+        com.sap.prd.mobile.ios.mios.FileUtils.deleteDirectory(preservedXcodeBuildDir);
+
+      if (upToDateCheck && xcodeBuildDir.isDirectory() && !xcodeBuildDir.renameTo(preservedXcodeBuildDir))
+        getLog().info("Cannot preserve '" + xcodeBuildDir + "', the next build cannot be skipped.");
+
       if (checkoutDirectory.exists())
         com.sap.prd.mobile.ios.mios.FileUtils.deleteDirectory(checkoutDirectory);
 
@@ -120,6 +139,16 @@ public class XCodeCopySourcesMojo extends AbstractXCodeMojo
         }
       }
 
+      if (preservedXcodeBuildDir.exists()) {
+        if (!xcodeBuildDir.exists() && xcodeBuildDir.getParentFile().isDirectory()
+              && preservedXcodeBuildDir.renameTo(xcodeBuildDir)) {
+          getLog().info("Products of the previous build preserved in '" + xcodeBuildDir + "'.");
+        }
+        else {
+          com.sap.prd.mobile.ios.mios.FileUtils.deleteDirectory(preservedXcodeBuildDir);
+        }
+      }
+
     }
     catch (IOException e) {
       throw new MojoExecutionException(e.getMessage(), e);
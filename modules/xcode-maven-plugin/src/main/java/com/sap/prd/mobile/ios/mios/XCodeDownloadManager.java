@@ -20,11 +20,25 @@
 package com.sap.prd.mobile.ios.mios;
 
 import java.io.File;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -39,6 +53,7 @@ import org.sonatype.aether.graph.Dependency;
 import org.sonatype.aether.graph.DependencyNode;
 import org.sonatype.aether.graph.DependencyVisitor;
 import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.repository.RepositoryPolicy;
 import org.sonatype.aether.resolution.ArtifactRequest;
 import org.sonatype.aether.resolution.ArtifactResolutionException;
 import org.sonatype.aether.resolution.ArtifactResult;
@@ -49,9 +64,15 @@ class XCodeDownloadManager
 
   private final static Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
 
+  /**
+   * The maximum number of artifacts passed to one {@link RepositorySystem#resolveArtifacts} call.
+   */
+  static final int BATCH_SIZE = 16;
+
   private final List<RemoteRepository> projectRepos;
   private final RepositorySystem repoSystem;
   private final RepositorySystemSession repoSession;
+  private NegativeResolutionCache negativeResolutionCache;
 
   XCodeDownloadManager(final List<RemoteRepository> projectRepos,
         final RepositorySystem repoSystem, final RepositorySystemSession repoSession)
@@ -61,6 +82,81 @@ class XCodeDownloadManager
     this.repoSession = repoSession;
   }
 
+  /**
+   * @param negativeResolutionCache
+   *          side artifacts recorded as absent are not looked up in the remote repositories, <code>null</code> to
+   *          look up all side artifacts.
+   */
+  XCodeDownloadManager setNegativeResolutionCache(NegativeResolutionCache negativeResolutionCache)
+  {
+    this.negativeResolutionCache = negativeResolutionCache;
+    return this;
+  }
+
+  NegativeResolutionCache getNegativeResolutionCache()
+  {
+    return negativeResolutionCache;
+  }
+
+  /**
+   * @return <code>true</code> if the artifact has been recorded as absent in the negative resolution cache. The cache
+   *         is not consulted if updates are forced (<code>mvn -U</code>) or if the artifact is available in the
+   *         reactor or in the local repository, e.g. because it has been installed since it was recorded.
+   */
+  private boolean isKnownAbsent(final org.sonatype.aether.artifact.Artifact artifact)
+  {
+    if (negativeResolutionCache == null)
+      return false;
+
+    if (repoSession != null) {
+
+      if (RepositoryPolicy.UPDATE_POLICY_ALWAYS.equals(repoSession.getUpdatePolicy()))
+        return false;
+
+      if (repoSession.getWorkspaceReader() != null && repoSession.getWorkspaceReader().findArtifact(artifact) != null)
+        return false;
+
+      if (repoSession.getLocalRepositoryManager() != null
+            && new File(repoSession.getLocalRepository().getBasedir(), repoSession.getLocalRepositoryManager()
+              .getPathForLocalArtifact(artifact)).exists())
+        return false;
+    }
+
+    return negativeResolutionCache.isAbsent(artifact, projectRepos);
+  }
+
+  private void recordResult(final org.sonatype.aether.artifact.Artifact artifact, final boolean missing)
+  {
+    if (negativeResolutionCache == null)
+      return;
+
+    if (!missing) {
+      negativeResolutionCache.remove(artifact, projectRepos);
+    }
+    else if (repoSession != null && repoSession.isOffline()) {
+      // offline every artifact that is not in the local repository is reported as missing, even if it exists remotely
+      LOGGER.fine("Absence of " + artifact + " not recorded in offline mode.");
+    }
+    else {
+      negativeResolutionCache.recordAbsent(artifact, projectRepos);
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the resolution failed only because the artifact does not exist.
+   */
+  private static boolean isMissing(ArtifactResolutionException ex)
+  {
+    if (ex.getResults() == null || ex.getResults().isEmpty())
+      return false;
+
+    for (ArtifactResult result : ex.getResults())
+      if (!result.isMissing())
+        return false;
+
+    return true;
+  }
+
   org.sonatype.aether.artifact.Artifact resolveArtifact(final org.sonatype.aether.artifact.Artifact artifact)
         throws SideArtifactNotFoundException
   {
@@ -172,6 +268,12 @@ class XCodeDownloadManager
   {
     final org.sonatype.aether.artifact.Artifact sideArtifact = getSideArtifact(mainArtifact, classifier, type);
 
+    if (isKnownAbsent(sideArtifact))
+      throw new SideArtifactNotFoundException("Side artifact " + sideArtifact.getGroupId() + ":"
+            + sideArtifact.getArtifactId() + ":" + sideArtifact.getVersion() + ":" + sideArtifact.getClassifier()
+            + " could not be resolved (recorded as absent in '"
+            + negativeResolutionCache.getFile(sideArtifact, projectRepos) + "').", sideArtifact);
+
     final ArtifactRequest artifactRequest = new ArtifactRequest();
     artifactRequest.setRepositories(projectRepos);
     artifactRequest.setArtifact(sideArtifact);
@@ -180,11 +282,16 @@ class XCodeDownloadManager
 
       final ArtifactResult result = repoSystem.resolveArtifact(repoSession, artifactRequest);
 
-      return getResolvedSideArtifact(sideArtifact, result);
+      final org.sonatype.aether.artifact.Artifact resolved = getResolvedSideArtifact(sideArtifact, result);
+      recordResult(sideArtifact, false);
+      return resolved;
 
     }
     catch (ArtifactResolutionException ex) {
-      
+
+      if (isMissing(ex))
+        recordResult(sideArtifact, true);
+
       final boolean sideArtifactAvailable = sideArtifact != null;
       throw new SideArtifactNotFoundException("Side artifact " +
             (sideArtifactAvailable ? sideArtifact.getGroupId() : "<n/a>") + ":" +
@@ -207,6 +314,137 @@ class XCodeDownloadManager
     return resolveSideArtifact(artifact, artifact.getClassifier(), artifact.getType());
   }
 
+  /**
+   * Resolves the artifacts with {@link RepositorySystem#resolveArtifacts} in batches of at most {@value #BATCH_SIZE}
+   * artifacts. The batches are resolved in parallel by at most <code>threads</code> threads, so the round trips to
+   * the remote repositories for many artifacts overlap.
+   * 
+   * @return the resolved artifact for each requested artifact, <code>null</code> for artifacts that do not exist in
+   *         the remote repositories. Artifacts whose resolution failed for other reasons are not contained, they can
+   *         be resolved one by one with {@link #resolveArtifact(Artifact)}.
+   * @throws InterruptedIOException
+   *           if the thread has been interrupted while waiting for the batches.
+   */
+  Map<org.sonatype.aether.artifact.Artifact, org.sonatype.aether.artifact.Artifact> resolveArtifacts(
+        final Collection<? extends org.sonatype.aether.artifact.Artifact> artifacts, final int threads)
+        throws InterruptedIOException
+  {
+    final Map<org.sonatype.aether.artifact.Artifact, org.sonatype.aether.artifact.Artifact> result =
+          new LinkedHashMap<org.sonatype.aether.artifact.Artifact, org.sonatype.aether.artifact.Artifact>();
+
+    final List<org.sonatype.aether.artifact.Artifact> requested = new ArrayList<org.sonatype.aether.artifact.Artifact>(
+          new LinkedHashSet<org.sonatype.aether.artifact.Artifact>(artifacts));
+
+    if (requested.isEmpty())
+      return result;
+
+    for (Iterator<org.sonatype.aether.artifact.Artifact> it = requested.iterator(); it.hasNext();) {
+      final org.sonatype.aether.artifact.Artifact artifact = it.next();
+      if (isKnownAbsent(artifact)) {
+        result.put(artifact, null);
+        it.remove();
+      }
+    }
+
+    if (requested.isEmpty())
+      return result;
+
+    final List<List<ArtifactRequest>> batches = new ArrayList<List<ArtifactRequest>>();
+
+    for (int i = 0; i < requested.size(); i += BATCH_SIZE) {
+      final List<ArtifactRequest> batch = new ArrayList<ArtifactRequest>();
+      for (org.sonatype.aether.artifact.Artifact artifact : requested.subList(i,
+            Math.min(requested.size(), i + BATCH_SIZE))) {
+        final ArtifactRequest artifactRequest = new ArtifactRequest();
+        artifactRequest.setRepositories(projectRepos);
+        artifactRequest.setArtifact(artifact);
+        batch.add(artifactRequest);
+      }
+      batches.add(batch);
+    }
+
+    final long start = System.currentTimeMillis();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, batches.size())),
+          new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+              final Thread thread = new Thread(r, "artifact-resolver-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+
+    try {
+      final List<Future<List<ArtifactResult>>> futures = new ArrayList<Future<List<ArtifactResult>>>();
+
+      for (final List<ArtifactRequest> batch : batches) {
+        futures.add(executor.submit(new Callable<List<ArtifactResult>>() {
+          @Override
+          public List<ArtifactResult> call()
+          {
+            try {
+              return repoSystem.resolveArtifacts(repoSession, batch);
+            }
+            catch (ArtifactResolutionException e) {
+              // contains the results of the artifacts that could be resolved
+              return e.getResults();
+            }
+          }
+        }));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          for (ArtifactResult artifactResult : futures.get(i).get()) {
+
+            final org.sonatype.aether.artifact.Artifact artifact = artifactResult.getRequest().getArtifact();
+
+            if (artifactResult.isResolved() && artifactResult.getArtifact().getFile() != null
+                  && artifactResult.getArtifact().getFile().exists()) {
+              result.put(artifact, artifactResult.getArtifact());
+              recordResult(artifact, false);
+            }
+            else if (artifactResult.isMissing()) {
+              result.put(artifact, null);
+              recordResult(artifact, true);
+            }
+            else
+              LOGGER.warning("Cannot resolve " + artifact + ": " + artifactResult.getExceptions());
+          }
+        }
+        catch (ExecutionException e) {
+          LOGGER.warning("Cannot resolve " + batches.get(i).size() + " artifacts in a batch: "
+                + e.getCause().getMessage());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while resolving " + requested.size() + " artifacts.");
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    LOGGER.info("Resolved " + requested.size() + " artifacts in " + batches.size() + " batches with "
+          + Math.min(threads, batches.size()) + " threads in " + (System.currentTimeMillis() - start) + " ms, "
+          + countNulls(result.values()) + " not available.");
+
+    return result;
+  }
+
+  private static int countNulls(Collection<?> values)
+  {
+    int count = 0;
+    for (Object value : values)
+      if (value == null)
+        count++;
+    return count;
+  }
+
   private org.sonatype.aether.artifact.Artifact getResolvedSideArtifact(
         final org.sonatype.aether.artifact.Artifact sideArtifact,
         final ArtifactResult result) throws SideArtifactNotFoundException
@@ -231,4 +469,15 @@ class XCodeDownloadManager
     return new DefaultArtifact(mainArtifact.getGroupId(), mainArtifact.getArtifactId(), classifier,
           type, mainArtifact.getVersion());
   }
+
+  /**
+   * @return the side artifact that is resolved by {@link #resolveSideArtifact(org.apache.maven.artifact.Artifact,
+   *         String, String)} for the same parameters.
+   */
+  static DefaultArtifact getSideArtifact(final org.apache.maven.artifact.Artifact mainArtifact,
+        final String classifier, final String type)
+  {
+    return new DefaultArtifact(mainArtifact.getGroupId(), mainArtifact.getArtifactId(), classifier, type,
+          mainArtifact.getVersion());
+  }
 }
@@ -82,7 +82,8 @@ public class XCodeFatLibraryMojo extends AbstractXCodeMojo
     lipoCommand.add("-output");
     lipoCommand.add(fatLibrary.getAbsolutePath());
 
-    final int result = Forker.forkProcess(System.out, null, lipoCommand.toArray(new String[lipoCommand.size()]));
+    final int result = ProcessServices.getDefault().execute(System.out, null,
+          lipoCommand.toArray(new String[lipoCommand.size()]));
 
     if (result != 0)
       throw new MojoExecutionException("Lipo tool invocation failed. Check log file for details.");
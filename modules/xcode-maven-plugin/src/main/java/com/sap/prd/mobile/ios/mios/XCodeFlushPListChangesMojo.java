@@ -0,0 +1,53 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Writes the plist changes that have been queued by goals like <code>change-versions-in-plist</code> and
+ * <code>change-app-id</code>. Each affected plist file is written once. Has to run before <code>xcodebuild</code>.
+ * 
+ * @goal flush-plist-changes
+ * @since 1.14.1
+ */
+public class XCodeFlushPListChangesMojo extends AbstractXCodeMojo
+{
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException
+  {
+    flush(PListJournal.getJournal(project));
+  }
+
+  static void flush(PListJournal journal) throws MojoExecutionException
+  {
+    if (journal.isEmpty())
+      return;
+
+    try {
+      journal.flush();
+    }
+    catch (XCodeException e) {
+      throw new MojoExecutionException(e.getMessage(), e);
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package com.sap.prd.mobile.ios.mios;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
@@ -27,6 +28,31 @@ class XCodeManager
 {
   
   private static final Logger LOGGER = LogManager.getLogManager().getLogger(XCodePluginLogger.getLoggerName());
+
+  private final XCodeBuildScheduler scheduler;
+
+  private final String module;
+
+  private final int jobs;
+
+  XCodeManager()
+  {
+    this(XCodeBuildScheduler.getDefault(), "", 0);
+  }
+
+  /**
+   * @param module
+   *          the name of the module for the summary of the scheduler.
+   * @param jobs
+   *          the number of CPU slots requested from the scheduler for each call unless the <code>jobs</code> option
+   *          is configured, 0 for the whole budget.
+   */
+  XCodeManager(XCodeBuildScheduler scheduler, String module, int jobs)
+  {
+    this.scheduler = scheduler;
+    this.module = module;
+    this.jobs = jobs;
+  }
   /**
    * Trigger xcodebuild. The configuration is provided by <code>context</code>
    * 
@@ -37,15 +63,52 @@ class XCodeManager
   void callXcodeBuild(XCodeContext ctx) throws IOException,
         XCodeException
   {
-    final CommandLineBuilder commandLineBuilder = new CommandLineBuilder(ctx);
+    callXcodeBuild(ctx, ctx.getOut());
+  }
+
+  /**
+   * Trigger xcodebuild. The output is passed through <code>pipeline</code>, which is started before and closed after
+   * the call.
+   */
+  void callXcodeBuild(XCodeContext ctx, XCodeBuildOutputPipeline pipeline) throws IOException,
+        XCodeException
+  {
+    final PrintStream out = new PrintStream(pipeline, false, "UTF-8");
+    pipeline.start();
+
+    try {
+      callXcodeBuild(ctx, out);
+    }
+    finally {
+      out.flush();
+      pipeline.close();
+    }
+  }
+
+  private void callXcodeBuild(XCodeContext ctx, PrintStream out) throws IOException,
+        XCodeException
+  {
+    final int configuredJobs = XCodeBuildScheduler.getConfiguredJobs(ctx);
+    final XCodeBuildScheduler.Lease lease = scheduler.acquire(module, configuredJobs > 0 ? configuredJobs
+          : jobs > 0 ? jobs : scheduler.getBudget());
+    final int returnValue;
+
+    try {
+      final CommandLineBuilder commandLineBuilder = new CommandLineBuilder(configuredJobs > 0 ? ctx
+            : XCodeBuildScheduler.withJobs(ctx, lease.getJobs()));
 
-    //
-    //TODO The command line printed into the log is not 100% accurate. We have a problem with
-    // quotation marks.
-    LOGGER.info("Executing xcode command: '" + commandLineBuilder.toString() + "'.");
+      //
+      //TODO The command line printed into the log is not 100% accurate. We have a problem with
+      // quotation marks.
+      LOGGER.info("Executing xcode command: '" + commandLineBuilder.toString() + "'.");
+
+      returnValue = ProcessServices.getDefault().execute(out, ctx.getProjectRootDirectory(),
+            commandLineBuilder.createBuildCall());
+    }
+    finally {
+      lease.close();
+    }
 
-    final int returnValue = Forker.forkProcess(ctx.getOut(), ctx.getProjectRootDirectory(),
-          commandLineBuilder.createBuildCall());
     if (returnValue != 0) {
       throw new XCodeException("Could not execute xcodebuild for configuration "
             + ctx.getOptions().getAllOptions().get(Options.ManagedOption.CONFIGURATION.getOptionName()));
@@ -148,6 +148,8 @@ public class XCodeOtaHtmlGeneratorMojo extends BuildContextAwareMojo
       }
     }
 
+    getLog().debug(PListValueCache.getInstance().toString());
+
   }
 
   private Map<String, String> getProperties()
@@ -104,7 +104,7 @@ public class XCodePackageFrameworkMojo extends BuildContextAwareMojo
     try {
       String[] zipCmd = new String[] { "zip", "-r", "-y", "-q", artifactName, zipDirName, zipDirName.replaceAll("framework", "embeddedframework") };
       getLog().info("Executing: " + StringUtils.join(zipCmd, ' '));
-      int exitCode = Forker.forkProcess(System.out, workingDirectory, zipCmd);
+      int exitCode = ProcessServices.getDefault().execute(System.out, workingDirectory, zipCmd);
       if (exitCode != 0) {
         throw new MojoExecutionException("Could not package the Xcode framework.");
       }
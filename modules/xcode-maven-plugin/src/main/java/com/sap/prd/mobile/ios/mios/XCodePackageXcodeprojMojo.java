@@ -31,6 +31,7 @@ import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProjectHelper;
 
 /**
@@ -51,6 +52,10 @@ import org.apache.maven.project.MavenProjectHelper;
  * <li><code>target/xcode-deps/</code></li>
  * </ul>
  * 
+ * Dependencies that are symbolic links to locations outside of the project, e.g. into the extraction store (see
+ * <code>xcode.extractionStore</code>), are packaged with their content instead of as links, so that the archive does
+ * not contain links into the file system of the machine that created it.
+ * 
  * You can use the {@link #additionalArchivePaths} and the {@link #excludes}
  * 
  * If called from command line you have to call <code>mvn initialize</code> before in order to make
@@ -159,7 +164,8 @@ public class XCodePackageXcodeprojMojo extends AbstractXCodeMojo
       includes.add(relativeSrcDirName); // src/xcode folder
       includes.add(relativeTargetDirName + "/xcode-deps/frameworks");
 
-      zip(Arrays.asList("zip", "-r", "-y", "-q", relativeTargetDirName + "/" + xprojZipFileName), includes, excludes);
+      zipWithLinks(getLog(), project.getBasedir(), new File(targetFolder, "xcode-deps"), targetFolder,
+            xprojZipFileName, includes, excludes);
 
       includes.clear();
 
@@ -177,7 +183,8 @@ public class XCodePackageXcodeprojMojo extends AbstractXCodeMojo
         includes.addAll(additionalArchivePaths);
       }
 
-      zip(Arrays.asList("zip", "-r", "-g", "-q", relativeTargetDirName + "/" + xprojZipFileName), includes, myExcludes);
+      zip(getLog(), project.getBasedir(), Arrays.asList("zip", "-r", "-g", "-q", relativeTargetDirName + "/"
+            + xprojZipFileName), includes, myExcludes);
 
       getLog().info("Packaged the Xcode project with all its dependencies into the zip file " + xprojZipFileName);
     }
@@ -190,8 +197,86 @@ public class XCodePackageXcodeprojMojo extends AbstractXCodeMojo
 
   }
 
-  private void zip(List<String> zipCommandParts, Collection<String> includes, Collection<String> excludes)
-        throws IOException, MojoExecutionException
+  /**
+   * Creates the zip file in the target folder from the includes. Symbolic links are stored as links, except links
+   * below <code>dependencies</code> to locations outside of the base directory: these are copied to a staging
+   * directory and packaged with their content.
+   */
+  static void zipWithLinks(Log log, File baseDirectory, File dependencies, File targetFolder, String zipFileName,
+        Collection<String> includes, Collection<String> excludes) throws IOException, MojoExecutionException
+  {
+    final File stagingDirectory = new File(targetFolder, "xcodeproj-staging");
+    ExtractionStore.delete(stagingDirectory);
+
+    final List<String> copied = copyExternalLinks(baseDirectory, dependencies, stagingDirectory);
+
+    final Collection<String> linkExcludes = excludes == null ? new ArrayList<String>() : new ArrayList<String>(
+          excludes);
+    linkExcludes.addAll(copied);
+
+    final String zipFile = new File(targetFolder, zipFileName).getAbsolutePath();
+
+    zip(log, baseDirectory, Arrays.asList("zip", "-r", "-y", "-q", zipFile), includes, linkExcludes);
+
+    if (!copied.isEmpty())
+      zip(log, stagingDirectory, Arrays.asList("zip", "-r", "-y", "-q", zipFile), copied, excludes);
+
+    ExtractionStore.delete(stagingDirectory);
+  }
+
+  /**
+   * Copies the symbolic links below <code>directory</code> that point to locations outside of the base directory to
+   * the same relative path below <code>stagingDirectory</code>. The links are resolved, symbolic links within the
+   * linked folders are kept.
+   * 
+   * @return the paths of the copied links relative to the base directory.
+   */
+  static List<String> copyExternalLinks(File baseDirectory, File directory, File stagingDirectory)
+        throws IOException
+  {
+    final List<File> links = new ArrayList<File>();
+    findExternalLinks(baseDirectory.getCanonicalFile(), directory, links);
+
+    final List<String> result = new ArrayList<String>();
+
+    for (File link : links) {
+      final String relativePath = FileUtils.getRelativePath(link.getAbsolutePath(), baseDirectory.getAbsolutePath(),
+            "/");
+      final File copy = new File(stagingDirectory, relativePath);
+      FileUtils.mkdirs(copy.getParentFile());
+
+      // -H resolves the link given on the command line only
+      final int exitCode = ProcessServices.getDefault().execute(System.out, null, "cp", "-RH",
+            link.getAbsolutePath(), copy.getAbsolutePath());
+      if (exitCode != 0)
+        throw new IOException("Cannot copy '" + link + "' to '" + copy + "'. Exit code: " + exitCode);
+
+      result.add(relativePath);
+    }
+    return result;
+  }
+
+  private static void findExternalLinks(File canonicalBaseDirectory, File directory, List<File> links)
+        throws IOException
+  {
+    final File[] children = directory.listFiles();
+
+    if (children == null)
+      return;
+
+    for (File child : children) {
+      if (ExtractionStore.isSymbolicLink(child)) {
+        if (!FileUtils.isChild(canonicalBaseDirectory, child.getCanonicalFile()))
+          links.add(child);
+      }
+      else if (child.isDirectory()) {
+        findExternalLinks(canonicalBaseDirectory, child, links);
+      }
+    }
+  }
+
+  private static void zip(Log log, File directory, List<String> zipCommandParts, Collection<String> includes,
+        Collection<String> excludes) throws IOException, MojoExecutionException
   {
 
     ArrayList<String> zipCmdCall = new ArrayList<String>();
@@ -204,8 +289,8 @@ public class XCodePackageXcodeprojMojo extends AbstractXCodeMojo
       zipCmdCall.addAll(excludes);
     }
 
-    getLog().info("Executing: " + StringUtils.join(zipCmdCall, ' '));
-    int exitCode = Forker.forkProcess(System.out, project.getBasedir(), zipCmdCall.toArray(new String[] {}));
+    log.info("Executing: " + StringUtils.join(zipCmdCall, ' '));
+    int exitCode = ProcessServices.getDefault().execute(System.out, directory, zipCmdCall.toArray(new String[] {}));
     if (exitCode != 0) {
       throw new MojoExecutionException(
             "Could not package the Xcode project with all its dependencies into a zip file.");
@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Starts the retrieval of the effective build settings for all configurations and sdks in
+ * background. The goals executed later on wait for the results instead of calling
+ * <code>xcodebuild -showBuildSettings</code> one after the other.
+ * 
+ * @goal prefetch-build-settings
+ * @since 1.14.1
+ */
+public class XCodePrefetchBuildSettingsMojo extends BuildContextAwareMojo
+{
+
+  /**
+   * The maximum number of <code>xcodebuild -showBuildSettings</code> calls running at the same
+   * time.
+   * 
+   * @parameter expression="${xcode.prefetchBuildSettings.threads}" default-value="4"
+   */
+  private int prefetchThreads;
+
+  /**
+   * If set to <code>true</code> the build settings are retrieved on first access.
+   * 
+   * @parameter expression="${xcode.prefetchBuildSettings.skip}" default-value="false"
+   */
+  private boolean skipPrefetch;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException
+  {
+    if (skipPrefetch) {
+      getLog().info("Prefetching of build settings will be skipped.");
+      return;
+    }
+
+    final List<XCodeContext> contexts = new ArrayList<XCodeContext>();
+
+    for (String configuration : getConfigurations()) {
+      for (String sdk : getSDKs()) {
+        contexts.add(getXCodeContext(XCodeContext.SourceCodeLocation.WORKING_COPY, configuration, sdk));
+      }
+    }
+
+    getLog().debug("Prefetching build settings for " + contexts.size() + " contexts using at most "
+          + prefetchThreads + " threads.");
+    EffectiveBuildSettings.prefetch(contexts, prefetchThreads);
+  }
+}
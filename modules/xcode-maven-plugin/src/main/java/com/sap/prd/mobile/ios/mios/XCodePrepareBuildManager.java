@@ -23,10 +23,12 @@ import static com.sap.prd.mobile.ios.mios.FileUtils.mkdirs;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -56,6 +58,17 @@ class XCodePrepareBuildManager
 
   private boolean preferFatLibs;
 
+  private int resolutionThreads = 1;
+
+  private ExtractionStore extractionStore;
+
+  /**
+   * The side artifacts resolved upfront by {@link #prefetch(Collection)}, <code>null</code> values for side
+   * artifacts that do not exist.
+   */
+  private final Map<org.sonatype.aether.artifact.Artifact, org.sonatype.aether.artifact.Artifact> prefetched =
+        new HashMap<org.sonatype.aether.artifact.Artifact, org.sonatype.aether.artifact.Artifact>();
+
   XCodePrepareBuildManager(final ArchiverManager archiverManager,
         final RepositorySystemSession repoSystemSession, final RepositorySystem repoSystem,
         final List<RemoteRepository> projectRepos, final boolean useSymbolicLinks,
@@ -81,6 +94,38 @@ class XCodePrepareBuildManager
     return this;
   }
 
+  /**
+   * @param resolutionThreads
+   *          the number of threads resolving the side artifacts of the dependencies in parallel.
+   */
+  public XCodePrepareBuildManager setResolutionThreads(int resolutionThreads)
+  {
+    this.resolutionThreads = resolutionThreads;
+    return this;
+  }
+
+  /**
+   * @param negativeResolutionCache
+   *          side artifacts recorded as absent are not looked up in the remote repositories, <code>null</code> to
+   *          look up all side artifacts.
+   */
+  public XCodePrepareBuildManager setNegativeResolutionCache(NegativeResolutionCache negativeResolutionCache)
+  {
+    this.downloadManager.setNegativeResolutionCache(negativeResolutionCache);
+    return this;
+  }
+
+  /**
+   * @param extractionStore
+   *          the dependency archives are extracted into the store and linked into the project, <code>null</code>
+   *          to extract the archives into the project.
+   */
+  public XCodePrepareBuildManager setExtractionStore(ExtractionStore extractionStore)
+  {
+    this.extractionStore = extractionStore;
+    return this;
+  }
+
   void prepareBuild(final MavenProject project, Set<String> configurations,
         final Set<String> sdks) throws MojoExecutionException, XCodeException, IOException
   {
@@ -93,6 +138,11 @@ class XCodePrepareBuildManager
       LOGGER.info("No dependencies found.");
     }
 
+    // all side artifacts are resolved in parallel before anything is extracted
+    prefetch(getSideArtifacts(project.getArtifacts(), configurations, sdks));
+
+    final List<Artifact> libraries = new ArrayList<Artifact>();
+
     while (dependentArtifacts.hasNext()) {
 
       final Artifact mainArtifact = (Artifact) dependentArtifacts.next();
@@ -101,6 +151,7 @@ class XCodePrepareBuildManager
 
       if (PackagingType.LIB.getMavenPackaging().equals(mainArtifact.getType())) {
         prepareLibrary(project, configurations, sdks, mainArtifact);
+        libraries.add(mainArtifact);
       }
       else if (PackagingType.FRAMEWORK.getMavenPackaging().equals(mainArtifact.getType())) {
         prepareFramework(project, mainArtifact, configurations);
@@ -119,6 +170,82 @@ class XCodePrepareBuildManager
               + "' will be ignored.");
       }
     }
+
+    prepareBundles(project, libraries);
+
+    if (downloadManager.getNegativeResolutionCache() != null)
+      LOGGER.info(downloadManager.getNegativeResolutionCache().toString() + ".");
+
+    if (extractionStore != null) {
+      LOGGER.info(extractionStore.toString() + ".");
+
+      try {
+        extractionStore.evict();
+      }
+      catch (IOException ex) {
+        LOGGER.warning("Cannot evict entries from " + extractionStore + ": " + ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return the side artifacts of the libraries and frameworks: thin libs, headers, fat libs and the configuration
+   *         specific frameworks.
+   */
+  static List<org.sonatype.aether.artifact.Artifact> getSideArtifacts(Collection<Artifact> mainArtifacts,
+        Set<String> configurations, Set<String> sdks)
+  {
+    final List<org.sonatype.aether.artifact.Artifact> result = new ArrayList<org.sonatype.aether.artifact.Artifact>();
+
+    for (Artifact mainArtifact : mainArtifacts) {
+
+      if (PackagingType.LIB.getMavenPackaging().equals(mainArtifact.getType())) {
+        for (String configuration : configurations) {
+          for (String sdk : sdks) {
+            result.add(XCodeDownloadManager.getSideArtifact(mainArtifact, configuration + "-" + sdk, TYPE_ARCHIVE));
+            result.add(XCodeDownloadManager.getSideArtifact(mainArtifact, configuration + "-" + sdk, TYPE_HEADERS));
+          }
+          result.add(XCodeDownloadManager.getSideArtifact(mainArtifact, configuration
+                + XCodeFatLibraryMojo.FAT_LIBRARY_CLASSIFIER_SUFFIX, TYPE_ARCHIVE));
+        }
+      }
+      else if (PackagingType.FRAMEWORK.getMavenPackaging().equals(mainArtifact.getType())) {
+        for (String configuration : configurations)
+          result.add(XCodeDownloadManager.getSideArtifact(mainArtifact, configuration, Types.FRAMEWORK));
+      }
+    }
+    return result;
+  }
+
+  private void prefetch(Collection<org.sonatype.aether.artifact.Artifact> sideArtifacts) throws IOException
+  {
+    prefetched.putAll(downloadManager.resolveArtifacts(sideArtifacts, resolutionThreads));
+  }
+
+  /**
+   * Resolves a side artifact. Side artifacts that have been resolved upfront are taken from
+   * {@link #prefetched}, all others are resolved now.
+   */
+  private org.sonatype.aether.artifact.Artifact resolveSideArtifact(final Artifact mainArtifact,
+        final String classifier, final String type) throws SideArtifactNotFoundException
+  {
+    return resolveSideArtifact(XCodeDownloadManager.getSideArtifact(mainArtifact, classifier, type));
+  }
+
+  private org.sonatype.aether.artifact.Artifact resolveSideArtifact(
+        final org.sonatype.aether.artifact.Artifact sideArtifact) throws SideArtifactNotFoundException
+  {
+    if (!prefetched.containsKey(sideArtifact))
+      return downloadManager.resolveArtifact(sideArtifact);
+
+    final org.sonatype.aether.artifact.Artifact resolved = prefetched.get(sideArtifact);
+
+    if (resolved == null)
+      throw new SideArtifactNotFoundException("Side artifact " + sideArtifact.getGroupId() + ":"
+            + sideArtifact.getArtifactId() + ":" + sideArtifact.getVersion() + ":" + sideArtifact.getClassifier()
+            + " could not be resolved.", sideArtifact);
+
+    return resolved;
   }
 
   private void prepareLibrary(final MavenProject project,
@@ -163,14 +290,6 @@ class XCodePrepareBuildManager
           provideThinLibs(thinLibs, xcodeConfiguration, mainArtifact, project);
       }
     }
-
-    try {
-      prepareBundles(project, mainArtifact);
-    }
-    catch (SideArtifactNotFoundException e) {
-      LOGGER.info("Bundle not found for: '" + mainArtifact.getGroupId() + ":" + mainArtifact.getArtifactId() + ":"
-            + mainArtifact.getVersion() + ":" + mainArtifact.getType() + "'.");
-    }
   }
 
   private static void prepareRootFolders(MavenProject project, Set<String> configurations, Set<String> sdks)
@@ -195,8 +314,7 @@ class XCodePrepareBuildManager
         final Artifact primaryArtifact)
   {
     try {
-      return downloadManager.resolveSideArtifact(primaryArtifact,
-            xcodeConfiguration + "-" + sdk, TYPE_ARCHIVE).getFile();
+      return resolveSideArtifact(primaryArtifact, xcodeConfiguration + "-" + sdk, TYPE_ARCHIVE).getFile();
     }
     catch (SideArtifactNotFoundException ex) {
       LOGGER.info("Library not found for: " + primaryArtifact.getGroupId() + ":"
@@ -215,15 +333,43 @@ class XCodePrepareBuildManager
     }
   }
 
-  private void prepareBundles(MavenProject project, final Artifact primaryArtifact) throws MojoExecutionException,
-        SideArtifactNotFoundException, IOException
+  /**
+   * The bundles of the libraries are listed inside of the main artifacts. The main artifacts of all libraries are
+   * extracted first, so that the bundles can be resolved in parallel.
+   */
+  private void prepareBundles(MavenProject project, final List<Artifact> primaryArtifacts)
+        throws MojoExecutionException, IOException
   {
-    List<String> bundles = readBundleInformation(project, primaryArtifact);
-    if (bundles == null)
-      return;
+    final Map<Artifact, List<String>> bundles = new LinkedHashMap<Artifact, List<String>>();
+    final List<org.sonatype.aether.artifact.Artifact> bundleArtifacts =
+          new ArrayList<org.sonatype.aether.artifact.Artifact>();
+
+    for (Artifact primaryArtifact : primaryArtifacts) {
 
-    for (String coords : bundles) {
-      prepareBundle(project, primaryArtifact, coords);
+      final List<String> coordinates = readBundleInformation(project, primaryArtifact);
+      if (coordinates == null)
+        continue;
+
+      bundles.put(primaryArtifact, coordinates);
+      for (String coords : coordinates) {
+        final Artifact bundleArtifact = GAVUtil.getArtifact(coords);
+        bundleArtifacts.add(XCodeDownloadManager.getSideArtifact(bundleArtifact, bundleArtifact.getClassifier(),
+              bundleArtifact.getType()));
+      }
+    }
+
+    prefetch(bundleArtifacts);
+
+    for (Map.Entry<Artifact, List<String>> e : bundles.entrySet()) {
+      try {
+        for (String coords : e.getValue()) {
+          prepareBundle(project, e.getKey(), coords);
+        }
+      }
+      catch (SideArtifactNotFoundException ex) {
+        LOGGER.info("Bundle not found for: '" + e.getKey().getGroupId() + ":" + e.getKey().getArtifactId() + ":"
+              + e.getKey().getVersion() + ":" + e.getKey().getType() + "'.");
+      }
     }
   }
 
@@ -232,7 +378,8 @@ class XCodePrepareBuildManager
   {
     Artifact bundleArtifact = GAVUtil.getArtifact(coords);
 
-    final org.sonatype.aether.artifact.Artifact artifact = downloadManager.resolveSideArtifact(bundleArtifact);
+    final org.sonatype.aether.artifact.Artifact artifact = resolveSideArtifact(bundleArtifact,
+          bundleArtifact.getClassifier(), bundleArtifact.getType());
 
     if (artifact != null) {
       final File source = artifact.getFile();
@@ -242,32 +389,22 @@ class XCodePrepareBuildManager
             "~", File.separator)
             + ".bundle");
 
-      createDirectory(target);
-      com.sap.prd.mobile.ios.mios.FileUtils.unarchive(archiverManager, "zip", source, target);
-
-      LOGGER.info("Bundle unarchived from " + source + " to " + target);
+      if (extract(project, source, target, "zip", new ArchiverExtractor("zip")))
+        LOGGER.info("Bundle unarchived from " + source + " to " + target);
 
     }
   }
 
   @SuppressWarnings("unchecked")
-  private List<String> readBundleInformation(MavenProject project, Artifact primaryArtifact) throws IOException
+  private List<String> readBundleInformation(MavenProject project, Artifact primaryArtifact)
+        throws MojoExecutionException
   {
 
     final File mainArtifactExtracted = FolderLayout.getFolderForExtractedPrimaryArtifact(project,
           primaryArtifact);
 
-    if (mainArtifactExtracted.exists())
-      com.sap.prd.mobile.ios.mios.FileUtils.deleteDirectory(mainArtifactExtracted);
-
-    if (!mainArtifactExtracted.mkdirs())
-      throw new IOException("Cannot create directory for expanded mainartefact of " + primaryArtifact.getGroupId()
-            + ":" + primaryArtifact.getArtifactId() + " (" + mainArtifactExtracted + ").");
-
-    com.sap.prd.mobile.ios.mios.FileUtils.unarchive(archiverManager, "tar", primaryArtifact.getFile(),
-          mainArtifactExtracted);
-
-    LOGGER.info("Main artifact extracted to '" + mainArtifactExtracted + "'.");
+    if (extract(project, primaryArtifact.getFile(), mainArtifactExtracted, "tar", new ArchiverExtractor("tar")))
+      LOGGER.info("Main artifact extracted to '" + mainArtifactExtracted + "'.");
 
     File bundleFile = new File(mainArtifactExtracted, "bundles.txt");
     if (!bundleFile.exists())
@@ -301,7 +438,7 @@ class XCodePrepareBuildManager
   private File resolveFatLib(MavenProject project, final String xcodeConfiguration, final Artifact primaryArtifact)
   {
     try {
-      return downloadManager.resolveSideArtifact(primaryArtifact,
+      return resolveSideArtifact(primaryArtifact,
             xcodeConfiguration + XCodeFatLibraryMojo.FAT_LIBRARY_CLASSIFIER_SUFFIX,
             TYPE_ARCHIVE).getFile();
     }
@@ -353,7 +490,7 @@ class XCodePrepareBuildManager
         final String sdk, final Artifact primaryArtifact) throws MojoExecutionException, SideArtifactNotFoundException
   {
 
-    final org.sonatype.aether.artifact.Artifact headersArtifact = downloadManager.resolveSideArtifact(primaryArtifact,
+    final org.sonatype.aether.artifact.Artifact headersArtifact = resolveSideArtifact(primaryArtifact,
           xcodeConfiguration + "-" + sdk, TYPE_HEADERS);
 
     if (headersArtifact != null) {
@@ -362,9 +499,7 @@ class XCodePrepareBuildManager
             xcodeConfiguration, sdk,
             primaryArtifact.getGroupId(), primaryArtifact.getArtifactId());
 
-      createDirectory(headersDirectory);
-
-      extractHeaders(headersDirectory, headersArtifact.getFile());
+      extract(project, headersArtifact.getFile(), headersDirectory, "tar", new ArchiverExtractor("tar"));
     }
   }
 
@@ -374,7 +509,7 @@ class XCodePrepareBuildManager
 
     for (String configuration : configurations) {
       try {
-        org.sonatype.aether.artifact.Artifact frameworkArtifact = downloadManager.resolveSideArtifact(primaryArtifact,
+        org.sonatype.aether.artifact.Artifact frameworkArtifact = resolveSideArtifact(primaryArtifact,
               configuration, Types.FRAMEWORK);
         extractFramework(project, primaryArtifact, configuration, frameworkArtifact.getFile());
       }
@@ -394,14 +529,7 @@ class XCodePrepareBuildManager
   {
     File target = FolderLayout.getFolderForExtractedFrameworkswithGA(project, primaryArtifact.getGroupId(),
           primaryArtifact.getArtifactId(), configuration);
-    createDirectory(target);
-    try {
-      extractFileWithShellScript(frameworkArtifact, target, new File(project.getBuild().getDirectory()));
-    }
-    catch (IOException ioe) {
-      throw new MojoExecutionException("Cannot unarchive framework from " + frameworkArtifact + " to "
-            + target);
-    }
+    extract(project, frameworkArtifact, target, "framework", new FrameworkExtractor(project));
   }
 
   private void handlePrimaryArtifact(MavenProject project, final Artifact primaryArtifact,
@@ -415,14 +543,8 @@ class XCodePrepareBuildManager
               primaryArtifact.getGroupId(), primaryArtifact.getArtifactId());
         extractFramework(project, primaryArtifact, configuration, source);
 
-        try {
-          extractFileWithShellScript(source, target, new File(project.getBuild().getDirectory()));
-        }
-        catch (IOException ioe) {
-          throw new MojoExecutionException("Cannot unarchive framework from " + source + " to " + target);
-        }
-
-        LOGGER.info("Framework unarchived from " + source + " to " + target);
+        if (extract(project, source, target, "framework", new FrameworkExtractor(project)))
+          LOGGER.info("Framework unarchived from " + source + " to " + target);
       }
     }
   }
@@ -432,29 +554,83 @@ class XCodePrepareBuildManager
     return "lib" + primaryArtifact.getArtifactId() + ".a";
   }
 
-  private void extractHeaders(final File headersDirectory, final File headers)
-  {
-    com.sap.prd.mobile.ios.mios.FileUtils.unarchive(archiverManager, "tar", headers, headersDirectory);
-  }
-
   /**
-   * Creates a directory. If the directory already exists the directory is deleted beforehand.
+   * Extracts the archive into the directory unless the directory has been extracted completely from the archive or
+   * from an archive with the same checksum, see {@link ExtractionMarker}. The markers are kept below the build
+   * directory of the project. If an {@link ExtractionStore} is set the
+   * archive is extracted into the store, or taken from there, and the directory becomes a symbolic link into the
+   * store.
    * 
-   * @param directory
-   * @throws MojoExecutionException
+   * @param type
+   *          the kind of extraction, distinguishes the entries of the store.
+   * @return <code>true</code> if the directory has been (re)created, <code>false</code> if it was up to date.
    */
-  private static void createDirectory(final File directory) throws MojoExecutionException
+  private boolean extract(final MavenProject project, final File archive, final File directory, final String type,
+        final ExtractionStore.Extractor extractor) throws MojoExecutionException
   {
+    final File marker = ExtractionMarker.getFile(new File(project.getBuild().getDirectory()), directory);
 
     try {
-      com.sap.prd.mobile.ios.mios.FileUtils.deleteDirectory(directory);
+      if (ExtractionMarker.isUpToDate(archive, directory, marker)) {
+        LOGGER.info("'" + directory + "' is up to date with '" + archive + "', extraction skipped.");
+        return false;
+      }
+
+      ExtractionMarker.invalidate(marker);
+      // left over next to the directory by former versions
+      ExtractionMarker.invalidate(new File(directory.getAbsolutePath() + ExtractionMarker.SUFFIX));
+
+      // the directory may be a link into the extraction store, that must not be followed
+      ExtractionStore.delete(directory);
+
+      final String sha1 = ExtractionMarker.sha1(archive);
+
+      if (extractionStore == null) {
+        com.sap.prd.mobile.ios.mios.FileUtils.mkdirs(directory);
+        extractor.extract(archive, directory);
+      }
+      else {
+        ExtractionStore.link(extractionStore.get(archive, sha1, type, extractor), directory);
+      }
+
+      ExtractionMarker.write(archive, sha1, directory, marker);
+      return true;
     }
     catch (IOException ex) {
-      throw new MojoExecutionException("", ex);
+      throw new MojoExecutionException("Cannot extract '" + archive + "' to '" + directory + "'.", ex);
+    }
+  }
+
+  private class ArchiverExtractor implements ExtractionStore.Extractor
+  {
+    private final String archiverName;
+
+    ArchiverExtractor(String archiverName)
+    {
+      this.archiverName = archiverName;
+    }
+
+    @Override
+    public void extract(File archive, File directory)
+    {
+      com.sap.prd.mobile.ios.mios.FileUtils.unarchive(archiverManager, archiverName, archive, directory);
     }
+  }
+
+  private class FrameworkExtractor implements ExtractionStore.Extractor
+  {
+    private final MavenProject project;
 
-    if (!directory.mkdirs())
-      throw new MojoExecutionException("Cannot create directory (" + directory + ")");
+    FrameworkExtractor(MavenProject project)
+    {
+      this.project = project;
+    }
+
+    @Override
+    public void extract(File archive, File directory) throws IOException
+    {
+      extractFileWithShellScript(archive, directory, new File(project.getBuild().getDirectory()));
+    }
   }
 
   private void extractFileWithShellScript(File sourceFile, File destinationFolder, File tmpFolder) throws IOException
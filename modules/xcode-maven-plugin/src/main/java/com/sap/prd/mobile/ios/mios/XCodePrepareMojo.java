@@ -19,12 +19,15 @@
  */
 package com.sap.prd.mobile.ios.mios;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.sonatype.aether.RepositorySystem;
@@ -48,6 +51,13 @@ public class XCodePrepareMojo extends AbstractXCodeMojo
    */
   public MavenProject project;
 
+  /**
+   * @parameter default-value="${session}"
+   * @required
+   * @readonly
+   */
+  private MavenSession session;
+
   /**
    * @component role="org.codehaus.plexus.archiver.manager.ArchiverManager"
    * @required
@@ -87,6 +97,74 @@ public class XCodePrepareMojo extends AbstractXCodeMojo
    */
   protected boolean preferFatLibs;
 
+  /**
+   * The number of threads resolving the side artifacts of the dependencies (libraries, headers, fat libraries,
+   * frameworks and bundles) in parallel. The side artifacts of all dependencies are resolved before they are
+   * extracted.
+   * 
+   * @parameter expression="${xcode.resolutionThreads}" default-value="4"
+   * @since 1.14.1
+   */
+  private int resolutionThreads;
+
+  /**
+   * If set to <code>true</code> side artifacts that do not exist in the remote repositories, e.g. thin libraries of
+   * libraries that ship only fat libraries or missing headers and bundles, are recorded and not looked up again.
+   * Entries for released versions are kept forever, entries for snapshot versions expire after
+   * <code>negativeResolutionCacheTtl</code>. The entries are ignored with <code>mvn -U</code> and for side artifacts
+   * that are available in the reactor or in the local repository. Offline builds do not record entries, and
+   * entries recorded with other remote repositories are not taken into account.
+   * 
+   * @parameter expression="${xcode.negativeResolutionCache}" default-value="true"
+   * @since 1.14.1
+   */
+  private boolean useNegativeResolutionCache;
+
+  /**
+   * The directory of the cache of absent side artifacts,
+   * <code>~/.m2/xcode-maven-plugin/absent-artifacts</code> if not specified.
+   * 
+   * @parameter expression="${xcode.negativeResolutionCache.directory}"
+   * @since 1.14.1
+   */
+  private File negativeResolutionCacheDirectory;
+
+  /**
+   * The time in minutes after which absent side artifacts of snapshot versions are looked up again. Absent side
+   * artifacts of snapshot versions are not cached if 0.
+   * 
+   * @parameter expression="${xcode.negativeResolutionCache.ttl}" default-value="1440"
+   * @since 1.14.1
+   */
+  private long negativeResolutionCacheTtl;
+
+  /**
+   * If <code>true</code> the dependency archives (headers, bundles, frameworks) are extracted into a store shared by
+   * all modules and builds, and the folders below <code>target</code> become symbolic links into the store. An
+   * archive is extracted only once even if several modules depend on it.
+   * 
+   * @parameter expression="${xcode.extractionStore}" default-value="false"
+   * @since 1.14.1
+   */
+  private boolean useExtractionStore;
+
+  /**
+   * The directory of the extraction store, <code>~/.m2/xcode-maven-plugin/extraction-store</code> if not specified.
+   * 
+   * @parameter expression="${xcode.extractionStore.directory}"
+   * @since 1.14.1
+   */
+  private File extractionStoreDirectory;
+
+  /**
+   * The size of the extraction store in MB. If the store is larger the least recently used entries are deleted,
+   * except entries in use by running builds.
+   * 
+   * @parameter expression="${xcode.extractionStore.maxSize}" default-value="10240"
+   * @since 1.14.1
+   */
+  private long extractionStoreMaxSize;
+
   /**
    * @parameter expression="${xcode.useSymbolicLinks}" default-value="false"
    */
@@ -100,11 +178,34 @@ public class XCodePrepareMojo extends AbstractXCodeMojo
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException
   {
+    if (useExtractionStore) {
+      final Log log = getLog();
+
+      // the entries used by this build may be deleted by other builds afterwards
+      SessionEndHook.register(session, "extraction-store", new Runnable() {
+        @Override
+        public void run()
+        {
+          try {
+            ExtractionStore.releaseAll();
+          }
+          catch (IOException e) {
+            log.warn("Cannot release the entries of the extraction store: " + e.getMessage());
+          }
+        }
+      });
+    }
 
     try {
       new XCodePrepareBuildManager(archiverManager,
             repoSession, repoSystem, projectRepos, useSymbolicLinks,
-            additionalPackagingTypes).setPreferFalLibs(preferFatLibs)
+            additionalPackagingTypes).setPreferFalLibs(preferFatLibs).setResolutionThreads(resolutionThreads)
+        .setNegativeResolutionCache(useNegativeResolutionCache ? new NegativeResolutionCache(
+              negativeResolutionCacheDirectory != null ? negativeResolutionCacheDirectory : NegativeResolutionCache
+                .getDefaultDirectory(), negativeResolutionCacheTtl * 60 * 1000) : null)
+        .setExtractionStore(useExtractionStore ? new ExtractionStore(
+              extractionStoreDirectory != null ? extractionStoreDirectory : ExtractionStore.getDefaultDirectory(),
+              extractionStoreMaxSize * 1024 * 1024) : null)
         .prepareBuild(project, getConfigurations(), getSDKs());
     }
     catch (XCodeException ex) {
@@ -151,6 +151,14 @@ public class XCodeVersionInfoMojo extends BuildContextAwareMojo
    */
   private boolean hideConfidentialInformation;
 
+  /**
+   * The format of the versions.plist file copied into the app, either <code>xml</code> or <code>binary</code>. Binary
+   * plists share repeated strings and are smaller and faster to parse on the device.
+   * 
+   * @parameter expression="${xcode.versionsPlistFormat}" default-value="xml"
+   */
+  private String versionsPlistFormat;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException
   {
@@ -190,6 +198,8 @@ public class XCodeVersionInfoMojo extends BuildContextAwareMojo
       IOUtils.closeQuietly(os);
     }
 
+    final PList.Format plistFormat = getVersionsPlistFormat();
+
     final File versionsPlistFile = new File(project.getBuild().getDirectory(), "versions.plist");
     if (versionsPlistFile.exists()) {
       if(!versionsPlistFile.delete())
@@ -199,7 +209,8 @@ public class XCodeVersionInfoMojo extends BuildContextAwareMojo
     }
     try {
       new VersionInfoPListManager().createVersionInfoPlistFile(project.getGroupId(), project.getArtifactId(),
-            project.getVersion(), syncInfoFile, getDependencies(), versionsPlistFile, hideConfidentialInformation);
+            project.getVersion(), syncInfoFile, getDependencies(), versionsPlistFile, hideConfidentialInformation,
+            plistFormat);
     }
     catch (IOException e) {
       throw new MojoExecutionException(e.getMessage(), e);
@@ -233,6 +244,18 @@ public class XCodeVersionInfoMojo extends BuildContextAwareMojo
 
   }
 
+  private PList.Format getVersionsPlistFormat() throws MojoExecutionException
+  {
+    if ("xml".equalsIgnoreCase(versionsPlistFormat))
+      return PList.Format.XML;
+
+    if ("binary".equalsIgnoreCase(versionsPlistFormat))
+      return PList.Format.BINARY;
+
+    throw new MojoExecutionException("Invalid versions plist format '" + versionsPlistFormat
+          + "'. Supported formats are 'xml' and 'binary'.");
+  }
+
   private void copyVersionsFilesAndSign() throws IOException, ExecutionResultVerificationException, XCodeException,
         MojoExecutionException
   {
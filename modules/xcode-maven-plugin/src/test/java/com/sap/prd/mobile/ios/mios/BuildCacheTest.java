@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class BuildCacheTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File products;
+
+  private HttpServer server;
+
+  private final Map<String, byte[]> serverContent = new ConcurrentHashMap<String, byte[]>();
+
+  @Before
+  public void setup() throws Exception
+  {
+    products = tmpFolder.newFolder("Release-iphoneos");
+    FileUtils.writeStringToFile(new File(products, "libMyLib.a"), "archive", "UTF-8");
+    FileUtils.writeStringToFile(new File(products, "MyApp.app/MyApp"), "executable", "UTF-8");
+    new File(products, "MyApp.app/MyApp").setExecutable(true);
+  }
+
+  @After
+  public void tearDown()
+  {
+    if (server != null)
+      server.stop(0);
+  }
+
+  @Test
+  public void testLocalStore() throws Exception
+  {
+    final LocalBuildCacheStore store = new LocalBuildCacheStore(tmpFolder.newFolder("cache"));
+    final BuildCache cache = new BuildCache(store);
+
+    cache.store("0123abcd", products);
+    assertTrue(store.getFile("0123abcd").isFile());
+    assertEquals(new File(store.getDirectory(), "01"), store.getFile("0123abcd").getParentFile());
+
+    assertRestore(cache);
+  }
+
+  @Test
+  public void testHttpStore() throws Exception
+  {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/cache", new HttpHandler() {
+
+      @Override
+      public void handle(HttpExchange exchange) throws IOException
+      {
+        final String path = exchange.getRequestURI().getPath();
+
+        if ("PUT".equals(exchange.getRequestMethod())) {
+          serverContent.put(path, read(exchange.getRequestBody()));
+          exchange.sendResponseHeaders(201, -1);
+        }
+        else if (serverContent.containsKey(path)) {
+          final byte[] content = serverContent.get(path);
+          exchange.sendResponseHeaders(200, content.length);
+          exchange.getResponseBody().write(content);
+        }
+        else {
+          exchange.sendResponseHeaders(404, -1);
+        }
+        exchange.close();
+      }
+    });
+    server.start();
+
+    final String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/cache";
+    final BuildCache cache = new BuildCache(BuildCache.createStore(url));
+
+    cache.store("0123abcd", products);
+    assertTrue(serverContent.containsKey("/cache/0123abcd"));
+
+    assertRestore(cache);
+  }
+
+  @Test
+  public void testCreateStore() throws Exception
+  {
+    assertTrue(BuildCache.createStore("https://cache.example.com/xcode") instanceof HttpBuildCacheStore);
+    assertTrue(BuildCache.createStore("/Volumes/share/xcode-cache") instanceof LocalBuildCacheStore);
+  }
+
+  private void assertRestore(BuildCache cache) throws Exception
+  {
+    final File restored = new File(tmpFolder.getRoot(), "build/Release-iphoneos");
+    FileUtils.writeStringToFile(new File(restored, "stale.o"), "stale", "UTF-8");
+
+    assertFalse(cache.restore("fedcba98", restored));
+    assertTrue(new File(restored, "stale.o").exists());
+
+    assertTrue(cache.restore("0123abcd", restored));
+
+    assertFalse(new File(restored, "stale.o").exists());
+    assertEquals("archive", FileUtils.readFileToString(new File(restored, "libMyLib.a"), "UTF-8"));
+    assertTrue(new File(restored, "MyApp.app/MyApp").canExecute());
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getStored());
+    assertTrue(cache.getBytesRestored() > 0);
+    assertEquals(cache.getBytesStored(), cache.getBytesRestored());
+  }
+
+  private static byte[] read(InputStream in) throws IOException
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    IOUtils.copy(in, out);
+    return out.toByteArray();
+  }
+}
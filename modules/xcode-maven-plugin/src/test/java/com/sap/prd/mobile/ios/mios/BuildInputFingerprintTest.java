@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildInputFingerprintTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File sources;
+
+  private File build;
+
+  @Before
+  public void setup() throws Exception
+  {
+    sources = tmpFolder.newFolder("checkout");
+    FileUtils.writeStringToFile(new File(sources, "src/xcode/main.m"), "int main() { return 0; }", "UTF-8");
+    FileUtils.writeStringToFile(new File(sources, "pom.xml"), "<project/>", "UTF-8");
+
+    build = new File(sources, "src/xcode/build");
+    FileUtils.writeStringToFile(new File(build, "Release-iphoneos/libMyLib.a"), "binary", "UTF-8");
+  }
+
+  @Test
+  public void testDirectoryDigest() throws Exception
+  {
+    final List<File> excludes = Collections.singletonList(build.getAbsoluteFile());
+    final String digest = BuildInputFingerprint.digestDirectory(sources, excludes);
+
+    assertEquals(digest, BuildInputFingerprint.digestDirectory(sources, excludes));
+
+    // products do not count
+    FileUtils.writeStringToFile(new File(build, "Release-iphoneos/libMyLib.a"), "other binary", "UTF-8");
+    assertEquals(digest, BuildInputFingerprint.digestDirectory(sources, excludes));
+
+    FileUtils.writeStringToFile(new File(sources, "src/xcode/main.m"), "int main() { return 1; }", "UTF-8");
+    assertFalse(digest.equals(BuildInputFingerprint.digestDirectory(sources, excludes)));
+  }
+
+  @Test
+  public void testRenamedFileChangesDigest() throws Exception
+  {
+    final List<File> excludes = Collections.emptyList();
+    final String digest = BuildInputFingerprint.digestDirectory(sources, excludes);
+
+    new File(sources, "pom.xml").renameTo(new File(sources, "pom2.xml"));
+    assertFalse(digest.equals(BuildInputFingerprint.digestDirectory(sources, excludes)));
+  }
+
+  @Test
+  public void testLinkToParentDirectory() throws Exception
+  {
+    final List<File> excludes = Collections.emptyList();
+    final String digest = BuildInputFingerprint.digestDirectory(sources, excludes);
+
+    // the link is digested, but not followed
+    assertEquals(0, ProcessServices.getDefault().execute(System.out, new File(sources, "src/xcode"), "ln", "-s", "..",
+          "parent"));
+    final String withLink = BuildInputFingerprint.digestDirectory(sources, excludes);
+    assertFalse(digest.equals(withLink));
+    assertEquals(withLink, BuildInputFingerprint.digestDirectory(sources, excludes));
+  }
+
+  @Test
+  public void testMissingDirectory() throws Exception
+  {
+    assertEquals("none",
+          BuildInputFingerprint.digestDirectory(new File(sources, "doesNotExist"), Collections.<File> emptyList()));
+  }
+
+  @Test
+  public void testMapDigestIgnoresOrder() throws Exception
+  {
+    final Map<String, String> first = new LinkedHashMap<String, String>();
+    first.put("sdk", "iphoneos");
+    first.put("configuration", "Release");
+
+    final Map<String, String> second = new LinkedHashMap<String, String>();
+    second.put("configuration", "Release");
+    second.put("sdk", "iphoneos");
+
+    assertEquals(BuildInputFingerprint.digest(first), BuildInputFingerprint.digest(second));
+
+    second.put("sdk", "iphonesimulator");
+    assertFalse(BuildInputFingerprint.digest(first).equals(BuildInputFingerprint.digest(second)));
+  }
+
+  @Test
+  public void testStoreAndCompare() throws Exception
+  {
+    final File file = XCodeBuildLayout.getFingerprintFile(new File(sources, "src/xcode"), "Release", "iphoneos");
+    assertNull(BuildInputFingerprint.load(file));
+
+    final Map<String, String> components = new HashMap<String, String>();
+    components.put(BuildInputFingerprint.XCODE, "4.6:4H127");
+    components.put(BuildInputFingerprint.SOURCES, "abc");
+    components.put(BuildInputFingerprint.LIBS, "none");
+
+    final BuildInputFingerprint fingerprint = new BuildInputFingerprint(components);
+    fingerprint.store(file);
+
+    assertEquals(new File(build, "Release-iphoneos.inputs"), file);
+    assertEquals(fingerprint, BuildInputFingerprint.load(file));
+    assertEquals(Collections.<String> emptyList(), fingerprint.getChangedComponents(BuildInputFingerprint.load(file)));
+
+    components.put(BuildInputFingerprint.SOURCES, "def");
+    components.remove(BuildInputFingerprint.LIBS);
+    components.put(BuildInputFingerprint.HEADERS, "none");
+
+    final List<String> changed = new BuildInputFingerprint(components).getChangedComponents(BuildInputFingerprint
+      .load(file));
+    Collections.sort(changed);
+    assertEquals(Arrays.asList(BuildInputFingerprint.HEADERS, BuildInputFingerprint.LIBS,
+          BuildInputFingerprint.SOURCES), changed);
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.LogManager;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildSettingsEvaluatorTest
+{
+
+  private static final String RECORDED_ROOT = "/Users/builder/MultipleTargets/target/checkout/src/xcode";
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testMultipleTargetsMatchRecordedOutput() throws Exception
+  {
+    final File root = createProject("MultipleTargets.pbxproj", "MultipleTargets");
+    final BuildSettingsSnapshot recorded = BuildSettingsSnapshotTest
+      .parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt");
+
+    for (String target : recorded.getTargets()) {
+
+      final BuildSettingsEvaluator evaluator = new BuildSettingsEvaluator(createContext(root, "MultipleTargets",
+            "Release", "iphoneos", null), target);
+
+      for (String key : BuildSettingsEvaluator.SUPPORTED_KEYS) {
+        if (key.equals(EffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH)) {
+          // no default known for applications, provided by xcodebuild
+          assertNull(evaluator.evaluate(key));
+        }
+        else {
+          assertEquals(target + ": " + key, recorded.get(target, key).replace(RECORDED_ROOT, root.getAbsolutePath()),
+                evaluator.evaluate(key));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDefaultTargetAndConfiguration() throws Exception
+  {
+    final File root = createProject("MultipleTargets.pbxproj", "MultipleTargets");
+    final BuildSettingsEvaluator evaluator = new BuildSettingsEvaluator(createContext(root, "MultipleTargets", null,
+          "iphoneos", null), null);
+
+    assertEquals("Target1", evaluator.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals(new File(root, "build/Release-iphoneos").getAbsolutePath(),
+          evaluator.evaluate(EffectiveBuildSettings.BUILT_PRODUCTS_DIR));
+  }
+
+  @Test
+  public void testConditionalSettingNotMatchingTheSdk() throws Exception
+  {
+    final File root = createProject("MultipleTargets.pbxproj", "MultipleTargets");
+    final BuildSettingsEvaluator evaluator = new BuildSettingsEvaluator(createContext(root, "MultipleTargets",
+          "Debug", "iphonesimulator", null), "Target2");
+
+    // defined for iphoneos only, xcodebuild knows the default for the simulator
+    assertNull(evaluator.evaluate(EffectiveBuildSettings.CODE_SIGN_IDENTITY));
+    assertEquals(new File(root, "build/Debug-iphonesimulator").getAbsolutePath(),
+          evaluator.evaluate(EffectiveBuildSettings.CONFIGURATION_BUILD_DIR));
+  }
+
+  @Test
+  public void testSdkConditionDependingOnTheVersion() throws Exception
+  {
+    final File root = createXcconfigProject();
+    FileUtils.writeStringToFile(new File(root, "Config/Common.xcconfig"), "PRODUCT_NAME = Lib\n"
+          + "PRODUCT_NAME[sdk=iphoneos6.1*] = Lib61\n" + "PUBLIC_HEADERS_FOLDER_PATH[sdk=iphone*] = /include\n",
+          "UTF-8");
+
+    // the version of the sdk is not known, xcodebuild decides
+    final BuildSettingsEvaluator iphoneos = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphoneos", null), null);
+    assertNull(iphoneos.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("/include", iphoneos.evaluate(EffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH));
+
+    final BuildSettingsEvaluator iphoneos61 = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphoneos6.1", null), null);
+    assertEquals("Lib61Core", iphoneos61.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+
+    final BuildSettingsEvaluator simulator = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphonesimulator", null), null);
+    assertEquals("LibCore", simulator.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+  }
+
+  @Test
+  public void testXcconfigInheritanceAndModifiers() throws Exception
+  {
+    final File root = createXcconfigProject();
+
+    final BuildSettingsEvaluator release = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphonesimulator", null), null);
+
+    assertEquals("Lib_ReleaseCore", release.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("Lib-ReleaseCore-Info.plist", release.evaluate(EffectiveBuildSettings.INFOPLIST_FILE));
+    assertEquals("NO", release.evaluate(EffectiveBuildSettings.GCC_GENERATE_DEBUGGING_SYMBOLS));
+    assertEquals("/usr/local/include", release.evaluate(EffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH));
+
+    // sdk taken from SDKROOT if not given
+    final BuildSettingsEvaluator debug = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary", "Debug",
+          null, null), null);
+
+    assertEquals("Lib_DebugCore", debug.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("YES", debug.evaluate(EffectiveBuildSettings.GCC_GENERATE_DEBUGGING_SYMBOLS));
+    assertEquals(new File(root, "build/Debug-iphoneos").getAbsolutePath(),
+          debug.evaluate(EffectiveBuildSettings.BUILT_PRODUCTS_DIR));
+  }
+
+  @Test
+  public void testCommandLineSettingsWin() throws Exception
+  {
+    final File root = createXcconfigProject();
+
+    final Map<String, String> userSettings = new HashMap<String, String>();
+    userSettings.put("PRODUCT_NAME", "$(inherited)-cmd");
+    userSettings.put("CONFIGURATION_BUILD_DIR", "/tmp/products");
+
+    final BuildSettingsEvaluator evaluator = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphoneos", userSettings), null);
+
+    assertEquals("Lib_ReleaseCore-cmd", evaluator.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("/tmp/products", evaluator.evaluate(EffectiveBuildSettings.BUILT_PRODUCTS_DIR));
+  }
+
+  @Test
+  public void testUnresolvableValuesFallBack() throws Exception
+  {
+    final File root = createXcconfigProject();
+    FileUtils.writeStringToFile(new File(root, "Config/Common.xcconfig"), "PRODUCT_NAME = $(UNKNOWN_SETTING)\n",
+          "UTF-8");
+
+    final BuildSettingsEvaluator evaluator = new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary",
+          "Release", "iphoneos", null), null);
+
+    assertNull(evaluator.evaluate(EffectiveBuildSettings.PRODUCT_NAME));
+    assertNull(evaluator.evaluate(EffectiveBuildSettings.INFOPLIST_FILE));
+    assertNull(evaluator.evaluate("OTHER_LDFLAGS"));
+    assertEquals("/usr/local/include", evaluator.evaluate(EffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH));
+  }
+
+  @Test(expected = BuildSettingsEvaluator.UnresolvableException.class)
+  public void testMissingXcconfig() throws Exception
+  {
+    final File root = createXcconfigProject();
+    new File(root, "Config/Base.xcconfig").delete();
+
+    new BuildSettingsEvaluator(createContext(root, "XcconfigLibrary", "Release", "iphoneos", null), null);
+  }
+
+  @Test
+  public void testModifiers() throws Exception
+  {
+    assertEquals("My-App.Name", BuildSettingsEvaluator.applyModifiers("My App.Name", "rfc1034identifier"));
+    assertEquals("_1_My_App", BuildSettingsEvaluator.applyModifiers("1 My-App", "identifier"));
+    assertEquals("myapp", BuildSettingsEvaluator.applyModifiers("MyApp", "lower"));
+    assertEquals("Info", BuildSettingsEvaluator.applyModifiers("dir/Info.plist", "base"));
+    assertEquals("Info.plist", BuildSettingsEvaluator.applyModifiers("dir/Info.plist", "file"));
+    assertEquals("dir/", BuildSettingsEvaluator.applyModifiers("dir/Info.plist", "dir"));
+    assertEquals(".plist", BuildSettingsEvaluator.applyModifiers("dir/Info.plist", "suffix"));
+    assertEquals("/a/c", BuildSettingsEvaluator.applyModifiers("/a/b/../c/", "standardizepath"));
+    assertEquals("INFO", BuildSettingsEvaluator.applyModifiers("dir/Info.plist", "base,upper"));
+  }
+
+  @Test
+  public void testEffectiveBuildSettingsDoNotForkForSupportedKeys() throws Exception
+  {
+    final File root = createProject("MultipleTargets.pbxproj", "MultipleTargets");
+
+    // xcodebuild is not available here, the values can only come from the evaluator
+    assertEquals("Target2", EffectiveBuildSettings.getBuildSetting(createContext(root, "MultipleTargets", "Release",
+          "iphoneos", null), "Target2", EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals(root.getAbsolutePath(), EffectiveBuildSettings.getBuildSetting(createContext(root,
+          "MultipleTargets", "Release", "iphoneos", null), EffectiveBuildSettings.SRC_ROOT));
+  }
+
+  private File createXcconfigProject() throws Exception
+  {
+    final File root = createProject("XcconfigLibrary.pbxproj", "XcconfigLibrary");
+    FileUtils.writeStringToFile(new File(root, "Config/Base.xcconfig"), "#include \"Common.xcconfig\"\n"
+          + "INFOPLIST_FILE = ${PRODUCT_NAME:rfc1034identifier}-Info.plist // no underscores allowed\n"
+          + "GCC_GENERATE_DEBUGGING_SYMBOLS[config=Release] = NO\n", "UTF-8");
+    FileUtils.writeStringToFile(new File(root, "Config/Common.xcconfig"), "PRODUCT_NAME = Lib_$(CONFIGURATION)\n",
+          "UTF-8");
+    return root;
+  }
+
+  private File createProject(String pbxproj, String name) throws Exception
+  {
+    final File root = tmpFolder.newFolder(name);
+    final InputStream in = getClass().getResourceAsStream("/" + pbxproj);
+    try {
+      FileUtils.writeByteArrayToFile(new File(root, name + ".xcodeproj/project.pbxproj"), IOUtils.toByteArray(in));
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+    return root;
+  }
+
+  private static XCodeContext createContext(File root, String name, String configuration, String sdk,
+        Map<String, String> userSettings)
+  {
+    final Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), name + ".xcodeproj");
+    if (configuration != null)
+      managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), configuration);
+    if (sdk != null)
+      managedOptions.put(Options.ManagedOption.SDK.getOptionName(), sdk);
+
+    return new XCodeContext(Collections.<String> emptyList(), root, System.out, new Settings(userSettings, null),
+          new Options(null, managedOptions));
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class BuildSettingsSnapshotTest
+{
+
+  static BuildSettingsSnapshot parse(String resource) throws Exception
+  {
+    final byte[] output = FileUtils.readFileToByteArray(new File("src/test/resources/" + resource));
+    final BuildSettingsSnapshot.Parser parser = new BuildSettingsSnapshot.Parser("UTF-8");
+
+    // the output arrives in chunks that do not end at line boundaries
+    for (int i = 0; i < output.length; i += 100)
+      parser.write(output, i, Math.min(100, output.length - i));
+    parser.close();
+
+    return parser.getSnapshot();
+  }
+
+  @Test
+  public void testSectionsPerTarget() throws Exception
+  {
+    BuildSettingsSnapshot snapshot = parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt");
+
+    assertEquals(Arrays.asList("Target1", "Target2"), new ArrayList<String>(snapshot.getTargets()));
+    assertEquals("Target1", snapshot.getDefaultTarget());
+    assertEquals("Target1", snapshot.get(null, EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("Target2", snapshot.get("Target2", EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("Target2.app/include", snapshot.get("Target2", EffectiveBuildSettings.PUBLIC_HEADERS_FOLDER_PATH));
+    assertEquals("MultipleTargets/MultipleTargets-Info.plist",
+          snapshot.get("Target2", EffectiveBuildSettings.INFOPLIST_FILE));
+
+    // values are taken literally, no escape sequences like with java.util.Properties
+    assertEquals("C:\\temp\\new", snapshot.get("Target1", "PATH_WITH_BACKSLASH"));
+    assertEquals("", snapshot.get("Target1", "GCC_PREPROCESSOR_DEFINITIONS"));
+
+    // user defaults from command line are not part of a target
+    assertEquals("/Users/builder/MultipleTargets/target/checkout/src/xcode/build",
+          snapshot.get("Target1", "SYMROOT"));
+    assertNull(snapshot.get("Target1", "OBJROOT"));
+  }
+
+  @Test
+  public void testUnknownTarget() throws Exception
+  {
+    try {
+      parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt").get("Target3", "PRODUCT_NAME");
+      fail("Build settings for an unknown target have been provided.");
+    }
+    catch (XCodeException e) {
+      assertEquals("No build settings found for target 'Target3'. Available targets: [Target1, Target2].",
+            e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPropertiesRoundTrip() throws Exception
+  {
+    BuildSettingsSnapshot snapshot = parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt");
+    BuildSettingsSnapshot copy = BuildSettingsSnapshot.fromProperties(snapshot.toProperties());
+
+    assertEquals(new ArrayList<String>(snapshot.getTargets()), new ArrayList<String>(copy.getTargets()));
+    for (String target : snapshot.getTargets())
+      assertEquals(snapshot.getBuildSettings(target), copy.getBuildSettings(target));
+  }
+
+  @Test
+  public void testTargetsAreStoredAsDelta() throws Exception
+  {
+    BuildSettingsSnapshot snapshot = parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt");
+
+    assertEquals(0, snapshot.getCompactBuildSettings("Target1").getStoredEntries());
+    assertTrue(snapshot.getCompactBuildSettings("Target2").getStoredEntries() < snapshot.getCompactBuildSettings(
+          "Target2").size() / 2);
+
+    // a snapshot of another configuration of the same project shares the base
+    BuildSettingsSnapshot copy = BuildSettingsSnapshot.fromProperties(snapshot.toProperties(), snapshot.getBase());
+    assertSame(snapshot.getBase(), copy.getBase());
+    assertEquals(0, copy.getCompactBuildSettings("Target1").getStoredEntries());
+    assertEquals(snapshot.getBuildSettings("Target2"), copy.getBuildSettings("Target2"));
+  }
+}
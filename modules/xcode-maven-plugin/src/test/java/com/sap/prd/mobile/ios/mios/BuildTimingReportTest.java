@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildTimingReportTest
+{
+
+  private static final long MS = 1000000L;
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testStepTimes() throws Exception
+  {
+    final BuildTimingReport report = build(1000, 3000);
+
+    assertEquals(6000, report.getWallTime());
+
+    final List<BuildTimingReport.Step> stepTypes = report.getStepTypes();
+    assertEquals("CompileC", stepTypes.get(0).getName());
+    assertEquals(2, stepTypes.get(0).getCount());
+    assertEquals(4000, stepTypes.get(0).getMillis());
+    assertEquals("Ld", stepTypes.get(1).getName());
+    assertEquals(1500, stepTypes.get(1).getMillis());
+    assertEquals("ProcessPCH", stepTypes.get(2).getName());
+    assertEquals(400, stepTypes.get(2).getMillis());
+
+    final List<BuildTimingReport.Step> compileUnits = report.getCompileUnits();
+    assertEquals("MyApp/Slow.m [armv7]", compileUnits.get(0).getName());
+    assertEquals(3000, compileUnits.get(0).getMillis());
+    assertEquals("MyApp/main.m [armv7]", compileUnits.get(1).getName());
+    assertEquals(1000, compileUnits.get(1).getMillis());
+
+    assertEquals("Ld build/Release-iphoneos/MyApp.app/MyApp [armv7]", report.getLinkSteps().get(0).getName());
+
+    final String text = report.toText();
+    assertTrue(text, text.contains("Slowest compile units:"));
+    assertTrue(text, text.contains("3.00 s  MyApp/Slow.m [armv7]"));
+  }
+
+  @Test
+  public void testStoreLoadAndCompare() throws Exception
+  {
+    final File json = new File(tmpFolder.getRoot(), "build/Release-iphoneos.timing.json");
+    final File text = new File(tmpFolder.getRoot(), "build/Release-iphoneos.timing.txt");
+
+    assertNull(BuildTimingReport.load(json));
+
+    final BuildTimingReport previous = build(1000, 3000);
+    previous.store(json, text);
+
+    final BuildTimingReport loaded = BuildTimingReport.load(json);
+    assertEquals("Release-iphoneos", loaded.getName());
+    assertEquals(6000, loaded.getWallTime());
+    assertEquals(previous.getCompileUnits().toString(), loaded.getCompileUnits().toString());
+    assertEquals(previous.toText(), loaded.toText().replace(loaded.getName(), previous.getName()));
+
+    // main.m: +20% is below the factor, Slow.m: +2.5 s
+    final BuildTimingReport current = build(1200, 5500);
+    final List<String> regressions = current.compare(loaded);
+
+    assertEquals(Arrays.asList("Wall time: 6.00 s -> 8.70 s (+45%)", "CompileC: 4.00 s -> 6.70 s (+68%)",
+          "CompileC MyApp/Slow.m [armv7]: 3.00 s -> 5.50 s (+83%)"), regressions);
+
+    current.store(json, text);
+    assertTrue(FileUtils.readFileToString(text, "UTF-8").contains("Regressions compared to the previous build:"));
+
+    final Map<?, ?> stored = (Map<?, ?>) BuildTimingReport.Json.parse(FileUtils.readFileToString(json, "UTF-8"));
+    assertEquals(regressions, stored.get("regressions"));
+  }
+
+  @Test
+  public void testJson() throws Exception
+  {
+    final String quoted = BuildTimingReport.Json.quote("My \"App\"\\\n");
+    assertEquals("\"My \\\"App\\\"\\\\\\u000a\"", quoted);
+    assertEquals("My \"App\"\\\n", BuildTimingReport.Json.parse(quoted));
+
+    final Map<?, ?> map = (Map<?, ?>) BuildTimingReport.Json.parse("{\"a\": [1, -2.5, true, null], \"b\": {}}");
+    assertEquals(Arrays.asList(1L, -2.5, Boolean.TRUE, null), map.get("a"));
+    assertTrue(((Map<?, ?>) map.get("b")).isEmpty());
+  }
+
+  /**
+   * Startup 100 ms, ProcessPCH 400 ms, main.m, Slow.m, Ld 1500 ms.
+   */
+  private static BuildTimingReport build(long main, long slow)
+  {
+    final BuildTimingReport report = new BuildTimingReport("Release-iphoneos", 0);
+
+    long time = 100;
+    time = step(report, "ProcessPCH /tmp/MyApp-Prefix.pch.pch MyApp/MyApp-Prefix.pch normal armv7", time, 400);
+    time = step(report, "CompileC build/main.o MyApp/main.m normal armv7 objective-c", time, main);
+    report.onEvent(XCodeBuildEvent.parse("MyApp/main.m:1:1: warning: unused", (time - 10) * MS));
+    time = step(report, "CompileC build/Slow.o MyApp/Slow.m normal armv7 objective-c", time, slow);
+    time = step(report, "Ld build/Release-iphoneos/MyApp.app/MyApp normal armv7", time, 1500);
+
+    report.finish(time * MS);
+    return report;
+  }
+
+  private static long step(BuildTimingReport report, String line, long time, long duration)
+  {
+    report.onEvent(XCodeBuildEvent.parse(line, time * MS));
+    return time + duration;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactBuildSettingsTest
+{
+
+  @Test
+  public void testFullInstance() throws Exception
+  {
+    final Map<String, String> buildSettings = createBuildSettings("Release");
+    final CompactBuildSettings compact = CompactBuildSettings.of(buildSettings, null);
+
+    assertEquals(buildSettings, compact.toMap());
+    assertEquals(buildSettings.size(), compact.size());
+    assertEquals(buildSettings.size(), compact.getStoredEntries());
+    assertEquals("MyApp", compact.get("PRODUCT_NAME"));
+    assertNull(compact.get("NOT_A_BUILD_SETTING_" + System.nanoTime()));
+  }
+
+  @Test
+  public void testDeltaContainsDifferencesOnly() throws Exception
+  {
+    final CompactBuildSettings base = CompactBuildSettings.of(createBuildSettings("Release"), null);
+
+    final Map<String, String> debug = createBuildSettings("Debug");
+    debug.remove("VALIDATE_PRODUCT");
+    debug.put("GCC_OPTIMIZATION_LEVEL", "0");
+
+    final CompactBuildSettings delta = CompactBuildSettings.of(debug, base);
+
+    assertEquals(debug, delta.toMap());
+    assertEquals(debug.size(), delta.size());
+    // CONFIGURATION, BUILT_PRODUCTS_DIR, VALIDATE_PRODUCT and GCC_OPTIMIZATION_LEVEL
+    assertEquals(4, delta.getStoredEntries());
+    assertEquals("Debug", delta.get("CONFIGURATION"));
+    assertEquals("MyApp", delta.get("PRODUCT_NAME"));
+    assertEquals("0", delta.get("GCC_OPTIMIZATION_LEVEL"));
+    assertNull(delta.get("VALIDATE_PRODUCT"));
+  }
+
+  @Test
+  public void testDeltaOfDeltaUsesTheSameBase() throws Exception
+  {
+    final CompactBuildSettings base = CompactBuildSettings.of(createBuildSettings("Release"), null);
+    final CompactBuildSettings delta = CompactBuildSettings.of(createBuildSettings("Debug"), base);
+    final CompactBuildSettings other = CompactBuildSettings.of(createBuildSettings("Release"), delta);
+
+    assertSame(base, other.getBase());
+    assertEquals(0, other.getStoredEntries());
+    assertEquals(createBuildSettings("Release"), other.toMap());
+  }
+
+  @Test
+  public void testKeysAreShared() throws Exception
+  {
+    CompactBuildSettings.of(createBuildSettings("Release"), null);
+    final int keys = CompactBuildSettings.getKeyTableSize();
+
+    CompactBuildSettings.of(createBuildSettings("Debug"), null);
+    CompactBuildSettings.of(createBuildSettings("Profile"), null);
+
+    assertEquals(keys, CompactBuildSettings.getKeyTableSize());
+  }
+
+  private static Map<String, String> createBuildSettings(String configuration)
+  {
+    final Map<String, String> buildSettings = new HashMap<String, String>();
+    buildSettings.put("PRODUCT_NAME", "MyApp");
+    buildSettings.put("CONFIGURATION", configuration);
+    buildSettings.put("BUILT_PRODUCTS_DIR", "/Users/builder/MyApp/build/" + configuration + "-iphoneos");
+    buildSettings.put("GCC_GENERATE_DEBUGGING_SYMBOLS", "YES");
+    buildSettings.put("VALIDATE_PRODUCT", "NO");
+    buildSettings.put("SDKROOT", "iphoneos");
+    return buildSettings;
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EffectiveBuildSettingsTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File projectDirectory;
+
+  private PersistentBuildSettingsCache cache;
+
+  @Before
+  public void setup() throws Exception
+  {
+    projectDirectory = tmpFolder.newFolder("MyApp");
+    FileUtils.writeStringToFile(new File(projectDirectory, "MyApp.xcodeproj/project.pbxproj"), "{ objects = { }; }",
+          "UTF-8");
+
+    cache = new PersistentBuildSettingsCache(tmpFolder.newFolder("cache"));
+    System.setProperty(PersistentBuildSettingsCache.DIRECTORY, cache.getDirectory().getAbsolutePath());
+  }
+
+  @After
+  public void tearDown()
+  {
+    System.clearProperty(PersistentBuildSettingsCache.DIRECTORY);
+    System.clearProperty(PersistentBuildSettingsCache.SKIP);
+  }
+
+  @Test
+  public void testPrefetchMatrix() throws Exception
+  {
+    final List<XCodeContext> contexts = new ArrayList<XCodeContext>();
+
+    for (String configuration : new String[] { "Debug", "Release" }) {
+      for (String sdk : new String[] { "iphoneos", "iphonesimulator" }) {
+        final XCodeContext context = createContext(configuration, sdk);
+        final Properties buildSettings = new Properties();
+        buildSettings.setProperty(EffectiveBuildSettings.PRODUCT_NAME, "MyApp-" + configuration + "-" + sdk);
+        cache.put(PersistentBuildSettingsCache.fingerprint(context), toSnapshot(buildSettings));
+        contexts.add(context);
+      }
+    }
+
+    EffectiveBuildSettings.prefetch(contexts, 2);
+
+    for (XCodeContext context : contexts) {
+      assertEquals("MyApp-" + context.getConfiguration() + "-" + context.getSDK(),
+            EffectiveBuildSettings.getBuildSetting(createContext(context.getConfiguration(), context.getSDK()),
+                  EffectiveBuildSettings.PRODUCT_NAME));
+    }
+  }
+
+  @Test
+  public void testFailedPrefetchIsRetried() throws Exception
+  {
+    System.setProperty(PersistentBuildSettingsCache.SKIP, "true");
+
+    final XCodeContext context = createContext("Release", "doesNotExist");
+    EffectiveBuildSettings.prefetch(Collections.singletonList(context), 1);
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        EffectiveBuildSettings.getBuildSetting(context, EffectiveBuildSettings.PRODUCT_NAME);
+        fail("Build settings for an invalid project have been provided.");
+      }
+      catch (XCodeException e) {
+        // expected, also on the second attempt that calls xcodebuild again
+      }
+    }
+  }
+
+  @Test
+  public void testKeyIgnoresBuildActionsAndQueryOptions() throws Exception
+  {
+    XCodeContext context = createContext("Release", "iphoneos");
+
+    Map<String, String> managedOptions = new HashMap<String, String>(context.getOptions().getManagedOptions());
+    managedOptions.put(Options.ManagedOption.SHOWBUILDSETTINGS.getOptionName(), null);
+    XCodeContext buildContext = new XCodeContext(Arrays.asList("clean", "build"), projectDirectory, System.out, null,
+          new Options(null, managedOptions));
+
+    assertFalse(context.equals(buildContext));
+    assertEquals(BuildSettingsKey.of(context), BuildSettingsKey.of(buildContext));
+    assertFalse(BuildSettingsKey.of(context).equals(BuildSettingsKey.of(createContext("Release", "iphonesimulator"))));
+  }
+
+  @Test
+  public void testCacheIsBounded() throws Exception
+  {
+    for (int i = 0; i < EffectiveBuildSettings.MAX_ENTRIES + 10; i++) {
+      final XCodeContext context = createContext("Release", "sdk" + i);
+      final Properties buildSettings = new Properties();
+      buildSettings.setProperty(EffectiveBuildSettings.PRODUCT_NAME, "MyApp" + i);
+      cache.put(PersistentBuildSettingsCache.fingerprint(context), toSnapshot(buildSettings));
+
+      assertEquals("MyApp" + i, EffectiveBuildSettings.getBuildSetting(context, EffectiveBuildSettings.PRODUCT_NAME));
+    }
+
+    assertTrue(EffectiveBuildSettings.getCacheSize() <= EffectiveBuildSettings.MAX_ENTRIES);
+  }
+
+  @Test
+  public void testBuildSettingsOfAllTargetsAreShared() throws Exception
+  {
+    final BuildSettingsSnapshot snapshot = BuildSettingsSnapshotTest
+      .parse("showBuildSettings-MultipleTargets-Release-iphoneos.txt");
+    cache.put(PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos")), snapshot.toProperties());
+
+    Map<String, String> managedOptions = new HashMap<String, String>(createContext("Release", "iphoneos")
+      .getOptions().getManagedOptions());
+    managedOptions.put(Options.ManagedOption.TARGET.getOptionName(), "Target2");
+    XCodeContext target2 = new XCodeContext(Collections.<String> emptyList(), projectDirectory, System.out, null,
+          new Options(null, managedOptions));
+
+    assertEquals(BuildSettingsKey.of(createContext("Release", "iphoneos")), BuildSettingsKey.of(target2));
+    assertEquals("Target1", EffectiveBuildSettings.getBuildSetting(createContext("Release", "iphoneos"),
+          EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("Target2", EffectiveBuildSettings.getBuildSetting(target2, EffectiveBuildSettings.PRODUCT_NAME));
+    assertEquals("Target2", EffectiveBuildSettings.getBuildSetting(createContext("Release", "iphoneos"), "Target2",
+          EffectiveBuildSettings.PRODUCT_NAME));
+  }
+
+  private static Properties toSnapshot(Properties buildSettings)
+  {
+    final Map<String, String> target = new HashMap<String, String>();
+    for (String name : buildSettings.stringPropertyNames())
+      target.put(name, buildSettings.getProperty(name));
+    return new BuildSettingsSnapshot(Collections.singletonMap("MyApp", target)).toProperties();
+  }
+
+  private XCodeContext createContext(String configuration, String sdk)
+  {
+    Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), "MyApp.xcodeproj");
+    managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), configuration);
+    managedOptions.put(Options.ManagedOption.SDK.getOptionName(), sdk);
+
+    return new XCodeContext(Collections.<String> emptyList(), projectDirectory, System.out, null, new Options(null,
+          managedOptions));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtractionMarkerTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File archive, directory, marker;
+
+  @Before
+  public void setup() throws Exception
+  {
+    archive = new File(tmpFolder.getRoot(), "MyLib-1.0-Release-iphoneos.headers.tar");
+    FileUtils.writeStringToFile(archive, "archive content");
+
+    directory = new File(tmpFolder.getRoot(), "headers/Release-iphoneos/com.sap.ondevice/MyLib");
+    FileUtils.writeStringToFile(new File(directory, "MyLib.h"), "@interface MyLib");
+    FileUtils.writeStringToFile(new File(directory, "sub/MyLibSub.h"), "@interface MyLibSub");
+
+    marker = ExtractionMarker.getFile(tmpFolder.getRoot(), directory);
+  }
+
+  @Test
+  public void testUnchangedArchive() throws Exception
+  {
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+
+    ExtractionMarker.write(archive, directory, marker);
+
+    // not within the extracted folders
+    assertEquals(new File(tmpFolder.getRoot(), ".extraction-markers/headers/Release-iphoneos/com.sap.ondevice/"
+          + "MyLib.extracted"), marker);
+    assertTrue(marker.isFile());
+    assertFalse(new File(directory.getParentFile(), "MyLib.extracted").exists());
+    assertTrue(ExtractionMarker.isUpToDate(archive, directory, marker));
+
+    // same content, e.g. a snapshot that has been downloaded again
+    assertTrue(archive.setLastModified(archive.lastModified() - 60000));
+    assertTrue(ExtractionMarker.isUpToDate(archive, directory, marker));
+
+    ExtractionMarker.invalidate(marker);
+    assertFalse(marker.exists());
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+  }
+
+  @Test
+  public void testChangedArchive() throws Exception
+  {
+    ExtractionMarker.write(archive, directory, marker);
+
+    FileUtils.writeStringToFile(archive, "other content");
+    assertTrue(archive.setLastModified(archive.lastModified() + 60000));
+
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+  }
+
+  @Test
+  public void testPartialOrModifiedExtraction() throws Exception
+  {
+    ExtractionMarker.write(archive, directory, marker);
+
+    final File header = new File(directory, "sub/MyLibSub.h");
+    FileUtils.writeStringToFile(header, "@interface");
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+
+    FileUtils.writeStringToFile(header, "@interface MyLibSub");
+    assertTrue(ExtractionMarker.isUpToDate(archive, directory, marker));
+
+    assertTrue(header.delete());
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+  }
+
+  @Test
+  public void testOtherExtractionVersion() throws Exception
+  {
+    ExtractionMarker.write(archive, directory, marker);
+
+    FileUtils.writeStringToFile(marker, FileUtils.readFileToString(marker).replace(
+          "version=" + ExtractionMarker.VERSION, "version=0"));
+
+    assertFalse(ExtractionMarker.isUpToDate(archive, directory, marker));
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExtractionStoreTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File archive, storeDirectory;
+
+  private final AtomicInteger extractions = new AtomicInteger();
+
+  private final ExtractionStore.Extractor extractor = new ExtractionStore.Extractor() {
+    @Override
+    public void extract(File archive, File directory) throws IOException
+    {
+      extractions.incrementAndGet();
+      FileUtils.writeStringToFile(new File(directory, "MyLib.h"), FileUtils.readFileToString(archive));
+    }
+  };
+
+  @BeforeClass
+  public static void setupLogger()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @After
+  public void tearDown() throws Exception
+  {
+    ExtractionStore.releaseAll();
+  }
+
+  @Before
+  public void setup() throws Exception
+  {
+    archive = new File(tmpFolder.getRoot(), "MyLib-1.0-Release-iphoneos.headers.tar");
+    FileUtils.writeStringToFile(archive, "@interface MyLib");
+    storeDirectory = new File(tmpFolder.getRoot(), "store");
+  }
+
+  @Test
+  public void testArchiveExtractedOnceForSeveralLocations() throws Exception
+  {
+    final ExtractionStore store = new ExtractionStore(storeDirectory, Long.MAX_VALUE);
+    final String sha1 = ExtractionMarker.sha1(archive);
+
+    final File location1 = new File(tmpFolder.getRoot(), "module1/target/headers/MyLib");
+    final File location2 = new File(tmpFolder.getRoot(), "module2/target/headers/MyLib");
+
+    ExtractionStore.link(store.get(archive, sha1, "tar", extractor), location1);
+    ExtractionStore.link(store.get(archive, sha1, "tar", extractor), location2);
+
+    assertEquals(1, extractions.get());
+    assertTrue(ExtractionStore.isSymbolicLink(location1));
+    assertTrue(ExtractionStore.isSymbolicLink(location2));
+    assertEquals("@interface MyLib", FileUtils.readFileToString(new File(location2, "MyLib.h")));
+    assertEquals(store.get(archive, sha1, "tar", extractor).getCanonicalFile(), location1.getCanonicalFile());
+
+    // another kind of extraction is another entry
+    store.get(archive, sha1, "zip", extractor);
+    assertEquals(2, extractions.get());
+  }
+
+  @Test
+  public void testDeleteLocationKeepsEntry() throws Exception
+  {
+    final ExtractionStore store = new ExtractionStore(storeDirectory, Long.MAX_VALUE);
+    final File content = store.get(archive, ExtractionMarker.sha1(archive), "tar", extractor);
+
+    final File location = new File(tmpFolder.getRoot(), "module1/target/headers/MyLib");
+    ExtractionStore.link(content, location);
+
+    ExtractionStore.delete(location);
+
+    assertFalse(location.exists());
+    assertFalse(ExtractionStore.isSymbolicLink(location));
+    assertTrue(new File(content, "MyLib.h").isFile());
+
+    // a directory that is no link is deleted with its content
+    FileUtils.writeStringToFile(new File(location, "MyLib.h"), "@interface MyLib");
+    assertFalse(ExtractionStore.isSymbolicLink(location));
+    ExtractionStore.delete(location);
+    assertFalse(location.exists());
+  }
+
+  @Test
+  public void testFailedExtractionLeavesNoEntry() throws Exception
+  {
+    final ExtractionStore store = new ExtractionStore(storeDirectory, Long.MAX_VALUE);
+    final String sha1 = ExtractionMarker.sha1(archive);
+
+    try {
+      store.get(archive, sha1, "tar", new ExtractionStore.Extractor() {
+        @Override
+        public void extract(File archive, File directory) throws IOException
+        {
+          FileUtils.writeStringToFile(new File(directory, "MyLib.h"), "@inter");
+          throw new IOException("Archive truncated.");
+        }
+      });
+      assertTrue("IOException expected", false);
+    }
+    catch (IOException expected) {
+    }
+
+    final File content = store.get(archive, sha1, "tar", extractor);
+    assertEquals(1, extractions.get());
+    assertEquals("@interface MyLib", FileUtils.readFileToString(new File(content, "MyLib.h")));
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsedEntriesNotInUse() throws Exception
+  {
+    final ExtractionStore store = new ExtractionStore(storeDirectory, Long.MAX_VALUE);
+
+    final File other = new File(tmpFolder.getRoot(), "MyOtherLib-1.0-Release-iphoneos.headers.tar");
+    FileUtils.writeStringToFile(other, "@interface MyOtherLib");
+
+    final File content1 = store.get(archive, ExtractionMarker.sha1(archive), "tar", extractor);
+    final File content2 = store.get(other, ExtractionMarker.sha1(other), "tar", extractor);
+
+    final long now = System.currentTimeMillis();
+    assertTrue(new File(content1.getParentFile(), ".entry.properties").setLastModified(now - 2 * 60 * 60 * 1000));
+    assertTrue(new File(content2.getParentFile(), ".entry.properties").setLastModified(now - 60 * 60 * 1000));
+
+    // room for one entry
+    final ExtractionStore smallStore = new ExtractionStore(storeDirectory,
+          FileUtils.sizeOfDirectory(content2.getParentFile()));
+
+    // both entries are in use by this build, regardless of the time of their last usage
+    assertEquals(0, smallStore.evict());
+    assertTrue(content1.isDirectory());
+
+    ExtractionStore.releaseAll();
+
+    assertEquals(1, smallStore.evict());
+    assertFalse(content1.exists());
+    assertTrue(content2.isDirectory());
+
+    // extracted again on the next usage
+    assertEquals(content1, store.get(archive, ExtractionMarker.sha1(archive), "tar", extractor));
+    assertEquals(3, extractions.get());
+    assertEquals("@interface MyLib", FileUtils.readFileToString(new File(content1, "MyLib.h")));
+  }
+}
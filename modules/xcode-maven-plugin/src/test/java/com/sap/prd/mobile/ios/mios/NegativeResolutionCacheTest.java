@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class NegativeResolutionCacheTest
+{
+  private static final long HOUR = 60 * 60 * 1000;
+
+  private static final List<RemoteRepository> REPOSITORIES = Arrays.asList(new RemoteRepository("central", "default",
+        "http://repo1.maven.org/maven2"));
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testReleasesNeverExpire() throws Exception
+  {
+    final NegativeResolutionCache cache = new NegativeResolutionCache(tmpFolder.getRoot(), HOUR);
+    final Artifact headers = new DefaultArtifact("com.sap.ondevice", "lib", "Release-iphoneos", "headers.tar", "1.0");
+
+    assertFalse(cache.isAbsent(headers, REPOSITORIES));
+    cache.recordAbsent(headers, REPOSITORIES);
+
+    final File file = cache.getFile(headers, REPOSITORIES);
+    assertEquals(new File(tmpFolder.getRoot(), NegativeResolutionCache.getKey(REPOSITORIES)
+          + "/com/sap/ondevice/lib/1.0/Release-iphoneos.headers.tar.absent"), file);
+    assertTrue(file.isFile());
+
+    assertTrue(file.setLastModified(System.currentTimeMillis() - 1000 * HOUR));
+    assertTrue(cache.isAbsent(headers, REPOSITORIES));
+
+    // other classifiers and versions are not affected
+    assertFalse(cache.isAbsent(new DefaultArtifact("com.sap.ondevice", "lib", "Debug-iphoneos", "headers.tar",
+          "1.0"), REPOSITORIES));
+    assertFalse(cache.isAbsent(new DefaultArtifact("com.sap.ondevice", "lib", "Release-iphoneos", "headers.tar",
+          "1.1"), REPOSITORIES));
+
+    // the artifact may exist in other repositories
+    assertFalse(cache.isAbsent(headers, Arrays.asList(new RemoteRepository("central", "default",
+          "http://repo1.maven.org/maven2"), new RemoteRepository("nexus", "default", "http://nexus/content"))));
+
+    cache.remove(headers, REPOSITORIES);
+    assertFalse(cache.isAbsent(headers, REPOSITORIES));
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getRecorded());
+    assertTrue(cache.toString(), cache.toString().contains("1 remote lookups avoided"));
+  }
+
+  @Test
+  public void testRepositoryOrderDoesNotMatter()
+  {
+    final RemoteRepository central = new RemoteRepository("central", "default", "http://repo1.maven.org/maven2");
+    final RemoteRepository nexus = new RemoteRepository("nexus", "default", "http://nexus/content");
+
+    assertEquals(NegativeResolutionCache.getKey(Arrays.asList(central, nexus)), NegativeResolutionCache.getKey(Arrays
+      .asList(nexus, central)));
+    assertFalse(NegativeResolutionCache.getKey(Arrays.asList(central)).equals(
+          NegativeResolutionCache.getKey(Arrays.asList(central, nexus))));
+    assertEquals(8, NegativeResolutionCache.getKey(Collections.<RemoteRepository> emptyList()).length());
+  }
+
+  @Test
+  public void testSnapshotsExpire() throws Exception
+  {
+    final NegativeResolutionCache cache = new NegativeResolutionCache(tmpFolder.getRoot(), HOUR);
+    final Artifact lib = new DefaultArtifact("com.sap.ondevice", "lib", "Release-iphoneos", "a", "1.0-SNAPSHOT");
+
+    cache.recordAbsent(lib, REPOSITORIES);
+    assertTrue(cache.isAbsent(lib, REPOSITORIES));
+
+    assertTrue(cache.getFile(lib, REPOSITORIES).setLastModified(System.currentTimeMillis() - 2 * HOUR));
+    assertFalse(cache.isAbsent(lib, REPOSITORIES));
+  }
+
+  @Test
+  public void testSnapshotsNotCachedWithoutTtl() throws Exception
+  {
+    final NegativeResolutionCache cache = new NegativeResolutionCache(tmpFolder.getRoot(), 0);
+    final Artifact lib = new DefaultArtifact("com.sap.ondevice", "lib", "Release-iphoneos", "a", "1.0-SNAPSHOT");
+
+    cache.recordAbsent(lib, REPOSITORIES);
+    assertFalse(cache.getFile(lib, REPOSITORIES).exists());
+    assertFalse(cache.isAbsent(lib, REPOSITORIES));
+    assertEquals(0, cache.getRecorded());
+  }
+}
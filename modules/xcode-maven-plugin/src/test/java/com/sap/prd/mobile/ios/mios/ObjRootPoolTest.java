@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.logging.LogManager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ObjRootPoolTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File poolDirectory;
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Before
+  public void setup() throws Exception
+  {
+    poolDirectory = tmpFolder.newFolder("pool");
+  }
+
+  @Test
+  public void testSlotIsLocked() throws Exception
+  {
+    final ObjRootPool pool = new ObjRootPool(poolDirectory, Long.MAX_VALUE);
+    final ObjRootPool.Slot slot = pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "4.6");
+
+    assertNotNull(slot);
+    assertEquals(new File(poolDirectory, "com.sap_MyApp_Release-iphoneos"), slot.getDirectory());
+    assertNull(pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "4.6"));
+
+    // other configurations and sdks have their own slots
+    final ObjRootPool.Slot other = pool.acquire("com.sap", "MyApp", "Release", "iphonesimulator", "4.6");
+    assertNotNull(other);
+    other.close();
+
+    slot.close();
+
+    final ObjRootPool.Slot again = pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "4.6");
+    assertNotNull(again);
+    again.close();
+  }
+
+  @Test
+  public void testContentSurvivesUnlessXcodeVersionChanges() throws Exception
+  {
+    final ObjRootPool pool = new ObjRootPool(poolDirectory, Long.MAX_VALUE);
+
+    ObjRootPool.Slot slot = pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "4.6");
+    final File object = new File(slot.getObjRoot(), "MyApp.build/Release-iphoneos/main.o");
+    FileUtils.writeStringToFile(object, "object", "UTF-8");
+    slot.close();
+
+    slot = pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "4.6");
+    assertTrue(object.isFile());
+    slot.close();
+
+    slot = pool.acquire("com.sap", "MyApp", "Release", "iphoneos", "5.0");
+    assertFalse(object.exists());
+    assertTrue(slot.getDirectory().isDirectory());
+    slot.close();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedSlotsAreEvicted() throws Exception
+  {
+    final ObjRootPool pool = new ObjRootPool(poolDirectory, 2500);
+
+    final String[] configurations = new String[] { "Debug", "Release", "Profile" };
+    final long now = System.currentTimeMillis();
+
+    for (int i = 0; i < configurations.length; i++) {
+      final ObjRootPool.Slot slot = pool.acquire("com.sap", "MyApp", configurations[i], "iphoneos", "4.6");
+      FileUtils.writeByteArrayToFile(new File(slot.getObjRoot(), "main.o"), new byte[1000]);
+      slot.close();
+      new File(slot.getDirectory(), ".slot.properties").setLastModified(now - (configurations.length - i) * 60000L);
+    }
+
+    // the oldest slot is in use and must not be deleted
+    final ObjRootPool.Slot inUse = pool.acquire("com.sap", "MyApp", "Debug", "iphoneos", "4.6");
+    try {
+      assertEquals(1, pool.evict());
+    }
+    finally {
+      inUse.close();
+    }
+
+    assertTrue(new File(poolDirectory, "com.sap_MyApp_Debug-iphoneos").isDirectory());
+    assertFalse(new File(poolDirectory, "com.sap_MyApp_Release-iphoneos").exists());
+    assertTrue(new File(poolDirectory, "com.sap_MyApp_Profile-iphoneos").isDirectory());
+
+    assertEquals(0, pool.evict());
+  }
+
+  @Test
+  public void testSlotName() throws Exception
+  {
+    assertEquals("com.sap_My_App_Release", ObjRootPool.getSlotName("com.sap", "My App", "Release", null));
+  }
+}
@@ -94,6 +94,24 @@ public class PListAccessorTest extends XCodeTest
     assertEquals(expectedAppId, appId);
   }
 
+  @Test
+  public void addElementOfAnyType() throws IOException
+  {
+    plist.addElement("MyString", "string");
+    plist.addElement("MyInteger", "integer");
+    plist.addElement("MyBool", "bool");
+    plist.addElement("MyReal", "real");
+    plist.addElement("MyDict", "dict");
+
+    loadPList();
+    assertEquals("", plist.getStringValue("MyString"));
+    assertEquals("0", plist.getStringValue("MyInteger"));
+    assertEquals("false", plist.getStringValue("MyBool"));
+    assertEquals("0.000000", plist.getStringValue("MyReal"));
+    plist.addStringValueToDict("MyKey", "MyValue", "MyDict");
+    assertEquals("MyValue", plist.getStringValue("MyDict:MyKey"));
+  }
+
   @Test(expected = FileNotFoundException.class)
   public void readStringFromNonExistingPList() throws IOException
   {
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.Coordinates;
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.Dependency;
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.SCM;
+
+public class PListBinaryWriterTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTripAgainstXml() throws Exception
+  {
+    PList xml = PList.read(new File("src/test/resources/plist-all-types.xml.plist"));
+
+    PList binary = PList.parse(xml.toByteArray(PList.Format.BINARY));
+
+    assertEquals(PList.Format.BINARY, binary.getFormat());
+    assertEquals(new String(xml.toByteArray(PList.Format.XML), "UTF-8"),
+          new String(binary.toByteArray(PList.Format.XML), "UTF-8"));
+  }
+
+  @Test
+  public void testLargeContainers() throws Exception
+  {
+    PList plist = new PList();
+    plist.add("array", PList.createValue("array", ""));
+
+    StringBuilder longString = new StringBuilder();
+    for (int i = 0; i < 70000; i++) {
+      plist.add("array:" + i, Long.valueOf(i * 1000L));
+      longString.append((char) ('a' + i % 26));
+    }
+    plist.add("long", longString.toString());
+    plist.add("negative", Long.valueOf(-70000));
+
+    PList reread = PList.parse(plist.toByteArray(PList.Format.BINARY));
+
+    assertEquals(70000, PList.asArray(reread.get("array")).size());
+    assertEquals(Long.valueOf(69999000L), reread.get("array:69999"));
+    assertEquals(longString.toString(), reread.get("long"));
+    assertEquals(Long.valueOf(-70000), reread.get("negative"));
+  }
+
+  @Test
+  public void testVersionsPlistSharesRepeatedStrings() throws Exception
+  {
+    List<Dependency> dependencies = new ArrayList<Dependency>();
+    for (int i = 0; i < 40; i++)
+      dependencies.add(createDependency("MyLibrary" + i));
+
+    File xmlFile = new File(tmpFolder.getRoot(), "versions.xml.plist");
+    File binaryFile = new File(tmpFolder.getRoot(), "versions.binary.plist");
+
+    new VersionInfoPListManager().createVersionInfoPlistFile("com.sap.tests", "MyApp", "1.0.0", new File(
+          "src/test/resources/sync.info"), dependencies, xmlFile, true, PList.Format.XML);
+    new VersionInfoPListManager().createVersionInfoPlistFile("com.sap.tests", "MyApp", "1.0.0", new File(
+          "src/test/resources/sync.info"), dependencies, binaryFile, true, PList.Format.BINARY);
+
+    byte[] binary = org.apache.commons.io.FileUtils.readFileToByteArray(binaryFile);
+
+    assertEquals(1, countOccurrences(binary, "5555//MY_DEPOT_PATH/"));
+    assertEquals(1, countOccurrences(binary, "com.sap.tests"));
+    assertTrue(binary.length * 4 < xmlFile.length());
+
+    assertEquals(new String(PList.read(xmlFile).toByteArray(PList.Format.XML), "UTF-8"),
+          new String(PList.read(binaryFile).toByteArray(PList.Format.XML), "UTF-8"));
+  }
+
+  private static Dependency createDependency(String artifactId)
+  {
+    Coordinates coordinates = new Coordinates();
+    coordinates.setGroupId("com.sap.tests");
+    coordinates.setArtifactId(artifactId);
+    coordinates.setVersion("1.0.0");
+
+    SCM scm = new SCM();
+    scm.setConnection("scm:perforce:PERFORCEHOST:5555://MY_DEPOT_PATH/");
+    scm.setRevision("4711");
+
+    Dependency dependency = new Dependency();
+    dependency.setCoordinates(coordinates);
+    dependency.setScm(scm);
+    return dependency;
+  }
+
+  private static int countOccurrences(byte[] content, String s) throws Exception
+  {
+    return new String(content, "ISO-8859-1").split(java.util.regex.Pattern.quote(s), -1).length - 1;
+  }
+}
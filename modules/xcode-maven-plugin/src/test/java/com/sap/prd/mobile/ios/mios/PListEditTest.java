@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PListEditTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File plistFile;
+
+  @Before
+  public void before() throws IOException
+  {
+    plistFile = new File(tmpFolder.getRoot(), "Info.plist");
+    FileUtils.copyFile(new File("src/test/resources/MyApp-Info.plist"), plistFile);
+  }
+
+  @Test
+  public void testMutationsAreWrittenOnCommit() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(plistFile);
+    PListEdit edit = accessor.edit();
+
+    edit.updateStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.myapp.internal")
+      .addDict("coordinates")
+      .addStringValue("coordinates:groupId", "com.sap.tests")
+      .remove("CFBundleSignature");
+
+    assertEquals("com.sap.myapp.internal", edit.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals("com.sap.myapp", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+
+    edit.commit();
+
+    assertEquals("com.sap.myapp.internal", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals("com.sap.tests", accessor.getStringValue("coordinates:groupId"));
+    assertNull(accessor.getStringValue("CFBundleSignature"));
+  }
+
+  @Test
+  public void testFailingMutationLeavesFileUntouched() throws Exception
+  {
+    byte[] before = FileUtils.readFileToByteArray(plistFile);
+    PListEdit edit = new PListAccessor(plistFile).edit();
+
+    edit.addStringValue("hugo", "test");
+
+    try {
+      edit.addStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.other");
+      fail("Adding an existing key must fail.");
+    }
+    catch (IllegalStateException expected) {
+      // expected
+    }
+
+    assertEquals(new String(before, "ISO-8859-1"),
+          new String(FileUtils.readFileToByteArray(plistFile), "ISO-8859-1"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCommitTwice() throws Exception
+  {
+    PListEdit edit = new PListAccessor(plistFile).edit();
+    edit.commit();
+    edit.commit();
+  }
+
+  @Test
+  public void testEditNewPlistReplacesExistingFile() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(plistFile);
+    accessor.editNewPlist().addStringValue("key", "value").commit();
+
+    assertEquals("value", accessor.getStringValue("key"));
+    assertNull(accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+  }
+
+  @Test(expected = java.io.FileNotFoundException.class)
+  public void testEditNonExistingPlist() throws Exception
+  {
+    new PListAccessor(new File(tmpFolder.getRoot(), "foo.plist")).edit();
+  }
+
+  @Test
+  public void testPlistBuddyCommands() throws Exception
+  {
+    PListEdit edit = new PListAccessor(plistFile).edit();
+    edit.addDict("scm").addStringValue("scm:revision", "4711").updateStringValue("CFBundleVersion", "1.1")
+      .remove("scm:revision");
+
+    assertEquals("[Add :scm dict, Add :scm:revision string 4711, Set :CFBundleVersion 1.1, Delete :scm:revision]",
+          edit.getMutations().toString());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PListJournalTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File plistFile;
+
+  @Before
+  public void before() throws IOException
+  {
+    plistFile = new File(tmpFolder.getRoot(), "Info.plist");
+    FileUtils.copyFile(new File("src/test/resources/MyApp-Info.plist"), plistFile);
+  }
+
+  @Test
+  public void testChangesAreWrittenOnFlush() throws Exception
+  {
+    final String appId = new PListAccessor(plistFile).getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER);
+    final long lastModified = plistFile.lastModified();
+
+    PListJournal journal = new PListJournal();
+    new UpdateCFBundleVersionInPListTask().setPListFile(plistFile).setVersion("1.2.3-SNAPSHOT")
+      .setJournal(journal).execute();
+    XCodeChangeAppIDMojo.changeAppId(journal, plistFile, "internal");
+
+    // same file for another configuration, denoted by another path
+    XCodeChangeAppIDMojo.changeAppId(journal, new File(tmpFolder.getRoot(), "../" + tmpFolder.getRoot().getName()
+          + "/Info.plist"), "beta");
+
+    assertEquals(lastModified, plistFile.lastModified());
+    assertEquals("1.2.3", journal.getStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION));
+    assertEquals(appId + ".internal.beta", journal.getStringValue(plistFile, PListAccessor.KEY_BUNDLE_IDENTIFIER));
+
+    Map<File, List<PListJournal.Change>> diff = journal.flush();
+
+    assertEquals(1, diff.size());
+    List<PListJournal.Change> changes = diff.get(plistFile.getCanonicalFile());
+    assertEquals(2, changes.size());
+    assertEquals(PListAccessor.KEY_BUNDLE_VERSION, changes.get(0).getKey());
+    assertEquals(XCodeChangeVersionInPListMojo.GOAL, changes.get(0).getOrigin());
+    assertEquals(appId, changes.get(1).getOldValue());
+    assertEquals(appId + ".internal.beta", changes.get(1).getValue());
+
+    PListAccessor accessor = new PListAccessor(plistFile);
+    assertEquals("1.2.3", accessor.getStringValue(PListAccessor.KEY_BUNDLE_VERSION));
+    assertEquals(appId + ".internal.beta", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertTrue(journal.isEmpty());
+  }
+
+  @Test
+  public void testUnchangedValuesAreNotWritten() throws Exception
+  {
+    final String version = new PListAccessor(plistFile).getStringValue(PListAccessor.KEY_BUNDLE_VERSION);
+
+    PListJournal journal = new PListJournal();
+    journal.setStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION, version, "test");
+
+    assertTrue(journal.flush().isEmpty());
+  }
+
+  @Test
+  public void testConflictingChanges() throws Exception
+  {
+    PListJournal journal = new PListJournal();
+    journal.setStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION, "1.0", "first");
+    journal.setStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION, "1.1", "first");
+    journal.setStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION, "1.1", "second");
+
+    try {
+      journal.setStringValue(plistFile, PListAccessor.KEY_BUNDLE_VERSION, "2.0", "first");
+      fail("Conflicting change has not been detected.");
+    }
+    catch (XCodeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("'second' sets '1.1', 'first' sets '2.0'"));
+    }
+  }
+}
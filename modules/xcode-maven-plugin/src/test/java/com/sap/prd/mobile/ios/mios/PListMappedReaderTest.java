@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PListMappedReaderTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testSingleEntriesMatchFullParse() throws Exception
+  {
+    File file = new File("src/test/resources/plist-all-types.binary.plist");
+    PList plist = PList.read(file);
+
+    for (String key : new String[] { "Bundle & Version", "unicode", "aBool", "aDate", "integers", "integers:3",
+        "reals:2", "nested", "nested:array:0:short", "emptyDict" }) {
+      assertEquals(key, PList.toPrintString(plist.get(key)),
+            PList.toPrintString(PListMappedReader.getValue(file, key)));
+    }
+
+    assertArrayEquals((byte[]) plist.get("data"), (byte[]) PListMappedReader.getValue(file, "data"));
+    assertNull(PListMappedReader.getValue(file, "foo"));
+    assertNull(PListMappedReader.getValue(file, "integers:4"));
+    assertNull(PListMappedReader.getValue(file, "unicode:foo"));
+  }
+
+  @Test
+  public void testMappedBinaryPlist() throws Exception
+  {
+    PList plist = new PList();
+    plist.add(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.myapp");
+    for (int i = 0; i < 2000; i++)
+      plist.add("key" + i, "value" + i);
+
+    File file = new File(tmpFolder.getRoot(), "Info.plist");
+    plist.write(file, PList.Format.BINARY);
+
+    assertTrue(file.length() > PListMappedReader.MAP_THRESHOLD);
+    assertEquals("value1999", PListMappedReader.getValue(file, "key1999"));
+    assertEquals("com.sap.myapp", new PListAccessor(file).getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+  }
+
+  @Test
+  public void testProvisioningProfile() throws Exception
+  {
+    PList payload = new PList();
+    payload.add("Name", "MyApp Inhouse");
+    payload.add("Entitlements:application-identifier", "ABCDE12345.com.sap.myapp");
+    payload.add("Entitlements:get-task-allow", Boolean.FALSE);
+
+    ByteArrayOutputStream profile = new ByteArrayOutputStream();
+    profile.write(new byte[] { 0x30, (byte) 0x80, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48 });
+    byte[] xml = payload.toByteArray(PList.Format.XML);
+    profile.write(xml);
+    profile.write(new byte[] { 0x00, 0x00, (byte) 0xa0, (byte) 0x82, 0x0c });
+
+    File file = new File(tmpFolder.getRoot(), "embedded.mobileprovision");
+    FileUtils.writeByteArrayToFile(file, profile.toByteArray());
+
+    PListAccessor accessor = new PListAccessor(file);
+    assertEquals("ABCDE12345.com.sap.myapp", accessor.getStringValue("Entitlements:application-identifier"));
+    assertEquals("false", accessor.getStringValue("Entitlements:get-task-allow"));
+    assertNull(accessor.getStringValue("Entitlements:aps-environment"));
+  }
+}
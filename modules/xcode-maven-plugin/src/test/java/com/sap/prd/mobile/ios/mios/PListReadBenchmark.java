@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares the lookup of a single key in binary plists of about 1 KB, 100 KB and 10 MB by the memory mapped lazy
+ * reader with a full parse of the file. Not run by the build, start it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sap.prd.mobile.ios.mios.PListReadBenchmark</code>.
+ */
+public class PListReadBenchmark
+{
+  private static final String KEY = PListAccessor.KEY_BUNDLE_VERSION;
+
+  private static final int WARMUP_SECONDS = 2;
+
+  private static final int MEASUREMENT_SECONDS = 5;
+
+  public static void main(String[] args) throws Exception
+  {
+    final File dir = new File(System.getProperty("java.io.tmpdir"), "plist-benchmark");
+    FileUtils.mkdirs(dir);
+
+    for (int size : new int[] { 1024, 100 * 1024, 10 * 1024 * 1024 }) {
+
+      final File plist = createPlist(dir, size);
+
+      final double full = measure(new Lookup() {
+        @Override
+        public Object run() throws IOException
+        {
+          return PList.read(plist).get(KEY);
+        }
+      });
+
+      final double lazy = measure(new Lookup() {
+        @Override
+        public Object run() throws IOException
+        {
+          return PListMappedReader.getValue(plist, KEY);
+        }
+      });
+
+      System.out.println(String.format("%,12d bytes: full parse %,14.1f us/op, lazy lookup %,10.1f us/op",
+            plist.length(), full / 1000, lazy / 1000));
+    }
+  }
+
+  private interface Lookup
+  {
+    Object run() throws IOException;
+  }
+
+  /**
+   * @return the average duration of a lookup in nanoseconds.
+   */
+  private static double measure(Lookup lookup) throws IOException
+  {
+    run(lookup, WARMUP_SECONDS);
+    return run(lookup, MEASUREMENT_SECONDS);
+  }
+
+  private static double run(Lookup lookup, int seconds) throws IOException
+  {
+    final long end = System.nanoTime() + seconds * 1000000000L;
+    final long start = System.nanoTime();
+    long count = 0;
+
+    do {
+      if (lookup.run() == null)
+        throw new IllegalStateException("Key not found.");
+      count++;
+    } while (System.nanoTime() < end);
+
+    return (System.nanoTime() - start) / (double) count;
+  }
+
+  private static File createPlist(File dir, int size) throws IOException
+  {
+    final PList plist = new PList();
+    plist.add(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.myapp");
+
+    // each entry needs about 75 bytes
+    for (int i = 0, entries = size / 75; i < entries; i++)
+      plist.add("UIApplicationShortcutItem" + i, "com.sap.myapp.shortcut." + i);
+
+    plist.add(KEY, "1.0.0");
+
+    final File file = new File(dir, "Info-" + size + ".plist");
+    plist.write(file, PList.Format.BINARY);
+    return file;
+  }
+}
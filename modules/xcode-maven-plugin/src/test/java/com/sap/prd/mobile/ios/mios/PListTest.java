@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PListTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testAddCreatesIntermediateDicts()
+  {
+    PList plist = new PList();
+    plist.add("dependencies:0:coordinates:groupId", "com.sap.tests");
+
+    assertEquals("com.sap.tests", plist.get("dependencies:0:coordinates:groupId"));
+    assertTrue(plist.get(":dependencies:0") instanceof Map);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddExistingEntry()
+  {
+    PList plist = new PList();
+    plist.add("key", "value");
+    plist.add("key", "other value");
+  }
+
+  @Test
+  public void testArrayIndices()
+  {
+    PList plist = new PList();
+    plist.add("array", PList.createValue("array", ""));
+    plist.add("array:0", "b");
+    plist.add("array:0", "a");
+    plist.add("array:99", "c");
+
+    assertEquals("a", plist.get("array:0"));
+    assertEquals("b", plist.get("array:1"));
+    assertEquals("c", plist.get("array:2"));
+    assertNull(plist.get("array:3"));
+    assertNull(plist.get("array:foo"));
+
+    assertTrue(plist.remove("array:1"));
+    assertEquals("c", plist.get("array:1"));
+    assertFalse(plist.remove("array:2"));
+  }
+
+  @Test
+  public void testSetFromStringKeepsType()
+  {
+    PList plist = new PList();
+    plist.add("integer", Long.valueOf(1));
+    plist.add("bool", Boolean.FALSE);
+
+    plist.setFromString("integer", "42");
+    plist.setFromString("bool", "YES");
+
+    assertEquals(Long.valueOf(42), plist.get("integer"));
+    assertEquals(Boolean.TRUE, plist.get("bool"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSetNonExistingEntry()
+  {
+    new PList().set("foo:bar", "value");
+  }
+
+  @Test
+  public void testPrintString()
+  {
+    PList plist = new PList();
+    plist.add("coordinates:groupId", "com.sap.tests");
+    plist.add("list", PList.createValue("array", ""));
+    plist.add("list:0", Boolean.TRUE);
+
+    assertEquals("Dict {\n    coordinates = Dict {\n        groupId = com.sap.tests\n    }\n"
+          + "    list = Array {\n        true\n    }\n}", PList.toPrintString(plist.getRoot()));
+  }
+
+  @Test
+  public void testDetectFormat() throws Exception
+  {
+    assertEquals(PList.Format.BINARY, PList.detectFormat(readResource("MyApp-Info.plist")));
+    assertEquals(PList.Format.XML, PList.detectFormat(readResource("plist-all-types.xml.plist")));
+    assertEquals(PList.Format.OPENSTEP, PList.detectFormat(readResource("plist-openstep.plist")));
+    assertEquals(PList.Format.OPENSTEP, PList.detectFormat("<0fbd7791>".getBytes("UTF-8")));
+    assertEquals(PList.Format.XML, PList.detectFormat("<dict/>".getBytes("UTF-8")));
+  }
+
+  @Test
+  public void testReadBinary() throws Exception
+  {
+    PList plist = PList.read(new File("src/test/resources/plist-all-types.binary.plist"));
+
+    assertEquals(PList.Format.BINARY, plist.getFormat());
+    assertEquals("<1.0> & \"quoted\" 'single'", plist.get("Bundle & Version"));
+    assertEquals(Long.valueOf(-1), plist.get("integers:1"));
+    assertEquals(Long.valueOf(Long.MAX_VALUE), plist.get("integers:3"));
+    assertEquals(Double.valueOf(0.1), plist.get("reals:2"));
+    assertEquals("Gr\u00fc\u00dfe \u2013 \u65e5\u672c\u8a9e", plist.get("unicode"));
+    assertEquals(1353665730000L, ((java.util.Date) plist.get("aDate")).getTime());
+    assertEquals(64, ((byte[]) plist.get("data")).length);
+    assertArrayEquals("xcode-maven-plugin".getBytes("UTF-8"), (byte[]) plist.get("nested:array:0:short"));
+  }
+
+  @Test
+  public void testReadOpenStep() throws Exception
+  {
+    PList plist = PList.read(new File("src/test/resources/plist-openstep.plist"));
+
+    assertEquals(PList.Format.OPENSTEP, plist.getFormat());
+    assertEquals("46", plist.get("objectVersion"));
+    assertEquals("PBXBuildFile", plist.get("objects:B5D1F0E01579F1D900A1B2C3:isa"));
+    assertEquals("$(TARGET_NAME)",
+          plist.get("objects:B5D1F0F01579F1D900A1B2C3:buildSettings:PRODUCT_NAME"));
+    assertEquals(2,
+          ((List<?>) plist.get("objects:B5D1F0F01579F1D900A1B2C3:buildSettings:OTHER_LDFLAGS")).size());
+    assertArrayEquals(new byte[] { 0x0f, (byte) 0xbd, 0x77, (byte) 0x91, 0x2a }, (byte[]) plist.get("data"));
+    assertEquals("line\nbreak \"quoted\" \\ tab\t", plist.get("escaped"));
+  }
+
+  @Test
+  public void testOpenStepRoundTrip() throws Exception
+  {
+    PList plist = PList.read(new File("src/test/resources/plist-openstep.plist"));
+    File file = new File(tmpFolder.getRoot(), "openstep.plist");
+
+    plist.write(file, PList.Format.OPENSTEP);
+    PList reread = PList.read(file);
+
+    assertEquals(PList.Format.OPENSTEP, reread.getFormat());
+    assertEquals(PList.toPrintString(plist.getRoot()), PList.toPrintString(reread.getRoot()));
+  }
+
+  @Test
+  public void testStringsFile() throws Exception
+  {
+    PList plist = PList.parse("/* comment */\n\"hello\" = \"Hallo\";\nbye = \"Tsch\u00fcss\";\n".getBytes("UTF-8"));
+
+    assertEquals("Hallo", plist.get("hello"));
+    assertEquals("Tsch\u00fcss", plist.get("bye"));
+  }
+
+  @Test(expected = PListFormatException.class)
+  public void testInvalidBinaryPlist() throws Exception
+  {
+    PList.parse("bplist00 this is not a plist".getBytes("UTF-8"));
+  }
+
+  @Test(expected = PListFormatException.class)
+  public void testUnterminatedOpenStepPlist() throws Exception
+  {
+    PList.parse("{ key = value;".getBytes("UTF-8"));
+  }
+
+  @Test
+  public void testWriteLeavesNoTemporaryFiles() throws Exception
+  {
+    File file = new File(tmpFolder.getRoot(), "Info.plist");
+    PList plist = new PList();
+    plist.add("CFBundleVersion", "1.0");
+
+    plist.write(file, PList.Format.XML);
+    plist.setFromString("CFBundleVersion", "1.1");
+    plist.write(file, PList.Format.XML);
+
+    assertEquals(1, tmpFolder.getRoot().list().length);
+    assertEquals("1.1", PList.read(file).get("CFBundleVersion"));
+  }
+
+  private static byte[] readResource(String name) throws IOException
+  {
+    return org.apache.commons.io.FileUtils.readFileToByteArray(new File("src/test/resources", name));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PListValueCacheTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private final PListValueCache cache = PListValueCache.getInstance();
+
+  private File plistFile;
+
+  @Before
+  public void before() throws IOException
+  {
+    cache.clear();
+    plistFile = new File(tmpFolder.getRoot(), "Info.plist");
+    FileUtils.copyFile(new File("src/test/resources/MyApp-Info.plist"), plistFile);
+  }
+
+  @Test
+  public void testRepeatedReadsAreServedFromCache() throws Exception
+  {
+    assertEquals("com.sap.myapp", new PListAccessor(plistFile).getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals("com.sap.myapp", new PListAccessor(plistFile).getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals("com.sap.myapp", new PListAccessor(new File(tmpFolder.getRoot(), "./Info.plist"))
+      .getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testMissingKeysAreCached() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(plistFile);
+    assertNull(accessor.getStringValue("foo"));
+    assertNull(accessor.getStringValue("foo"));
+
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testWritesInvalidateTheCache() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(plistFile);
+    accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER);
+    long lastModified = plistFile.lastModified();
+
+    accessor.updateStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.myapp.internal");
+    // same size and time stamp as before, only the invalidation by the accessor prevents a stale value.
+    plistFile.setLastModified(lastModified);
+
+    assertEquals("com.sap.myapp.internal", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals(0, cache.getHits());
+  }
+
+  @Test
+  public void testForeignModificationsAreDetected() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(plistFile);
+    assertEquals("com.sap.myapp", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+
+    PList plist = PList.read(plistFile);
+    plist.set(PListAccessor.KEY_BUNDLE_IDENTIFIER, "com.sap.other");
+    plist.write(plistFile, PList.Format.XML);
+
+    assertEquals("com.sap.other", accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+    assertEquals(0, cache.getHits());
+  }
+}
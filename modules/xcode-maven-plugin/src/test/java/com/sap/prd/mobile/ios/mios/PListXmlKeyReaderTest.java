@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.junit.Test;
+
+public class PListXmlKeyReaderTest
+{
+
+  @Test
+  public void testSingleEntriesMatchFullParse() throws Exception
+  {
+    File file = new File("src/test/resources/plist-all-types.xml.plist");
+    PList plist = PList.read(file);
+
+    for (String key : new String[] { "Bundle & Version", "unicode", "aBool", "aDate", "integers", "integers:3",
+        "reals:2", "nested", "nested:array:0:short", "emptyDict" }) {
+      assertEquals(key, PList.toPrintString(plist.get(key)),
+            PList.toPrintString(PListXmlKeyReader.getValue(file, key)));
+    }
+
+    assertArrayEquals((byte[]) plist.get("data"), (byte[]) PListXmlKeyReader.getValue(file, "data"));
+    assertNull(PListXmlKeyReader.getValue(file, "foo"));
+    assertNull(PListXmlKeyReader.getValue(file, "Bundle"));
+    assertNull(PListXmlKeyReader.getValue(file, "integers:4"));
+    assertNull(PListXmlKeyReader.getValue(file, "integers:foo"));
+    assertNull(PListXmlKeyReader.getValue(file, "unicode:foo"));
+  }
+
+  @Test
+  public void testKeysWithEntitiesAndComments() throws Exception
+  {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<!DOCTYPE plist PUBLIC \"-//Apple//DTD PLIST 1.0//EN\" \"http://www.apple.com/DTDs/PropertyList-1.0.dtd\">\n"
+          + "<plist version=\"1.0\">\n<dict>\n"
+          + "  <key>A &amp; B</key><string>first</string>\n"
+          + "  <!-- a comment --><key>A</key><dict><key>x</key><string>nested</string></dict>\n"
+          + "  <key><![CDATA[C<D]]></key><integer>42</integer>\n"
+          + "</dict>\n</plist>\n";
+
+    assertEquals("first", PListXmlKeyReader.getValue(new ByteArrayInputStream(xml.getBytes("UTF-8")), "A & B"));
+    assertEquals("nested", PListXmlKeyReader.getValue(new ByteArrayInputStream(xml.getBytes("UTF-8")), "A:x"));
+    assertEquals(Long.valueOf(42), PListXmlKeyReader.getValue(new ByteArrayInputStream(xml.getBytes("UTF-8")), "C<D"));
+    assertNull(PListXmlKeyReader.getValue(new ByteArrayInputStream(xml.getBytes("UTF-8")), "A & "));
+  }
+
+  @Test
+  public void testAccessorUsesStreamingReader() throws Exception
+  {
+    PListAccessor accessor = new PListAccessor(new File("src/test/resources/MyApp-Info.xml.plist"));
+    assertEquals(PList.read(accessor.getPlistFile()).get(PListAccessor.KEY_BUNDLE_IDENTIFIER),
+          accessor.getStringValue(PListAccessor.KEY_BUNDLE_IDENTIFIER));
+  }
+
+  @Test(expected = PListFormatException.class)
+  public void testTruncatedDocument() throws Exception
+  {
+    String xml = "<plist version=\"1.0\"><dict><key>a</key><string>x</string><key>b</key><dict><key>c</key>";
+    PListXmlKeyReader.getValue(new ByteArrayInputStream(xml.getBytes("UTF-8")), "z");
+  }
+}
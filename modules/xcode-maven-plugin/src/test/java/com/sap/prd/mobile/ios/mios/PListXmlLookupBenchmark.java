@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Compares the lookup of a single key in XML plists of about 1 KB, 10 KB and 100 KB by the streaming reader with a
+ * full parse of the file and, if available, with a PlistBuddy call. Reports latency and allocated bytes per lookup.
+ * Not run by the build, start it with <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sap.prd.mobile.ios.mios.PListXmlLookupBenchmark</code>.
+ */
+public class PListXmlLookupBenchmark
+{
+  private static final String KEY = PListAccessor.KEY_BUNDLE_IDENTIFIER;
+
+  private static final int WARMUP_SECONDS = 2;
+
+  private static final int MEASUREMENT_SECONDS = 5;
+
+  public static void main(String[] args) throws Exception
+  {
+    final File dir = new File(System.getProperty("java.io.tmpdir"), "plist-benchmark");
+    FileUtils.mkdirs(dir);
+
+    for (int size : new int[] { 1024, 10 * 1024, 100 * 1024 }) {
+
+      final File plist = createPlist(dir, size);
+
+      report(plist, "full parse", new Lookup() {
+        @Override
+        public Object run() throws IOException
+        {
+          return PList.read(plist).get(KEY);
+        }
+      });
+
+      report(plist, "streaming", new Lookup() {
+        @Override
+        public Object run() throws IOException
+        {
+          return PListXmlKeyReader.getValue(plist, KEY);
+        }
+      });
+
+      if (PlistBuddyAccessor.isAvailable()) {
+        report(plist, "PlistBuddy", new Lookup() {
+          @Override
+          public Object run() throws IOException
+          {
+            return new PlistBuddyAccessor(plist).getStringValue(KEY);
+          }
+        });
+      }
+      else {
+        System.out.println(String.format("%,12d bytes: %-10s n/a", plist.length(), "PlistBuddy"));
+      }
+    }
+  }
+
+  private interface Lookup
+  {
+    Object run() throws IOException;
+  }
+
+  private static void report(File plist, String name, Lookup lookup) throws IOException
+  {
+    run(lookup, WARMUP_SECONDS);
+    final double[] result = run(lookup, MEASUREMENT_SECONDS);
+    System.out.println(String.format("%,12d bytes: %-10s %,12.1f us/op %,12.0f bytes/op", plist.length(), name,
+          result[0] / 1000, result[1]));
+  }
+
+  /**
+   * @return the average duration of a lookup in nanoseconds and the average number of bytes allocated by the lookup.
+   */
+  private static double[] run(Lookup lookup, int seconds) throws IOException
+  {
+    final long end = System.nanoTime() + seconds * 1000000000L;
+    final long start = System.nanoTime();
+    final long allocated = getAllocatedBytes();
+    long count = 0;
+
+    do {
+      if (lookup.run() == null)
+        throw new IllegalStateException("Key not found.");
+      count++;
+    } while (System.nanoTime() < end);
+
+    return new double[] { (System.nanoTime() - start) / (double) count,
+        (getAllocatedBytes() - allocated) / (double) count };
+  }
+
+  /**
+   * @return the number of bytes allocated by the current thread so far or <code>-1</code> if the JVM does not provide
+   *         this information.
+   */
+  private static long getAllocatedBytes()
+  {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  private static File createPlist(File dir, int size) throws IOException
+  {
+    final PList plist = new PList();
+
+    // each entry needs about 100 bytes
+    for (int i = 0, entries = size / 100; i < entries; i++)
+      plist.add("UIApplicationShortcutItem" + i, "com.sap.myapp.shortcut." + i);
+
+    plist.add(KEY, "com.sap.myapp");
+    plist.add("CFBundleDocumentTypes", Arrays.asList((Object) "public.data", "public.text"));
+
+    final File file = new File(dir, "Info-" + size + ".xml.plist");
+    plist.write(file, PList.Format.XML);
+    return file;
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.Coordinates;
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.Dependency;
+import com.sap.prd.mobile.ios.mios.versioninfo.v_1_2_2.SCM;
+
+/**
+ * Ensures that the in-process plist engine writes the same bytes as PlistBuddy. The fixture
+ * <code>versions-plistbuddy.plist</code> is the output of PlistBuddy for the commands issued by
+ * {@link VersionInfoPListManager}, <code>plist-all-types.xml.plist</code> covers all value types in the layout written
+ * by CoreFoundation and <code>plist-all-types.binary.plist</code> contains the same data written by an independent
+ * plist implementation.
+ */
+public class PListXmlWriterTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testXmlRoundTripIsByteCompatible() throws Exception
+  {
+    assertSameContent("plist-all-types.xml.plist", convertToXml("plist-all-types.xml.plist"));
+  }
+
+  @Test
+  public void testBinaryToXmlIsByteCompatible() throws Exception
+  {
+    assertSameContent("plist-all-types.xml.plist", convertToXml("plist-all-types.binary.plist"));
+    assertSameContent("MyApp-Info.xml.plist", convertToXml("MyApp-Info.plist"));
+  }
+
+  @Test
+  public void testVersionsPlistIsByteCompatibleWithPlistBuddy() throws Exception
+  {
+    Coordinates coordinates = new Coordinates();
+    coordinates.setGroupId("com.sap.tests");
+    coordinates.setArtifactId("MyLibrary");
+    coordinates.setVersion("1.0.0");
+
+    SCM scm = new SCM();
+    scm.setConnection("scm:perforce:PERFORCEHOST:5555://MY_DEPOT_PATH/");
+    scm.setRevision("4711");
+
+    Dependency dependency = new Dependency();
+    dependency.setCoordinates(coordinates);
+    dependency.setScm(scm);
+
+    List<Dependency> dependencies = new ArrayList<Dependency>();
+    dependencies.add(dependency);
+
+    File versionsPlist = new File(tmpFolder.getRoot(), "versions.plist");
+    new VersionInfoPListManager().createVersionInfoPlistFile("com.sap.tests", "MyApp", "1.0.0", new File(
+          "src/test/resources/sync.info"), dependencies, versionsPlist, true);
+
+    assertSameContent("versions-plistbuddy.plist", org.apache.commons.io.FileUtils.readFileToByteArray(versionsPlist));
+  }
+
+  @Test
+  public void testFormatReal()
+  {
+    assertEquals("0.5", PListXmlWriter.formatReal(0.5));
+    assertEquals("100", PListXmlWriter.formatReal(100));
+    assertEquals("0.10000000000000001", PListXmlWriter.formatReal(0.1));
+    assertEquals("1.0000000000000001e-05", PListXmlWriter.formatReal(0.00001));
+    assertEquals("-2.5e+20", PListXmlWriter.formatReal(-2.5e20));
+    assertEquals("0", PListXmlWriter.formatReal(0));
+    assertEquals("nan", PListXmlWriter.formatReal(Double.NaN));
+  }
+
+  @Test
+  public void testBase64() throws Exception
+  {
+    for (String s : new String[] { "", "a", "ab", "abc", "abcd" }) {
+      String encoded = PListXmlWriter.encodeBase64(s.getBytes("UTF-8"));
+      assertEquals(s, new String(PListXmlParser.decodeBase64(encoded), "UTF-8"));
+    }
+    assertEquals("YWI=", PListXmlWriter.encodeBase64("ab".getBytes("UTF-8")));
+  }
+
+  private static byte[] convertToXml(String resource) throws IOException
+  {
+    return PList.read(new File("src/test/resources", resource)).toByteArray(PList.Format.XML);
+  }
+
+  private static void assertSameContent(String expectedResource, byte[] actual) throws IOException
+  {
+    assertEquals(readResource(expectedResource), new String(actual, "UTF-8"));
+  }
+
+  private static String readResource(String name) throws IOException
+  {
+    return org.apache.commons.io.FileUtils.readFileToString(new File("src/test/resources", name), "UTF-8");
+  }
+}
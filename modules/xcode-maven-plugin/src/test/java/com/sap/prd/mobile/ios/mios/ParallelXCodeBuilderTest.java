@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.LogManager;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParallelXCodeBuilderTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File projectDirectory;
+
+  private File logDirectory;
+
+  private ByteArrayOutputStream out;
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Before
+  public void setup() throws Exception
+  {
+    projectDirectory = tmpFolder.newFolder("MyApp");
+    logDirectory = tmpFolder.newFolder("logs");
+    out = new ByteArrayOutputStream();
+  }
+
+  @Test
+  public void testResultsAreMergedIntoBuildDirectory() throws Exception
+  {
+    // a product from a previous build is replaced
+    FileUtils.writeStringToFile(new File(projectDirectory, "build/Release-iphoneos/libMyApp.a"), "old", "UTF-8");
+
+    final ParallelXCodeBuilder builder = new ScriptBuilder(
+          "mkdir -p $SYMROOT/$CONFIGURATION-$SDK $SYMROOT/MyApp.build/$CONFIGURATION-$SDK"
+                + " && echo $CONFIGURATION-$SDK > $SYMROOT/$CONFIGURATION-$SDK/libMyApp.a"
+                + " && touch $SYMROOT/MyApp.build/$CONFIGURATION-$SDK/main.o && echo built $CONFIGURATION-$SDK");
+
+    final List<XCodeContext> contexts = Arrays.asList(createContext("Release", "iphoneos"),
+          createContext("Release", "iphonesimulator"), createContext("Debug", "iphoneos"),
+          createContext("Debug", "iphonesimulator"));
+
+    builder.build(contexts);
+
+    for (XCodeContext context : contexts) {
+      final String name = context.getConfiguration() + "-" + context.getSDK();
+      assertEquals(name, FileUtils.readFileToString(
+            XCodeBuildLayout.getBinary(XCodeBuildLayout.getBuildDir(projectDirectory), context.getConfiguration(),
+                  context.getSDK(), "MyApp"), "UTF-8").trim());
+      assertTrue(new File(projectDirectory, "build/MyApp.build/" + name + "/main.o").isFile());
+      assertEquals("built " + name, FileUtils.readFileToString(builder.getLogFile(context), "UTF-8").trim());
+    }
+
+    assertFalse(new File(projectDirectory, ParallelXCodeBuilder.JOBS_DIRECTORY).exists());
+
+    // the logs are printed in the order of the contexts
+    final String output = out.toString("UTF-8");
+    assertTrue(output.indexOf("built Release-iphoneos") < output.indexOf("built Release-iphonesimulator"));
+    assertTrue(output.indexOf("built Release-iphonesimulator") < output.indexOf("built Debug-iphoneos"));
+  }
+
+  @Test
+  public void testOutputDirectoriesAreIsolated() throws Exception
+  {
+    final ParallelXCodeBuilder builder = new ScriptBuilder("echo $SYMROOT $OBJROOT");
+    final List<XCodeContext> contexts = Arrays.asList(createContext("Release", "iphoneos"),
+          createContext("Release", "iphonesimulator"));
+
+    builder.build(contexts);
+
+    final String first = FileUtils.readFileToString(builder.getLogFile(contexts.get(0)), "UTF-8");
+    final String second = FileUtils.readFileToString(builder.getLogFile(contexts.get(1)), "UTF-8");
+
+    assertFalse(first.equals(second));
+    assertTrue(first.contains("Release-iphoneos"));
+    assertTrue(second.contains("Release-iphonesimulator"));
+  }
+
+  @Test
+  public void testRedirectedOutputDirectoriesAreKept() throws Exception
+  {
+    final File objRoot = tmpFolder.newFolder("objroot");
+    final ParallelXCodeBuilder builder = new ScriptBuilder("echo $OBJROOT");
+
+    final Map<String, String> managedSettings = new HashMap<String, String>();
+    managedSettings.put(Settings.ManagedSetting.OBJROOT.name(), objRoot.getAbsolutePath());
+
+    final XCodeContext context = new XCodeContext(Collections.<String> emptyList(), projectDirectory,
+          new PrintStream(out, true), new Settings(null, managedSettings), createContext("Release", "iphoneos")
+            .getOptions());
+
+    builder.build(Arrays.asList(context, createContext("Release", "iphonesimulator")));
+
+    assertEquals(objRoot.getAbsolutePath(), FileUtils.readFileToString(builder.getLogFile(context), "UTF-8").trim());
+  }
+
+  @Test
+  public void testFirstFailureCancelsOtherJobs() throws Exception
+  {
+    final ParallelXCodeBuilder builder = new ScriptBuilder(
+          "if [ $SDK = iphoneos ]; then echo broken; exit 1; fi; exec sleep 60");
+
+    final long start = System.currentTimeMillis();
+
+    try {
+      builder.build(Arrays.asList(createContext("Release", "iphonesimulator"), createContext("Release", "iphoneos"),
+            createContext("Debug", "iphonesimulator")));
+      fail("Failed xcodebuild call not detected.");
+    }
+    catch (XCodeException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Release"));
+      assertTrue(e.getMessage(), e.getMessage().contains("iphoneos"));
+    }
+
+    assertTrue("Running jobs have not been cancelled.", System.currentTimeMillis() - start < 30000);
+    assertTrue(out.toString("UTF-8").contains("broken"));
+    assertFalse(new File(projectDirectory, "build").exists());
+    assertFalse(new File(projectDirectory, ParallelXCodeBuilder.JOBS_DIRECTORY).exists());
+  }
+
+  @Test
+  public void testRequiredSettingsCanBeRedirected() throws Exception
+  {
+    final Map<String, String> managedSettings = new HashMap<String, String>();
+    managedSettings.put(Settings.ManagedSetting.SYMROOT.name(), "/tmp/job");
+
+    final Settings settings = new Settings(null, managedSettings);
+
+    assertEquals("/tmp/job", settings.getAllSettings().get(Settings.ManagedSetting.SYMROOT.name()));
+    assertEquals("build", settings.getAllSettings().get(Settings.ManagedSetting.OBJROOT.name()));
+  }
+
+  private XCodeContext createContext(String configuration, String sdk)
+  {
+    final Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), "MyApp.xcodeproj");
+    managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), configuration);
+    managedOptions.put(Options.ManagedOption.SDK.getOptionName(), sdk);
+
+    return new XCodeContext(Collections.<String> emptyList(), projectDirectory, new PrintStream(out, true),
+          new Settings(null, new HashMap<String, String>()), new Options(null, managedOptions));
+  }
+
+  /**
+   * Executes a shell script instead of xcodebuild. The script can refer to the configuration, sdk and the output
+   * directories as variables.
+   */
+  private final class ScriptBuilder extends ParallelXCodeBuilder
+  {
+    private final String script;
+
+    ScriptBuilder(String script)
+    {
+      // a scheduler of its own, the jobs must run in parallel regardless of the processors of the machine
+      super(4, logDirectory, new XCodeBuildScheduler(4), "test", 0);
+      this.script = script;
+    }
+
+    @Override
+    List<String> createCommand(XCodeContext context)
+    {
+      final Map<String, String> settings = context.getSettings().getAllSettings();
+      return Arrays.asList("sh", "-c", "CONFIGURATION=" + context.getConfiguration() + "; SDK=" + context.getSDK()
+            + "; SYMROOT=" + settings.get("SYMROOT") + "; OBJROOT=" + settings.get("OBJROOT") + "; " + script);
+    }
+  }
+}
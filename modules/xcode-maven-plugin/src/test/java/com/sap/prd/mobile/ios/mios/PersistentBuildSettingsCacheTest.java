@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PersistentBuildSettingsCacheTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File projectDirectory;
+
+  @Before
+  public void setupProject() throws Exception
+  {
+    projectDirectory = tmpFolder.newFolder("MyApp");
+    FileUtils.writeStringToFile(new File(projectDirectory, "MyApp.xcodeproj/project.pbxproj"),
+          "{ objects = { 1234 = { isa = PBXFileReference; path = Config/Release.xcconfig; }; }; }", "UTF-8");
+    FileUtils.writeStringToFile(new File(projectDirectory, "Config/Release.xcconfig"),
+          "#include \"../../Shared.xcconfig\"\nOTHER_LDFLAGS = -ObjC\n", "UTF-8");
+    FileUtils.writeStringToFile(new File(tmpFolder.getRoot(), "Shared.xcconfig"), "GCC_OPTIMIZATION_LEVEL = s\n",
+          "UTF-8");
+  }
+
+  @Test
+  public void testFingerprint() throws Exception
+  {
+    final String fingerprint = PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos"));
+
+    assertEquals(fingerprint, PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos")));
+    assertFalse(fingerprint.equals(PersistentBuildSettingsCache.fingerprint(createContext("Debug", "iphoneos"))));
+
+    // included file outside of the project directory
+    FileUtils.writeStringToFile(new File(tmpFolder.getRoot(), "Shared.xcconfig"), "GCC_OPTIMIZATION_LEVEL = 0\n",
+          "UTF-8");
+    final String changedXcconfig = PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos"));
+    assertFalse(fingerprint.equals(changedXcconfig));
+
+    FileUtils.writeStringToFile(new File(projectDirectory, "MyApp.xcodeproj/project.pbxproj"), "{ objects = { }; }",
+          "UTF-8");
+    assertFalse(changedXcconfig.equals(PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos"))));
+  }
+
+  @Test
+  public void testStoreAndLoad() throws Exception
+  {
+    final PersistentBuildSettingsCache cache = new PersistentBuildSettingsCache(new File(tmpFolder.getRoot(), "cache"));
+    final String fingerprint = PersistentBuildSettingsCache.fingerprint(createContext("Release", "iphoneos"));
+
+    assertNull(cache.get(fingerprint));
+
+    final Properties buildSettings = new Properties();
+    buildSettings.setProperty(EffectiveBuildSettings.PRODUCT_NAME, "MyApp");
+    buildSettings.setProperty(EffectiveBuildSettings.INFOPLIST_FILE, "MyApp/MyApp-Info.plist");
+    cache.put(fingerprint, buildSettings);
+
+    assertEquals(buildSettings, cache.get(fingerprint));
+  }
+
+  @Test
+  public void testCorruptEntryIsDiscarded() throws Exception
+  {
+    final PersistentBuildSettingsCache cache = new PersistentBuildSettingsCache(new File(tmpFolder.getRoot(), "cache"));
+    final Properties buildSettings = new Properties();
+    buildSettings.setProperty(EffectiveBuildSettings.PRODUCT_NAME, "MyApp");
+    cache.put("1234", buildSettings);
+
+    final File file = new File(cache.getDirectory(), "1234.properties");
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.setLength(raf.length() - 2);
+    }
+    finally {
+      raf.close();
+    }
+
+    assertNull(cache.get("1234"));
+    assertFalse(file.exists());
+  }
+
+  private XCodeContext createContext(String configuration, String sdk)
+  {
+    Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), "MyApp.xcodeproj");
+    managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), configuration);
+    managedOptions.put(Options.ManagedOption.SDK.getOptionName(), sdk);
+
+    return new XCodeContext(Collections.<String> emptyList(), projectDirectory, System.out, null, new Options(null,
+          managedOptions));
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessServiceTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testOutputAndCensus() throws Exception
+  {
+    final DefaultProcessService service = new DefaultProcessService(new Properties());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    assertEquals(3, service.execute(new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"),
+          tmpFolder.getRoot(), "sh", "-c", "pwd; echo error >&2; exit 3"));
+
+    assertEquals(tmpFolder.getRoot().getCanonicalPath(), out.toString("UTF-8").trim());
+    assertEquals("error", err.toString("UTF-8").trim());
+
+    final List<ProcessCensus.Fork> forks = service.getCensus().getForks();
+    assertEquals(1, forks.size());
+    assertEquals("pwd", forks.get(0).getTool());
+    assertEquals(3, forks.get(0).getExitCode());
+    assertEquals(out.size() + err.size(), forks.get(0).getBytesOutput());
+    assertEquals(1, service.getCensus().getCount("pwd"));
+
+    final String summary = service.getCensus().getSummary();
+    assertTrue(summary, summary.startsWith("Forked processes: 1, "));
+    assertTrue(summary, summary.contains("exit   3  sh -c pwd; echo error >&2; exit 3"));
+
+    service.getCensus().reset();
+    assertTrue(service.getCensus().getForks().isEmpty());
+  }
+
+  @Test
+  public void testTimeoutKillsProcess() throws Exception
+  {
+    final Properties properties = new Properties();
+    properties.setProperty(DefaultProcessService.PROPERTY_PREFIX + "sleep.timeout", "1");
+    final DefaultProcessService service = new DefaultProcessService(properties);
+
+    assertEquals(1000, service.getTimeout("sleep"));
+    // no timeout unless configured
+    assertEquals(0, service.getTimeout("xcodebuild"));
+
+    final long start = System.currentTimeMillis();
+    try {
+      service.execute(new PrintStream(new ByteArrayOutputStream()), null, "sleep", "60");
+      fail();
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("killed after a timeout of 1 s"));
+    }
+    assertTrue(System.currentTimeMillis() - start < 30000);
+
+    final ProcessCensus.Fork fork = service.getCensus().getForks().get(0);
+    assertTrue(fork.isTimedOut());
+    assertEquals(-1, fork.getExitCode());
+  }
+
+  @Test
+  public void testTool() throws Exception
+  {
+    assertEquals("xcodebuild", ProcessCensus.Fork.getTool(Arrays.asList("/usr/bin/xcodebuild", "-version")));
+    assertEquals("PlistBuddy", ProcessCensus.Fork.getTool(Arrays.asList("bash", "-c",
+          "/usr/libexec/PlistBuddy -c \"Print :CFBundleVersion\" \"Info.plist\"")));
+    assertEquals("codesign", ProcessCensus.Fork.getTool(Arrays.asList("/bin/bash", "-c",
+          "  \"/usr/bin/codesign\" --verify -v \"MyApp.app\"")));
+    assertEquals("sh", ProcessCensus.Fork.getTool(Arrays.asList("sh", "unzip.sh", "a.zip")));
+    assertEquals("bash", ProcessCensus.Fork.getTool(Arrays.asList("bash", "-c", " ")));
+  }
+
+  @Test
+  public void testEmptyArgument() throws Exception
+  {
+    final DefaultProcessService service = new DefaultProcessService(new Properties());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    assertEquals(0, service.execute(new PrintStream(out, true, "UTF-8"), null, "sh", "-c", "echo \"[$1]\"", "sh",
+          ""));
+    assertEquals("[]", out.toString("UTF-8").trim());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullArgument() throws Exception
+  {
+    new DefaultProcessService(new Properties()).execute(new PrintStream(new ByteArrayOutputStream()), null, "echo",
+          null);
+  }
+
+  @Test
+  public void testConcurrencyLimitPerTool() throws Exception
+  {
+    final Properties properties = new Properties();
+    properties.setProperty(DefaultProcessService.PROPERTY_PREFIX + "mkdir.maxParallel", "1");
+    final DefaultProcessService service = new DefaultProcessService(properties);
+
+    assertEquals(1, service.getMaxParallel("mkdir"));
+
+    // each process fails if another one is running at the same time
+    final File marker = new File(tmpFolder.getRoot(), "running");
+    final String script = "mkdir " + marker.getAbsolutePath() + " || exit 1; sleep 0.2; rmdir "
+          + marker.getAbsolutePath();
+
+    final List<Integer> exitCodes = Collections.synchronizedList(new ArrayList<Integer>());
+    final List<Thread> threads = new ArrayList<Thread>();
+
+    for (int i = 0; i < 4; i++) {
+      threads.add(new Thread() {
+        @Override
+        public void run()
+        {
+          try {
+            exitCodes.add(service.execute(new PrintStream(new ByteArrayOutputStream()), null, "sh", "-c", script));
+          }
+          catch (IOException e) {
+            exitCodes.add(-2);
+          }
+        }
+      });
+    }
+
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+
+    assertEquals(Collections.nCopies(4, 0), exitCodes);
+  }
+
+  @Test
+  public void testInterruptKillsProcess() throws Exception
+  {
+    final DefaultProcessService service = new DefaultProcessService(new Properties());
+    final Thread caller = Thread.currentThread();
+
+    final Thread interrupter = new Thread() {
+      @Override
+      public void run()
+      {
+        try {
+          Thread.sleep(300);
+        }
+        catch (InterruptedException e) {
+          return;
+        }
+        caller.interrupt();
+      }
+    };
+    interrupter.start();
+
+    try {
+      service.execute(new PrintStream(new ByteArrayOutputStream()), null, "sleep", "60");
+      fail();
+    }
+    catch (InterruptedIOException e) {
+      assertTrue(Thread.interrupted());
+    }
+    finally {
+      interrupter.join();
+    }
+  }
+
+  @Test
+  public void testStubReplacesXcodebuild() throws Exception
+  {
+    final StubProcessService stub = new StubProcessService();
+    stub.when("xcodebuild").thenReturn(0, "** BUILD SUCCEEDED **\n");
+
+    final ProcessService previous = ProcessServices.setDefault(stub);
+
+    try {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      new XCodeManager().callXcodeBuild(createContext("Release", new PrintStream(out, true, "UTF-8")));
+      assertEquals("** BUILD SUCCEEDED **", out.toString("UTF-8").trim());
+
+      stub.when("xcodebuild").thenReturn(65, "** BUILD FAILED **\n");
+
+      try {
+        new XCodeManager().callXcodeBuild(createContext("Debug", new PrintStream(out, true, "UTF-8")));
+        fail();
+      }
+      catch (XCodeException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("Debug"));
+      }
+
+      assertEquals(2, stub.getCommands().size());
+      assertEquals("xcodebuild", stub.getCommands().get(0).get(0));
+      assertTrue(stub.getCommands().get(0).contains("Release"));
+      assertEquals(2, stub.getCensus().getCount("xcodebuild"));
+
+      assertFalse(new File(tmpFolder.getRoot(), "build").exists());
+    }
+    finally {
+      ProcessServices.setDefault(previous);
+    }
+  }
+
+  private XCodeContext createContext(String configuration, PrintStream out)
+  {
+    final Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), "MyApp.xcodeproj");
+    managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), configuration);
+
+    return new XCodeContext(Collections.singletonList("build"), tmpFolder.getRoot(), out, new Settings(null,
+          new HashMap<String, String>()), new Options(null, managedOptions));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class SessionEndHookTest
+{
+
+  @Test
+  public void testTasksRunOnceAtSessionEnd() throws Exception
+  {
+    final List<String> calls = new ArrayList<String>();
+
+    final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+    request.setExecutionListener(new AbstractExecutionListener() {
+      @Override
+      public void projectStarted(ExecutionEvent event)
+      {
+        calls.add("projectStarted");
+      }
+
+      @Override
+      public void sessionEnded(ExecutionEvent event)
+      {
+        calls.add("sessionEnded");
+      }
+    });
+    final MavenSession session = new MavenSession(null, request, null, Collections.<MavenProject> emptyList());
+
+    SessionEndHook.register(session, "first", newTask(calls, "first"));
+    SessionEndHook.register(session, "second", newTask(calls, "second"));
+    // registered again by the next project
+    SessionEndHook.register(session, "first", newTask(calls, "first again"));
+
+    assertTrue(request.getExecutionListener() instanceof SessionEndHook);
+    final SessionEndHook hook = (SessionEndHook) request.getExecutionListener();
+    SessionEndHook.register(session, "third", newTask(calls, "third"));
+    assertSame(hook, request.getExecutionListener());
+
+    hook.projectStarted(null);
+    assertEquals(Collections.singletonList("projectStarted"), calls);
+
+    hook.sessionEnded(null);
+    assertEquals("[projectStarted, first, second, third, sessionEnded]", calls.toString());
+
+    // the tasks have been run
+    hook.sessionEnded(null);
+    assertEquals("[projectStarted, first, second, third, sessionEnded, sessionEnded]", calls.toString());
+  }
+
+  private static Runnable newTask(final List<String> calls, final String name)
+  {
+    return new Runnable() {
+      @Override
+      public void run()
+      {
+        calls.add(name);
+      }
+    };
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link ProcessService} that does not fork. The exit code and the output of a command are defined upfront with
+ * {@link #when(String...)}, commands without definition fail with exit code 127. The executed commands are recorded,
+ * so tests relying on Mac tools like <code>xcodebuild</code> or <code>lipo</code> can run on any platform.
+ * 
+ * <pre>
+ * final StubProcessService stub = new StubProcessService();
+ * stub.when(&quot;xcodebuild&quot;, &quot;-version&quot;).thenReturn(0, &quot;Xcode 4.6\n&quot;);
+ * final ProcessService previous = ProcessServices.setDefault(stub);
+ * </pre>
+ */
+class StubProcessService implements ProcessService
+{
+  private final List<Stub> stubs = new ArrayList<Stub>();
+
+  private final List<List<String>> commands = Collections.synchronizedList(new ArrayList<List<String>>());
+
+  private final ProcessCensus census = new ProcessCensus();
+
+  /**
+   * @param commandPrefix
+   *          the first arguments of the commands the result applies to. Later definitions take precedence.
+   */
+  synchronized Stub when(String... commandPrefix)
+  {
+    final Stub stub = new Stub(Arrays.asList(commandPrefix));
+    stubs.add(0, stub);
+    return stub;
+  }
+
+  /**
+   * @return the commands executed so far.
+   */
+  List<List<String>> getCommands()
+  {
+    synchronized (commands) {
+      return new ArrayList<List<String>>(commands);
+    }
+  }
+
+  @Override
+  public ProcessCensus getCensus()
+  {
+    return census;
+  }
+
+  @Override
+  public int execute(PrintStream out, File directory, String... command) throws IOException
+  {
+    return execute(out, out, directory, command);
+  }
+
+  @Override
+  public int execute(PrintStream out, PrintStream err, File directory, String... command) throws IOException
+  {
+    final List<String> commandList = Arrays.asList(command);
+    commands.add(commandList);
+
+    Stub match = null;
+    synchronized (this) {
+      for (Stub stub : stubs) {
+        if (commandList.size() >= stub.prefix.size()
+              && commandList.subList(0, stub.prefix.size()).equals(stub.prefix)) {
+          match = stub;
+          break;
+        }
+      }
+    }
+
+    final int exitCode;
+    final byte[] output;
+
+    if (match == null) {
+      exitCode = 127;
+      output = (commandList.get(0) + ": command not found\n").getBytes("UTF-8");
+      err.write(output);
+    }
+    else {
+      exitCode = match.exitCode;
+      output = match.output.getBytes("UTF-8");
+      out.write(output);
+    }
+
+    out.flush();
+    err.flush();
+    census.record(new ProcessCensus.Fork(commandList, directory, 0, exitCode, output.length, false));
+    return exitCode;
+  }
+
+  static final class Stub
+  {
+    private final List<String> prefix;
+
+    private int exitCode;
+
+    private String output = "";
+
+    private Stub(List<String> prefix)
+    {
+      this.prefix = prefix;
+    }
+
+    void thenReturn(int exitCode, String output)
+    {
+      this.exitCode = exitCode;
+      this.output = output;
+    }
+  }
+}
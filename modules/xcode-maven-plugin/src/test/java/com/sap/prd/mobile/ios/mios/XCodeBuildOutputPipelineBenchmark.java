@@ -0,0 +1,78 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+/**
+ * Throughput benchmark of the {@link XCodeBuildOutputPipeline} on a recorded <code>xcodebuild</code> log. Not part
+ * of the regular test run, execute with <code>mvn test -Dtest=XCodeBuildOutputPipelineBenchmark</code>.
+ */
+public class XCodeBuildOutputPipelineBenchmark
+{
+
+  private static final int REPETITIONS = 20000;
+
+  @Test
+  public void testThroughput() throws Exception
+  {
+    final byte[] recorded = XCodeBuildOutputPipelineTest.getRecordedLog();
+
+    for (boolean condensed : new boolean[] { false, true }) {
+
+      // warm up
+      XCodeBuildOutputPipelineTest.replay(newPipeline(condensed).start(), recorded, REPETITIONS / 10);
+
+      final XCodeBuildOutputPipeline pipeline = newPipeline(condensed);
+      final long start = System.nanoTime();
+      XCodeBuildOutputPipelineTest.replay(pipeline.start(), recorded, REPETITIONS);
+      final double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.println(String.format("%s: %d lines, %.1f MB in %.2f s: %.0f lines/s, %.1f MB/s, %d bytes skipped",
+            condensed ? "condensed" : "full", pipeline.getLineCount(), (double) recorded.length * REPETITIONS / 1e6,
+            seconds, pipeline.getLineCount() / seconds, recorded.length * REPETITIONS / 1e6 / seconds,
+            pipeline.getSkippedBytes()));
+
+      if (pipeline.getSkippedBytes() == 0)
+        assertEquals(54L * REPETITIONS, pipeline.getLineCount());
+    }
+  }
+
+  private static XCodeBuildOutputPipeline newPipeline(boolean condensed)
+  {
+    final PrintStream nullLog = new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b)
+      {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len)
+      {
+      }
+    });
+    return new XCodeBuildOutputPipeline(nullLog, null, condensed, 64 * 1024);
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class XCodeBuildOutputPipelineTest
+{
+
+  static final String RECORDED_LOG = "/xcodebuild-MyLibrary-Release-iphoneos.log";
+
+  @Test
+  public void testParseBuildSteps() throws Exception
+  {
+    XCodeBuildEvent event = XCodeBuildEvent.parse("CompileC build/Objects-normal/armv7/My\\ Helper.o "
+          + "MyLibrary/My\\ Helper.m normal armv7 objective-c com.apple.compilers.llvm.clang.1_0.compiler");
+    assertEquals(XCodeBuildEvent.Type.COMPILE, event.getType());
+    assertEquals("MyLibrary/My Helper.m", event.getSubject());
+    assertNull(event.getMessage());
+
+    event = XCodeBuildEvent.parse("Ld build/Release-iphoneos/MyApp.app/MyApp normal armv7");
+    assertEquals(XCodeBuildEvent.Type.LINK, event.getType());
+    assertEquals("build/Release-iphoneos/MyApp.app/MyApp", event.getSubject());
+
+    event = XCodeBuildEvent.parse("Libtool build/Release-iphoneos/libMyLibrary.a normal armv7");
+    assertEquals(XCodeBuildEvent.Type.LIBTOOL, event.getType());
+    assertEquals("build/Release-iphoneos/libMyLibrary.a", event.getSubject());
+
+    event = XCodeBuildEvent.parse("CodeSign build/Release-iphoneos/MyApp.app");
+    assertEquals(XCodeBuildEvent.Type.CODESIGN, event.getType());
+    assertEquals("build/Release-iphoneos/MyApp.app", event.getSubject());
+
+    event = XCodeBuildEvent.parse("CpResource MyApp/Default.png build/Release-iphoneos/MyApp.app/Default.png");
+    assertEquals(XCodeBuildEvent.Type.STEP, event.getType());
+    assertEquals("CpResource", event.getName());
+    assertEquals("MyApp/Default.png", event.getSubject());
+  }
+
+  @Test
+  public void testParseMessages() throws Exception
+  {
+    XCodeBuildEvent event = XCodeBuildEvent.parse("/src/MyLibrary/PrintOutObject.m:17:9: warning: unused variable");
+    assertEquals(XCodeBuildEvent.Type.WARNING, event.getType());
+    assertEquals("/src/MyLibrary/PrintOutObject.m:17:9", event.getSubject());
+    assertEquals("unused variable", event.getMessage());
+
+    event = XCodeBuildEvent.parse("/src/MyLibrary/Foo.h:3:9: fatal error: 'Bar.h' file not found");
+    assertEquals(XCodeBuildEvent.Type.ERROR, event.getType());
+    assertEquals("'Bar.h' file not found", event.getMessage());
+
+    event = XCodeBuildEvent.parse("error: no provisioning profile found");
+    assertEquals(XCodeBuildEvent.Type.ERROR, event.getType());
+    assertNull(event.getSubject());
+
+    assertNull(XCodeBuildEvent.parse("    NSLog(@\"error: not an error\");"));
+    assertNull(XCodeBuildEvent.parse("1 warning generated."));
+    assertNull(XCodeBuildEvent.parse("Build settings from command line:"));
+    assertNull(XCodeBuildEvent.parse(""));
+  }
+
+  @Test
+  public void testRecordedLog() throws Exception
+  {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    final List<XCodeBuildEvent> events = new ArrayList<XCodeBuildEvent>();
+
+    final XCodeBuildOutputPipeline pipeline = new XCodeBuildOutputPipeline(new PrintStream(log, true, "UTF-8"), raw,
+          false, XCodeBuildOutputPipeline.DEFAULT_CAPACITY);
+    pipeline.addListener(new XCodeBuildEventListener() {
+      @Override
+      public void onEvent(XCodeBuildEvent event)
+      {
+        events.add(event);
+      }
+    });
+
+    final byte[] recorded = getRecordedLog();
+    replay(pipeline.start(), recorded, 1);
+
+    assertEquals(new String(recorded, "UTF-8"), log.toString("UTF-8").replace(System.getProperty("line.separator"),
+          "\n"));
+    assertEquals(recorded.length, raw.size());
+    assertEquals(54, pipeline.getLineCount());
+
+    assertEquals(13, events.size());
+    assertEquals(3, pipeline.getEventCount(XCodeBuildEvent.Type.COMPILE));
+    assertEquals(1, pipeline.getEventCount(XCodeBuildEvent.Type.LIBTOOL));
+    assertEquals(1, pipeline.getEventCount(XCodeBuildEvent.Type.LINK));
+    assertEquals(1, pipeline.getEventCount(XCodeBuildEvent.Type.CODESIGN));
+    assertEquals(3, pipeline.getEventCount(XCodeBuildEvent.Type.WARNING));
+    assertEquals(1, pipeline.getEventCount(XCodeBuildEvent.Type.ERROR));
+    assertEquals(3, pipeline.getEventCount(XCodeBuildEvent.Type.STEP));
+    assertEquals("Check", events.get(0).getName());
+    assertEquals("ProcessPCH", events.get(1).getName());
+    assertEquals("MyLibrary/PrintOutObject.m", events.get(2).getSubject());
+    assertEquals("code object is not signed at all", events.get(12).getMessage());
+  }
+
+  @Test
+  public void testCondensedLog() throws Exception
+  {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    final XCodeBuildOutputPipeline pipeline = new XCodeBuildOutputPipeline(new PrintStream(log, true, "UTF-8"), null,
+          true, XCodeBuildOutputPipeline.DEFAULT_CAPACITY);
+    replay(pipeline.start(), getRecordedLog(), 1);
+
+    final String[] lines = log.toString("UTF-8").split("\r?\n");
+
+    assertEquals(13, lines.length);
+    assertEquals("=== BUILD NATIVE TARGET MyLibrary OF PROJECT MyLibrary WITH CONFIGURATION Release ===", lines[0]);
+    assertEquals("CompileC MyLibrary/PrintOutObject.m", lines[1]);
+    assertTrue(lines[2].endsWith("warning: unused variable 'count' [-Wunused-variable]"));
+    assertEquals("Libtool build/Release-iphoneos/libMyLibrary.a", lines[5]);
+    assertEquals("** BUILD FAILED **", lines[12]);
+  }
+
+  @Test
+  public void testWriterIsNotBlockedBySlowConsumer() throws Exception
+  {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final XCodeBuildOutputPipeline pipeline = new XCodeBuildOutputPipeline(new PrintStream(log, true, "UTF-8"), raw,
+          false, 2);
+    pipeline.addListener(new XCodeBuildEventListener() {
+      @Override
+      public void onEvent(XCodeBuildEvent event)
+      {
+        try {
+          release.await();
+        }
+        catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    pipeline.start();
+
+    // the consumer hangs in the listener, the queue is full after two more writes
+    final byte[] line = "CompileC a.o a.m normal armv7\n".getBytes("UTF-8");
+    for (int i = 0; i < 100; i++)
+      pipeline.write(line, 0, line.length);
+
+    assertTrue(pipeline.getSkippedBytes() > 0);
+
+    release.countDown();
+    pipeline.close();
+
+    // the skipped output may be reported in several notes if the consumer took a chunk in between
+    final String output = log.toString("UTF-8");
+    final Matcher notes = Pattern.compile("(\\d+) bytes of the xcodebuild output skipped").matcher(output);
+    long reported = 0;
+    while (notes.find())
+      reported += Long.parseLong(notes.group(1));
+    assertEquals(output, pipeline.getSkippedBytes(), reported);
+    assertEquals(100 * line.length, pipeline.getEventCount(XCodeBuildEvent.Type.COMPILE) * line.length
+          + pipeline.getSkippedBytes());
+
+    // the skipped output is not lost
+    assertEquals(100 * line.length, raw.size());
+  }
+
+  @Test
+  public void testSkippedOutputEndingWithinLine() throws Exception
+  {
+    final List<XCodeBuildEvent> events = new ArrayList<XCodeBuildEvent>();
+    final String output = replaySkipped("CompileC a.o a.m normal armv7\nCompileC b.o b",
+          ".m normal armv7\nCompileC c.o c", ".m normal armv7\nCompileC d.o d.m normal armv7\n", events);
+
+    // the lines skipped in part are dropped, the line after them is processed
+    assertEquals(2, events.size());
+    assertEquals("a.m", events.get(0).getSubject());
+    assertEquals("d.m", events.get(1).getSubject());
+    assertFalse(output, output.contains("b.o"));
+    assertFalse(output, output.contains("c.o"));
+  }
+
+  @Test
+  public void testSkippedOutputEndingWithLine() throws Exception
+  {
+    final List<XCodeBuildEvent> events = new ArrayList<XCodeBuildEvent>();
+    final String output = replaySkipped("CompileC a.o a.m normal armv7\n", "CompileC b.o b.m normal armv7\n",
+          "CompileC c.o c.m normal armv7\n", events);
+
+    assertEquals(2, events.size());
+    assertEquals("a.m", events.get(0).getSubject());
+    assertEquals("c.m", events.get(1).getSubject());
+    assertFalse(output, output.contains("b.o"));
+  }
+
+  /**
+   * Writes <code>queued</code> and <code>skipped</code> before the consumer is started, so the latter is skipped, and
+   * writes <code>next</code> after the consumer has taken the first chunk.
+   */
+  private static String replaySkipped(String queued, String skipped, String next, final List<XCodeBuildEvent> events)
+        throws IOException, InterruptedException
+  {
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final CountDownLatch taken = new CountDownLatch(1);
+
+    final XCodeBuildOutputPipeline pipeline = new XCodeBuildOutputPipeline(new PrintStream(log, true, "UTF-8"), null,
+          false, 1);
+    pipeline.addListener(new XCodeBuildEventListener() {
+      @Override
+      public void onEvent(XCodeBuildEvent event)
+      {
+        events.add(event);
+        taken.countDown();
+      }
+    });
+
+    pipeline.write(queued.getBytes("UTF-8"));
+    pipeline.write(skipped.getBytes("UTF-8"));
+    assertEquals(skipped.length(), pipeline.getSkippedBytes());
+
+    pipeline.start();
+    taken.await();
+    pipeline.write(next.getBytes("UTF-8"));
+    pipeline.close();
+
+    assertEquals(skipped.length(), pipeline.getSkippedBytes());
+    return log.toString("UTF-8");
+  }
+
+  static byte[] getRecordedLog() throws IOException
+  {
+    final InputStream in = XCodeBuildOutputPipelineTest.class.getResourceAsStream(RECORDED_LOG);
+    try {
+      return IOUtils.toByteArray(in);
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Writes the log in blocks of varying size like the output of a process is read.
+   */
+  static void replay(XCodeBuildOutputPipeline pipeline, byte[] recorded, int times) throws IOException
+  {
+    for (int i = 0; i < times; i++) {
+      for (int off = 0, block = 1; off < recorded.length; off += block, block = block * 7 % 4093 + 1)
+        pipeline.write(recorded, off, Math.min(block, recorded.length - off));
+    }
+    pipeline.close();
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XCodeBuildSchedulerTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testConfiguration()
+  {
+    final int processors = Runtime.getRuntime().availableProcessors();
+
+    final Properties properties = new Properties();
+    assertEquals(processors, XCodeBuildScheduler.getBudget(properties));
+    properties.setProperty(XCodeBuildScheduler.BUDGET_PROPERTY, "6");
+    assertEquals(6, XCodeBuildScheduler.getBudget(properties));
+    properties.setProperty(XCodeBuildScheduler.BUDGET_PROPERTY, "0");
+    assertEquals(processors, XCodeBuildScheduler.getBudget(properties));
+
+    assertEquals(1, XCodeBuildScheduler.getReactorThreads(null, false));
+    assertEquals(4, XCodeBuildScheduler.getReactorThreads("4", false));
+    assertEquals(2 * processors, XCodeBuildScheduler.getReactorThreads("2C", true));
+    assertEquals(1, XCodeBuildScheduler.getReactorThreads("many", false));
+
+    final XCodeBuildScheduler scheduler = new XCodeBuildScheduler(8);
+    assertEquals(8, scheduler.getShare(1));
+    assertEquals(2, scheduler.getShare(4));
+    assertEquals(1, scheduler.getShare(16));
+  }
+
+  @Test
+  public void testCallsWaitForFreeSlots() throws Exception
+  {
+    final XCodeBuildScheduler scheduler = new XCodeBuildScheduler(4);
+
+    final XCodeBuildScheduler.Lease first = scheduler.acquire("a", 3);
+    assertEquals(3, first.getJobs());
+    assertEquals(1, scheduler.getFree());
+
+    // more than the budget is limited to the budget
+    final List<Integer> granted = Collections.synchronizedList(new ArrayList<Integer>());
+    final Thread waiting = new Thread() {
+      @Override
+      public void run()
+      {
+        try {
+          final XCodeBuildScheduler.Lease lease = scheduler.acquire("b", 10);
+          granted.add(lease.getJobs());
+          lease.close();
+        }
+        catch (InterruptedIOException e) {
+          granted.add(-1);
+        }
+      }
+    };
+    waiting.start();
+
+    Thread.sleep(200);
+    assertTrue(granted.isEmpty());
+
+    first.close();
+    first.close();
+    waiting.join(10000);
+
+    assertEquals(Collections.singletonList(4), granted);
+    assertEquals(4, scheduler.getFree());
+    assertTrue(scheduler.getWaitMillis("b") >= 150);
+    assertTrue(scheduler.getRunMillis("a") >= 150);
+
+    final String summary = scheduler.getSummary();
+    assertTrue(summary, summary.startsWith("xcodebuild CPU budget: 4 slots"));
+    assertTrue(summary, summary.contains("\na "));
+    assertTrue(summary, summary.contains("\nb "));
+  }
+
+  @Test
+  public void testCallsAreServedInOrder() throws Exception
+  {
+    final XCodeBuildScheduler scheduler = new XCodeBuildScheduler(2);
+    final XCodeBuildScheduler.Lease first = scheduler.acquire("a", 2);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    final Thread large = startAcquire(scheduler, "large", 2, order);
+    Thread.sleep(200);
+    final Thread small = startAcquire(scheduler, "small", 1, order);
+    Thread.sleep(200);
+
+    // the small call fits as soon as one slot is free but must not overtake the large one
+    first.close();
+    large.join(10000);
+    small.join(10000);
+
+    assertEquals(Arrays.asList("large", "small"), order);
+  }
+
+  @Test
+  public void testInterruptWhileWaiting() throws Exception
+  {
+    final XCodeBuildScheduler scheduler = new XCodeBuildScheduler(1);
+    final XCodeBuildScheduler.Lease first = scheduler.acquire("a", 1);
+    final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+    final Thread interrupted = startAcquire(scheduler, "interrupted", 1, order);
+    Thread.sleep(200);
+    final Thread next = startAcquire(scheduler, "next", 1, order);
+    Thread.sleep(200);
+
+    interrupted.interrupt();
+    interrupted.join(10000);
+    first.close();
+    next.join(10000);
+
+    assertEquals(Arrays.asList("interrupted failed", "next"), order);
+    assertEquals(1, scheduler.getFree());
+  }
+
+  @Test
+  public void testJobsPassedToXcodebuild() throws Exception
+  {
+    final StubProcessService stub = new StubProcessService();
+    stub.when("xcodebuild").thenReturn(0, "");
+    final ProcessService previous = ProcessServices.setDefault(stub);
+
+    try {
+      final XCodeBuildScheduler scheduler = new XCodeBuildScheduler(8);
+      final XCodeManager manager = new XCodeManager(scheduler, "module", scheduler.getShare(4));
+
+      manager.callXcodeBuild(createContext(null));
+      assertEquals("2", getOption(stub.getCommands().get(0), "-jobs"));
+
+      // configured by the user
+      manager.callXcodeBuild(createContext("3"));
+      assertEquals("3", getOption(stub.getCommands().get(1), "-jobs"));
+
+      assertEquals(8, scheduler.getFree());
+      assertTrue(scheduler.getSummary().contains("\nmodule "));
+    }
+    finally {
+      ProcessServices.setDefault(previous);
+    }
+  }
+
+  private static Thread startAcquire(final XCodeBuildScheduler scheduler, final String module, final int jobs,
+        final List<String> order)
+  {
+    final Thread thread = new Thread() {
+      @Override
+      public void run()
+      {
+        try {
+          final XCodeBuildScheduler.Lease lease = scheduler.acquire(module, jobs);
+          order.add(module);
+          lease.close();
+        }
+        catch (InterruptedIOException e) {
+          order.add(module + " failed");
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private static String getOption(List<String> command, String option)
+  {
+    final int index = command.indexOf(option);
+    if (index < 0)
+      fail("Option " + option + " missing in " + command + ".");
+    return command.get(index + 1);
+  }
+
+  private XCodeContext createContext(String jobs)
+  {
+    final Map<String, String> managedOptions = new HashMap<String, String>();
+    managedOptions.put(Options.ManagedOption.PROJECT.getOptionName(), "MyApp.xcodeproj");
+    managedOptions.put(Options.ManagedOption.CONFIGURATION.getOptionName(), "Release");
+
+    final Map<String, String> userOptions = new HashMap<String, String>();
+    if (jobs != null)
+      userOptions.put(XCodeBuildScheduler.JOBS_OPTION, jobs);
+
+    return new XCodeContext(Collections.singletonList("build"), tmpFolder.getRoot(), new PrintStream(
+          new ByteArrayOutputStream()), new Settings(null, new HashMap<String, String>()), new Options(userOptions,
+          managedOptions));
+  }
+}
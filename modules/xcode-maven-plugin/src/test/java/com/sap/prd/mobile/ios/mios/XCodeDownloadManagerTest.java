@@ -0,0 +1,288 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonatype.aether.RepositorySystem;
+import org.sonatype.aether.artifact.Artifact;
+import org.sonatype.aether.repository.RemoteRepository;
+import org.sonatype.aether.resolution.ArtifactRequest;
+import org.sonatype.aether.resolution.ArtifactResolutionException;
+import org.sonatype.aether.resolution.ArtifactResult;
+import org.sonatype.aether.transfer.ArtifactNotFoundException;
+import org.sonatype.aether.util.DefaultRepositorySystemSession;
+import org.sonatype.aether.util.artifact.DefaultArtifact;
+
+public class XCodeDownloadManagerTest
+{
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupStatic()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testResolveArtifactsInParallelBatches() throws Exception
+  {
+    final ResolvingRepositorySystem resolver = new ResolvingRepositorySystem(tmpFolder.newFolder("repo"));
+    final XCodeDownloadManager downloadManager = new XCodeDownloadManager(Collections.<RemoteRepository> emptyList(),
+          resolver.getProxy(), null);
+
+    final List<Artifact> artifacts = new ArrayList<Artifact>();
+    for (int i = 0; i < 40; i++)
+      artifacts.add(new DefaultArtifact("com.sap.ondevice", "lib" + i, "Release-iphoneos", "a", "1.0"));
+    artifacts.add(new DefaultArtifact("com.sap.ondevice", "lib0", "missing", "a", "1.0"));
+    // duplicates are resolved once
+    artifacts.add(new DefaultArtifact("com.sap.ondevice", "lib1", "Release-iphoneos", "a", "1.0"));
+
+    final Map<Artifact, Artifact> resolved = downloadManager.resolveArtifacts(artifacts, 4);
+
+    assertEquals(41, resolved.size());
+    assertNull(resolved.get(new DefaultArtifact("com.sap.ondevice", "lib0", "missing", "a", "1.0")));
+    assertTrue(resolved.get(artifacts.get(5)).getFile().isFile());
+
+    assertEquals(Arrays.asList(16, 16, 9), resolver.getBatchSizes());
+    assertTrue(resolver.getThreads().size() > 1);
+    assertTrue(resolver.getThreads().size() <= 4);
+  }
+
+  @Test
+  public void testAbsentArtifactsAreNotLookedUpAgain() throws Exception
+  {
+    final ResolvingRepositorySystem resolver = new ResolvingRepositorySystem(tmpFolder.newFolder("repo"));
+    final NegativeResolutionCache cache = new NegativeResolutionCache(tmpFolder.newFolder("absent"), 0);
+    final XCodeDownloadManager downloadManager = new XCodeDownloadManager(Collections.<RemoteRepository> emptyList(),
+          resolver.getProxy(), null).setNegativeResolutionCache(cache);
+
+    final Artifact missing = new DefaultArtifact("com.sap.ondevice", "lib", "missing", "a", "1.0");
+    final Artifact existing = new DefaultArtifact("com.sap.ondevice", "lib", "Release-iphoneos", "a", "1.0");
+
+    downloadManager.resolveArtifacts(Arrays.asList(missing, existing), 2);
+    assertEquals(2, resolver.getLookups());
+
+    final Map<Artifact, Artifact> resolved = downloadManager.resolveArtifacts(Arrays.asList(missing, existing), 2);
+    assertEquals(3, resolver.getLookups());
+    assertTrue(resolved.containsKey(missing));
+    assertNull(resolved.get(missing));
+
+    final org.apache.maven.artifact.Artifact library = GAVUtil.getArtifact("com.sap.ondevice:lib:xcode-lib:1.0");
+
+    try {
+      downloadManager.resolveSideArtifact(library, "missing", "a");
+      fail();
+    }
+    catch (SideArtifactNotFoundException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("recorded as absent"));
+    }
+    assertEquals(3, resolver.getLookups());
+    assertEquals(2, cache.getHits());
+
+    // a single lookup records absent artifacts as well
+    try {
+      downloadManager.resolveSideArtifact(library, "missing", "headers.tar");
+      fail();
+    }
+    catch (SideArtifactNotFoundException e) {
+      assertFalse(e.getMessage(), e.getMessage().contains("recorded as absent"));
+    }
+    assertEquals(4, resolver.getLookups());
+    assertTrue(cache.isAbsent(XCodeDownloadManager.getSideArtifact(library, "missing", "headers.tar"), Collections
+      .<RemoteRepository> emptyList()));
+  }
+
+  @Test
+  public void testNothingRecordedOffline() throws Exception
+  {
+    final ResolvingRepositorySystem resolver = new ResolvingRepositorySystem(tmpFolder.newFolder("repo"));
+    final NegativeResolutionCache cache = new NegativeResolutionCache(tmpFolder.newFolder("absent"), 0);
+    final DefaultRepositorySystemSession session = new DefaultRepositorySystemSession();
+    session.setOffline(true);
+    final XCodeDownloadManager downloadManager = new XCodeDownloadManager(Collections.<RemoteRepository> emptyList(),
+          resolver.getProxy(), session).setNegativeResolutionCache(cache);
+
+    final Artifact missing = new DefaultArtifact("com.sap.ondevice", "lib", "missing", "a", "1.0");
+
+    assertNull(downloadManager.resolveArtifacts(Arrays.asList(missing), 2).get(missing));
+
+    try {
+      downloadManager.resolveSideArtifact(GAVUtil.getArtifact("com.sap.ondevice:lib:xcode-lib:1.0"), "missing",
+            "headers.tar");
+      fail();
+    }
+    catch (SideArtifactNotFoundException e) {
+    }
+
+    assertEquals(0, cache.getRecorded());
+    assertFalse(cache.getDirectory().exists() && cache.getDirectory().list().length > 0);
+
+    // online again the artifacts are looked up
+    session.setOffline(false);
+    downloadManager.resolveArtifacts(Arrays.asList(missing), 2);
+    assertEquals(3, resolver.getLookups());
+    assertEquals(1, cache.getRecorded());
+  }
+
+  @Test
+  public void testSideArtifactsOfLibrariesAndFrameworks()
+  {
+    final org.apache.maven.artifact.Artifact library = GAVUtil.getArtifact("com.sap.ondevice:lib:xcode-lib:1.0");
+    final org.apache.maven.artifact.Artifact framework = GAVUtil.getArtifact(
+          "com.sap.ondevice:fw:xcode-framework:1.0");
+
+    final List<Artifact> sideArtifacts = XCodePrepareBuildManager.getSideArtifacts(Arrays.asList(library, framework),
+          new LinkedHashSet<String>(Arrays.asList("Release", "Debug")), new LinkedHashSet<String>(Arrays.asList(
+                "iphoneos", "iphonesimulator")));
+
+    final Set<String> coordinates = new HashSet<String>();
+    for (Artifact artifact : sideArtifacts)
+      coordinates.add(artifact.toString());
+
+    // 2 configurations x (2 sdks x (lib + headers) + fat lib) + 2 frameworks
+    assertEquals(12, sideArtifacts.size());
+    assertEquals(12, coordinates.size());
+    assertTrue(coordinates.contains("com.sap.ondevice:lib:a:Debug-iphonesimulator:1.0"));
+    assertTrue(coordinates.contains("com.sap.ondevice:lib:headers.tar:Release-iphoneos:1.0"));
+    assertTrue(coordinates.contains("com.sap.ondevice:lib:a:Release-fat-binary:1.0"));
+    assertTrue(coordinates.contains("com.sap.ondevice:fw:xcode-framework-zip:Debug:1.0"));
+    assertFalse(coordinates.contains("com.sap.ondevice:fw:a:Debug-iphoneos:1.0"));
+  }
+
+  /**
+   * Resolves all artifacts except those with classifier <code>missing</code> to files in a directory.
+   */
+  private static final class ResolvingRepositorySystem implements InvocationHandler
+  {
+    private final File repository;
+
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+    private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    ResolvingRepositorySystem(File repository)
+    {
+      this.repository = repository;
+    }
+
+    RepositorySystem getProxy()
+    {
+      return (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { RepositorySystem.class }, this);
+    }
+
+    List<Integer> getBatchSizes()
+    {
+      final List<Integer> result = new ArrayList<Integer>(batchSizes);
+      Collections.sort(result, Collections.reverseOrder());
+      return result;
+    }
+
+    Set<String> getThreads()
+    {
+      return threads;
+    }
+
+    /**
+     * @return the number of artifacts looked up.
+     */
+    int getLookups()
+    {
+      return lookups.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+      if (method.getName().equals("resolveArtifact"))
+        return resolve(Collections.singletonList((ArtifactRequest) args[1])).get(0);
+
+      if (!method.getName().equals("resolveArtifacts"))
+        throw new UnsupportedOperationException(method.getName());
+
+      @SuppressWarnings("unchecked")
+      final Collection<ArtifactRequest> requests = (Collection<ArtifactRequest>) args[1];
+      batchSizes.add(requests.size());
+      threads.add(Thread.currentThread().getName());
+
+      // a round trip to a remote repository
+      Thread.sleep(100);
+
+      return resolve(requests);
+    }
+
+    private List<ArtifactResult> resolve(Collection<ArtifactRequest> requests) throws Exception
+    {
+      lookups.addAndGet(requests.size());
+
+      final List<ArtifactResult> results = new ArrayList<ArtifactResult>();
+      boolean failed = false;
+
+      for (ArtifactRequest request : requests) {
+        final ArtifactResult result = new ArtifactResult(request);
+        final Artifact artifact = request.getArtifact();
+
+        if (artifact.getClassifier().equals("missing")) {
+          result.addException(new ArtifactNotFoundException(artifact, null));
+          failed = true;
+        }
+        else {
+          final File file = new File(repository, artifact.toString().replace(':', '_'));
+          org.apache.commons.io.FileUtils.writeStringToFile(file, artifact.toString());
+          result.setArtifact(artifact.setFile(file));
+        }
+        results.add(result);
+      }
+
+      if (failed)
+        throw new ArtifactResolutionException(results);
+      return results;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * xcode-maven-plugin
+ * %%
+ * Copyright (C) 2012 SAP AG
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.sap.prd.mobile.ios.mios;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.logging.LogManager;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class XCodePackageXcodeprojMojoTest
+{
+
+  private static final String FRAMEWORK = "target/xcode-deps/frameworks/Release/com.sap.ondevice/MyFramework";
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setupLogger()
+  {
+    LogManager.getLogManager().addLogger(new XCodePluginLogger());
+  }
+
+  @Test
+  public void testFrameworksFromExtractionStoreArePackagedWithContent() throws Exception
+  {
+    final File baseDirectory = tmpFolder.newFolder("project");
+    final File targetFolder = new File(baseDirectory, "target");
+    FileUtils.writeStringToFile(new File(baseDirectory, "src/xcode/MyApp.xcodeproj/project.pbxproj"), "// !$*UTF8*$!");
+
+    final File archive = new File(tmpFolder.getRoot(), "MyFramework-1.0-Release.xcode-framework-zip");
+    FileUtils.writeStringToFile(archive, "framework");
+
+    final ExtractionStore store = new ExtractionStore(tmpFolder.newFolder("store"), Long.MAX_VALUE);
+    final File content = store.get(archive, ExtractionMarker.sha1(archive), "framework",
+          new ExtractionStore.Extractor() {
+            @Override
+            public void extract(File archive, File directory) throws IOException
+            {
+              final File versions = new File(directory, "MyFramework.framework/Versions");
+              FileUtils.writeStringToFile(new File(versions, "A/Headers/MyFramework.h"), "@interface MyFramework");
+              assertEquals(0, ProcessServices.getDefault().execute(System.out, versions, "ln", "-s", "A", "Current"));
+            }
+          });
+
+    final File location = new File(baseDirectory, FRAMEWORK);
+    ExtractionStore.link(content, location);
+    assertTrue(ExtractionStore.isSymbolicLink(location));
+
+    XCodePackageXcodeprojMojo.zipWithLinks(new SystemStreamLog(), baseDirectory, new File(targetFolder, "xcode-deps"),
+          targetFolder, "MyApp-xcodeproj-with-deps.zip", Arrays.asList("src/xcode", "target/xcode-deps/frameworks"),
+          null);
+
+    final ZipFile zip = new ZipFile(new File(targetFolder, "MyApp-xcodeproj-with-deps.zip"));
+    try {
+      assertNotNull(zip.getEntry("src/xcode/MyApp.xcodeproj/project.pbxproj"));
+
+      // the content of the store, not a link to it
+      assertTrue(zip.getEntry(FRAMEWORK).isDirectory());
+      assertNotNull(zip.getEntry(FRAMEWORK + "/MyFramework.framework/Versions/A/Headers/MyFramework.h"));
+
+      // links within the framework are kept, the content of a link entry is its target
+      final ZipEntry current = zip.getEntry(FRAMEWORK + "/MyFramework.framework/Versions/Current");
+      assertNotNull(current);
+      final InputStream in = zip.getInputStream(current);
+      try {
+        assertEquals("A", IOUtils.toString(in));
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    finally {
+      zip.close();
+    }
+
+    assertFalse(new File(targetFolder, "xcodeproj-staging").exists());
+    assertTrue(ExtractionStore.isSymbolicLink(location));
+    assertTrue(new File(content, "MyFramework.framework/Versions/A/Headers/MyFramework.h").isFile());
+  }
+}